@@ -18,7 +18,6 @@ package com.networknt.audit;
 
 import com.networknt.config.Config;
 import com.networknt.handler.MiddlewareHandler;
-import com.networknt.utility.Constants;
 import com.networknt.utility.ModuleRegistry;
 import io.undertow.Handlers;
 import io.undertow.server.HttpHandler;
@@ -27,7 +26,7 @@ import io.undertow.util.AttachmentKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -38,6 +37,12 @@ import java.util.Map;
  *
  * Turn off statusCode and responseTime can make it faster
  *
+ * The record is created when the exchange is completed so that statusCode and responseTime are
+ * included, and it is written to the sink by a background writer in batches. The request thread
+ * only copies the values into an array and puts it into a bounded ring buffer. When the buffer is
+ * full, the record is dropped or the request thread waits for blockTimeout depending on the
+ * overflowPolicy. The number of dropped records can be retrieved with getDroppedCount().
+ *
  * timestamp
  * serviceName (from server.json)
  * correlationId
@@ -60,6 +65,17 @@ public class AuditHandler implements MiddlewareHandler {
     static final String STATUS_CODE = "statusCode";
     static final String RESPONSE_TIME = "responseTime";
     static final String TIMESTAMP = "timestamp";
+    static final String QUEUE_SIZE = "queueSize";
+    static final String BATCH_SIZE = "batchSize";
+    static final String FLUSH_INTERVAL = "flushInterval";
+    static final String OVERFLOW_POLICY = "overflowPolicy";
+    static final String BLOCK_TIMEOUT = "blockTimeout";
+    static final String SINK = "sink";
+
+    static final int DEFAULT_QUEUE_SIZE = 16384;
+    static final int DEFAULT_BATCH_SIZE = 512;
+    static final int DEFAULT_FLUSH_INTERVAL = 100;
+    static final int DEFAULT_BLOCK_TIMEOUT = 10;
 
     public static final Map<String, Object> config;
     private static final List<String> headerList;
@@ -68,7 +84,8 @@ public class AuditHandler implements MiddlewareHandler {
     private static boolean statusCode = false;
     private static boolean responseTime = false;
 
-    static final Logger audit = LoggerFactory.getLogger(Constants.AUDIT_LOGGER);
+    static final Logger logger = LoggerFactory.getLogger(AuditHandler.class);
+    static final AuditWriter writer;
     public static final AttachmentKey<Map> AUDIT_INFO = AttachmentKey.create(Map.class);
 
     private volatile HttpHandler next;
@@ -85,6 +102,32 @@ public class AuditHandler implements MiddlewareHandler {
         if(object != null && (Boolean) object) {
             responseTime = true;
         }
+        List<String> names = new ArrayList<>();
+        names.add(TIMESTAMP);
+        if(auditList != null) names.addAll(auditList);
+        if(headerList != null) names.addAll(headerList);
+        if(statusCode) names.add(STATUS_CODE);
+        if(responseTime) names.add(RESPONSE_TIME);
+        writer = new AuditWriter(names.toArray(new String[names.size()]), createSink((String)config.get(SINK)),
+                getInt(QUEUE_SIZE, DEFAULT_QUEUE_SIZE), getInt(BATCH_SIZE, DEFAULT_BATCH_SIZE),
+                getInt(FLUSH_INTERVAL, DEFAULT_FLUSH_INTERVAL), (String)config.get(OVERFLOW_POLICY),
+                getInt(BLOCK_TIMEOUT, DEFAULT_BLOCK_TIMEOUT));
+    }
+
+    private static int getInt(String key, int defaultValue) {
+        Object object = config.get(key);
+        return object == null ? defaultValue : ((Number)object).intValue();
+    }
+
+    private static AuditSink createSink(String className) {
+        if(className != null && className.length() > 0) {
+            try {
+                return (AuditSink)Class.forName(className).newInstance();
+            } catch (Exception e) {
+                logger.error("Failed to create audit sink " + className + ", fall back to logger", e);
+            }
+        }
+        return new LoggerAuditSink();
     }
 
     public AuditHandler() {
@@ -93,37 +136,67 @@ public class AuditHandler implements MiddlewareHandler {
 
     @Override
     public void handleRequest(final HttpServerExchange exchange) throws Exception {
-        Map<String, Object> auditInfo = exchange.getAttachment(AuditHandler.AUDIT_INFO);
-        Map<String, Object> auditMap = new LinkedHashMap<>();
         final long start = System.currentTimeMillis();
-        auditMap.put(TIMESTAMP, System.currentTimeMillis());
+        exchange.addExchangeCompleteListener((exchange1, nextListener) -> {
+            try {
+                writer.publish(createRecord(exchange1, start));
+            } finally {
+                nextListener.proceed();
+            }
+        });
+        next.handleRequest(exchange);
+    }
+
+    /**
+     * Copy the values of the audit record in the order of the field names given to the writer.
+     * The audit info is read on completion as it is populated by the handlers after this one.
+     */
+    private static Object[] createRecord(HttpServerExchange exchange, long start) {
+        Object[] record = new Object[1 + (auditList == null ? 0 : auditList.size())
+                + (headerList == null ? 0 : headerList.size()) + (statusCode ? 1 : 0) + (responseTime ? 1 : 0)];
+        int i = 0;
+        record[i++] = start;
         // dump audit info fields according to config
-        if(auditInfo != null) {
-            if(auditList != null && auditList.size() > 0) {
-                for(String name: auditList) {
-                    auditMap.put(name, auditInfo.get(name));
-                }
+        if(auditList != null) {
+            Map<String, Object> auditInfo = exchange.getAttachment(AuditHandler.AUDIT_INFO);
+            for(String name: auditList) {
+                record[i++] = auditInfo == null ? null : auditInfo.get(name);
             }
         }
         // dump headers field according to config
-        if(headerList != null && headerList.size() > 0) {
+        if(headerList != null) {
             for(String name: headerList) {
-                auditMap.put(name, exchange.getRequestHeaders().getFirst(name));
+                record[i++] = exchange.getRequestHeaders().getFirst(name);
             }
         }
-        if(statusCode || responseTime) {
-            exchange.addExchangeCompleteListener((exchange1, nextListener) -> {
-                if(statusCode) {
-                    auditMap.put(STATUS_CODE, exchange1.getStatusCode());
-                }
-                if(responseTime) {
-                    auditMap.put(RESPONSE_TIME, System.currentTimeMillis() - start);
-                }
-                nextListener.proceed();
-            });
+        if(statusCode) {
+            record[i++] = exchange.getStatusCode();
         }
-        audit.info(Config.getInstance().getMapper().writeValueAsString(auditMap));
-        next.handleRequest(exchange);
+        if(responseTime) {
+            record[i] = System.currentTimeMillis() - start;
+        }
+        return record;
+    }
+
+    /**
+     * @return number of audit records dropped because the queue is full or the sink failed
+     */
+    public static long getDroppedCount() {
+        return writer.dropped.get();
+    }
+
+    /**
+     * @return number of audit records written to the sink
+     */
+    public static long getWrittenCount() {
+        return writer.written.get();
+    }
+
+    /**
+     * @return number of audit records waiting to be written
+     */
+    public static int getQueueSize() {
+        return writer.getQueueSize();
     }
 
     @Override
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.networknt.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded lock-free multi-producer ring buffer. Each slot has a sequence number that tells
+ * whether it is free for the producer of that round or filled for the consumer, so offer and poll
+ * only need one CAS on the tail or head and never block. The capacity is rounded up to a power
+ * of two and is at least two, as a single slot cannot tell a filled slot from a free one of the
+ * next round.
+ *
+ * @param <E> element type
+ */
+class AuditRingBuffer<E> {
+    private final int mask;
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    AuditRingBuffer(int capacity) {
+        int size = 2;
+        while(size < capacity) size <<= 1;
+        mask = size - 1;
+        buffer = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for(int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Add the element if there is room.
+     *
+     * @param e element
+     * @return false if the buffer is full
+     */
+    boolean offer(E e) {
+        while(true) {
+            long pos = tail.get();
+            int index = (int)pos & mask;
+            long diff = sequences.get(index) - pos;
+            if(diff == 0) {
+                if(tail.compareAndSet(pos, pos + 1)) {
+                    buffer.lazySet(index, e);
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+            } else if(diff < 0) {
+                return false;
+            }
+            // another producer took the slot, retry with the new tail.
+        }
+    }
+
+    /**
+     * @return the oldest element or null if the buffer is empty
+     */
+    E poll() {
+        while(true) {
+            long pos = head.get();
+            int index = (int)pos & mask;
+            long diff = sequences.get(index) - (pos + 1);
+            if(diff == 0) {
+                if(head.compareAndSet(pos, pos + 1)) {
+                    E e = buffer.get(index);
+                    buffer.lazySet(index, null);
+                    sequences.set(index, pos + mask + 1);
+                    return e;
+                }
+            } else if(diff < 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Move up to max elements into the list.
+     *
+     * @param list target list
+     * @param max max number of elements
+     * @return number of elements moved
+     */
+    int drainTo(List<E> list, int max) {
+        int count = 0;
+        E e;
+        while(count < max && (e = poll()) != null) {
+            list.add(e);
+            count++;
+        }
+        return count;
+    }
+
+    int size() {
+        return (int)Math.max(0, tail.get() - head.get());
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.networknt.audit;
+
+import java.util.List;
+
+/**
+ * Destination of the serialized audit records. It is called by the audit writer thread only, one
+ * batch at a time, so an implementation doesn't need to be thread safe. The default sink writes to
+ * the Audit logger, which is normally a rolling file appender in logback.xml. Another sink can be
+ * plugged in with the sink class name in audit.json.
+ */
+public interface AuditSink {
+    /**
+     * Write a batch of records.
+     *
+     * @param records JSON strings in the order they are completed
+     * @throws Exception if the batch cannot be written
+     */
+    void write(List<String> records) throws Exception;
+
+    /**
+     * Flush buffered records. It is called when the writer becomes idle and on shutdown.
+     *
+     * @throws Exception if the records cannot be flushed
+     */
+    default void flush() throws Exception {
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.networknt.audit;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.networknt.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Takes audit records from the request threads through a lock-free ring buffer and writes them
+ * to the sink in batches on a background daemon thread. A record is an array of values in the
+ * order of the field names, so nothing is serialized on the request thread.
+ *
+ * When the buffer is full, the record is dropped with the drop policy. With the block policy the
+ * request thread waits up to blockTimeout milliseconds for room before the record is dropped.
+ *
+ * The writers are closed by the server with closeAll after the in-flight requests are drained,
+ * so the records of the drained requests are written as well.
+ */
+public class AuditWriter implements Runnable {
+    static final Logger logger = LoggerFactory.getLogger(AuditWriter.class);
+
+    static final String POLICY_DROP = "drop";
+    static final String POLICY_BLOCK = "block";
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final Set<AuditWriter> writers = ConcurrentHashMap.newKeySet();
+
+    private final String[] names;
+    private final AuditRingBuffer<Object[]> buffer;
+    private final AuditSink sink;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final boolean block;
+    private final long blockTimeoutNanos;
+    private final JsonFactory factory;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    final AtomicLong written = new AtomicLong();
+    final AtomicLong dropped = new AtomicLong();
+
+    AuditWriter(String[] names, AuditSink sink, int queueSize, int batchSize, long flushInterval, String policy, long blockTimeout) {
+        this.names = names;
+        this.sink = sink;
+        this.buffer = new AuditRingBuffer<>(queueSize);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushInterval);
+        this.block = POLICY_BLOCK.equalsIgnoreCase(policy);
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeout);
+        this.factory = Config.getInstance().getMapper().getFactory();
+        thread = new Thread(this, "light-audit-writer");
+        thread.setDaemon(true);
+        thread.start();
+        writers.add(this);
+    }
+
+    /**
+     * Stop all writers after their queued records are written.
+     *
+     * @param timeout max milliseconds to wait for each writer
+     */
+    public static void closeAll(long timeout) {
+        for(AuditWriter writer : writers) {
+            writer.close(timeout);
+        }
+    }
+
+    /**
+     * Queue the record for the writer thread.
+     *
+     * @param record values in the order of the field names
+     * @return false if the record is dropped
+     */
+    boolean publish(Object[] record) {
+        if(buffer.offer(record)) {
+            return true;
+        }
+        if(block && running) {
+            long deadline = System.nanoTime() + blockTimeoutNanos;
+            LockSupport.unpark(thread);
+            do {
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                if(buffer.offer(record)) {
+                    return true;
+                }
+            } while(System.nanoTime() - deadline < 0);
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    int getQueueSize() {
+        return buffer.size();
+    }
+
+    @Override
+    public void run() {
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        List<String> lines = new ArrayList<>(batchSize);
+        StringWriter writer = new StringWriter(256);
+        boolean dirty = false;
+        while(running || buffer.size() > 0) {
+            if(buffer.drainTo(batch, batchSize) == 0) {
+                if(dirty) {
+                    flush();
+                    dirty = false;
+                }
+                LockSupport.parkNanos(this, flushIntervalNanos);
+                continue;
+            }
+            for(Object[] record : batch) {
+                try {
+                    lines.add(serialize(writer, record));
+                } catch (Throwable e) {
+                    logger.error("Failed to serialize audit record", e);
+                    dropped.incrementAndGet();
+                }
+            }
+            try {
+                sink.write(lines);
+                written.addAndGet(lines.size());
+                dirty = true;
+            } catch (Throwable e) {
+                logger.error("Failed to write " + lines.size() + " audit records", e);
+                dropped.addAndGet(lines.size());
+            }
+            batch.clear();
+            lines.clear();
+        }
+        flush();
+    }
+
+    private String serialize(StringWriter writer, Object[] record) throws IOException {
+        writer.getBuffer().setLength(0);
+        try (JsonGenerator generator = factory.createGenerator(writer)) {
+            generator.writeStartObject();
+            for(int i = 0; i < names.length; i++) {
+                generator.writeFieldName(names[i]);
+                generator.writeObject(record[i]);
+            }
+            generator.writeEndObject();
+        }
+        return writer.toString();
+    }
+
+    private void flush() {
+        try {
+            sink.flush();
+        } catch (Throwable e) {
+            logger.error("Failed to flush audit sink", e);
+        }
+    }
+
+    /**
+     * Stop the writer after the queued records are written.
+     *
+     * @param timeout max milliseconds to wait
+     */
+    void close(long timeout) {
+        writers.remove(this);
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
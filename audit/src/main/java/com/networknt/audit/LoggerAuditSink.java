@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.networknt.audit;
+
+import com.networknt.utility.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * The default AuditSink that writes each record to the Audit logger.
+ */
+public class LoggerAuditSink implements AuditSink {
+    static final Logger audit = LoggerFactory.getLogger(Constants.AUDIT_LOGGER);
+
+    @Override
+    public void write(List<String> records) {
+        for(String record : records) {
+            audit.info(record);
+        }
+    }
+}
@@ -130,4 +130,26 @@ public class AuditHandlerTest {
             e.printStackTrace();
         }
     }
+
+    @Test
+    public void testAuditRecordOnCompletion() throws Exception {
+        String url = "http://localhost:8080/pet";
+        CloseableHttpClient client = HttpClients.createDefault();
+        HttpPost httpPost = new HttpPost(url);
+        httpPost.setHeader(Constants.TRACEABILITY_ID, "completion");
+        httpPost.setEntity(new StringEntity("post"));
+        CloseableHttpResponse response = client.execute(httpPost);
+        Assert.assertEquals(200, response.getStatusLine().getStatusCode());
+        String record = null;
+        for(int i = 0; i < 50 && record == null; i++) {
+            Thread.sleep(20);
+            for(String r : TestAuditSink.records) {
+                if(r.contains("\"X-Traceability-Id\":\"completion\"")) record = r;
+            }
+        }
+        Assert.assertNotNull(record);
+        Assert.assertTrue(record.contains("\"statusCode\":200"));
+        Assert.assertTrue(record.contains("\"responseTime\":"));
+        Assert.assertEquals(0, AuditHandler.getDroppedCount());
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.networknt.audit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+public class AuditWriterTest {
+    static final String[] NAMES = {"timestamp", "endpoint", "statusCode"};
+
+    @Test
+    public void testRingBuffer() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(3);
+        Assert.assertEquals(4, buffer.capacity());
+        for(int i = 0; i < 4; i++) {
+            Assert.assertTrue(buffer.offer(i));
+        }
+        Assert.assertFalse(buffer.offer(4));
+        Assert.assertEquals(Integer.valueOf(0), buffer.poll());
+        Assert.assertTrue(buffer.offer(4));
+        for(int i = 1; i < 5; i++) {
+            Assert.assertEquals(Integer.valueOf(i), buffer.poll());
+        }
+        Assert.assertNull(buffer.poll());
+        Assert.assertEquals(0, buffer.size());
+
+        AuditRingBuffer<Integer> single = new AuditRingBuffer<>(1);
+        Assert.assertEquals(2, single.capacity());
+        Assert.assertTrue(single.offer(0));
+        Assert.assertTrue(single.offer(1));
+        Assert.assertFalse(single.offer(2));
+        Assert.assertEquals(Integer.valueOf(0), single.poll());
+    }
+
+    @Test
+    public void testBatchWrite() throws Exception {
+        List<String> records = new CopyOnWriteArrayList<>();
+        AuditWriter writer = new AuditWriter(NAMES, records::addAll, 64, 10, 10, AuditWriter.POLICY_DROP, 0);
+        for(int i = 0; i < 50; i++) {
+            Assert.assertTrue(writer.publish(new Object[] {(long)i, "/v1/pets@get", 200}));
+        }
+        writer.close(5000);
+        Assert.assertEquals(50, records.size());
+        Assert.assertEquals("{\"timestamp\":0,\"endpoint\":\"/v1/pets@get\",\"statusCode\":200}", records.get(0));
+        Assert.assertEquals(50, writer.written.get());
+        Assert.assertEquals(0, writer.dropped.get());
+    }
+
+    @Test
+    public void testCloseAll() throws Exception {
+        List<String> records = new CopyOnWriteArrayList<>();
+        AuditWriter writer = new AuditWriter(NAMES, records::addAll, 64, 100, 60000, AuditWriter.POLICY_DROP, 0);
+        for(int i = 0; i < 10; i++) {
+            Assert.assertTrue(writer.publish(new Object[] {(long)i, "/v1/pets@get", 200}));
+        }
+        AuditWriter.closeAll(5000);
+        Assert.assertEquals(10, records.size());
+    }
+
+    @Test
+    public void testDropWhenFull() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        AuditWriter writer = new AuditWriter(NAMES, batch -> latch.await(), 4, 1, 10, AuditWriter.POLICY_DROP, 0);
+        // the writer is stuck in the sink with the first record, so 4 more fill the buffer.
+        int published = 0;
+        for(int i = 0; i < 10; i++) {
+            if(writer.publish(new Object[] {(long)i, null, 200})) published++;
+        }
+        Assert.assertTrue(published <= 5);
+        Assert.assertEquals(10 - published, writer.dropped.get());
+        latch.countDown();
+        writer.close(5000);
+        Assert.assertEquals(published, writer.written.get());
+    }
+
+    @Test
+    public void testBlockUntilTimeout() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        AuditWriter writer = new AuditWriter(NAMES, batch -> latch.await(), 1, 1, 10, AuditWriter.POLICY_BLOCK, 20);
+        for(int i = 0; i < 3; i++) {
+            writer.publish(new Object[] {(long)i, null, 200});
+        }
+        long start = System.currentTimeMillis();
+        Assert.assertFalse(writer.publish(new Object[] {3L, null, 200}));
+        Assert.assertTrue(System.currentTimeMillis() - start >= 20);
+        latch.countDown();
+        writer.close(5000);
+    }
+}
@@ -0,0 +1,181 @@
+package com.networknt.balance;
+
+import com.networknt.registry.URL;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The load of each service instance as seen by this client: the number of outstanding requests and
+ * a peak EWMA of the response time. The Client records each request here and PeakEwmaLoadBalance
+ * reads the cost of the instances to select one.
+ *
+ * A response slower than the current average replaces it right away, and a failure counts as a
+ * response of FAILURE_PENALTY, so a slow or failing instance loses traffic with the next request.
+ * Faster responses bring the average down gradually, and the average of an idle instance decays
+ * with DECAY_TIME so that it gets traffic again after a while.
+ *
+ * The table is keyed by host:port and is lock-free, a record is one CAS on the stats of the instance.
+ * An instance without outstanding requests that is not used for EVICT_TIME is removed, its average
+ * has decayed to almost nothing by then, so instances that leave the registry don't stay forever.
+ * The table is swept by get at most once per DECAY_TIME.
+ */
+public final class EndpointStats {
+    static final long DECAY_TIME = TimeUnit.SECONDS.toNanos(10);
+    static final long FAILURE_PENALTY = TimeUnit.SECONDS.toNanos(1);
+    // the cost of an instance with outstanding requests but no response time yet.
+    static final double PENDING_PENALTY = TimeUnit.SECONDS.toNanos(1);
+    static final long EVICT_TIME = 6 * DECAY_TIME;
+
+    private static final ConcurrentHashMap<String, Stats> table = new ConcurrentHashMap<>();
+    private static final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+    private EndpointStats() {
+    }
+
+    /**
+     * @param host host of the instance
+     * @param port port of the instance
+     * @return the stats of the instance
+     */
+    public static Stats get(String host, int port) {
+        String key = host + ":" + port;
+        long now = System.nanoTime();
+        long last = lastSweep.get();
+        if (now - last > DECAY_TIME && lastSweep.compareAndSet(last, now)) {
+            sweep(now);
+        }
+        Stats stats = table.get(key);
+        return stats != null ? stats : table.computeIfAbsent(key, k -> new Stats());
+    }
+
+    public static Stats get(URL url) {
+        return get(url.getHost(), url.getPort());
+    }
+
+    /**
+     * Remove the instances without outstanding requests that are not used since now - EVICT_TIME.
+     */
+    static void sweep(long now) {
+        for (Map.Entry<String, Stats> entry : table.entrySet()) {
+            Stats stats = entry.getValue();
+            if (stats.outstanding.get() <= 0 && now - stats.lastUsed > EVICT_TIME) {
+                table.remove(entry.getKey(), stats);
+            }
+        }
+    }
+
+    static int size() {
+        return table.size();
+    }
+
+    static void clear() {
+        table.clear();
+    }
+
+    public static final class Stats {
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicReference<Ewma> ewma = new AtomicReference<>(new Ewma(0, System.nanoTime()));
+        private volatile long lastUsed = System.nanoTime();
+
+        Stats() {
+        }
+
+        /**
+         * Record the start of a request.
+         *
+         * @return the start time to pass to end
+         */
+        public long start() {
+            outstanding.incrementAndGet();
+            long now = System.nanoTime();
+            lastUsed = now;
+            return now;
+        }
+
+        /**
+         * Record the end of a request.
+         *
+         * @param start the value returned by start
+         * @param success false if the request failed or the instance returned a server error
+         */
+        public void end(long start, boolean success) {
+            outstanding.decrementAndGet();
+            long now = System.nanoTime();
+            long rtt = Math.max(0, now - start);
+            update(success ? rtt : Math.max(rtt, FAILURE_PENALTY), now);
+        }
+
+        /**
+         * Record the end of a request that is cancelled by the caller, the response time is unknown.
+         */
+        public void cancel() {
+            outstanding.decrementAndGet();
+        }
+
+        void update(long rtt, long now) {
+            while (true) {
+                Ewma current = ewma.get();
+                double value;
+                if (rtt > current.value) {
+                    // peak sensitive, slowing down is visible right away.
+                    value = rtt;
+                } else {
+                    double w = Math.exp(-(double)Math.max(0, now - current.stamp) / DECAY_TIME);
+                    value = current.value * w + rtt * (1 - w);
+                }
+                if (ewma.compareAndSet(current, new Ewma(value, Math.max(now, current.stamp)))) {
+                    if (now - lastUsed > 0) lastUsed = now;
+                    return;
+                }
+            }
+        }
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        /**
+         * @return the peak EWMA of the response time in nanoseconds, decayed for the time since the
+         * last response.
+         */
+        public double getLatency() {
+            return getLatency(System.nanoTime());
+        }
+
+        double getLatency(long now) {
+            Ewma current = ewma.get();
+            return current.value * Math.exp(-(double)Math.max(0, now - current.stamp) / DECAY_TIME);
+        }
+
+        /**
+         * @return the cost of sending one more request to the instance
+         */
+        public double getCost() {
+            return getCost(System.nanoTime());
+        }
+
+        double getCost(long now) {
+            double latency = getLatency(now);
+            int pending = Math.max(0, outstanding.get());
+            if (latency == 0 && pending != 0) {
+                return PENDING_PENALTY + pending;
+            }
+            return latency * (pending + 1);
+        }
+    }
+
+    private static final class Ewma {
+        final double value;
+        final long stamp;
+
+        Ewma(double value, long stamp) {
+            this.value = value;
+            this.stamp = stamp;
+        }
+    }
+}
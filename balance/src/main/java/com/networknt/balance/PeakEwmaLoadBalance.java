@@ -0,0 +1,43 @@
+package com.networknt.balance;
+
+import com.networknt.registry.URL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Select the less loaded of two random instances, the power of two choices. The load of an
+ * instance is the peak EWMA of its response time multiplied by its outstanding requests plus one,
+ * as recorded in EndpointStats by the Client.
+ *
+ * Comparing two random instances instead of all of them avoids that every client sends its next
+ * request to the same instance that looks best at the moment, and it costs the same for any
+ * number of instances.
+ */
+public class PeakEwmaLoadBalance implements LoadBalance {
+    static Logger logger = LoggerFactory.getLogger(PeakEwmaLoadBalance.class);
+
+    public PeakEwmaLoadBalance() {
+        if(logger.isInfoEnabled()) logger.info("A PeakEwmaLoadBalance instance is started");
+    }
+
+    @Override
+    public URL select(List<URL> urls) {
+        int size = urls.size();
+        if (size == 0) {
+            return null;
+        }
+        if (size == 1) {
+            return urls.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(size);
+        int j = random.nextInt(size - 1);
+        if (j >= i) j++;
+        URL a = urls.get(i);
+        URL b = urls.get(j);
+        return EndpointStats.get(a).getCost() <= EndpointStats.get(b).getCost() ? a : b;
+    }
+}
@@ -0,0 +1,118 @@
+package com.networknt.balance;
+
+import com.networknt.registry.URL;
+import com.networknt.registry.URLImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class PeakEwmaLoadBalanceTest {
+    LoadBalance loadBalance = new PeakEwmaLoadBalance();
+
+    URL fast = new URLImpl("http", "127.0.0.1", 8081, "v1", new HashMap<String, String>());
+    URL slow = new URLImpl("http", "127.0.0.1", 8082, "v1", new HashMap<String, String>());
+    List<URL> urls = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        EndpointStats.clear();
+        urls.add(fast);
+        urls.add(slow);
+    }
+
+    @Test
+    public void testSelect() throws Exception {
+        Assert.assertNull(loadBalance.select(new ArrayList<>()));
+        List<URL> one = new ArrayList<>();
+        one.add(slow);
+        Assert.assertEquals(slow, loadBalance.select(one));
+    }
+
+    @Test
+    public void testSlowInstance() throws Exception {
+        long now = System.nanoTime();
+        EndpointStats.get(fast).update(TimeUnit.MILLISECONDS.toNanos(2), now);
+        EndpointStats.get(slow).update(TimeUnit.MILLISECONDS.toNanos(2), now);
+        // a single slow response is enough.
+        EndpointStats.get(slow).update(TimeUnit.MILLISECONDS.toNanos(200), now);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(fast, loadBalance.select(urls));
+        }
+    }
+
+    @Test
+    public void testFailingInstance() throws Exception {
+        EndpointStats.Stats stats = EndpointStats.get(slow);
+        stats.end(stats.start(), false);
+        Assert.assertTrue(stats.getLatency() >= EndpointStats.FAILURE_PENALTY * 0.99);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(fast, loadBalance.select(urls));
+        }
+    }
+
+    @Test
+    public void testOutstanding() throws Exception {
+        long now = System.nanoTime();
+        EndpointStats.get(fast).update(TimeUnit.MILLISECONDS.toNanos(2), now);
+        EndpointStats.get(slow).update(TimeUnit.MILLISECONDS.toNanos(2), now);
+        EndpointStats.Stats stats = EndpointStats.get(fast);
+        long start = stats.start();
+        stats.start();
+        Assert.assertEquals(2, stats.getOutstanding());
+        Assert.assertEquals(slow, loadBalance.select(urls));
+        stats.end(start, true);
+        stats.cancel();
+        Assert.assertEquals(0, stats.getOutstanding());
+    }
+
+    @Test
+    public void testDecay() throws Exception {
+        long now = System.nanoTime();
+        EndpointStats.Stats stats = EndpointStats.get(slow);
+        stats.update(TimeUnit.MILLISECONDS.toNanos(200), now);
+        double latency = stats.getLatency(now);
+        Assert.assertTrue(stats.getLatency(now + EndpointStats.DECAY_TIME) < latency / 2);
+        Assert.assertTrue(stats.getLatency(now + 10 * EndpointStats.DECAY_TIME) < latency / 1000);
+
+        // faster responses bring the average down gradually.
+        stats.update(TimeUnit.MILLISECONDS.toNanos(2), now + TimeUnit.MILLISECONDS.toNanos(100));
+        Assert.assertTrue(stats.getLatency(now + TimeUnit.MILLISECONDS.toNanos(100)) > TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void testEvictIdle() throws Exception {
+        long now = System.nanoTime();
+        EndpointStats.Stats idle = EndpointStats.get(slow);
+        idle.update(TimeUnit.MILLISECONDS.toNanos(200), now);
+        EndpointStats.Stats busy = EndpointStats.get(fast);
+        busy.start();
+
+        EndpointStats.sweep(now + EndpointStats.EVICT_TIME / 2);
+        Assert.assertEquals(2, EndpointStats.size());
+
+        // the instance with an outstanding request is kept.
+        EndpointStats.sweep(now + EndpointStats.EVICT_TIME + TimeUnit.SECONDS.toNanos(1));
+        Assert.assertEquals(1, EndpointStats.size());
+        Assert.assertSame(busy, EndpointStats.get(fast));
+        Assert.assertNotSame(idle, EndpointStats.get(slow));
+        Assert.assertEquals(0, EndpointStats.get(slow).getLatency(), 0);
+    }
+
+    @Test
+    public void testSpread() throws Exception {
+        // instances without stats have the same cost, so the traffic is spread.
+        for (int i = 3; i < 10; i++) {
+            urls.add(new URLImpl("http", "127.0.0.1", 8080 + i, "v1", new HashMap<String, String>()));
+        }
+        int fastCount = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (fast.equals(loadBalance.select(urls))) fastCount++;
+        }
+        Assert.assertTrue(fastCount > 0 && fastCount < 500);
+    }
+}
@@ -22,7 +22,13 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
  * Created by steve on 29/09/16.
  */
 public class BodyConfig {
+    public static final long DEFAULT_MAX_BODY_SIZE = 10 * 1024 * 1024;
+    public static final long DEFAULT_MAX_ASYNC_BODY_SIZE = 1024 * 1024;
+
     boolean enabled;
+    long maxBodySize = DEFAULT_MAX_BODY_SIZE;
+    long maxAsyncBodySize = DEFAULT_MAX_ASYNC_BODY_SIZE;
+    boolean lazy;
 
     @JsonIgnore
     String description;
@@ -38,6 +44,30 @@ public class BodyConfig {
         this.enabled = enabled;
     }
 
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    public void setMaxBodySize(long maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    public long getMaxAsyncBodySize() {
+        return maxAsyncBodySize;
+    }
+
+    public void setMaxAsyncBodySize(long maxAsyncBodySize) {
+        this.maxAsyncBodySize = maxAsyncBodySize;
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
     public String getDescription() {
         return description;
     }
@@ -16,16 +16,23 @@
 
 package com.networknt.body;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.networknt.config.Config;
 import com.networknt.handler.MiddlewareHandler;
+import com.networknt.handler.RequestContext;
 import com.networknt.status.Status;
 import com.networknt.utility.ModuleRegistry;
 import io.undertow.Handlers;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.server.RequestTooBigException;
 import io.undertow.util.AttachmentKey;
 import io.undertow.util.Headers;
+import io.undertow.util.SameThreadExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,23 +40,39 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Scanner;
 
 /**
  * This is a handler that parses the body into a Map if the input content type is JSON.
  * For other content type, don't parse it. In order to trigger this middleware, the content type
  * must be set in header for post, put and patch.
  * <p>
+ * The body is received asynchronously into pooled buffers and the bytes are parsed by Jackson
+ * directly without converting to String. If the body arrives on the IO thread, the rest of the
+ * chain is dispatched to the worker the request arrived on. Only when the Content-Length is
+ * bigger than maxAsyncBodySize, the exchange is dispatched to a worker thread and the body is
+ * streamed into Jackson with blocking IO. Any body bigger than maxBodySize is rejected.
+ * <p>
+ * A RequestBody handle is attached with REQUEST_BODY_HANDLE so that the body can be bound to a
+ * POJO or read with a streaming parser. If lazy is enabled in body.json, the body is not parsed
+ * at all and REQUEST_BODY is not attached; handlers parse it through the handle when needed.
+ * <p>
  * Created by steve on 29/09/16.
  */
 public class BodyHandler implements MiddlewareHandler {
     static final Logger logger = LoggerFactory.getLogger(BodyHandler.class);
     static final String CONTENT_TYPE_MISMATCH = "ERR10015";
+    static final String REQUEST_BODY_TOO_LARGE = "ERR10036";
+
+    static final ObjectReader mapReader = Config.getInstance().getMapper().readerFor(new TypeReference<HashMap<String, Object>>() {});
+    static final ObjectReader listReader = Config.getInstance().getMapper().readerFor(new TypeReference<List<HashMap<String, Object>>>() {});
 
     // request body will be parse during validation and it is attached to the exchange, in JSON,
     // it could be a map or list. So treat it as Object in the attachment.
     public static final AttachmentKey<Object> REQUEST_BODY = AttachmentKey.create(Object.class);
 
+    // lazy handle of the request body which is parsed only when it is accessed.
+    public static final AttachmentKey<RequestBody> REQUEST_BODY_HANDLE = AttachmentKey.create(RequestBody.class);
+
     public static final String CONFIG_NAME = "body";
 
     public static final BodyConfig config = (BodyConfig) Config.getInstance().getJsonObjectConfig(CONFIG_NAME, BodyConfig.class);
@@ -65,41 +88,135 @@ public class BodyHandler implements MiddlewareHandler {
         // parse the body to map if content type is application/json
         String contentType = exchange.getRequestHeaders().getFirst(Headers.CONTENT_TYPE);
         if (contentType != null && contentType.startsWith("application/json")) {
-            if (exchange.isInIoThread()) {
-                exchange.dispatch(this);
-                return;
+            long contentLength = exchange.getRequestContentLength();
+            if (config.getMaxBodySize() > 0) {
+                if (contentLength > config.getMaxBodySize()) {
+                    sendStatus(exchange, new Status(REQUEST_BODY_TOO_LARGE, config.getMaxBodySize()));
+                    return;
+                }
+                // chunked body without Content-Length is checked by Undertow while reading.
+                exchange.setMaxEntitySize(config.getMaxBodySize());
             }
-            exchange.startBlocking();
-            InputStream is = exchange.getInputStream();
-            if (is != null) {
-                try {
-                    if (is.available() != -1) {
-                        Object body;
-                        String s = new Scanner(is, "UTF-8").useDelimiter("\\A").next();
-                        s = s.trim();
-                        if (s.startsWith("{")) {
-                            body = Config.getInstance().getMapper().readValue(s, new TypeReference<HashMap<String, Object>>() {
-                            });
-                        } else if (s.startsWith("[")) {
-                            body = Config.getInstance().getMapper().readValue(s, new TypeReference<List<HashMap<String, Object>>>() {
-                            });
-                        } else {
-                            // error here. The content type in head doesn't match the body.
-                            Status status = new Status(CONTENT_TYPE_MISMATCH, contentType);
-                            exchange.setStatusCode(status.getStatusCode());
-                            exchange.getResponseSender().send(status.toString());
+            if (contentLength > config.getMaxAsyncBodySize()) {
+                if (exchange.isInIoThread()) {
+                    exchange.dispatch(this);
+                    return;
+                }
+                exchange.startBlocking();
+                InputStream is = exchange.getInputStream();
+                if (config.isLazy()) {
+                    exchange.putAttachment(REQUEST_BODY_HANDLE, new RequestBody(is));
+                } else {
+                    try (JsonParser parser = Config.getInstance().getMapper().getFactory().createParser(is)) {
+                        if (!attachBody(exchange, parser, contentType, null)) {
                             return;
                         }
-                        exchange.putAttachment(REQUEST_BODY, body);
+                    } catch (IOException e) {
+                        logger.error("IOException: ", e);
                     }
-                } catch (IOException e) {
-                    logger.error("IOException: ", e);
                 }
+                next.handleRequest(exchange);
+            } else {
+                exchange.getRequestReceiver().receiveFullBytes((ex, bytes) -> {
+                    if (config.isLazy()) {
+                        if (!isJson(bytes)) {
+                            sendStatus(ex, new Status(CONTENT_TYPE_MISMATCH, contentType));
+                            return;
+                        }
+                        ex.putAttachment(REQUEST_BODY_HANDLE, new RequestBody(bytes));
+                    } else {
+                        try (JsonParser parser = Config.getInstance().getMapper().getFactory().createParser(bytes)) {
+                            if (!attachBody(ex, parser, contentType, bytes)) {
+                                return;
+                            }
+                        } catch (IOException e) {
+                            logger.error("IOException: ", e);
+                        }
+                    }
+                    // the callback may be invoked from a read listener on the IO thread. Dispatch to the
+                    // executor attached to the exchange (the worker pool the request arrived on), or
+                    // to the XNIO worker if there is none, so that handlers never block the IO thread.
+                    // Otherwise continue on the current worker thread once the current call stack returns.
+                    // the request context is bound again as MDC of the IO thread has been cleared.
+                    if (ex.isInIoThread()) {
+                        RequestContext.dispatch(ex, next);
+                    } else {
+                        ex.dispatch(SameThreadExecutor.INSTANCE, RequestContext.wrapHandler(next));
+                    }
+                }, (ex, e) -> {
+                    if (e instanceof RequestTooBigException) {
+                        sendStatus(ex, new Status(REQUEST_BODY_TOO_LARGE, config.getMaxBodySize()));
+                    } else {
+                        logger.error("IOException: ", e);
+                        if (!ex.isResponseStarted()) {
+                            ex.setStatusCode(500);
+                        }
+                        ex.endExchange();
+                    }
+                });
             }
+            return;
         }
         next.handleRequest(exchange);
     }
 
+    /**
+     * Parse the JSON object or array from the parser and attach it to the exchange together with
+     * the body handle. An empty body is not attached.
+     *
+     * @param exchange HttpServerExchange
+     * @param parser JsonParser created from the request body
+     * @param contentType content type in the request header
+     * @param bytes the raw body or null if it is read from the stream
+     * @return false if the body is not JSON and the error response has been sent
+     * @throws IOException if the body cannot be parsed
+     */
+    static boolean attachBody(final HttpServerExchange exchange, final JsonParser parser, final String contentType, final byte[] bytes) throws IOException {
+        JsonToken token;
+        try {
+            token = parser.nextToken();
+        } catch (JsonParseException e) {
+            token = JsonToken.NOT_AVAILABLE;
+        }
+        if (token == null) {
+            return true;
+        }
+        Object body;
+        if (token == JsonToken.START_OBJECT) {
+            body = mapReader.readValue(parser);
+        } else if (token == JsonToken.START_ARRAY) {
+            body = listReader.readValue(parser);
+        } else {
+            // error here. The content type in head doesn't match the body.
+            sendStatus(exchange, new Status(CONTENT_TYPE_MISMATCH, contentType));
+            return false;
+        }
+        exchange.putAttachment(REQUEST_BODY, body);
+        exchange.putAttachment(REQUEST_BODY_HANDLE, new RequestBody(bytes, body));
+        return true;
+    }
+
+    /**
+     * Check the first non-whitespace byte without parsing the body. An empty body is treated as JSON.
+     *
+     * @param bytes the raw body
+     * @return true if the body starts with { or [
+     */
+    static boolean isJson(final byte[] bytes) {
+        for (byte b : bytes) {
+            if (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                continue;
+            }
+            return b == '{' || b == '[';
+        }
+        return true;
+    }
+
+    static void sendStatus(final HttpServerExchange exchange, final Status status) {
+        exchange.setStatusCode(status.getStatusCode());
+        exchange.getResponseSender().send(status.toByteBuffer());
+    }
+
     @Override
     public HttpHandler getNext() {
         return next;
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.body;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.networknt.config.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A handle of the JSON request body attached to the exchange with BodyHandler.REQUEST_BODY_HANDLE.
+ * Nothing is parsed until one of the accessors is called, so handlers that only proxy or ignore
+ * the body don't pay for parsing.
+ *
+ * The body is backed by the bytes received asynchronously, or by the request input stream when
+ * the body is too big to be received asynchronously. A stream backed body is read into memory by
+ * the first call of getBody or as, so the accessors can be called any number of times. Only
+ * getParser streams the body without buffering it, and it can be called once before any other
+ * accessor.
+ */
+public class RequestBody {
+    private static final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    private byte[] bytes;
+    private InputStream stream;
+
+    private Object body;
+    private Object typed;
+
+    RequestBody(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    RequestBody(InputStream stream) {
+        this.bytes = null;
+        this.stream = stream;
+    }
+
+    RequestBody(byte[] bytes, Object body) {
+        this.bytes = bytes;
+        this.body = body;
+    }
+
+    /**
+     * Get the ObjectReader for the class. It is created from Config.getMapper() the first time
+     * and cached for the subsequent requests.
+     *
+     * @param clazz target class
+     * @return ObjectReader
+     */
+    public static ObjectReader getReader(Class<?> clazz) {
+        return readers.computeIfAbsent(clazz, c -> Config.getInstance().getMapper().readerFor(c));
+    }
+
+    /**
+     * Get the body as Map or List the same way as BodyHandler.REQUEST_BODY. It is parsed on the
+     * first call and the result is cached.
+     *
+     * @return Map, List or null if the body is empty
+     * @throws IOException if the body is not valid JSON
+     */
+    public Object getBody() throws IOException {
+        if(body == null) {
+            try (JsonParser parser = Config.getInstance().getMapper().getFactory().createParser(buffer())) {
+                JsonToken token = parser.nextToken();
+                if(token == JsonToken.START_OBJECT) {
+                    body = BodyHandler.mapReader.readValue(parser);
+                } else if(token == JsonToken.START_ARRAY) {
+                    body = BodyHandler.listReader.readValue(parser);
+                }
+            }
+        }
+        return body;
+    }
+
+    /**
+     * Bind the body to the target class with the cached ObjectReader. The result of the first
+     * call is cached.
+     *
+     * @param clazz target class
+     * @param <T> target type
+     * @return the object of the class or null if the body is empty
+     * @throws IOException if the body cannot be bound to the class
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T as(Class<T> clazz) throws IOException {
+        if(typed != null && clazz.isInstance(typed)) {
+            return (T)typed;
+        }
+        if(bytes == null && body != null) {
+            typed = Config.getInstance().getMapper().convertValue(body, clazz);
+        } else {
+            byte[] b = buffer();
+            typed = b.length == 0 ? null : getReader(clazz).readValue(b);
+        }
+        return (T)typed;
+    }
+
+    /**
+     * Get a streaming parser of the body. It is useful for big array payloads which can be
+     * processed element by element without loading the entire body into memory. The caller
+     * should close the parser. A stream backed body that has not been buffered is streamed into
+     * the parser and cannot be read again.
+     *
+     * @return JsonParser of the body
+     * @throws IOException if the parser cannot be created
+     * @throws IllegalStateException if the stream backed body has been consumed
+     */
+    public JsonParser getParser() throws IOException {
+        if(bytes != null) {
+            return Config.getInstance().getMapper().getFactory().createParser(bytes);
+        }
+        if(stream == null) {
+            throw new IllegalStateException("Request body stream has been consumed");
+        }
+        InputStream is = stream;
+        stream = null;
+        return Config.getInstance().getMapper().getFactory().createParser(is);
+    }
+
+    /**
+     * @return the raw bytes of the body or null if it is backed by the input stream and has not
+     * been buffered
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    private byte[] buffer() throws IOException {
+        if(bytes == null) {
+            if(stream == null) {
+                throw new IllegalStateException("Request body stream has been consumed");
+            }
+            InputStream is = stream;
+            stream = null;
+            // the size is limited by maxBodySize which is set as max entity size of the exchange.
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while((n = is.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+            bytes = out.toByteArray();
+        }
+        return bytes;
+    }
+}
@@ -85,6 +85,16 @@ public class BodyHandlerTest {
                         exchange.getResponseSender().send("body");
                     }
                 })
+                .add(Methods.POST, "/pojo", exchange -> {
+                    RequestBody handle = exchange.getAttachment(BodyHandler.REQUEST_BODY_HANDLE);
+                    if(handle == null) {
+                        exchange.getResponseSender().send("nobody");
+                    } else {
+                        Object body = exchange.getAttachment(BodyHandler.REQUEST_BODY);
+                        KeyValue keyValue = handle.as(KeyValue.class);
+                        exchange.getResponseSender().send((body == null ? "lazy " : "eager ") + keyValue.getKey());
+                    }
+                })
                 .add(Methods.POST, "/post", exchange -> {
                     Object body = exchange.getAttachment(BodyHandler.REQUEST_BODY);
                     if(body == null) {
@@ -205,4 +215,93 @@ public class BodyHandlerTest {
         }
     }
 
+    @Test
+    public void testPostJsonMapBlocking() throws Exception {
+        long maxAsyncBodySize = BodyHandler.config.getMaxAsyncBodySize();
+        BodyHandler.config.setMaxAsyncBodySize(0);
+        String url = "http://localhost:8080/post";
+        CloseableHttpClient client = HttpClients.createDefault();
+        HttpPost httpPost = new HttpPost(url);
+        httpPost.setHeader(Headers.CONTENT_TYPE.toString(), "application/json");
+        try {
+            StringEntity stringEntity = new StringEntity("{\"key\":\"value\"}");
+            httpPost.setEntity(stringEntity);
+            CloseableHttpResponse response = client.execute(httpPost);
+            int statusCode = response.getStatusLine().getStatusCode();
+            Assert.assertEquals(200, statusCode);
+            String s = IOUtils.toString(response.getEntity().getContent(), "utf8");
+            Assert.assertEquals("map", s);
+        } finally {
+            BodyHandler.config.setMaxAsyncBodySize(maxAsyncBodySize);
+        }
+    }
+
+    @Test
+    public void testPostJsonTooLarge() throws Exception {
+        long maxBodySize = BodyHandler.config.getMaxBodySize();
+        BodyHandler.config.setMaxBodySize(8);
+        String url = "http://localhost:8080/post";
+        CloseableHttpClient client = HttpClients.createDefault();
+        HttpPost httpPost = new HttpPost(url);
+        httpPost.setHeader(Headers.CONTENT_TYPE.toString(), "application/json");
+        try {
+            StringEntity stringEntity = new StringEntity("{\"key\":\"value\"}");
+            httpPost.setEntity(stringEntity);
+            CloseableHttpResponse response = client.execute(httpPost);
+            int statusCode = response.getStatusLine().getStatusCode();
+            Assert.assertEquals(413, statusCode);
+            Status status = Config.getInstance().getMapper().readValue(response.getEntity().getContent(), Status.class);
+            Assert.assertEquals("ERR10036", status.getCode());
+        } finally {
+            BodyHandler.config.setMaxBodySize(maxBodySize);
+        }
+    }
+
+    @Test
+    public void testPostJsonLazyPojo() throws Exception {
+        BodyHandler.config.setLazy(true);
+        String url = "http://localhost:8080/pojo";
+        CloseableHttpClient client = HttpClients.createDefault();
+        HttpPost httpPost = new HttpPost(url);
+        httpPost.setHeader(Headers.CONTENT_TYPE.toString(), "application/json");
+        try {
+            StringEntity stringEntity = new StringEntity("{\"key\":\"value\"}");
+            httpPost.setEntity(stringEntity);
+            CloseableHttpResponse response = client.execute(httpPost);
+            int statusCode = response.getStatusLine().getStatusCode();
+            Assert.assertEquals(200, statusCode);
+            String s = IOUtils.toString(response.getEntity().getContent(), "utf8");
+            Assert.assertEquals("lazy value", s);
+        } finally {
+            BodyHandler.config.setLazy(false);
+        }
+    }
+
+    @Test
+    public void testPostJsonEagerPojo() throws Exception {
+        String url = "http://localhost:8080/pojo";
+        CloseableHttpClient client = HttpClients.createDefault();
+        HttpPost httpPost = new HttpPost(url);
+        httpPost.setHeader(Headers.CONTENT_TYPE.toString(), "application/json");
+        StringEntity stringEntity = new StringEntity("{\"key\":\"value\"}");
+        httpPost.setEntity(stringEntity);
+        CloseableHttpResponse response = client.execute(httpPost);
+        int statusCode = response.getStatusLine().getStatusCode();
+        Assert.assertEquals(200, statusCode);
+        String s = IOUtils.toString(response.getEntity().getContent(), "utf8");
+        Assert.assertEquals("eager value", s);
+    }
+
+    public static class KeyValue {
+        private String key;
+
+        public String getKey() {
+            return key;
+        }
+
+        public void setKey(String key) {
+            this.key = key;
+        }
+    }
+
 }
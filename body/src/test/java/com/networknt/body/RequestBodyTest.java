@@ -0,0 +1,31 @@
+package com.networknt.body;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+public class RequestBodyTest {
+    static final byte[] json = "{\"key\":\"value\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReadStreamTwice() throws Exception {
+        RequestBody handle = new RequestBody(new ByteArrayInputStream(json));
+        Assert.assertNull(handle.getBytes());
+        Assert.assertEquals("value", handle.as(BodyHandlerTest.KeyValue.class).getKey());
+        Assert.assertEquals("value", ((Map<String, Object>)handle.getBody()).get("key"));
+        Assert.assertEquals("value", handle.as(Map.class).get("key"));
+        Assert.assertArrayEquals(json, handle.getBytes());
+        Assert.assertNotNull(handle.getParser());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStreamParserOnce() throws Exception {
+        RequestBody handle = new RequestBody(new ByteArrayInputStream(json));
+        handle.getParser().close();
+        handle.getBody();
+    }
+}
@@ -16,13 +16,11 @@
 
 package com.networknt.client;
 
-import com.networknt.client.oauth.ClientCredentialsRequest;
-import com.networknt.client.oauth.TokenHelper;
-import com.networknt.client.oauth.TokenRequest;
-import com.networknt.client.oauth.TokenResponse;
+import com.networknt.client.oauth.TokenManager;
 import com.networknt.config.Config;
 import com.networknt.exception.ApiException;
 import com.networknt.exception.ClientException;
+import com.networknt.handler.RequestContext;
 import com.networknt.status.Status;
 import com.networknt.utility.*;
 import io.undertow.server.HttpServerExchange;
@@ -65,9 +63,6 @@ import java.io.InputStream;
 import java.security.*;
 import java.security.cert.CertificateException;
 import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 public class Client {
     public static final String CONFIG_NAME = "client";
@@ -102,11 +97,8 @@ public class Client {
     static final String REACTOR_SO_TIMEOUT = "soTimeout";
 
     static final String OAUTH = "oauth";
-    static final String TOKEN_RENEW_BEFORE_EXPIRED = "tokenRenewBeforeExpired";
-    static final String EXPIRED_REFRESH_RETRY_DELAY = "expiredRefreshRetryDelay";
-    static final String EARLY_REFRESH_RETRY_DELAY = "earlyRefreshRetryDelay";
 
-    static final String STATUS_CLIENT_CREDENTIALS_TOKEN_NOT_AVAILABLE = "ERR10009";
+    static final String STATUS_DEADLINE_EXCEEDED = "ERR10037";
 
     static Map<String, Object> config;
     static Map<String, Object> oauthConfig;
@@ -114,15 +106,6 @@ public class Client {
     private volatile CloseableHttpAsyncClient httpAsyncClient = null;
 
 
-    // Cached jwt token for this client.
-    private String jwt;
-    private long expire;
-    private volatile boolean renewing = false;
-    private volatile long expiredRetryTimeout;
-    private volatile long earlyRetryTimeout;
-
-    private final Object lock = new Object();
-
     static {
         List<String> masks = new ArrayList<>();
         masks.add("trustPass");
@@ -157,6 +140,15 @@ public class Client {
         return httpClient;
     }
 
+    /**
+     * Get the shared async client. The request context of the calling thread is captured when a
+     * request is executed and it is bound again when the callback is invoked on the IO reactor
+     * thread, so that the correlation id is logged in the callback. The timeouts are shrunk to
+     * the remaining time if the request context has a deadline.
+     *
+     * @return CloseableHttpAsyncClient
+     * @throws ClientException client exception
+     */
     public CloseableHttpAsyncClient getAsyncClient() throws ClientException {
         if(httpAsyncClient == null) {
             synchronized (Client.class) {
@@ -222,8 +214,20 @@ public class Client {
      * @throws ApiException api exception
      */
     public void addCcToken(HttpRequest request) throws ClientException, ApiException {
-        checkCCTokenExpired();
-        request.addHeader(Constants.AUTHORIZATION, "Bearer " + jwt);
+        request.addHeader(Constants.AUTHORIZATION, "Bearer " + TokenManager.getInstance().getToken());
+    }
+
+    /**
+     * Add Client Credentials token for the scope and audience cached in the token manager.
+     *
+     * @param request the http request
+     * @param scope list of scopes
+     * @param audience the audience or null
+     * @throws ClientException client exception
+     * @throws ApiException api exception
+     */
+    public void addCcToken(HttpRequest request, List<String> scope, String audience) throws ClientException, ApiException {
+        request.addHeader(Constants.AUTHORIZATION, "Bearer " + TokenManager.getInstance().getToken(scope, audience));
     }
 
     /**
@@ -238,8 +242,7 @@ public class Client {
      * @throws ApiException api exception
      */
     public void addCcTokenTrace(HttpRequest request, String traceabilityId) throws ClientException, ApiException {
-        checkCCTokenExpired();
-        request.addHeader(Constants.AUTHORIZATION, "Bearer " + jwt);
+        request.addHeader(Constants.AUTHORIZATION, "Bearer " + TokenManager.getInstance().getToken());
         request.addHeader(Constants.TRACEABILITY_ID, traceabilityId);
     }
 
@@ -255,10 +258,30 @@ public class Client {
      * @throws ApiException api exception
      */
     public void propagateHeaders(HttpRequest request, final HttpServerExchange exchange) throws ClientException, ApiException {
-        String tid = exchange.getRequestHeaders().getFirst(Constants.TRACEABILITY_ID);
-        String token = exchange.getRequestHeaders().getFirst(Constants.AUTHORIZATION);
-        String cid = exchange.getRequestHeaders().getFirst(Constants.CORRELATION_ID);
-        populateHeader(request, token, cid, tid);
+        propagateHeaders(request, RequestContext.get(exchange));
+    }
+
+    /**
+     * Support API to API calls from a thread that doesn't have the exchange. The authorization,
+     * correlation id and traceability id are taken from the request context which can be obtained
+     * with RequestContext.current() on any thread the context is bound to. If the context has a
+     * deadline, the remaining time is passed in X-Request-Timeout header.
+     *
+     * @param request the http request
+     * @param context the request context
+     * @throws ClientException client exception
+     * @throws ApiException api exception or the deadline of the context has passed
+     */
+    public void propagateHeaders(HttpRequest request, final RequestContext context) throws ClientException, ApiException {
+        long remaining = context.getRemaining();
+        if(remaining != Long.MAX_VALUE) {
+            if(remaining <= 0) {
+                throw new ApiException(new Status(STATUS_DEADLINE_EXCEEDED));
+            }
+            // the next service gets the time left of the caller so that the deadline holds across hops.
+            request.setHeader(Constants.REQUEST_TIMEOUT, Long.toString(remaining));
+        }
+        populateHeader(request, context.getAuthorization(), context.getCorrelationId(), context.getTraceabilityId());
     }
 
     /**
@@ -282,80 +305,9 @@ public class Client {
             addAuthToken(request, authToken);
         }
         request.addHeader(Constants.CORRELATION_ID, correlationId);
-        checkCCTokenExpired();
-        request.addHeader(Constants.SCOPE_TOKEN, "Bearer " + jwt);
-    }
-
-    private void getCCToken() throws ClientException {
-        TokenRequest tokenRequest = new ClientCredentialsRequest();
-        TokenResponse tokenResponse = TokenHelper.getToken(tokenRequest);
-        synchronized (lock) {
-            jwt = tokenResponse.getAccessToken();
-            // the expiresIn is seconds and it is converted to millisecond in the future.
-            expire = System.currentTimeMillis() + tokenResponse.getExpiresIn() * 1000;
-            logger.info("Get client credentials token {} with expire_in {} seconds", jwt, tokenResponse.getExpiresIn());
-        }
+        request.addHeader(Constants.SCOPE_TOKEN, "Bearer " + TokenManager.getInstance().getToken());
     }
 
-    private void checkCCTokenExpired() throws ClientException, ApiException {
-        long tokenRenewBeforeExpired = (Integer) oauthConfig.get(TOKEN_RENEW_BEFORE_EXPIRED);
-        long expiredRefreshRetryDelay = (Integer)oauthConfig.get(EXPIRED_REFRESH_RETRY_DELAY);
-        long earlyRefreshRetryDelay = (Integer)oauthConfig.get(EARLY_REFRESH_RETRY_DELAY);
-        boolean isInRenewWindow = expire - System.currentTimeMillis() < tokenRenewBeforeExpired;
-        logger.trace("isInRenewWindow = " + isInRenewWindow);
-        if(isInRenewWindow) {
-            if(expire <= System.currentTimeMillis()) {
-                logger.trace("In renew window and token is expired.");
-                // block other request here to prevent using expired token.
-                synchronized (Client.class) {
-                    if(expire <= System.currentTimeMillis()) {
-                        logger.trace("Within the synch block, check if the current request need to renew token");
-                        if(!renewing || System.currentTimeMillis() > expiredRetryTimeout) {
-                            // if there is no other request is renewing or the renewing flag is true but renewTimeout is passed
-                            renewing = true;
-                            expiredRetryTimeout = System.currentTimeMillis() + expiredRefreshRetryDelay;
-                            logger.trace("Current request is renewing token synchronously as token is expired already");
-                            getCCToken();
-                            renewing = false;
-                        } else {
-                            logger.trace("Circuit breaker is tripped and not timeout yet!");
-                            // reject all waiting requests by thrown an exception.
-                            throw new ApiException(new Status(STATUS_CLIENT_CREDENTIALS_TOKEN_NOT_AVAILABLE));
-                        }
-                    }
-                }
-            } else {
-                // Not expired yet, try to renew async but let requests use the old token.
-                logger.trace("In renew window but token is not expired yet.");
-                synchronized (Client.class) {
-                    if(expire > System.currentTimeMillis()) {
-                        if(!renewing || System.currentTimeMillis() > earlyRetryTimeout) {
-                            renewing = true;
-                            earlyRetryTimeout = System.currentTimeMillis() + earlyRefreshRetryDelay;
-                            logger.trace("Retrieve token async is called while token is not expired yet");
-
-                            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
-
-                            executor.schedule(() -> {
-                                try {
-                                    getCCToken();
-                                    renewing = false;
-                                    logger.trace("Async get token is completed.");
-                                } catch (Exception e) {
-                                    logger.error("Async retrieve token error", e);
-                                    // swallow the exception here as it is on a best effort basis.
-                                }
-                            }, 50, TimeUnit.MILLISECONDS);
-                            executor.shutdown();
-                        }
-                    }
-                }
-            }
-        }
-        logger.trace("Check secondary token is done!");
-    }
-
-
     private CloseableHttpClient httpClient() throws ClientException {
 
         PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(registry());
@@ -376,7 +328,7 @@ public class Client {
                 .setSocketTimeout(timeout)
                 .build();
         final long keepAliveMilliseconds = (Integer)httpClientMap.get(KEEP_ALIVE);
-        return HttpClientBuilder.create()
+        CloseableHttpClient client = HttpClientBuilder.create()
                 .setConnectionManager(connectionManager)
                 .setKeepAliveStrategy((response, context) -> {
                     HeaderElementIterator it1 = new BasicHeaderElementIterator
@@ -399,6 +351,7 @@ public class Client {
                 })
                .setDefaultRequestConfig(config)
                .build();
+        return new ContextHttpClient(client, config);
     }
 
     private CloseableHttpAsyncClient httpAsyncClient() throws ClientException {
@@ -421,7 +374,7 @@ public class Client {
                 .build();
         final long keepAliveMilliseconds = (Integer)asyncHttpClientMap.get(KEEP_ALIVE);
 
-        return HttpAsyncClientBuilder
+        CloseableHttpAsyncClient client = HttpAsyncClientBuilder
                 .create()
                 .setConnectionManager(connectionManager)
                 .setKeepAliveStrategy((response, context) -> {
@@ -445,6 +398,7 @@ public class Client {
                 })
                 .setDefaultRequestConfig(config)
                 .build();
+        return new ContextHttpAsyncClient(client, config);
     }
 
     private Registry<SchemeIOSessionStrategy> asyncRegistry() throws ClientException {
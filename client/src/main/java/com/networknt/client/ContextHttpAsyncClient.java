@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.client;
+
+import com.networknt.balance.EndpointStats;
+import com.networknt.handler.RequestContext;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Future;
+
+/**
+ * The async client returned by Client.getAsyncClient(). The request context bound to the thread
+ * that executes the request is captured and bound again when the callback is invoked on the IO
+ * reactor thread, so that the correlation id is in MDC of the callback. If the request context has
+ * a deadline, the timeouts are shrunk to the time left and the request fails right away if the
+ * deadline has passed. The outstanding requests and the response time of each target are recorded
+ * in EndpointStats for the load balancer.
+ */
+class ContextHttpAsyncClient extends CloseableHttpAsyncClient {
+    private final CloseableHttpAsyncClient delegate;
+    private final RequestConfig defaultConfig;
+
+    ContextHttpAsyncClient(CloseableHttpAsyncClient delegate, RequestConfig defaultConfig) {
+        this.delegate = delegate;
+        this.defaultConfig = defaultConfig;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return delegate.isRunning();
+    }
+
+    @Override
+    public void start() {
+        delegate.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public <T> Future<T> execute(HttpAsyncRequestProducer requestProducer, HttpAsyncResponseConsumer<T> responseConsumer,
+                                 HttpContext context, FutureCallback<T> callback) {
+        RequestContext requestContext = RequestContext.current();
+        try {
+            context = Deadlines.apply(context, defaultConfig);
+        } catch (SocketTimeoutException e) {
+            BasicFuture<T> future = new BasicFuture<>(callback);
+            future.failed(e);
+            return future;
+        }
+        FutureCallback<T> contextCallback = requestContext == null || callback == null ? callback : new ContextCallback<>(requestContext, callback);
+        HttpHost target = requestProducer.getTarget();
+        if(target == null) {
+            return delegate.execute(requestProducer, responseConsumer, context, contextCallback);
+        }
+        EndpointStats.Stats stats = ContextHttpClient.getStats(target);
+        try {
+            return delegate.execute(requestProducer, responseConsumer, context, new StatsCallback<>(stats, contextCallback));
+        } catch (RuntimeException e) {
+            // the request is not sent, e.g. the client is not started.
+            stats.cancel();
+            throw e;
+        }
+    }
+
+    static final class StatsCallback<T> implements FutureCallback<T> {
+        private final EndpointStats.Stats stats;
+        private final FutureCallback<T> callback;
+        private final long start;
+
+        StatsCallback(EndpointStats.Stats stats, FutureCallback<T> callback) {
+            this.stats = stats;
+            this.callback = callback;
+            this.start = stats.start();
+        }
+
+        @Override
+        public void completed(T result) {
+            boolean success = !(result instanceof HttpResponse) || ((HttpResponse)result).getStatusLine().getStatusCode() < 500;
+            stats.end(start, success);
+            if(callback != null) callback.completed(result);
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            stats.end(start, false);
+            if(callback != null) callback.failed(ex);
+        }
+
+        @Override
+        public void cancelled() {
+            stats.cancel();
+            if(callback != null) callback.cancelled();
+        }
+    }
+
+    static final class ContextCallback<T> implements FutureCallback<T> {
+        private final RequestContext context;
+        private final FutureCallback<T> callback;
+
+        ContextCallback(RequestContext context, FutureCallback<T> callback) {
+            this.context = context;
+            this.callback = callback;
+        }
+
+        @Override
+        public void completed(T result) {
+            try (RequestContext.Scope ignored = context.bind()) {
+                callback.completed(result);
+            }
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            try (RequestContext.Scope ignored = context.bind()) {
+                callback.failed(ex);
+            }
+        }
+
+        @Override
+        public void cancelled() {
+            try (RequestContext.Scope ignored = context.bind()) {
+                callback.cancelled();
+            }
+        }
+    }
+}
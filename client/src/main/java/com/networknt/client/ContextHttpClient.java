@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.client;
+
+import com.networknt.balance.EndpointStats;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+
+/**
+ * The sync client returned by Client.getSyncClient(). If the request context bound to the calling
+ * thread has a deadline, the timeouts of the request are shrunk to the time left and the request
+ * is not sent at all if the deadline has passed. The outstanding requests and the response time of
+ * each target are recorded in EndpointStats for the load balancer.
+ */
+class ContextHttpClient extends CloseableHttpClient {
+    private final CloseableHttpClient delegate;
+    private final RequestConfig defaultConfig;
+
+    ContextHttpClient(CloseableHttpClient delegate, RequestConfig defaultConfig) {
+        this.delegate = delegate;
+        this.defaultConfig = defaultConfig;
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException, ClientProtocolException {
+        context = Deadlines.apply(context, defaultConfig);
+        if(target == null) {
+            return delegate.execute(target, request, context);
+        }
+        EndpointStats.Stats stats = getStats(target);
+        long start = stats.start();
+        boolean success = false;
+        try {
+            CloseableHttpResponse response = delegate.execute(target, request, context);
+            success = response.getStatusLine().getStatusCode() < 500;
+            return response;
+        } finally {
+            stats.end(start, success);
+        }
+    }
+
+    /**
+     * @param target the target host of a request
+     * @return the stats of the instance used by the load balancer
+     */
+    static EndpointStats.Stats getStats(HttpHost target) {
+        int port = target.getPort();
+        if(port < 0) {
+            port = "https".equalsIgnoreCase(target.getSchemeName()) ? 443 : 80;
+        }
+        return EndpointStats.get(target.getHostName(), port);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public HttpParams getParams() {
+        return delegate.getParams();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public ClientConnectionManager getConnectionManager() {
+        return delegate.getConnectionManager();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.client;
+
+import com.networknt.handler.RequestContext;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+
+import java.net.SocketTimeoutException;
+
+/**
+ * Shrinks the timeouts of an outbound request to the time left before the deadline of the request
+ * context bound to the calling thread. The configured timeouts are kept if they are shorter.
+ *
+ * The request and the context passed in by the caller are not modified. The request is executed
+ * with a context that shrinks whatever request config the client puts into it, including the
+ * config of the request itself which the client copies into the context.
+ */
+final class Deadlines {
+
+    private Deadlines() {
+    }
+
+    /**
+     * Apply the deadline of the current request context to the context of the request.
+     *
+     * @param context the context passed in by the caller or null
+     * @param defaultConfig the default request config of the client
+     * @return the context to execute the request with
+     * @throws SocketTimeoutException if the deadline has passed already
+     */
+    static HttpContext apply(HttpContext context, RequestConfig defaultConfig) throws SocketTimeoutException {
+        RequestContext requestContext = RequestContext.current();
+        if(requestContext == null) {
+            return context;
+        }
+        long remaining = requestContext.getRemaining();
+        if(remaining == Long.MAX_VALUE) {
+            return context;
+        }
+        if(remaining <= 0) {
+            throw new SocketTimeoutException("Deadline of the request has been exceeded");
+        }
+        HttpContext parent = context == null ? new BasicHttpContext() : context;
+        RequestConfig config = (RequestConfig)parent.getAttribute(HttpClientContext.REQUEST_CONFIG);
+        DeadlineContext deadlineContext = new DeadlineContext(parent, remaining);
+        deadlineContext.setRequestConfig(config == null ? defaultConfig : config);
+        return deadlineContext;
+    }
+
+    static RequestConfig shrink(RequestConfig config, long remaining) {
+        return RequestConfig.copy(config)
+                .setConnectTimeout(shrink(config.getConnectTimeout(), remaining))
+                .setConnectionRequestTimeout(shrink(config.getConnectionRequestTimeout(), remaining))
+                .setSocketTimeout(shrink(config.getSocketTimeout(), remaining))
+                .build();
+    }
+
+    private static int shrink(int timeout, long remaining) {
+        // 0 or negative timeout means infinite or system default.
+        if(timeout > 0 && timeout <= remaining) {
+            return timeout;
+        }
+        return (int)Math.min(remaining, Integer.MAX_VALUE);
+    }
+
+    /**
+     * A context that keeps the request config to itself and shrinks it when it is set. All other
+     * attributes are shared with the context of the caller.
+     */
+    static final class DeadlineContext extends HttpClientContext {
+        private final long remaining;
+        private RequestConfig config;
+
+        DeadlineContext(HttpContext context, long remaining) {
+            super(context);
+            this.remaining = remaining;
+        }
+
+        @Override
+        public Object getAttribute(String id) {
+            return HttpClientContext.REQUEST_CONFIG.equals(id) ? config : super.getAttribute(id);
+        }
+
+        @Override
+        public void setAttribute(String id, Object obj) {
+            if(HttpClientContext.REQUEST_CONFIG.equals(id)) {
+                config = obj instanceof RequestConfig ? shrink((RequestConfig)obj, remaining) : null;
+            } else {
+                super.setAttribute(id, obj);
+            }
+        }
+
+        @Override
+        public Object removeAttribute(String id) {
+            if(HttpClientContext.REQUEST_CONFIG.equals(id)) {
+                Object old = config;
+                config = null;
+                return old;
+            }
+            return super.removeAttribute(id);
+        }
+    }
+}
@@ -112,6 +112,9 @@ public class TokenHelper {
         if(request.getScope() != null) {
             urlParameters.add(new BasicNameValuePair(TokenRequest.SCOPE, StringUtils.join(request.getScope(), " ")));
         }
+        if(request.getAudience() != null) {
+            urlParameters.add(new BasicNameValuePair(TokenRequest.AUDIENCE, request.getAudience()));
+        }
         return new UrlEncodedFormEntity(urlParameters);
     }
 
@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.client.oauth;
+
+import com.networknt.client.Client;
+import com.networknt.config.Config;
+import com.networknt.exception.ApiException;
+import com.networknt.exception.ClientException;
+import com.networknt.status.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Client credentials tokens cached per scope set and audience. Each token is refreshed on a shared
+ * scheduler tokenRenewBeforeExpired milliseconds before it expires, so that the request path only
+ * does a volatile read of the cached token. If the token is missing or expired, all concurrent
+ * callers wait on the same refresh instead of each calling the OAuth2 server. After a failed
+ * refresh of an expired token, callers are rejected right away for expiredRefreshRetryDelay.
+ * A blocking caller waits for the refresh at most twice the sync client timeout, which covers
+ * the connect and the socket timeouts of the token request.
+ */
+public class TokenManager {
+    static final Logger logger = LoggerFactory.getLogger(TokenManager.class);
+
+    static final String TOKEN_RENEW_BEFORE_EXPIRED = "tokenRenewBeforeExpired";
+    static final String EXPIRED_REFRESH_RETRY_DELAY = "expiredRefreshRetryDelay";
+    static final String EARLY_REFRESH_RETRY_DELAY = "earlyRefreshRetryDelay";
+    static final String SYNC = "sync";
+    static final String TIMEOUT = "timeout";
+
+    static final long DEFAULT_TIMEOUT = 10000;
+    // lower bound of the proactive refresh delay so that a short lived token doesn't spin the scheduler.
+    static final long MIN_REFRESH_DELAY = 1000;
+
+    static final String STATUS_CLIENT_CREDENTIALS_TOKEN_NOT_AVAILABLE = "ERR10009";
+
+    private static final TokenManager instance = new TokenManager(ClientCredentialsRequest::new);
+
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentMap<TokenKey, CachedToken> tokens = new ConcurrentHashMap<>();
+    private final Supplier<TokenRequest> requestSupplier;
+    private final TokenKey defaultKey;
+
+    private final long tokenRenewBeforeExpired;
+    private final long expiredRefreshRetryDelay;
+    private final long earlyRefreshRetryDelay;
+    private final long waitTimeout;
+
+    TokenManager(Supplier<TokenRequest> requestSupplier) {
+        this.requestSupplier = requestSupplier;
+        Map<String, Object> oauthConfig = null;
+        Map<String, Object> syncConfig = null;
+        Map<String, Object> clientConfig = Config.getInstance().getJsonMapConfig(Client.CONFIG_NAME);
+        if(clientConfig != null) {
+            oauthConfig = (Map<String, Object>)clientConfig.get(TokenRequest.OAUTH);
+            syncConfig = (Map<String, Object>)clientConfig.get(SYNC);
+        }
+        long timeout = getLong(syncConfig, TIMEOUT);
+        waitTimeout = 2 * (timeout > 0 ? timeout : DEFAULT_TIMEOUT);
+        tokenRenewBeforeExpired = getLong(oauthConfig, TOKEN_RENEW_BEFORE_EXPIRED);
+        expiredRefreshRetryDelay = getLong(oauthConfig, EXPIRED_REFRESH_RETRY_DELAY);
+        earlyRefreshRetryDelay = getLong(oauthConfig, EARLY_REFRESH_RETRY_DELAY);
+        defaultKey = new TokenKey(requestSupplier.get().getScope(), null);
+
+        AtomicInteger count = new AtomicInteger();
+        scheduler = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "light-token-manager-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static TokenManager getInstance() {
+        return instance;
+    }
+
+    private static long getLong(Map<String, Object> map, String key) {
+        Object value = map == null ? null : map.get(key);
+        return value == null ? 0 : ((Number)value).longValue();
+    }
+
+    /**
+     * Get the client credentials token with the scope in client.json.
+     *
+     * @return the access token
+     * @throws ClientException if the token cannot be retrieved
+     * @throws ApiException if the token is not available
+     */
+    public String getToken() throws ClientException, ApiException {
+        return getToken(defaultKey);
+    }
+
+    /**
+     * Get the client credentials token for the scope and audience.
+     *
+     * @param scope list of scopes, the order doesn't matter
+     * @param audience the audience or null
+     * @return the access token
+     * @throws ClientException if the token cannot be retrieved
+     * @throws ApiException if the token is not available
+     */
+    public String getToken(List<String> scope, String audience) throws ClientException, ApiException {
+        return getToken(new TokenKey(scope, audience));
+    }
+
+    /**
+     * Get the client credentials token with the scope in client.json without blocking the caller.
+     * It is intended to be used with the async client.
+     *
+     * @return CompletableFuture of the access token
+     */
+    public CompletableFuture<String> getTokenAsync() {
+        return getTokenAsync(defaultKey);
+    }
+
+    /**
+     * Get the client credentials token for the scope and audience without blocking the caller.
+     *
+     * @param scope list of scopes, the order doesn't matter
+     * @param audience the audience or null
+     * @return CompletableFuture of the access token
+     */
+    public CompletableFuture<String> getTokenAsync(List<String> scope, String audience) {
+        return getTokenAsync(new TokenKey(scope, audience));
+    }
+
+    private String getToken(TokenKey key) throws ClientException, ApiException {
+        CachedToken cached = getCachedToken(key);
+        Jwt jwt = cached.current;
+        if(jwt != null && jwt.expire > System.currentTimeMillis()) {
+            return jwt.token;
+        }
+        if(System.currentTimeMillis() < cached.retryTimeout) {
+            logger.trace("Circuit breaker is tripped and not timeout yet!");
+            throw new ApiException(new Status(STATUS_CLIENT_CREDENTIALS_TOKEN_NOT_AVAILABLE));
+        }
+        try {
+            return refresh(cached).get(waitTimeout, TimeUnit.MILLISECONDS).token;
+        } catch (TimeoutException e) {
+            throw new ClientException("Timed out waiting for client credentials token", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClientException("Interrupted while waiting for client credentials token", e);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof ClientException) {
+                throw (ClientException)e.getCause();
+            }
+            throw new ClientException("Failed to get client credentials token", e.getCause());
+        }
+    }
+
+    private CompletableFuture<String> getTokenAsync(TokenKey key) {
+        CachedToken cached = getCachedToken(key);
+        Jwt jwt = cached.current;
+        if(jwt != null && jwt.expire > System.currentTimeMillis()) {
+            return CompletableFuture.completedFuture(jwt.token);
+        }
+        if(System.currentTimeMillis() < cached.retryTimeout) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            future.completeExceptionally(new ApiException(new Status(STATUS_CLIENT_CREDENTIALS_TOKEN_NOT_AVAILABLE)));
+            return future;
+        }
+        return refresh(cached).thenApply(j -> j.token);
+    }
+
+    private CachedToken getCachedToken(TokenKey key) {
+        CachedToken cached = tokens.get(key);
+        return cached != null ? cached : tokens.computeIfAbsent(key, CachedToken::new);
+    }
+
+    /**
+     * Start a refresh of the token unless one is in flight already, in which case the caller
+     * joins the in-flight refresh.
+     */
+    CompletableFuture<Jwt> refresh(final CachedToken cached) {
+        while(true) {
+            CompletableFuture<Jwt> future = cached.inflight.get();
+            if(future != null) {
+                return future;
+            }
+            CompletableFuture<Jwt> newFuture = new CompletableFuture<>();
+            if(cached.inflight.compareAndSet(null, newFuture)) {
+                scheduler.execute(() -> fetch(cached, newFuture));
+                return newFuture;
+            }
+        }
+    }
+
+    private void fetch(final CachedToken cached, final CompletableFuture<Jwt> future) {
+        try {
+            TokenRequest tokenRequest = requestSupplier.get();
+            tokenRequest.setScope(cached.key.scope == null ? null : new ArrayList<>(cached.key.scope));
+            tokenRequest.setAudience(cached.key.audience);
+            TokenResponse tokenResponse = TokenHelper.getToken(tokenRequest);
+            // the expiresIn is seconds and it is converted to millisecond in the future.
+            Jwt jwt = new Jwt(tokenResponse.getAccessToken(), System.currentTimeMillis() + tokenResponse.getExpiresIn() * 1000);
+            logger.info("Get client credentials token {} with expire_in {} seconds", jwt.token, tokenResponse.getExpiresIn());
+            cached.current = jwt;
+            cached.retryTimeout = 0;
+            scheduleRefresh(cached, jwt);
+            cached.inflight.compareAndSet(future, null);
+            future.complete(jwt);
+        } catch (Throwable e) {
+            logger.error("Failed to retrieve client credentials token", e);
+            Jwt jwt = cached.current;
+            if(jwt != null && jwt.expire > System.currentTimeMillis()) {
+                // callers keep using the old token and the refresh is retried later on a best effort basis.
+                scheduler.schedule(() -> refresh(cached), earlyRefreshRetryDelay, TimeUnit.MILLISECONDS);
+            } else {
+                cached.retryTimeout = System.currentTimeMillis() + expiredRefreshRetryDelay;
+            }
+            cached.inflight.compareAndSet(future, null);
+            future.completeExceptionally(e);
+        }
+    }
+
+    private void scheduleRefresh(final CachedToken cached, final Jwt jwt) {
+        long lifetime = jwt.expire - System.currentTimeMillis();
+        if(lifetime <= 0) {
+            // no positive expiry, the token is fetched again by the next caller instead.
+            logger.warn("Client credentials token without a positive expiry is not refreshed proactively");
+            return;
+        }
+        long delay = lifetime - tokenRenewBeforeExpired;
+        if(delay <= 0) {
+            // token lifetime is shorter than the renew window, renew at half of its lifetime.
+            delay = lifetime / 2;
+        }
+        delay = Math.max(delay, Math.max(earlyRefreshRetryDelay, MIN_REFRESH_DELAY));
+        scheduler.schedule(() -> {
+            // skip if the token has been replaced by another refresh in between.
+            if(cached.current == jwt) refresh(cached);
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    static final class Jwt {
+        final String token;
+        final long expire;
+
+        Jwt(String token, long expire) {
+            this.token = token;
+            this.expire = expire;
+        }
+    }
+
+    static final class CachedToken {
+        final TokenKey key;
+        volatile Jwt current;
+        volatile long retryTimeout;
+        final AtomicReference<CompletableFuture<Jwt>> inflight = new AtomicReference<>();
+
+        CachedToken(TokenKey key) {
+            this.key = key;
+        }
+    }
+
+    static final class TokenKey {
+        final Set<String> scope;
+        final String audience;
+        private final int hash;
+
+        TokenKey(List<String> scope, String audience) {
+            this.scope = scope == null ? null : Collections.unmodifiableSet(new TreeSet<>(scope));
+            this.audience = audience;
+            this.hash = Objects.hash(this.scope, audience);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) return true;
+            if(!(o instanceof TokenKey)) return false;
+            TokenKey that = (TokenKey)o;
+            return Objects.equals(scope, that.scope) && Objects.equals(audience, that.audience);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -31,6 +31,7 @@ public class TokenRequest {
     public static String CLIENT_SECRET = "client_secret";
     public static String REDIRECT_URI = "redirect_uri";
     public static String SCOPE = "scope";
+    public static String AUDIENCE = "audience";
 
     String grantType;
     String serverUrl;
@@ -38,6 +39,7 @@ public class TokenRequest {
     String clientId;
     String clientSecret;
     List<String> scope;
+    String audience;
 
     public TokenRequest() {
     }
@@ -82,6 +84,14 @@ public class TokenRequest {
         this.scope = scope;
     }
 
+    public String getAudience() {
+        return audience;
+    }
+
+    public void setAudience(String audience) {
+        this.audience = audience;
+    }
+
     public String getServerUrl() {
         return serverUrl;
     }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.client;
+
+import com.networknt.handler.RequestContext;
+import org.apache.http.concurrent.FutureCallback;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class ContextHttpAsyncClientTest {
+
+    @Test
+    public void testCallbackRunsWithContext() throws Exception {
+        CompletableFuture<String> cId = new CompletableFuture<>();
+        FutureCallback<String> callback = new FutureCallback<String>() {
+            @Override
+            public void completed(String result) {
+                cId.complete(MDC.get(RequestContext.MDC_CORRELATION_ID));
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                cId.completeExceptionally(ex);
+            }
+
+            @Override
+            public void cancelled() {
+                cId.cancel(false);
+            }
+        };
+        RequestContext context = new RequestContext("cid", "tid", null);
+        FutureCallback<String> wrapped = new ContextHttpAsyncClient.ContextCallback<>(context, callback);
+        // the callback is invoked on another thread the same way as the IO reactor does.
+        Thread thread = new Thread(() -> wrapped.completed("ok"));
+        thread.start();
+        Assert.assertEquals("cid", cId.get(5, TimeUnit.SECONDS));
+        thread.join();
+    }
+
+    @Test
+    public void testScopeRestoresPreviousContext() {
+        RequestContext outer = new RequestContext("outer", null, null);
+        RequestContext inner = new RequestContext("inner", null, null);
+        try (RequestContext.Scope ignored = outer.bind()) {
+            try (RequestContext.Scope ignored2 = inner.bind()) {
+                Assert.assertSame(inner, RequestContext.current());
+                Assert.assertEquals("inner", MDC.get(RequestContext.MDC_CORRELATION_ID));
+            }
+            Assert.assertSame(outer, RequestContext.current());
+            Assert.assertEquals("outer", MDC.get(RequestContext.MDC_CORRELATION_ID));
+        }
+        Assert.assertNull(RequestContext.current());
+        Assert.assertNull(MDC.get(RequestContext.MDC_CORRELATION_ID));
+    }
+}
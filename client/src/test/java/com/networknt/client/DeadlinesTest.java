@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.client;
+
+import com.networknt.handler.RequestContext;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.protocol.HttpContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.SocketTimeoutException;
+
+public class DeadlinesTest {
+    static final RequestConfig config = RequestConfig.custom().setConnectTimeout(10000).setSocketTimeout(10000).build();
+
+    @Test
+    public void testNoContext() throws Exception {
+        Assert.assertNull(Deadlines.apply(null, config));
+    }
+
+    @Test
+    public void testTimeoutShrunk() throws Exception {
+        RequestContext context = new RequestContext("cid", null, null);
+        context.setDeadline(System.currentTimeMillis() + 2000);
+        try (RequestContext.Scope ignored = context.bind()) {
+            HttpContext httpContext = Deadlines.apply(null, config);
+            RequestConfig shrunk = HttpClientContext.adapt(httpContext).getRequestConfig();
+            Assert.assertTrue(shrunk.getSocketTimeout() > 0 && shrunk.getSocketTimeout() <= 2000);
+            Assert.assertTrue(shrunk.getConnectTimeout() > 0 && shrunk.getConnectTimeout() <= 2000);
+        }
+    }
+
+    @Test
+    public void testShorterTimeoutKept() throws Exception {
+        RequestContext context = new RequestContext("cid", null, null);
+        context.setDeadline(System.currentTimeMillis() + 60000);
+        try (RequestContext.Scope ignored = context.bind()) {
+            HttpContext httpContext = Deadlines.apply(null, config);
+            Assert.assertEquals(10000, HttpClientContext.adapt(httpContext).getRequestConfig().getSocketTimeout());
+        }
+    }
+
+    @Test
+    public void testRequestConfigNotModified() throws Exception {
+        RequestContext context = new RequestContext("cid", null, null);
+        context.setDeadline(System.currentTimeMillis() + 2000);
+        HttpGet get = new HttpGet("http://localhost:8080");
+        get.setConfig(config);
+        HttpClientContext callerContext = HttpClientContext.create();
+        try (RequestContext.Scope ignored = context.bind()) {
+            HttpClientContext httpContext = HttpClientContext.adapt(Deadlines.apply(callerContext, config));
+            // the client copies the config of the request into the context before it is executed.
+            httpContext.setRequestConfig(get.getConfig());
+            Assert.assertTrue(httpContext.getRequestConfig().getSocketTimeout() <= 2000);
+        }
+        Assert.assertSame(config, get.getConfig());
+        Assert.assertNull(callerContext.getAttribute(HttpClientContext.REQUEST_CONFIG));
+    }
+
+    @Test(expected = SocketTimeoutException.class)
+    public void testDeadlineExceeded() throws Exception {
+        RequestContext context = new RequestContext("cid", null, null);
+        context.setDeadline(System.currentTimeMillis() - 1);
+        try (RequestContext.Scope ignored = context.bind()) {
+            Deadlines.apply(null, config);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.client.oauth;
+
+import com.networknt.config.Config;
+import io.undertow.Undertow;
+import io.undertow.server.handlers.BlockingHandler;
+import io.undertow.util.Headers;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TokenManagerTest {
+    static Undertow server = null;
+    static final AtomicInteger calls = new AtomicInteger();
+    static volatile int expiresIn = 3600;
+
+    @BeforeClass
+    public static void setUp() {
+        if(server == null) {
+            server = Undertow.builder()
+                    .addHttpListener(8886, "localhost")
+                    .setHandler(new BlockingHandler(exchange -> {
+                        Thread.sleep(200);
+                        Map<String, Object> map = new HashMap<>();
+                        map.put("access_token", "token" + calls.incrementAndGet());
+                        map.put("token_type", "Bearer");
+                        map.put("expires_in", expiresIn);
+                        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json");
+                        exchange.getResponseSender().send(ByteBuffer.wrap(
+                                Config.getInstance().getMapper().writeValueAsBytes(map)));
+                    }))
+                    .build();
+            server.start();
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        if(server != null) {
+            server.stop();
+        }
+    }
+
+    private static TokenManager tokenManager() {
+        return new TokenManager(() -> {
+            TokenRequest request = new ClientCredentialsRequest();
+            request.setServerUrl("http://localhost:8886");
+            return request;
+        });
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        TokenManager manager = tokenManager();
+        int before = calls.get();
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try {
+            Callable<String> task = manager::getToken;
+            List<Callable<String>> tasks = new ArrayList<>();
+            for(int i = 0; i < 10; i++) tasks.add(task);
+            String token = null;
+            for(Future<String> future : executor.invokeAll(tasks, 10, TimeUnit.SECONDS)) {
+                if(token == null) token = future.get();
+                Assert.assertEquals(token, future.get());
+            }
+            Assert.assertEquals(before + 1, calls.get());
+            // served from the cache without calling the server again.
+            Assert.assertEquals(token, manager.getToken());
+            Assert.assertEquals(token, manager.getTokenAsync().get(1, TimeUnit.SECONDS));
+            Assert.assertEquals(before + 1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCachedPerScopeAndAudience() throws Exception {
+        TokenManager manager = tokenManager();
+        String first = manager.getToken(Arrays.asList("a.r", "a.w"), "api-a");
+        Assert.assertEquals(first, manager.getToken(Arrays.asList("a.w", "a.r"), "api-a"));
+        Assert.assertNotEquals(first, manager.getToken(Arrays.asList("a.w", "a.r"), "api-b"));
+        Assert.assertNotEquals(first, manager.getTokenAsync(Arrays.asList("b.r"), "api-a").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testNoRefreshWithoutExpiry() throws Exception {
+        expiresIn = 0;
+        try {
+            TokenManager manager = tokenManager();
+            int before = calls.get();
+            manager.getToken(Arrays.asList("c.r"), "api-c");
+            Assert.assertEquals(before + 1, calls.get());
+            // the token is not refreshed in a loop on the scheduler.
+            Thread.sleep(1000);
+            Assert.assertEquals(before + 1, calls.get());
+        } finally {
+            expiresIn = 3600;
+        }
+    }
+}
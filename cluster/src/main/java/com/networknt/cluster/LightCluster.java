@@ -4,7 +4,7 @@ import com.networknt.balance.LoadBalance;
 import com.networknt.registry.NotifyListener;
 import com.networknt.registry.Registry;
 import com.networknt.registry.URL;
-import com.networknt.registry.URLImpl;
+import com.networknt.registry.ImmutableURL;
 import com.networknt.service.SingletonServiceFactory;
 import com.networknt.utility.ConcurrentHashSet;
 import com.networknt.utility.Constants;
@@ -12,9 +12,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by stevehu on 2017-01-27.
@@ -24,7 +22,7 @@ public class LightCluster implements Cluster {
     private static Registry registry = (Registry) SingletonServiceFactory.getBean(Registry.class);
     private static LoadBalance loadBalance = (LoadBalance)SingletonServiceFactory.getBean(LoadBalance.class);
     private static Set<URL> subscribedSet = new ConcurrentHashSet<>();
-    private static Map<String, List<URL>> serviceMap = new ConcurrentHashMap<>();
+    private static ServiceDirectory directory = new ServiceDirectory();
 
     public LightCluster() {
         if(logger.isInfoEnabled()) logger.info("A LightCluster instance is started");
@@ -33,31 +31,44 @@ public class LightCluster implements Cluster {
     @Override
     public String serviceToUrl(String protocol, String serviceName) {
         if(logger.isDebugEnabled()) logger.debug("protocol = " + protocol + " serviceName = " + serviceName);
-        // lookup in serviceMap first, if not there, then subscribe and discover.
-        List<URL> urls = serviceMap.get(serviceName);
-        if(logger.isDebugEnabled()) logger.debug("cached serviceName " + serviceName + " urls = " + urls);
-        if(urls == null) {
-            URL subscribeUrl = URLImpl.valueOf("light://localhost/" + serviceName);
-            if(logger.isDebugEnabled()) logger.debug("subscribeUrl = " + subscribeUrl);
-            // you only need to subscribe once.
-            if(!subscribedSet.contains(subscribeUrl)) {
-                registry.subscribe(subscribeUrl, new ClusterNotifyListener());
-                subscribedSet.add(subscribeUrl);
+        // lookup in directory first, if not there, then subscribe and discover.
+        ServiceDirectory.Snapshot snapshot = directory.get(serviceName);
+        if(snapshot == null) {
+            snapshot = discover(serviceName);
+            if(snapshot == null) {
+                logger.error("No instance is found for serviceName " + serviceName);
+                return null;
             }
-            urls = registry.discover(subscribeUrl);
-            if(logger.isDebugEnabled()) logger.debug("discovered urls = " + urls);
         }
-        URL url = loadBalance.select(urls);
+        URL url = loadBalance.select(snapshot.getUrls());
         if(logger.isDebugEnabled()) logger.debug("final url after load balance = " + url);
-        // construct a url in string
-        return protocol + "://" + url.getHost() + ":" + url.getPort();
+        // the url in string is built when the snapshot is created.
+        return url == null ? null : snapshot.getEndpoint(protocol, url);
+    }
+
+    private static ServiceDirectory.Snapshot discover(String serviceName) {
+        URL subscribeUrl = ImmutableURL.valueOf("light://localhost/" + serviceName);
+        if(logger.isDebugEnabled()) logger.debug("subscribeUrl = " + subscribeUrl);
+        // you only need to subscribe once.
+        if(!subscribedSet.contains(subscribeUrl)) {
+            registry.subscribe(subscribeUrl, new ClusterNotifyListener());
+            subscribedSet.add(subscribeUrl);
+        }
+        // the subscription may have filled the directory already.
+        ServiceDirectory.Snapshot snapshot = directory.get(serviceName);
+        if(snapshot == null) {
+            List<URL> urls = registry.discover(subscribeUrl);
+            if(logger.isDebugEnabled()) logger.debug("discovered urls = " + urls);
+            if(urls != null && urls.size() > 0) snapshot = directory.updateIfAbsent(serviceName, urls);
+        }
+        return snapshot;
     }
 
     static class ClusterNotifyListener implements NotifyListener {
         @Override
         public void notify(URL registryUrl, List<URL> urls) {
             if(logger.isDebugEnabled()) logger.debug("notify is called in ClusterNotifyListener registryUrl = " + registryUrl + " urls = " + urls);
-            if(urls != null && urls.size() > 0) serviceMap.put(urls.get(0).getPath(), urls);
+            if(urls != null && urls.size() > 0) directory.update(urls.get(0).getPath(), urls);
         }
     }
 }
@@ -0,0 +1,114 @@
+package com.networknt.cluster;
+
+import com.networknt.registry.URL;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The instances of each service as an immutable snapshot. A notification from the registry builds
+ * a new snapshot and replaces the old one atomically, so lookups never lock or copy and a caller
+ * always sees a consistent list of instances.
+ *
+ * The protocol://host:port string of each instance is built with the snapshot, so the url of the
+ * selected instance is returned without allocation.
+ */
+class ServiceDirectory {
+    static final String HTTP = "http";
+    static final String HTTPS = "https";
+
+    private final ConcurrentHashMap<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    Snapshot get(String serviceName) {
+        return snapshots.get(serviceName);
+    }
+
+    /**
+     * Replace the snapshot of the service with the urls from the registry.
+     *
+     * @param serviceName service name
+     * @param urls instances of the service
+     * @return the current snapshot
+     */
+    Snapshot update(String serviceName, List<URL> urls) {
+        return put(serviceName, new Snapshot(version.incrementAndGet(), urls));
+    }
+
+    /**
+     * Replace the snapshot of the service unless the current one has a higher version. The
+     * version is taken when the update starts, so of two concurrent notifications the later one
+     * wins even if the earlier one is stored last.
+     *
+     * @param serviceName service name
+     * @param snapshot the new snapshot
+     * @return the current snapshot
+     */
+    Snapshot put(String serviceName, Snapshot snapshot) {
+        return snapshots.merge(serviceName, snapshot, (current, next) -> next.version > current.version ? next : current);
+    }
+
+    /**
+     * Add the snapshot of the service only if there is none. It is used for the result of a
+     * discover call so that it never replaces a newer notification from the registry.
+     *
+     * @param serviceName service name
+     * @param urls instances of the service
+     * @return the current snapshot
+     */
+    Snapshot updateIfAbsent(String serviceName, List<URL> urls) {
+        Snapshot snapshot = new Snapshot(version.incrementAndGet(), urls);
+        Snapshot existing = snapshots.putIfAbsent(serviceName, snapshot);
+        return existing == null ? snapshot : existing;
+    }
+
+    static final class Snapshot {
+        private final long version;
+        private final List<URL> urls;
+        // protocol -> url instance -> protocol://host:port
+        private final ConcurrentHashMap<String, Map<URL, String>> endpoints = new ConcurrentHashMap<>();
+
+        Snapshot(long version, List<URL> urls) {
+            this.version = version;
+            this.urls = Collections.unmodifiableList(new ArrayList<>(urls));
+            endpoints.put(HTTP, buildEndpoints(HTTP));
+            endpoints.put(HTTPS, buildEndpoints(HTTPS));
+        }
+
+        long getVersion() {
+            return version;
+        }
+
+        List<URL> getUrls() {
+            return urls;
+        }
+
+        /**
+         * @param protocol protocol of the url
+         * @param url one of the urls of this snapshot
+         * @return protocol://host:port of the url
+         */
+        String getEndpoint(String protocol, URL url) {
+            Map<URL, String> map = endpoints.get(protocol);
+            if(map == null) {
+                map = endpoints.computeIfAbsent(protocol, this::buildEndpoints);
+            }
+            String endpoint = map.get(url);
+            return endpoint != null ? endpoint : protocol + "://" + url.getHost() + ":" + url.getPort();
+        }
+
+        private Map<URL, String> buildEndpoints(String protocol) {
+            // the urls are selected from this snapshot, so identity lookup is enough.
+            Map<URL, String> map = new IdentityHashMap<>(urls.size());
+            for(URL url : urls) {
+                map.put(url, protocol + "://" + url.getHost() + ":" + url.getPort());
+            }
+            return Collections.unmodifiableMap(map);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.networknt.cluster;
+
+import com.networknt.registry.URL;
+import com.networknt.registry.URLImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ServiceDirectoryTest {
+
+    @Test
+    public void testSnapshot() {
+        ServiceDirectory directory = new ServiceDirectory();
+        List<URL> urls = new ArrayList<>(Arrays.asList(
+                URLImpl.valueOf("http://localhost:7002/com.networknt.apib-1.0.0"),
+                URLImpl.valueOf("http://localhost:7005/com.networknt.apib-1.0.0")));
+        ServiceDirectory.Snapshot snapshot = directory.update("com.networknt.apib-1.0.0", urls);
+        Assert.assertSame(snapshot, directory.get("com.networknt.apib-1.0.0"));
+
+        // the snapshot is not changed by the list from the registry.
+        urls.clear();
+        Assert.assertEquals(2, snapshot.getUrls().size());
+        try {
+            snapshot.getUrls().clear();
+            Assert.fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+
+        URL url = snapshot.getUrls().get(1);
+        Assert.assertEquals("http://localhost:7005", snapshot.getEndpoint("http", url));
+        Assert.assertEquals("https://localhost:7005", snapshot.getEndpoint("https", url));
+        // built once with the snapshot.
+        Assert.assertSame(snapshot.getEndpoint("http", url), snapshot.getEndpoint("http", url));
+        Assert.assertSame(snapshot.getEndpoint("h2c", url), snapshot.getEndpoint("h2c", url));
+    }
+
+    @Test
+    public void testUpdate() {
+        ServiceDirectory directory = new ServiceDirectory();
+        List<URL> discovered = Arrays.asList(URLImpl.valueOf("http://localhost:7002/com.networknt.apic-1.0.0"));
+        List<URL> notified = Arrays.asList(URLImpl.valueOf("http://localhost:7003/com.networknt.apic-1.0.0"));
+
+        ServiceDirectory.Snapshot first = directory.updateIfAbsent("com.networknt.apic-1.0.0", discovered);
+        ServiceDirectory.Snapshot second = directory.update("com.networknt.apic-1.0.0", notified);
+        Assert.assertTrue(second.getVersion() > first.getVersion());
+
+        // a late discover result doesn't replace the notification.
+        Assert.assertSame(second, directory.updateIfAbsent("com.networknt.apic-1.0.0", discovered));
+        Assert.assertEquals(7003, directory.get("com.networknt.apic-1.0.0").getUrls().get(0).getPort().intValue());
+    }
+
+    @Test
+    public void testOlderUpdate() {
+        ServiceDirectory directory = new ServiceDirectory();
+        List<URL> older = Arrays.asList(URLImpl.valueOf("http://localhost:7002/com.networknt.apid-1.0.0"));
+        List<URL> newer = Arrays.asList(URLImpl.valueOf("http://localhost:7003/com.networknt.apid-1.0.0"));
+
+        ServiceDirectory.Snapshot current = directory.update("com.networknt.apid-1.0.0", newer);
+        // an update that started earlier is stored last.
+        ServiceDirectory.Snapshot late = new ServiceDirectory.Snapshot(current.getVersion() - 1, older);
+        Assert.assertSame(current, directory.put("com.networknt.apid-1.0.0", late));
+        Assert.assertEquals(7003, directory.get("com.networknt.apid-1.0.0").getUrls().get(0).getPort().intValue());
+    }
+}
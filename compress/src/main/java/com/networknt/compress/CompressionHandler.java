@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.compress;
+
+import com.networknt.config.Config;
+import com.networknt.handler.MiddlewareHandler;
+import com.networknt.utility.GaugeRegistry;
+import com.networknt.utility.ModuleRegistry;
+import io.undertow.Handlers;
+import io.undertow.conduits.DeflatingStreamSinkConduit;
+import io.undertow.conduits.GzipStreamSinkConduit;
+import io.undertow.server.ConduitWrapper;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.encoding.ContentEncodingProvider;
+import io.undertow.server.handlers.encoding.ContentEncodingRepository;
+import io.undertow.server.handlers.encoding.EncodingHandler;
+import io.undertow.util.ConduitFactory;
+import io.undertow.util.Headers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.conduits.StreamSinkConduit;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This is a handler that compresses the response with gzip or deflate negotiated from the
+ * Accept-Encoding request header. The response is compressed as it is written through the
+ * deflating conduit of undertow, so the body is never buffered as a whole.
+ *
+ * A response is not compressed if its Content-Length is smaller than minSize or its content type
+ * is not in contentTypes in compression.json. A response without Content-Length is streamed and
+ * it is compressed if the content type matches.
+ *
+ * The number of compressed responses, the bytes before and after compression and the time spent
+ * in compression are accumulated and reported by MetricsHandler.
+ */
+public class CompressionHandler implements MiddlewareHandler {
+    static final Logger logger = LoggerFactory.getLogger(CompressionHandler.class);
+
+    public static final String CONFIG_NAME = "compression";
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    public static CompressionConfig config = null;
+    static List<String> contentTypes = Collections.emptyList();
+    static {
+        config = (CompressionConfig)Config.getInstance().getJsonObjectConfig(CONFIG_NAME, CompressionConfig.class);
+        if(config.getContentTypes() != null) {
+            contentTypes = config.getContentTypes();
+        }
+    }
+
+    static final LongAdder compressedResponses = new LongAdder();
+    static final LongAdder uncompressedBytes = new LongAdder();
+    static final LongAdder compressedBytes = new LongAdder();
+    static final LongAdder compressionTime = new LongAdder();
+
+    private volatile HttpHandler next;
+    private volatile HttpHandler encodingHandler;
+
+    public CompressionHandler() {
+
+    }
+
+    @Override
+    public void handleRequest(final HttpServerExchange exchange) throws Exception {
+        exchange.getResponseHeaders().add(Headers.VARY, Headers.ACCEPT_ENCODING_STRING);
+        encodingHandler.handleRequest(exchange);
+    }
+
+    /**
+     * Check the response when it is about to be committed.
+     *
+     * @param exchange HttpServerExchange
+     * @return true if the response should be compressed
+     */
+    static boolean shouldCompress(final HttpServerExchange exchange) {
+        String length = exchange.getResponseHeaders().getFirst(Headers.CONTENT_LENGTH);
+        if(length != null) {
+            try {
+                if(Long.parseLong(length) < config.getMinSize()) return false;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        if(contentTypes.isEmpty()) {
+            return true;
+        }
+        String contentType = exchange.getResponseHeaders().getFirst(Headers.CONTENT_TYPE);
+        if(contentType == null) {
+            return false;
+        }
+        for(String type : contentTypes) {
+            if(contentType.regionMatches(true, 0, type, 0, type.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static final class MeteredEncodingProvider implements ContentEncodingProvider {
+        private final boolean gzip;
+        private final int level;
+
+        MeteredEncodingProvider(boolean gzip, int level) {
+            this.gzip = gzip;
+            this.level = level;
+        }
+
+        @Override
+        public ConduitWrapper<StreamSinkConduit> getResponseWrapper() {
+            return (ConduitFactory<StreamSinkConduit> factory, HttpServerExchange exchange) -> {
+                final CompressionStats stats = new CompressionStats();
+                ConduitFactory<StreamSinkConduit> counted = () -> new CountingStreamSinkConduit(factory.create(), stats, false);
+                StreamSinkConduit deflating = gzip
+                        ? new GzipStreamSinkConduit(counted, exchange, level)
+                        : new DeflatingStreamSinkConduit(counted, exchange, level);
+                exchange.addExchangeCompleteListener((exchange1, nextListener) -> {
+                    compressedResponses.increment();
+                    uncompressedBytes.add(stats.uncompressedBytes);
+                    compressedBytes.add(stats.compressedBytes);
+                    compressionTime.add(stats.getCompressionTime());
+                    nextListener.proceed();
+                });
+                return new CountingStreamSinkConduit(deflating, stats, true);
+            };
+        }
+    }
+
+    public static long getCompressedResponses() {
+        return compressedResponses.sum();
+    }
+
+    public static long getUncompressedBytes() {
+        return uncompressedBytes.sum();
+    }
+
+    public static long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    /**
+     * @return nanoseconds spent in compression
+     */
+    public static long getCompressionTime() {
+        return compressionTime.sum();
+    }
+
+    /**
+     * @return compressed bytes over uncompressed bytes, or 1 if nothing has been compressed
+     */
+    public static double getCompressionRatio() {
+        long uncompressed = uncompressedBytes.sum();
+        return uncompressed == 0 ? 1 : (double)compressedBytes.sum() / uncompressed;
+    }
+
+    @Override
+    public HttpHandler getNext() {
+        return next;
+    }
+
+    @Override
+    public MiddlewareHandler setNext(final HttpHandler next) {
+        Handlers.handlerNotNull(next);
+        this.next = next;
+        ContentEncodingRepository repository = new ContentEncodingRepository();
+        if(config.isGzip()) {
+            repository.addEncodingHandler(GZIP, new MeteredEncodingProvider(true, config.getLevel()), 100, CompressionHandler::shouldCompress);
+        }
+        if(config.isDeflate()) {
+            repository.addEncodingHandler(DEFLATE, new MeteredEncodingProvider(false, config.getLevel()), 50, CompressionHandler::shouldCompress);
+        }
+        this.encodingHandler = new EncodingHandler(next, repository);
+        return this;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    @Override
+    public void register() {
+        ModuleRegistry.registerModule(CompressionHandler.class.getName(), Config.getInstance().getJsonMapConfigNoCache(CONFIG_NAME), null);
+        GaugeRegistry.register("compression_responses", CompressionHandler::getCompressedResponses);
+        GaugeRegistry.register("compression_ratio", CompressionHandler::getCompressionRatio);
+        GaugeRegistry.register("compression_time_ms", () -> TimeUnit.NANOSECONDS.toMillis(getCompressionTime()));
+    }
+
+}
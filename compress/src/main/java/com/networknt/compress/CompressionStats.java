@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.compress;
+
+/**
+ * Bytes and time of the compression of one response.
+ */
+class CompressionStats {
+    long uncompressedBytes;
+    long compressedBytes;
+    // time spent in the deflating conduit including writing to the connection.
+    long totalTime;
+    // time spent in writing the compressed bytes to the connection.
+    long writeTime;
+
+    long getCompressionTime() {
+        return Math.max(0, totalTime - writeTime);
+    }
+}
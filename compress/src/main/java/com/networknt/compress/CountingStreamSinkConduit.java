@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.compress;
+
+import org.xnio.IoUtils;
+import org.xnio.channels.StreamSourceChannel;
+import org.xnio.conduits.AbstractStreamSinkConduit;
+import org.xnio.conduits.ConduitWritableByteChannel;
+import org.xnio.conduits.StreamSinkConduit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Counts the bytes written to the next conduit and the time spent in it. One is placed before the
+ * deflating conduit to count the uncompressed bytes and one after it to count the compressed
+ * bytes, so that the time spent in compression is the difference of the two.
+ *
+ * The conduit of an exchange is only written by one thread at a time, so the counters are not
+ * synchronized.
+ */
+class CountingStreamSinkConduit extends AbstractStreamSinkConduit<StreamSinkConduit> {
+    private final CompressionStats stats;
+    private final boolean uncompressed;
+
+    CountingStreamSinkConduit(StreamSinkConduit next, CompressionStats stats, boolean uncompressed) {
+        super(next);
+        this.stats = stats;
+        this.uncompressed = uncompressed;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        long start = System.nanoTime();
+        int written = next.write(src);
+        record(written, start);
+        return written;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offs, int len) throws IOException {
+        long start = System.nanoTime();
+        long written = next.write(srcs, offs, len);
+        record(written, start);
+        return written;
+    }
+
+    @Override
+    public int writeFinal(ByteBuffer src) throws IOException {
+        long start = System.nanoTime();
+        int written = next.writeFinal(src);
+        record(written, start);
+        return written;
+    }
+
+    @Override
+    public long writeFinal(ByteBuffer[] srcs, int offs, int len) throws IOException {
+        long start = System.nanoTime();
+        long written = next.writeFinal(srcs, offs, len);
+        record(written, start);
+        return written;
+    }
+
+    @Override
+    public long transferFrom(FileChannel src, long position, long count) throws IOException {
+        // written through this conduit so that the bytes are counted.
+        return src.transferTo(position, count, new ConduitWritableByteChannel(this));
+    }
+
+    @Override
+    public long transferFrom(StreamSourceChannel source, long count, ByteBuffer throughBuffer) throws IOException {
+        return IoUtils.transfer(source, count, throughBuffer, new ConduitWritableByteChannel(this));
+    }
+
+    @Override
+    public boolean flush() throws IOException {
+        long start = System.nanoTime();
+        boolean flushed = next.flush();
+        record(0, start);
+        return flushed;
+    }
+
+    @Override
+    public void terminateWrites() throws IOException {
+        long start = System.nanoTime();
+        next.terminateWrites();
+        record(0, start);
+    }
+
+    private void record(long written, long start) {
+        long time = System.nanoTime() - start;
+        if(uncompressed) {
+            if(written > 0) stats.uncompressedBytes += written;
+            stats.totalTime += time;
+        } else {
+            if(written > 0) stats.compressedBytes += written;
+            stats.writeTime += time;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.compress;
+
+import io.undertow.Handlers;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.RoutingHandler;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+public class CompressionHandlerTest {
+    static final Logger logger = LoggerFactory.getLogger(CompressionHandlerTest.class);
+
+    static Undertow server = null;
+    static final String LARGE;
+    static {
+        StringBuilder sb = new StringBuilder("[");
+        for(int i = 0; i < 1000; i++) {
+            if(i > 0) sb.append(',');
+            sb.append("{\"id\":").append(i).append(",\"name\":\"pet").append(i).append("\",\"tag\":\"dog\"}");
+        }
+        LARGE = sb.append(']').toString();
+    }
+
+    @BeforeClass
+    public static void setUp() {
+        if(server == null) {
+            logger.info("starting server");
+            HttpHandler handler = getTestHandler();
+            CompressionHandler compressionHandler = new CompressionHandler();
+            compressionHandler.setNext(handler);
+            handler = compressionHandler;
+            server = Undertow.builder()
+                    .addHttpListener(8080, "localhost")
+                    .setHandler(handler)
+                    .build();
+            server.start();
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        if(server != null) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+
+            }
+            server.stop();
+            logger.info("The server is stopped.");
+        }
+    }
+
+    static RoutingHandler getTestHandler() {
+        return Handlers.routing()
+                .add(Methods.GET, "/large", exchange -> {
+                    exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json");
+                    exchange.getResponseSender().send(LARGE);
+                })
+                .add(Methods.GET, "/small", exchange -> {
+                    exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json");
+                    exchange.getResponseSender().send("{\"id\":1}");
+                })
+                .add(Methods.GET, "/image", exchange -> {
+                    exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "image/png");
+                    exchange.getResponseSender().send(LARGE);
+                })
+                .add(Methods.GET, "/stream", exchange -> {
+                    // written in chunks without Content-Length.
+                    exchange.dispatch(ex -> {
+                        ex.startBlocking();
+                        ex.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json");
+                        try (OutputStream os = ex.getOutputStream()) {
+                            byte[] bytes = LARGE.getBytes(StandardCharsets.UTF_8);
+                            for(int i = 0; i < 10; i++) {
+                                os.write(bytes);
+                                os.flush();
+                            }
+                        }
+                    });
+                });
+    }
+
+    private CloseableHttpResponse get(String path, String acceptEncoding) throws Exception {
+        // content compression is disabled so that the raw response can be verified.
+        CloseableHttpClient client = HttpClients.custom().disableContentCompression().build();
+        HttpGet httpGet = new HttpGet("http://localhost:8080" + path);
+        if(acceptEncoding != null) {
+            httpGet.setHeader(Headers.ACCEPT_ENCODING_STRING, acceptEncoding);
+        }
+        return client.execute(httpGet);
+    }
+
+    @Test
+    public void testGzip() throws Exception {
+        long responses = CompressionHandler.getCompressedResponses();
+        CloseableHttpResponse response = get("/large", "gzip, deflate");
+        Assert.assertEquals(200, response.getStatusLine().getStatusCode());
+        Assert.assertEquals("gzip", response.getFirstHeader(Headers.CONTENT_ENCODING_STRING).getValue());
+        String body = IOUtils.toString(new GZIPInputStream(response.getEntity().getContent()), "utf8");
+        Assert.assertEquals(LARGE, body);
+        Assert.assertTrue(CompressionHandler.getCompressedResponses() > responses);
+        Assert.assertTrue(CompressionHandler.getCompressionRatio() < 1);
+    }
+
+    @Test
+    public void testDeflate() throws Exception {
+        CloseableHttpResponse response = get("/large", "deflate");
+        Assert.assertEquals("deflate", response.getFirstHeader(Headers.CONTENT_ENCODING_STRING).getValue());
+        byte[] body = IOUtils.toByteArray(response.getEntity().getContent());
+        Assert.assertTrue(body.length > 0 && body.length < LARGE.length());
+    }
+
+    @Test
+    public void testStreaming() throws Exception {
+        CloseableHttpResponse response = get("/stream", "gzip");
+        Assert.assertEquals("gzip", response.getFirstHeader(Headers.CONTENT_ENCODING_STRING).getValue());
+        String body = IOUtils.toString(new GZIPInputStream(response.getEntity().getContent()), "utf8");
+        Assert.assertEquals(LARGE.length() * 10, body.length());
+    }
+
+    @Test
+    public void testNotAccepted() throws Exception {
+        CloseableHttpResponse response = get("/large", null);
+        Assert.assertNull(response.getFirstHeader(Headers.CONTENT_ENCODING_STRING));
+        Assert.assertEquals(LARGE, IOUtils.toString(response.getEntity().getContent(), "utf8"));
+    }
+
+    @Test
+    public void testBelowMinSize() throws Exception {
+        CloseableHttpResponse response = get("/small", "gzip");
+        Assert.assertNull(response.getFirstHeader(Headers.CONTENT_ENCODING_STRING));
+        Assert.assertEquals("{\"id\":1}", IOUtils.toString(response.getEntity().getContent(), "utf8"));
+    }
+
+    @Test
+    public void testContentTypeNotMatched() throws Exception {
+        CloseableHttpResponse response = get("/image", "gzip");
+        Assert.assertNull(response.getFirstHeader(Headers.CONTENT_ENCODING_STRING));
+    }
+}
@@ -16,12 +16,25 @@
 
 package com.networknt.config;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 
 import org.owasp.encoder.Encode;
 import org.slf4j.ext.XLogger;
@@ -41,8 +54,17 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  * 1. resources/config folder for the default
  * 2. externalized directory specified by light-java-config-dir
  *
- * In docker, the config files should be in volume and any update will
- * be picked up the next day morning.
+ * In docker, the config files should be in volume. When the externalized
+ * directory exists, it is watched and a changed file is reloaded right away.
+ * The cached object is replaced with the newly loaded one and never updated
+ * in place, so a caller holding on to the old object keeps a consistent
+ * snapshot. Listeners registered with addChangeListener are notified after
+ * the swap. Without the externalized directory, the cache is refreshed the
+ * next day morning.
+ *
+ * Each config is loaded on the first access without blocking the access to
+ * other configs, and preload() can be called at startup to read all config
+ * files in parallel.
  *
  *
  */
@@ -67,6 +89,34 @@ public abstract class Config {
 
     public abstract void clear();
 
+    /**
+     * Register a listener that is notified when the config file is reloaded.
+     *
+     * @param configName config name without .json or the filename of other files
+     * @param listener ConfigChangeListener
+     */
+    public void addChangeListener(String configName, ConfigChangeListener listener) {
+    }
+
+    public void removeChangeListener(String configName, ConfigChangeListener listener) {
+    }
+
+    /**
+     * Reload the config from the file and notify the listeners.
+     *
+     * @param configName config name without .json or the filename of other files
+     */
+    public void reload(String configName) {
+        clear();
+    }
+
+    /**
+     * Read all the config files in the externalized directory and the config folder of the
+     * classpath in parallel, so that the configs accessed later on are parsed from memory.
+     */
+    public void preload() {
+    }
+
     public static Config getInstance() {
         return FileConfigImpl.DEFAULT;
     }
@@ -78,12 +128,25 @@ public abstract class Config {
 
         static final String EXTERNALIZED_PROPERTY_DIR = System.getProperty("light-java-config-dir", "");
 
-        private long cacheExpirationTime = 0L;
+        private volatile long cacheExpirationTime = 0L;
 
         private static final Config DEFAULT = initialize();
 
         // Memory cache of all the configuration object. Each config will be loaded on the first time is is accessed.
-        final Map<String, Object> configCache = new ConcurrentHashMap<>(10, 0.9f, 1);
+        final ConcurrentMap<String, Object> configCache = new ConcurrentHashMap<>();
+
+        // How each cached config is loaded so that it can be reloaded when the file is changed.
+        final ConcurrentMap<String, Supplier<Object>> loaders = new ConcurrentHashMap<>();
+
+        // Configs being loaded by the first caller that missed the cache.
+        final ConcurrentMap<String, FutureTask<Object>> loading = new ConcurrentHashMap<>();
+
+        // Content of the config files read by preload.
+        final ConcurrentMap<String, byte[]> preloaded = new ConcurrentHashMap<>();
+
+        final ConcurrentMap<String, List<ConfigChangeListener>> listeners = new ConcurrentHashMap<>();
+
+        private ConfigWatcher watcher;
 
         // An instance of Jackson ObjectMapper that can be used anywhere else for Json.
         final ObjectMapper mapper = new ObjectMapper();
@@ -91,7 +154,23 @@ public abstract class Config {
         private static Config initialize() {
             Iterator<Config> it;
             it = ServiceLoader.load(Config.class).iterator();
-            return it.hasNext() ? it.next() : new FileConfigImpl();
+            if(it.hasNext()) {
+                return it.next();
+            }
+            FileConfigImpl config = new FileConfigImpl();
+            config.startWatcher();
+            return config;
+        }
+
+        private void startWatcher() {
+            if(EXTERNALIZED_PROPERTY_DIR.length() > 0 && new File(EXTERNALIZED_PROPERTY_DIR).isDirectory()) {
+                try {
+                    watcher = new ConfigWatcher(Paths.get(EXTERNALIZED_PROPERTY_DIR), this::reloadFile);
+                    watcher.start();
+                } catch (IOException e) {
+                    logger.error("Unable to watch config directory " + Encode.forJava(EXTERNALIZED_PROPERTY_DIR), e);
+                }
+            }
         }
 
         // Return instance of Jackson Object Mapper
@@ -103,6 +182,158 @@ public abstract class Config {
         @Override
         public void clear() {
             configCache.clear();
+            loaders.clear();
+            preloaded.clear();
+        }
+
+        @Override
+        public void addChangeListener(String configName, ConfigChangeListener listener) {
+            listeners.computeIfAbsent(configName, k -> new CopyOnWriteArrayList<>()).add(listener);
+        }
+
+        @Override
+        public void removeChangeListener(String configName, ConfigChangeListener listener) {
+            List<ConfigChangeListener> list = listeners.get(configName);
+            if(list != null) list.remove(listener);
+        }
+
+        @Override
+        public void reload(String configName) {
+            reloadFile(configName.indexOf('.') < 0 ? configName + CONFIG_EXT_JSON : configName);
+        }
+
+        /**
+         * Reload the cached configs of the file and notify the listeners. If the file cannot be
+         * loaded, for example it is being written, the current config is kept.
+         */
+        void reloadFile(String filename) {
+            preloaded.remove(filename);
+            String configName = filename.endsWith(CONFIG_EXT_JSON) ? filename.substring(0, filename.length() - CONFIG_EXT_JSON.length()) : filename;
+            reloadKey(filename);
+            if(!configName.equals(filename)) reloadKey(configName);
+            List<ConfigChangeListener> list = listeners.get(configName);
+            if(list != null) {
+                Object config = configCache.get(configName);
+                for(ConfigChangeListener listener : list) {
+                    try {
+                        listener.onChange(configName, config);
+                    } catch (Exception e) {
+                        logger.error("Config change listener failed for " + Encode.forJava(configName), e);
+                    }
+                }
+            }
+        }
+
+        private void reloadKey(String key) {
+            Supplier<Object> loader = loaders.get(key);
+            if(loader == null) return;
+            Object config = loader.get();
+            if(config != null) {
+                configCache.put(key, config);
+                logger.info("Config reloaded for " + Encode.forJava(key));
+            }
+        }
+
+        /**
+         * Load the config on cache miss. Concurrent callers of the same key wait for the one
+         * that is loading it, and the loading of one config doesn't block the others.
+         */
+        private Object load(String key, Supplier<Object> loader) {
+            FutureTask<Object> task = new FutureTask<>(loader::get);
+            FutureTask<Object> existing = loading.putIfAbsent(key, task);
+            if(existing == null) {
+                try {
+                    // check again as it might be loaded after the cache miss of the caller.
+                    Object config = configCache.get(key);
+                    if(config != null) {
+                        return config;
+                    }
+                    task.run();
+                    config = getResult(task);
+                    if(config != null) {
+                        configCache.put(key, config);
+                        loaders.putIfAbsent(key, loader);
+                    }
+                    return config;
+                } finally {
+                    loading.remove(key, task);
+                }
+            }
+            return getResult(existing);
+        }
+
+        private static Object getResult(FutureTask<Object> task) {
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                logger.catching(e.getCause());
+                return null;
+            }
+        }
+
+        @Override
+        public void preload() {
+            long start = System.currentTimeMillis();
+            Set<String> filenames = new HashSet<>();
+            if(EXTERNALIZED_PROPERTY_DIR.length() > 0) {
+                String[] files = new File(EXTERNALIZED_PROPERTY_DIR).list((dir, name) -> name.endsWith(CONFIG_EXT_JSON));
+                if(files != null) filenames.addAll(Arrays.asList(files));
+            }
+            try {
+                Enumeration<URL> urls = getClass().getClassLoader().getResources("config");
+                while(urls.hasMoreElements()) {
+                    listJsonFiles(urls.nextElement(), filenames);
+                }
+            } catch (IOException e) {
+                logger.catching(e);
+            }
+            filenames.parallelStream()
+                    .filter(filename -> !preloaded.containsKey(filename))
+                    .forEach(filename -> {
+                        byte[] content = readConfigFile(filename);
+                        if(content != null) preloaded.putIfAbsent(filename, content);
+                    });
+            if(logger.isInfoEnabled()) {
+                logger.info("Preloaded " + filenames.size() + " config files in " + (System.currentTimeMillis() - start) + "ms");
+            }
+        }
+
+        private static void listJsonFiles(URL url, Set<String> filenames) throws IOException {
+            if("file".equals(url.getProtocol())) {
+                String[] files = new File(url.getPath()).list((dir, name) -> name.endsWith(CONFIG_EXT_JSON));
+                if(files != null) filenames.addAll(Arrays.asList(files));
+            } else if("jar".equals(url.getProtocol())) {
+                JarURLConnection connection = (JarURLConnection)url.openConnection();
+                connection.setUseCaches(false);
+                try (JarFile jar = connection.getJarFile()) {
+                    Enumeration<JarEntry> entries = jar.entries();
+                    while(entries.hasMoreElements()) {
+                        String name = entries.nextElement().getName();
+                        if(name.startsWith("config/") && name.endsWith(CONFIG_EXT_JSON) && name.indexOf('/', 7) < 0) {
+                            filenames.add(name.substring(7));
+                        }
+                    }
+                }
+            }
+        }
+
+        private byte[] readConfigFile(String filename) {
+            try (InputStream inStream = getConfigStream(filename)) {
+                if(inStream == null) return null;
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int n;
+                while((n = inStream.read(buffer)) != -1) {
+                    out.write(buffer, 0, n);
+                }
+                return out.toByteArray();
+            } catch (IOException e) {
+                logger.catching(e);
+                return null;
+            }
         }
 
         @Override
@@ -110,13 +341,7 @@ public abstract class Config {
             checkCacheExpiration();
             String content = (String)configCache.get(filename);
             if(content == null) {
-                synchronized (FileConfigImpl.class) {
-                    content = (String)configCache.get(filename);
-                    if(content == null) {
-                        content = loadStringFromFile(filename);
-                        if(content != null) configCache.put(filename, content);
-                    }
-                }
+                content = (String)load(filename, () -> loadStringFromFile(filename));
             }
             return content;
         }
@@ -131,13 +356,7 @@ public abstract class Config {
             checkCacheExpiration();
             Object config = configCache.get(configName);
             if(config == null) {
-                synchronized (FileConfigImpl.class) {
-                    config = configCache.get(configName);
-                    if(config == null) {
-                        config = loadJsonObjectConfig(configName, clazz);
-                        if(config != null) configCache.put(configName, config);
-                    }
-                }
+                config = load(configName, () -> loadJsonObjectConfig(configName, clazz));
             }
             return config;
         }
@@ -147,13 +366,7 @@ public abstract class Config {
             checkCacheExpiration();
             JsonNode config = (JsonNode)configCache.get(configName);
             if(config == null) {
-                synchronized (FileConfigImpl.class) {
-                    config = (JsonNode)configCache.get(configName);
-                    if(config == null) {
-                        config = loadJsonNodeConfig(configName);
-                        if(config != null) configCache.put(configName, config);
-                    }
-                }
+                config = (JsonNode)load(configName, () -> loadJsonNodeConfig(configName));
             }
             return config;
         }
@@ -163,13 +376,7 @@ public abstract class Config {
             checkCacheExpiration();
             Map<String, Object> config = (Map<String, Object>)configCache.get(configName);
             if(config == null) {
-                synchronized (FileConfigImpl.class) {
-                    config = (Map<String, Object>)configCache.get(configName);
-                    if(config == null) {
-                        config = loadJsonMapConfig(configName);
-                        if(config != null) configCache.put(configName, config);
-                    }
-                }
+                config = (Map<String, Object>)load(configName, () -> loadJsonMapConfig(configName));
             }
             return config;
         }
@@ -272,7 +479,10 @@ public abstract class Config {
         }
 
         private InputStream getConfigStream(String configFilename) {
-
+            byte[] content = preloaded.get(configFilename);
+            if(content != null) {
+                return new ByteArrayInputStream(content);
+            }
             InputStream inStream = null;
             try{
             	inStream = new FileInputStream(EXTERNALIZED_PROPERTY_DIR + "/" + configFilename);
@@ -321,7 +531,8 @@ public abstract class Config {
         }
 
         private void checkCacheExpiration() {
-            if(System.currentTimeMillis() > cacheExpirationTime) {
+            // changes are picked up by the watcher, so there is no need to refresh daily.
+            if(watcher == null && System.currentTimeMillis() > cacheExpirationTime) {
                 clear();
                 logger.info("daily config cache refresh");
                 cacheExpirationTime = getNextMidNightTime();
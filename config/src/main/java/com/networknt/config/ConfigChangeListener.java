@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.networknt.config;
+
+/**
+ * Listener of the config file changes registered with Config.addChangeListener.
+ */
+public interface ConfigChangeListener {
+    /**
+     * Called after the cached config is replaced with the one loaded from the changed file.
+     *
+     * @param configName config name without .json or the filename of other files
+     * @param config the new config or null if the config is not cached
+     */
+    void onChange(String configName, Object config);
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.networknt.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watch the externalized config directory and call back with the filename of each created,
+ * modified or deleted file. Events that arrive together are merged, so a file written in
+ * several steps is reloaded once.
+ */
+class ConfigWatcher implements Runnable {
+    static final Logger logger = LoggerFactory.getLogger(ConfigWatcher.class);
+
+    // wait for more events of the same change before calling back.
+    static final long SETTLE_TIME = 100;
+
+    private final Path dir;
+    private final WatchService watchService;
+    private final Consumer<String> callback;
+    private Thread thread;
+
+    ConfigWatcher(Path dir, Consumer<String> callback) throws IOException {
+        this.dir = dir;
+        this.callback = callback;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    void start() {
+        thread = new Thread(this, "light-config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.error("Failed to close config watcher", e);
+        }
+    }
+
+    @Override
+    public void run() {
+        logger.info("Watching config directory {}", dir);
+        try {
+            while(true) {
+                WatchKey key = watchService.take();
+                Set<String> filenames = new LinkedHashSet<>();
+                while(key != null) {
+                    for(WatchEvent<?> event : key.pollEvents()) {
+                        if(event.kind() == StandardWatchEventKinds.OVERFLOW) continue;
+                        filenames.add(((Path)event.context()).getFileName().toString());
+                    }
+                    if(!key.reset()) {
+                        logger.error("Config directory {} is no longer accessible", dir);
+                        return;
+                    }
+                    key = watchService.poll(SETTLE_TIME, TimeUnit.MILLISECONDS);
+                }
+                for(String filename : filenames) {
+                    try {
+                        callback.accept(filename);
+                    } catch (Exception e) {
+                        logger.error("Failed to reload config " + filename, e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            logger.info("Config watcher is stopped");
+        }
+    }
+}
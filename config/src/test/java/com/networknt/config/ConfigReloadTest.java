@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.networknt.config;
+
+import junit.framework.TestCase;
+import org.junit.Assert;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ConfigReloadTest extends TestCase {
+    Config config = null;
+    File file = null;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        config = Config.getInstance();
+        // the test config folder is in the classpath, so a file written there can be loaded.
+        File dir = new File(getClass().getClassLoader().getResource("config/test.json").toURI()).getParentFile();
+        file = new File(dir, "reload.json");
+        writeValue("v1");
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        file.delete();
+        super.tearDown();
+    }
+
+    private void writeValue(String value) throws Exception {
+        Map<String, Object> map = new HashMap<>();
+        map.put("value", value);
+        config.getMapper().writeValue(file, map);
+    }
+
+    public void testReload() throws Exception {
+        config.clear();
+        List<Object> changes = new ArrayList<>();
+        ConfigChangeListener listener = (name, newConfig) -> changes.add(newConfig);
+        config.addChangeListener("reload", listener);
+        try {
+            Map<String, Object> v1 = config.getJsonMapConfig("reload");
+            Assert.assertEquals("v1", v1.get("value"));
+            writeValue("v2");
+            // still cached until reloaded
+            Assert.assertSame(v1, config.getJsonMapConfig("reload"));
+            config.reload("reload");
+            Map<String, Object> v2 = config.getJsonMapConfig("reload");
+            Assert.assertEquals("v2", v2.get("value"));
+            // the old snapshot is not changed
+            Assert.assertEquals("v1", v1.get("value"));
+            Assert.assertEquals(1, changes.size());
+            Assert.assertSame(v2, changes.get(0));
+        } finally {
+            config.removeChangeListener("reload", listener);
+        }
+    }
+
+    public void testReloadInvalidKeepsConfig() throws Exception {
+        config.clear();
+        TestConfig v1 = (TestConfig)config.getJsonObjectConfig("reload", TestConfig.class);
+        Assert.assertEquals("v1", v1.getValue());
+        config.getMapper().writeValue(file, "not an object");
+        config.reload("reload");
+        Assert.assertSame(v1, config.getJsonObjectConfig("reload", TestConfig.class));
+    }
+
+    public void testPreload() throws Exception {
+        config.clear();
+        config.preload();
+        Map<String, Object> configMap = config.getJsonMapConfig("test");
+        Assert.assertEquals("default config", configMap.get("value"));
+        Assert.assertEquals("v1", config.getJsonMapConfig("reload").get("value"));
+        // the preloaded content is dropped when the file is reloaded
+        writeValue("v2");
+        config.reload("reload");
+        Assert.assertEquals("v2", config.getJsonMapConfig("reload").get("value"));
+    }
+}
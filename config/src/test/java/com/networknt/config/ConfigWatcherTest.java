@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.networknt.config;
+
+import junit.framework.TestCase;
+import org.junit.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class ConfigWatcherTest extends TestCase {
+
+    public void testWatchChange() throws Exception {
+        Path dir = Files.createTempDirectory("config");
+        BlockingQueue<String> changes = new LinkedBlockingQueue<>();
+        ConfigWatcher watcher = new ConfigWatcher(dir, changes::add);
+        watcher.start();
+        Path file = dir.resolve("watch.json");
+        try {
+            Files.write(file, "{\"value\":\"v1\"}".getBytes(StandardCharsets.UTF_8));
+            // some platforms poll the directory, so give it enough time.
+            Assert.assertEquals("watch.json", changes.poll(15, TimeUnit.SECONDS));
+        } finally {
+            watcher.stop();
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(dir);
+        }
+    }
+}
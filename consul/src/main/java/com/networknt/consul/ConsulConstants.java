@@ -73,4 +73,14 @@ public class ConsulConstants {
 	 * consul block max block time in second
 	 */
 	public static long CONSUL_BLOCK_TIME_SECONDS = CONSUL_BLOCK_TIME_MINUTES * 60;
+
+	/**
+	 * IO threads of the async client that sends the blocking queries of all watches
+	 */
+	public static int WATCH_IO_THREADS = 2;
+
+	/**
+	 * Maximum connections of the async client. Each pending blocking query holds a connection.
+	 */
+	public static int MAX_WATCH_CONNECTIONS = 4096;
 }
@@ -17,7 +17,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
-public class ConsulRegistry extends CommandFailbackRegistry {
+public class ConsulRegistry extends CommandFailbackRegistry implements AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(ConsulRegistry.class);
     private ConsulClient client;
     private ConsulHeartbeatManager heartbeatManager;
@@ -28,11 +28,16 @@ public class ConsulRegistry extends CommandFailbackRegistry {
     // command local cache. key: serviceName, value: command content
     private ConcurrentHashMap<String, String> commandCache = new ConcurrentHashMap<String, String>();
 
-    // record lookup service thread, ensure each serviceName start only one thread, <serviceName, lastConsulIndexId>
+    // record lookup service, ensure each serviceName is watched only once, <serviceName, lastConsulIndexId>
     private ConcurrentHashMap<String, Long> lookupServices = new ConcurrentHashMap<String, Long>();
-    // record lookup command thread, <serviceName, command>
-    // TODO: 2016/6/17 change value to consul index
+    // record lookup command, <serviceName, command>
     private ConcurrentHashMap<String, String> lookupCommands = new ConcurrentHashMap<String, String>();
+    // watches all services and commands with blocking queries
+    private ConsulWatcher watcher;
+
+    // changes waiting for notifyExecutor, a later change of the same key replaces the earlier one.
+    private ConcurrentHashMap<String, List<URL>> pendingServices = new ConcurrentHashMap<String, List<URL>>();
+    private ConcurrentHashMap<String, String> pendingCommands = new ConcurrentHashMap<String, String>();
 
     // TODO: 2016/6/17 clientUrl support multiple listener
     // record subscribers service callback listeners, listener was called when corresponding service changes
@@ -48,12 +53,25 @@ public class ConsulRegistry extends CommandFailbackRegistry {
         heartbeatManager = new ConsulHeartbeatManager(client);
         heartbeatManager.start();
         lookupInterval = getUrl().getIntParameter(URLParamType.registrySessionTimeout.getName(), ConsulConstants.DEFAULT_LOOKUP_INTERVAL);
+        watcher = new ConsulWatcher(lookupInterval);
 
         ArrayBlockingQueue<Runnable> workQueue = new ArrayBlockingQueue<Runnable>(20000);
         notifyExecutor = new ThreadPoolExecutor(10, 30, 30 * 1000, TimeUnit.MILLISECONDS, workQueue);
         logger.info("ConsulRegistry init finish.");
     }
 
+    /**
+     * stop the watches and the heartbeat, and release the connections of the client.
+     */
+    @Override
+    public void close() {
+        watcher.close();
+        heartbeatManager.close();
+        notifyExecutor.shutdown();
+        client.close();
+        logger.info("ConsulRegistry closed.");
+    }
+
     public ConcurrentHashMap<String, ConcurrentHashMap<URL, ServiceListener>> getServiceListeners() {
         return serviceListeners;
     }
@@ -97,23 +115,26 @@ public class ConsulRegistry extends CommandFailbackRegistry {
     @Override
     protected void subscribeService(URL url, ServiceListener serviceListener) {
         addServiceListener(url, serviceListener);
-        startListenerThreadIfNewService(url);
+        watchIfNewService(url);
     }
 
     /**
-     * if new service registered, start a new lookup thread
-     * each serviceName start a lookup thread to discover service
+     * if new service subscribed, add a watch of the service to the watcher
+     * each serviceName is watched once to discover service
      *
      * @param url
      */
-    private void startListenerThreadIfNewService(URL url) {
-        String serviceName = url.getPath();
+    private void watchIfNewService(URL url) {
+        final String serviceName = url.getPath();
         if (!lookupServices.containsKey(serviceName)) {
             Long value = lookupServices.putIfAbsent(serviceName, 0L);
             if (value == null) {
-                ServiceLookupThread lookupThread = new ServiceLookupThread(serviceName);
-                lookupThread.setDaemon(true);
-                lookupThread.start();
+                watcher.watch("service:" + serviceName,
+                        index -> client.lookupHealthServiceAsync(serviceName, index),
+                        response -> {
+                            ConcurrentHashMap<String, List<URL>> serviceUrls = toServiceUrls(serviceName, response);
+                            updateServiceCache(serviceName, serviceUrls, true);
+                        });
             }
         }
     }
@@ -133,17 +154,21 @@ public class ConsulRegistry extends CommandFailbackRegistry {
     @Override
     protected void subscribeCommand(URL url, CommandListener commandListener) {
         addCommandListener(url, commandListener);
-        startListenerThreadIfNewCommand(url);
+        watchIfNewCommand(url);
     }
 
-    private void startListenerThreadIfNewCommand(URL url) {
-        String serviceName = url.getPath();
+    private void watchIfNewCommand(URL url) {
+        final String serviceName = url.getPath();
         if (!lookupCommands.containsKey(serviceName)) {
             String command = lookupCommands.putIfAbsent(serviceName, "");
             if (command == null) {
-                CommandLookupThread lookupThread = new CommandLookupThread(serviceName);
-                lookupThread.setDaemon(true);
-                lookupThread.start();
+                watcher.watch("command:" + serviceName,
+                        index -> client.lookupCommandAsync(serviceName, index),
+                        response -> {
+                            String value = response == null || response.getValue() == null ? "" : response.getValue();
+                            lookupCommands.put(serviceName, value);
+                            updateCommandCache(serviceName, value, true);
+                        });
             }
         }
     }
@@ -212,6 +237,18 @@ public class ConsulRegistry extends CommandFailbackRegistry {
     private ConcurrentHashMap<String, List<URL>> lookupServiceUpdate(String serviceName) {
         Long lastConsulIndexId = lookupServices.get(serviceName) == null ? 0L : lookupServices.get(serviceName);
         ConsulResponse<List<ConsulService>> response = lookupConsulService(serviceName, lastConsulIndexId);
+        return toServiceUrls(serviceName, response);
+    }
+
+    /**
+     * convert the consul response to service urls grouped by cluster.
+     *
+     * @param serviceName
+     * @param response
+     * @return service urls or null if the response is not newer than the last one
+     */
+    private ConcurrentHashMap<String, List<URL>> toServiceUrls(String serviceName, ConsulResponse<List<ConsulService>> response) {
+        Long lastConsulIndexId = lookupServices.get(serviceName) == null ? 0L : lookupServices.get(serviceName);
         if (response != null) {
             List<ConsulService> services = response.getValue();
             if (services != null && !services.isEmpty()
@@ -234,7 +271,7 @@ public class ConsulRegistry extends CommandFailbackRegistry {
                 lookupServices.put(serviceName, response.getConsulIndex());
                 return serviceUrls;
             } else {
-                logger.info(serviceName + " no need update, lastIndex:" + lastConsulIndexId);
+                if(logger.isDebugEnabled()) logger.debug(serviceName + " no need update, lastIndex:" + lastConsulIndexId);
             }
         }
         return null;
@@ -284,7 +321,7 @@ public class ConsulRegistry extends CommandFailbackRegistry {
                     }
                 }
                 if (change && needNotify) {
-                    notifyExecutor.execute(new NotifyService(entry.getKey(), entry.getValue()));
+                    notifyService(entry.getKey(), entry.getValue());
                     logger.info("light service notify-service: " + entry.getKey());
                     StringBuilder sb = new StringBuilder();
                     for (URL url : entry.getValue()) {
@@ -310,7 +347,7 @@ public class ConsulRegistry extends CommandFailbackRegistry {
         if (!command.equals(oldCommand)) {
             commandCache.put(serviceName, command);
             if (needNotify) {
-                notifyExecutor.execute(new NotifyCommand(serviceName, command));
+                notifyCommand(serviceName, command);
                 logger.info(String.format("command data change: serviceName=%s, command=%s: ", serviceName, command));
             }
         } else {
@@ -318,69 +355,35 @@ public class ConsulRegistry extends CommandFailbackRegistry {
         }
     }
 
-    private class ServiceLookupThread extends Thread {
-        private String serviceName;
-
-        public ServiceLookupThread(String serviceName) {
-            this.serviceName = serviceName;
-        }
-
-        @Override
-        public void run() {
-            logger.info("start service lookup thread. lookup interval: " + lookupInterval + "ms, service: " + serviceName);
-            while (true) {
-                try {
-                    sleep(lookupInterval);
-                    ConcurrentHashMap<String, List<URL>> serviceUrls = lookupServiceUpdate(serviceName);
-                    updateServiceCache(serviceName, serviceUrls, true);
-                } catch (Throwable e) {
-                    logger.error("service lookup thread fail!", e);
-                    try {
-                        Thread.sleep(2000);
-                    } catch (InterruptedException ignored) {
-                    }
-                }
-            }
+    /**
+     * notify the service listeners in notifyExecutor. If the previous change of the service is
+     * not notified yet, it is replaced by this change instead of queuing another notification.
+     */
+    private void notifyService(String service, List<URL> urls) {
+        if (pendingServices.put(service, urls) == null) {
+            notifyExecutor.execute(new NotifyService(service));
         }
     }
 
-    private class CommandLookupThread extends Thread {
-        private String serviceName;
-
-        public CommandLookupThread(String serviceName) {
-            this.serviceName = serviceName;
-        }
-
-        @Override
-        public void run() {
-            logger.info("start command lookup thread. lookup interval: " + lookupInterval + "ms, serviceName: " + serviceName);
-            while (true) {
-                try {
-                    sleep(lookupInterval);
-                    String command = lookupCommandUpdate(serviceName);
-                    updateCommandCache(serviceName, command, true);
-                } catch (Throwable e) {
-                    logger.error("serviceName lookup thread fail!", e);
-                    try {
-                        Thread.sleep(2000);
-                    } catch (InterruptedException ignored) {
-                    }
-                }
-            }
+    private void notifyCommand(String serviceName, String command) {
+        if (pendingCommands.put(serviceName, command) == null) {
+            notifyExecutor.execute(new NotifyCommand(serviceName));
         }
     }
 
     private class NotifyService implements Runnable {
         private String service;
-        private List<URL> urls;
 
-        public NotifyService(String service, List<URL> urls) {
+        public NotifyService(String service) {
             this.service = service;
-            this.urls = urls;
         }
 
         @Override
         public void run() {
+            List<URL> urls = pendingServices.remove(service);
+            if (urls == null) {
+                return;
+            }
             ConcurrentHashMap<URL, ServiceListener> listeners = serviceListeners.get(service);
             if (listeners != null) {
                 synchronized (listeners) {
@@ -397,16 +400,21 @@ public class ConsulRegistry extends CommandFailbackRegistry {
 
     private class NotifyCommand implements Runnable {
         private String serviceName;
-        private String command;
 
-        public NotifyCommand(String serviceName, String command) {
+        public NotifyCommand(String serviceName) {
             this.serviceName = serviceName;
-            this.command = command;
         }
 
         @Override
         public void run() {
+            String command = pendingCommands.remove(serviceName);
+            if (command == null) {
+                return;
+            }
             ConcurrentHashMap<URL, CommandListener> listeners = commandListeners.get(serviceName);
+            if (listeners == null) {
+                return;
+            }
             synchronized (listeners) {
                 for (Map.Entry<URL, CommandListener> entry : listeners.entrySet()) {
                     CommandListener commandListener = entry.getValue();
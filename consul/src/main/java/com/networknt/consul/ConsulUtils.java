@@ -1,6 +1,6 @@
 package com.networknt.consul;
 
-import com.networknt.registry.URLImpl;
+import com.networknt.registry.ImmutableURL;
 import com.networknt.utility.Constants;
 import com.networknt.registry.URLParamType;
 import com.networknt.registry.URL;
@@ -64,8 +64,14 @@ public class ConsulUtils {
             //String group = service.getName();
             //params.put(URLParamType.group.getName(), group);
             //params.put(URLParamType.nodeType.getName(), Constants.NODE_TYPE_SERVICE);
-            url = new URLImpl(ConsulConstants.DEFAULT_PROTOCOL, service.getAddress(), service.getPort(),
-                    ConsulUtils.getPathFromServiceId(service.getId()), params);
+            // the same instance is notified again and again, so it is interned and shared.
+            url = ImmutableURL.intern(ImmutableURL.builder()
+                    .protocol(ConsulConstants.DEFAULT_PROTOCOL)
+                    .host(service.getAddress())
+                    .port(service.getPort())
+                    .path(ConsulUtils.getPathFromServiceId(service.getId()))
+                    .parameters(params)
+                    .build());
         }
         return url;
     }
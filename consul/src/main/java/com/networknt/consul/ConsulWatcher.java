@@ -0,0 +1,142 @@
+package com.networknt.consul;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * Watches services and commands in consul with blocking queries. Each watch issues the next query
+ * with the consul index of the last response, so that consul holds the query until the data is
+ * changed or the wait time is over. The queries are sent with the async client and a watch only
+ * holds a connection while its query is pending, so thousands of watches share one scheduler
+ * thread and the IO threads of the client instead of a thread per watch.
+ *
+ * Two queries of the same watch are started at least interval milliseconds apart so that a
+ * service that changes all the time doesn't flood consul. A failed query is retried after
+ * retryDelay milliseconds.
+ */
+class ConsulWatcher {
+    private static final Logger logger = LoggerFactory.getLogger(ConsulWatcher.class);
+
+    static final long DEFAULT_RETRY_DELAY = 2000;
+
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentHashMap<String, Watch<?>> watches = new ConcurrentHashMap<>();
+    private final long interval;
+    private final long retryDelay;
+    private volatile boolean closed;
+
+    ConsulWatcher(long interval) {
+        this(interval, DEFAULT_RETRY_DELAY);
+    }
+
+    ConsulWatcher(long interval, long retryDelay) {
+        this.interval = interval;
+        this.retryDelay = retryDelay;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "light-consul-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start watching the key unless it is watched already.
+     *
+     * @param key unique key of the watch
+     * @param query send the query with the last consul index
+     * @param handler called with each response in the IO thread of the client
+     * @param <T> type of the response value
+     * @return true if a new watch is started
+     */
+    <T> boolean watch(String key, LongFunction<CompletableFuture<ConsulResponse<T>>> query, Consumer<ConsulResponse<T>> handler) {
+        Watch<T> watch = new Watch<>(key, query, handler);
+        if(watches.putIfAbsent(key, watch) != null) {
+            return false;
+        }
+        if(logger.isInfoEnabled()) logger.info("start consul watch " + key + ", lookup interval: " + interval + "ms");
+        schedule(watch, 0);
+        return true;
+    }
+
+    void unwatch(String key) {
+        Watch<?> watch = watches.remove(key);
+        if(watch != null) watch.cancelled = true;
+    }
+
+    boolean isWatched(String key) {
+        return watches.containsKey(key);
+    }
+
+    int size() {
+        return watches.size();
+    }
+
+    void close() {
+        closed = true;
+        watches.clear();
+        scheduler.shutdownNow();
+    }
+
+    private void schedule(Watch<?> watch, long delay) {
+        if(closed || watch.cancelled) return;
+        try {
+            scheduler.schedule(watch, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the watcher is closed.
+        }
+    }
+
+    private class Watch<T> implements Runnable {
+        final String key;
+        final LongFunction<CompletableFuture<ConsulResponse<T>>> query;
+        final Consumer<ConsulResponse<T>> handler;
+        volatile long index;
+        volatile boolean cancelled;
+
+        Watch(String key, LongFunction<CompletableFuture<ConsulResponse<T>>> query, Consumer<ConsulResponse<T>> handler) {
+            this.key = key;
+            this.query = query;
+            this.handler = handler;
+        }
+
+        @Override
+        public void run() {
+            if(closed || cancelled) return;
+            final long start = System.currentTimeMillis();
+            CompletableFuture<ConsulResponse<T>> future;
+            try {
+                future = query.apply(index);
+            } catch (Throwable e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+            future.whenComplete((response, e) -> {
+                if(e != null) {
+                    logger.error("consul watch " + key + " fail!", e);
+                    schedule(this, retryDelay);
+                    return;
+                }
+                if(response != null && response.getConsulIndex() != null) {
+                    long newIndex = response.getConsulIndex();
+                    // the index may go backwards after consul is restarted, start over in this case.
+                    index = newIndex < index ? 0 : newIndex;
+                }
+                try {
+                    handler.accept(response);
+                } catch (Throwable t) {
+                    logger.error("consul watch " + key + " handler fail!", t);
+                }
+                schedule(this, Math.max(0, interval - (System.currentTimeMillis() - start)));
+            });
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.networknt.consul.client;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.networknt.consul.ConsulResponse;
 import com.networknt.consul.ConsulService;
@@ -47,4 +48,43 @@ public interface ConsulClient {
 
 	String lookupCommand(String group);
 
+	/**
+	 * get latest service list without blocking the caller. The returned future is completed
+	 * when consul returns a new index or the blocking query times out. The default
+	 * implementation calls lookupHealthService in a thread of LookupExecutor, so a client
+	 * without async support holds a thread per pending query.
+	 *
+	 * @param serviceName service name
+	 * @param lastConsulIndex last consul index
+	 * @return CompletableFuture of the response
+	 */
+	default CompletableFuture<ConsulResponse<List<ConsulService>>> lookupHealthServiceAsync(
+			String serviceName, long lastConsulIndex) {
+		return CompletableFuture.supplyAsync(() -> lookupHealthService(serviceName, lastConsulIndex),
+				LookupExecutor.INSTANCE);
+	}
+
+	/**
+	 * get the command of the service without blocking the caller. The value of the response is
+	 * an empty string if there is no command. The default implementation calls lookupCommand
+	 * in a thread of LookupExecutor.
+	 *
+	 * @param serviceName service name
+	 * @param lastConsulIndex last consul index
+	 * @return CompletableFuture of the response
+	 */
+	default CompletableFuture<ConsulResponse<String>> lookupCommandAsync(String serviceName, long lastConsulIndex) {
+		return CompletableFuture.supplyAsync(() -> {
+			ConsulResponse<String> response = new ConsulResponse<>();
+			response.setValue(lookupCommand(serviceName));
+			return response;
+		}, LookupExecutor.INSTANCE);
+	}
+
+	/**
+	 * release the connections and threads of the client.
+	 */
+	default void close() {
+	}
+
 }
@@ -6,16 +6,33 @@ import com.ecwid.consul.v1.agent.model.NewService;
 import com.ecwid.consul.v1.health.model.HealthService;
 import com.ecwid.consul.v1.health.model.HealthService.Service;
 import com.ecwid.consul.v1.kv.model.GetValue;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.networknt.config.Config;
 import com.networknt.consul.ConsulConstants;
 import com.networknt.consul.ConsulResponse;
 import com.networknt.consul.ConsulService;
 import com.networknt.consul.ConsulUtils;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -27,6 +44,9 @@ public class ConsulEcwidClient implements ConsulClient {
 	String host;
 	int port;
 
+	// created on the first async lookup as a client that only registers doesn't need it.
+	private volatile CloseableHttpAsyncClient asyncClient;
+
 	public ConsulEcwidClient(String host, int port) {
 		this.host = host;
 		this.port = port;
@@ -108,6 +128,157 @@ public class ConsulEcwidClient implements ConsulClient {
         return command;
     }
 
+	@Override
+	public CompletableFuture<ConsulResponse<List<ConsulService>>> lookupHealthServiceAsync(
+			String serviceName, long lastConsulIndex) {
+		String uri = "/v1/health/service/" + encode(serviceName) + "?passing&index=" + lastConsulIndex
+				+ "&wait=" + ConsulConstants.CONSUL_BLOCK_TIME_SECONDS + "s";
+		return query(uri, response -> {
+			JsonNode root = readTree(response);
+			List<ConsulService> services = new ArrayList<ConsulService>(root.size());
+			for (JsonNode node : root) {
+				JsonNode org = node.get("Service");
+				if (org == null) {
+					continue;
+				}
+				ConsulService service = new ConsulService();
+				service.setAddress(org.path("Address").asText());
+				service.setId(org.path("ID").asText());
+				service.setName(org.path("Service").asText());
+				service.setPort(org.path("Port").asInt());
+				List<String> tags = new ArrayList<String>();
+				for (JsonNode tag : org.path("Tags")) {
+					tags.add(tag.asText());
+				}
+				service.setTags(tags);
+				services.add(service);
+			}
+			return services;
+		});
+	}
+
+	@Override
+	public CompletableFuture<ConsulResponse<String>> lookupCommandAsync(String serviceName, long lastConsulIndex) {
+		String uri = "/v1/kv/" + ConsulConstants.CONSUL_LIGHT_COMMAND + encode(serviceName) + "?index=" + lastConsulIndex
+				+ "&wait=" + ConsulConstants.CONSUL_BLOCK_TIME_SECONDS + "s";
+		return query(uri, response -> {
+			String command = "";
+			if (response.getStatusLine().getStatusCode() == 404) {
+				if(logger.isDebugEnabled()) logger.debug("no command in serviceName: " + serviceName);
+				return command;
+			}
+			JsonNode value = readTree(response).path(0).path("Value");
+			if (value.isTextual()) {
+				command = new String(Base64.decodeBase64(value.asText()), UTF_8);
+			}
+			return command;
+		});
+	}
+
+	private interface ResponseParser<T> {
+		T parse(HttpResponse response) throws IOException;
+	}
+
+	/**
+	 * Send a blocking query to the consul agent with the async client. The future is completed
+	 * in the IO thread of the client.
+	 */
+	private <T> CompletableFuture<ConsulResponse<T>> query(String uri, ResponseParser<T> parser) {
+		final String url = "http://" + host + ":" + port + uri;
+		final CompletableFuture<ConsulResponse<T>> future = new CompletableFuture<>();
+		getAsyncClient().execute(new HttpGet(url), new FutureCallback<HttpResponse>() {
+			@Override
+			public void completed(HttpResponse response) {
+				try {
+					int statusCode = response.getStatusLine().getStatusCode();
+					if (statusCode != 200 && statusCode != 404) {
+						throw new IOException("consul returns " + statusCode + " for " + url);
+					}
+					ConsulResponse<T> consulResponse = new ConsulResponse<>();
+					consulResponse.setValue(parser.parse(response));
+					Header index = response.getFirstHeader("X-Consul-Index");
+					consulResponse.setConsulIndex(index == null ? null : Long.valueOf(index.getValue()));
+					Header lastContact = response.getFirstHeader("X-Consul-Lastcontact");
+					consulResponse.setConsulLastContact(lastContact == null ? null : Long.valueOf(lastContact.getValue()));
+					Header knownLeader = response.getFirstHeader("X-Consul-Knownleader");
+					consulResponse.setConsulKnownLeader(knownLeader == null ? null : Boolean.valueOf(knownLeader.getValue()));
+					future.complete(consulResponse);
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				}
+			}
+
+			@Override
+			public void failed(Exception e) {
+				future.completeExceptionally(e);
+			}
+
+			@Override
+			public void cancelled() {
+				future.completeExceptionally(new CancellationException("consul query is cancelled " + url));
+			}
+		});
+		return future;
+	}
+
+	private CloseableHttpAsyncClient getAsyncClient() {
+		CloseableHttpAsyncClient c = asyncClient;
+		if (c == null) {
+			synchronized (this) {
+				c = asyncClient;
+				if (c == null) {
+					// consul adds up to 1/16 of the wait time as jitter to a blocking query.
+					long blockTime = ConsulConstants.CONSUL_BLOCK_TIME_SECONDS + ConsulConstants.CONSUL_BLOCK_TIME_SECONDS / 16 + 10;
+					c = HttpAsyncClients.custom()
+							.setDefaultIOReactorConfig(IOReactorConfig.custom()
+									.setIoThreadCount(ConsulConstants.WATCH_IO_THREADS)
+									.setSoKeepAlive(true)
+									.build())
+							.setDefaultRequestConfig(RequestConfig.custom()
+									.setConnectTimeout(5000)
+									.setSocketTimeout((int) TimeUnit.SECONDS.toMillis(blockTime))
+									.build())
+							.setMaxConnTotal(ConsulConstants.MAX_WATCH_CONNECTIONS)
+							.setMaxConnPerRoute(ConsulConstants.MAX_WATCH_CONNECTIONS)
+							.build();
+					c.start();
+					asyncClient = c;
+				}
+			}
+		}
+		return c;
+	}
+
+	@Override
+	public void close() {
+		CloseableHttpAsyncClient c;
+		synchronized (this) {
+			c = asyncClient;
+			asyncClient = null;
+		}
+		if (c != null) {
+			try {
+				c.close();
+			} catch (IOException e) {
+				logger.error("Failed to close consul async client", e);
+			}
+		}
+	}
+
+	private static JsonNode readTree(HttpResponse response) throws IOException {
+		try (InputStream is = response.getEntity().getContent()) {
+			return Config.getInstance().getMapper().readTree(is);
+		}
+	}
+
+	private static String encode(String value) {
+		try {
+			return URLEncoder.encode(value, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
 	private NewService convertService(ConsulService service) {
 		NewService newService = new NewService();
 		newService.setAddress(service.getAddress());
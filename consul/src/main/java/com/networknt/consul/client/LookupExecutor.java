@@ -0,0 +1,22 @@
+package com.networknt.consul.client;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the sync lookups of a ConsulClient without async support, so that a blocking query never
+ * holds the watcher thread that schedules all the other watches.
+ */
+final class LookupExecutor {
+	private static final AtomicInteger count = new AtomicInteger();
+
+	static final ExecutorService INSTANCE = Executors.newCachedThreadPool(r -> {
+		Thread thread = new Thread(r, "light-consul-lookup-" + count.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private LookupExecutor() {
+	}
+}
@@ -0,0 +1,259 @@
+package com.networknt.consul;
+
+import com.networknt.consul.client.ConsulEcwidClient;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test the watcher and the async lookups of ConsulEcwidClient against a local HTTP stand-in of
+ * the consul agent that holds blocking queries until the index of the service is changed.
+ */
+public class ConsulWatcherTest {
+    static final int SERVICES = 200;
+    static final String STAND_IN_THREAD = "consul-stand-in";
+
+    static HttpServer server;
+    static ConsulStandIn consul;
+    static ConsulEcwidClient client;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        consul = new ConsulStandIn();
+        AtomicInteger count = new AtomicInteger();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 1000);
+        server.setExecutor(Executors.newCachedThreadPool(r -> new Thread(r, STAND_IN_THREAD + count.incrementAndGet())));
+        server.createContext("/v1/", consul::handle);
+        server.start();
+        client = new ConsulEcwidClient("localhost", server.getAddress().getPort());
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        consul.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testWatchServices() throws Exception {
+        int threads = countThreads();
+        ConsulWatcher watcher = new ConsulWatcher(0, 100);
+        try {
+            Map<String, Integer> ports = new ConcurrentHashMap<>();
+            CountDownLatch initial = new CountDownLatch(SERVICES);
+            CountDownLatch changed = new CountDownLatch(1);
+            for (int i = 0; i < SERVICES; i++) {
+                final String serviceName = "service" + i;
+                consul.setPort(serviceName, 8000);
+                watcher.watch("service:" + serviceName,
+                        index -> client.lookupHealthServiceAsync(serviceName, index),
+                        response -> {
+                            List<ConsulService> services = response.getValue();
+                            Integer old = ports.put(serviceName, services.get(0).getPort());
+                            if (old == null) {
+                                initial.countDown();
+                            } else if (!old.equals(services.get(0).getPort())) {
+                                changed.countDown();
+                            }
+                        });
+            }
+            Assert.assertEquals(SERVICES, watcher.size());
+            Assert.assertTrue(initial.await(10, TimeUnit.SECONDS));
+
+            // all watches are parked in the stand-in now, and the client side only adds a few threads.
+            Assert.assertTrue(countThreads() - threads < 10);
+
+            consul.setPort("service7", 8007);
+            Assert.assertTrue(changed.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(8007, (int)ports.get("service7"));
+            Assert.assertEquals(8000, (int)ports.get("service8"));
+        } finally {
+            watcher.close();
+        }
+    }
+
+    @Test
+    public void testWatchCommand() throws Exception {
+        ConsulWatcher watcher = new ConsulWatcher(0, 100);
+        try {
+            Map<String, String> commands = new ConcurrentHashMap<>();
+            CountDownLatch changed = new CountDownLatch(1);
+            watcher.watch("command:commandService",
+                    index -> client.lookupCommandAsync("commandService", index),
+                    response -> {
+                        commands.put("commandService", response.getValue());
+                        if (!response.getValue().isEmpty()) changed.countDown();
+                    });
+            consul.setCommand("commandService", "{\"index\":1}");
+            Assert.assertTrue(changed.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals("{\"index\":1}", commands.get("commandService"));
+        } finally {
+            watcher.close();
+        }
+    }
+
+    @Test
+    public void testRetryAfterFailure() throws Exception {
+        ConsulWatcher watcher = new ConsulWatcher(0, 100);
+        try {
+            AtomicInteger calls = new AtomicInteger();
+            CountDownLatch recovered = new CountDownLatch(1);
+            watcher.watch("service:failing",
+                    index -> {
+                        if (calls.incrementAndGet() < 3) throw new IllegalStateException("consul is down");
+                        return client.lookupHealthServiceAsync("failing", index);
+                    },
+                    response -> recovered.countDown());
+            Assert.assertTrue(recovered.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(3, calls.get());
+        } finally {
+            watcher.close();
+        }
+    }
+
+    @Test
+    public void testSyncClientDoesNotBlockWatcher() throws Exception {
+        ConsulWatcher watcher = new ConsulWatcher(0, 100);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch other = new CountDownLatch(1);
+            // a client without async support that holds its query like a blocking query does.
+            MockConsulClient sync = new MockConsulClient("localhost", 0) {
+                @Override
+                public ConsulResponse<List<ConsulService>> lookupHealthService(String serviceName, long lastConsulIndex) {
+                    if ("blocked".equals(serviceName)) {
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    return super.lookupHealthService(serviceName, lastConsulIndex);
+                }
+            };
+            watcher.watch("service:blocked", index -> sync.lookupHealthServiceAsync("blocked", index), response -> {});
+            watcher.watch("command:other", index -> sync.lookupCommandAsync("other", index), response -> other.countDown());
+            Assert.assertTrue(other.await(5, TimeUnit.SECONDS));
+            release.countDown();
+        } finally {
+            watcher.close();
+        }
+    }
+
+    private static int countThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (!thread.getName().startsWith(STAND_IN_THREAD)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Answers health and kv queries with an index per key. A query with the current index is
+     * held until the key is changed, which is what a blocking query does in consul.
+     */
+    static class ConsulStandIn {
+        static final long MAX_HOLD = 5000;
+
+        final Object lock = new Object();
+        final Map<String, Long> indexes = new ConcurrentHashMap<>();
+        final Map<String, Integer> ports = new ConcurrentHashMap<>();
+        final Map<String, String> commands = new ConcurrentHashMap<>();
+        long lastIndex = 1;
+        volatile boolean closed;
+
+        void setPort(String serviceName, int port) {
+            synchronized (lock) {
+                ports.put(serviceName, port);
+                indexes.put("service:" + serviceName, ++lastIndex);
+                lock.notifyAll();
+            }
+        }
+
+        void setCommand(String serviceName, String command) {
+            synchronized (lock) {
+                commands.put(serviceName, command);
+                indexes.put("command:" + serviceName, ++lastIndex);
+                lock.notifyAll();
+            }
+        }
+
+        void close() {
+            synchronized (lock) {
+                closed = true;
+                lock.notifyAll();
+            }
+        }
+
+        void handle(HttpExchange exchange) throws IOException {
+            URI uri = exchange.getRequestURI();
+            String path = uri.getPath();
+            long index = 0;
+            for (String param : uri.getQuery().split("&")) {
+                if (param.startsWith("index=")) index = Long.parseLong(param.substring(6));
+            }
+            String key;
+            if (path.startsWith("/v1/health/service/")) {
+                key = "service:" + path.substring("/v1/health/service/".length());
+            } else {
+                key = "command:" + path.substring(("/v1/kv/" + ConsulConstants.CONSUL_LIGHT_COMMAND).length());
+            }
+            long current;
+            synchronized (lock) {
+                long deadline = System.currentTimeMillis() + MAX_HOLD;
+                current = indexes.getOrDefault(key, 1L);
+                while (current <= index && !closed && System.currentTimeMillis() < deadline) {
+                    try {
+                        lock.wait(Math.max(1, deadline - System.currentTimeMillis()));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    current = indexes.getOrDefault(key, 1L);
+                }
+            }
+            String body;
+            int statusCode = 200;
+            if (key.startsWith("service:")) {
+                String serviceName = key.substring("service:".length());
+                Integer port = ports.get(serviceName);
+                body = port == null ? "[]" : "[{\"Node\":{\"Node\":\"stand-in\"},\"Service\":{\"ID\":\"" + serviceName + "-" + port
+                        + "\",\"Service\":\"" + serviceName + "\",\"Tags\":[\"protocol:http\"],\"Address\":\"127.0.0.1\",\"Port\":" + port + "},\"Checks\":[]}]";
+            } else {
+                String command = commands.get(key.substring("command:".length()));
+                if (command == null) {
+                    statusCode = 404;
+                    body = "";
+                } else {
+                    body = "[{\"Key\":\"" + key + "\",\"Value\":\"" + Base64.getEncoder().encodeToString(command.getBytes(StandardCharsets.UTF_8)) + "\"}]";
+                }
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("X-Consul-Index", String.valueOf(current));
+            exchange.getResponseHeaders().set("X-Consul-Knownleader", "true");
+            exchange.getResponseHeaders().set("X-Consul-Lastcontact", "0");
+            exchange.sendResponseHeaders(statusCode, bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        }
+    }
+}
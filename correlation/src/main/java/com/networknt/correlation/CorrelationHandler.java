@@ -18,16 +18,16 @@ package com.networknt.correlation;
 
 import com.networknt.config.Config;
 import com.networknt.handler.MiddlewareHandler;
+import com.networknt.handler.RequestContext;
 import com.networknt.utility.Constants;
+import com.networknt.utility.IdGenerator;
 import com.networknt.utility.ModuleRegistry;
-import com.networknt.utility.Util;
 import io.undertow.Handlers;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.HttpString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.slf4j.MDC;
 
 /**
  * This is a handler that checks if X-Correlation-Id exists in request header and put it into
@@ -37,13 +37,18 @@ import org.slf4j.MDC;
  * statement in the server should have correlationId logged so that this id can link all the logs across
  * services in ELK or other logging aggregation application.
  *
+ * The generated correlation-id comes from IdGenerator and its strategy is defined in idgenerator.json.
+ *
+ * A RequestContext with correlation-id, traceability-id and authorization header is attached to the
+ * exchange and bound to the thread while the rest of the chain is running. It is also bound to the
+ * handlers dispatched with exchange.dispatch() so that the correlation-id is in MDC of the worker thread.
+ *
  * Dependencies: SimpleAuditHandler, Client
  *
  * Created by steve on 05/11/16.
  */
 public class CorrelationHandler implements MiddlewareHandler {
     private static final Logger logger = LoggerFactory.getLogger(CorrelationHandler.class);
-    private static final String CID = "cId";
     private static final String CONFIG_NAME = "correlation";
 
     public static CorrelationConfig config =
@@ -59,12 +64,14 @@ public class CorrelationHandler implements MiddlewareHandler {
     public void handleRequest(final HttpServerExchange exchange) throws Exception {
         String cId = exchange.getRequestHeaders().getFirst(Constants.CORRELATION_ID);
         if(cId == null) {
-            cId = Util.getUUID();
+            cId = IdGenerator.getInstance().nextId();
             exchange.getRequestHeaders().put(new HttpString(Constants.CORRELATION_ID), cId);
         }
-        MDC.put(CID, cId);
-        //logger.debug("Init cId:" + cId);
-        next.handleRequest(exchange);
+        RequestContext context = RequestContext.get(exchange);
+        context.bindDispatch(exchange);
+        try (RequestContext.Scope ignored = context.bind()) {
+            next.handleRequest(exchange);
+        }
     }
 
     @Override
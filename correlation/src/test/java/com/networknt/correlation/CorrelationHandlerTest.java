@@ -30,6 +30,7 @@ import org.apache.http.impl.client.HttpClients;
 import org.junit.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
 
 /**
@@ -78,6 +79,10 @@ public class CorrelationHandlerTest {
                 .add(Methods.GET, "/without", exchange -> {
                     String cid = exchange.getRequestHeaders().getFirst(Constants.CORRELATION_ID);
                     exchange.getResponseSender().send(cid);
+                })
+                .add(Methods.GET, "/dispatch", exchange -> {
+                    // the handler is dispatched to a worker thread which has no MDC of its own.
+                    exchange.dispatch(ex -> ex.getResponseSender().send(MDC.get("cId")));
                 });
     }
 
@@ -119,4 +124,16 @@ public class CorrelationHandlerTest {
             e.printStackTrace();
         }
     }
+
+    @Test
+    public void testMdcInDispatchedHandler() throws Exception {
+        String url = "http://localhost:8080/dispatch";
+        CloseableHttpClient client = HttpClients.createDefault();
+        HttpGet httpGet = new HttpGet(url);
+        httpGet.setHeader(Constants.CORRELATION_ID, "dispatched");
+        CloseableHttpResponse response = client.execute(httpGet);
+        Assert.assertEquals(200, response.getStatusLine().getStatusCode());
+        String s = IOUtils.toString(response.getEntity().getContent(), "utf8");
+        Assert.assertEquals("dispatched", s);
+    }
 }
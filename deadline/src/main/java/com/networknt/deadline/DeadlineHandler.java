@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.deadline;
+
+import com.networknt.config.Config;
+import com.networknt.handler.MiddlewareHandler;
+import com.networknt.handler.RequestContext;
+import com.networknt.status.Status;
+import com.networknt.utility.Constants;
+import com.networknt.utility.ModuleRegistry;
+import io.undertow.Handlers;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is a handler that sets the deadline of the request. The timeout in milliseconds is taken
+ * from X-Request-Timeout header set by the caller, or from the endpoint or default timeout in
+ * deadline.json. The time the request has spent on the server before reaching this handler, e.g.
+ * in the queue of the worker pool, is deducted if the request start time is recorded or the
+ * server has stamped the arrival time.
+ *
+ * The deadline is kept in the RequestContext of the exchange, so that Client shrinks the timeouts
+ * of the downstream calls to the remaining time and passes the remaining time in X-Request-Timeout
+ * header to the next service. A request whose deadline has passed is rejected with 504 right away
+ * instead of doing the work the caller is no longer waiting for.
+ *
+ * It should be placed after CorrelationHandler so that the context is bound to the thread.
+ *
+ * Dependencies: CorrelationHandler, Client
+ */
+public class DeadlineHandler implements MiddlewareHandler {
+    static final Logger logger = LoggerFactory.getLogger(DeadlineHandler.class);
+
+    public static final String CONFIG_NAME = "deadline";
+
+    static final String STATUS_DEADLINE_EXCEEDED = "ERR10037";
+
+    public static DeadlineConfig config = null;
+    static Map<String, Long> endpoints = Collections.emptyMap();
+    static {
+        config = (DeadlineConfig)Config.getInstance().getJsonObjectConfig(CONFIG_NAME, DeadlineConfig.class);
+        if(config.getEndpoints() != null) {
+            endpoints = config.getEndpoints();
+        }
+    }
+
+    private volatile HttpHandler next;
+
+    public DeadlineHandler() {
+
+    }
+
+    @Override
+    public void handleRequest(final HttpServerExchange exchange) throws Exception {
+        long timeout = getTimeout(exchange);
+        if(timeout <= 0) {
+            if(timeout < 0) {
+                reject(exchange);
+                return;
+            }
+            next.handleRequest(exchange);
+            return;
+        }
+        // the deadline is kept in System.nanoTime() and counts from the arrival of the request if it is known.
+        long now = System.nanoTime();
+        long deadline = RequestContext.getArrivalNanos(exchange, now) + TimeUnit.MILLISECONDS.toNanos(timeout);
+        if(deadline - now <= 0) {
+            reject(exchange);
+            return;
+        }
+        RequestContext context = RequestContext.get(exchange);
+        // a deadline set earlier in the chain is only ever shortened.
+        if(!context.hasDeadline() || deadline - context.getDeadlineNanos() < 0) {
+            context.setDeadlineNanos(deadline);
+        }
+        if(RequestContext.current() == context) {
+            next.handleRequest(exchange);
+        } else {
+            context.bindDispatch(exchange);
+            try (RequestContext.Scope ignored = context.bind()) {
+                next.handleRequest(exchange);
+            }
+        }
+    }
+
+    /**
+     * Get the timeout of the request in milliseconds. 0 means no deadline and a negative value
+     * means the caller has run out of time already.
+     */
+    static long getTimeout(final HttpServerExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst(Constants.REQUEST_TIMEOUT);
+        if(header != null) {
+            try {
+                long timeout = Long.parseLong(header.trim());
+                return timeout > 0 ? timeout : -1;
+            } catch (NumberFormatException e) {
+                if(logger.isDebugEnabled()) logger.debug("Invalid " + Constants.REQUEST_TIMEOUT + " header " + header);
+            }
+        }
+        if(!endpoints.isEmpty()) {
+            Long timeout = endpoints.get(exchange.getRequestPath() + "@" + exchange.getRequestMethod().toString().toLowerCase(Locale.ROOT));
+            if(timeout != null) {
+                return timeout;
+            }
+        }
+        return config.getDefaultTimeout();
+    }
+
+    /**
+     * Check the deadline of the request and reject it with 504 if the deadline has passed. It is
+     * used by handlers before starting expensive work, for example after the request has waited
+     * in a queue.
+     *
+     * @param exchange HttpServerExchange
+     * @return true if the request has been rejected
+     */
+    public static boolean rejectIfExpired(final HttpServerExchange exchange) {
+        RequestContext context = exchange.getAttachment(RequestContext.ATTACHMENT_KEY);
+        if(context != null && context.isExpired()) {
+            reject(exchange);
+            return true;
+        }
+        return false;
+    }
+
+    static void reject(final HttpServerExchange exchange) {
+        if(logger.isDebugEnabled()) logger.debug("deadline exceeded, reject request " + exchange.getRequestPath());
+        Status status = new Status(STATUS_DEADLINE_EXCEEDED);
+        exchange.setStatusCode(status.getStatusCode());
+        exchange.getResponseSender().send(status.toByteBuffer());
+    }
+
+    @Override
+    public HttpHandler getNext() {
+        return next;
+    }
+
+    @Override
+    public MiddlewareHandler setNext(final HttpHandler next) {
+        Handlers.handlerNotNull(next);
+        this.next = next;
+        return this;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    @Override
+    public void register() {
+        ModuleRegistry.registerModule(DeadlineHandler.class.getName(), Config.getInstance().getJsonMapConfigNoCache(CONFIG_NAME), null);
+    }
+
+}
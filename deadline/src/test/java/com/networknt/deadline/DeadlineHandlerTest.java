@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.deadline;
+
+import com.networknt.handler.RequestContext;
+import com.networknt.utility.Constants;
+import io.undertow.Handlers;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.RoutingHandler;
+import io.undertow.util.Methods;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class DeadlineHandlerTest {
+    static final Logger logger = LoggerFactory.getLogger(DeadlineHandlerTest.class);
+
+    static Undertow server = null;
+
+    @BeforeClass
+    public static void setUp() {
+        if(server == null) {
+            logger.info("starting server");
+            HttpHandler handler = getTestHandler();
+            DeadlineHandler deadlineHandler = new DeadlineHandler();
+            deadlineHandler.setNext(handler);
+            handler = deadlineHandler;
+            server = Undertow.builder()
+                    .addHttpListener(8080, "localhost")
+                    .setHandler(handler)
+                    .build();
+            server.start();
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        if(server != null) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+
+            }
+            server.stop();
+            logger.info("The server is stopped.");
+        }
+    }
+
+    static RoutingHandler getTestHandler() {
+        return Handlers.routing()
+                .add(Methods.GET, "/remaining", DeadlineHandlerTest::sendRemaining)
+                .add(Methods.GET, "/endpoint", DeadlineHandlerTest::sendRemaining)
+                .add(Methods.GET, "/dispatch", exchange -> exchange.dispatch(DeadlineHandlerTest::sendRemaining));
+    }
+
+    static void sendRemaining(HttpServerExchange exchange) {
+        RequestContext context = RequestContext.current();
+        exchange.getResponseSender().send(context == null ? "none" : Long.toString(context.getRemaining()));
+    }
+
+    private String get(String path, String timeout, int expectedStatus) throws Exception {
+        CloseableHttpClient client = HttpClients.createDefault();
+        HttpGet httpGet = new HttpGet("http://localhost:8080" + path);
+        if(timeout != null) {
+            httpGet.setHeader(Constants.REQUEST_TIMEOUT, timeout);
+        }
+        CloseableHttpResponse response = client.execute(httpGet);
+        Assert.assertEquals(expectedStatus, response.getStatusLine().getStatusCode());
+        return IOUtils.toString(response.getEntity().getContent(), "utf8");
+    }
+
+    @Test
+    public void testDeadlineFromHeader() throws Exception {
+        long remaining = Long.parseLong(get("/remaining", "3000", 200));
+        Assert.assertTrue(remaining > 0 && remaining <= 3000);
+    }
+
+    @Test
+    public void testDeadlineInDispatchedHandler() throws Exception {
+        long remaining = Long.parseLong(get("/dispatch", "3000", 200));
+        Assert.assertTrue(remaining > 0 && remaining <= 3000);
+    }
+
+    @Test
+    public void testEndpointTimeout() throws Exception {
+        long remaining = Long.parseLong(get("/endpoint", null, 200));
+        Assert.assertTrue(remaining > 3000 && remaining <= 5000);
+    }
+
+    @Test
+    public void testNoDeadline() throws Exception {
+        Assert.assertEquals("none", get("/remaining", null, 200));
+    }
+
+    @Test
+    public void testInvalidHeaderIgnored() throws Exception {
+        Assert.assertEquals("none", get("/remaining", "abc", 200));
+    }
+
+    @Test
+    public void testExpiredDeadlineRejected() throws Exception {
+        String body = get("/remaining", "0", 504);
+        Assert.assertTrue(body.contains("ERR10037"));
+    }
+}
@@ -29,6 +29,9 @@ import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
 /**
+ * The error response is sent from the pre-encoded buffer of the status, so a rejected request
+ * doesn't build the JSON string again.
+ *
  * Created by steve on 29/09/16.
  */
 public class ExceptionHandler implements MiddlewareHandler {
@@ -60,21 +63,21 @@ public class ExceptionHandler implements MiddlewareHandler {
                     if(e instanceof FrameworkException) {
                         FrameworkException fe = (FrameworkException)e;
                         exchange.setStatusCode(fe.getStatus().getStatusCode());
-                        exchange.getResponseSender().send(fe.getStatus().toString());
+                        exchange.getResponseSender().send(fe.getStatus().toByteBuffer());
                     } else {
                         Status status = new Status(STATUS_RUNTIME_EXCEPTION);
                         exchange.setStatusCode(status.getStatusCode());
-                        exchange.getResponseSender().send(status.toString());
+                        exchange.getResponseSender().send(status.toByteBuffer());
                     }
                 } else {
                     if(e instanceof ApiException) {
                         ApiException ae = (ApiException)e;
                         exchange.setStatusCode(ae.getStatus().getStatusCode());
-                        exchange.getResponseSender().send(ae.getStatus().toString());
+                        exchange.getResponseSender().send(ae.getStatus().toByteBuffer());
                     } else {
                         Status status = new Status(STATUS_UNCAUGHT_EXCEPTION);
                         exchange.setStatusCode(status.getStatusCode());
-                        exchange.getResponseSender().send(status.toString());
+                        exchange.getResponseSender().send(status.toByteBuffer());
                     }
                 }
             }
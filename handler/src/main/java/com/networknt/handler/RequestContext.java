@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.handler;
+
+import com.networknt.utility.Constants;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
+import io.undertow.util.HeaderMap;
+import org.slf4j.MDC;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The context of a request that needs to follow the request across threads and to the services
+ * it calls: correlation id, traceability id, authorization header and deadline. It is attached to
+ * the exchange by CorrelationHandler, and it is bound to the thread that is running the request,
+ * so that the async client can capture it without access to the exchange.
+ *
+ * When it is bound to a thread, the correlation id and traceability id are put into MDC and the
+ * previous values of these two keys are restored when it is unbound. Other MDC keys of the thread
+ * are not touched.
+ */
+public class RequestContext {
+    public static final AttachmentKey<RequestContext> ATTACHMENT_KEY = AttachmentKey.create(RequestContext.class);
+    /**
+     * The executor the request runs in, e.g. the bounded worker pool of the server. Undertow
+     * clears the dispatch executor of the exchange once a dispatch is executed, so a handler that
+     * resumes the chain from the IO thread dispatches to this executor explicitly.
+     */
+    public static final AttachmentKey<Executor> EXECUTOR = AttachmentKey.create(Executor.class);
+    /**
+     * System.nanoTime() when the server took the request on the IO thread. It is stamped by the
+     * server when the request start time is not recorded by Undertow.
+     */
+    public static final AttachmentKey<Long> ARRIVAL_NANOS = AttachmentKey.create(Long.class);
+
+    public static final String MDC_CORRELATION_ID = "cId";
+    public static final String MDC_TRACEABILITY_ID = "tId";
+
+    private static final ThreadLocal<RequestContext> current = new ThreadLocal<>();
+
+    private final String correlationId;
+    private final String traceabilityId;
+    private final String authorization;
+    // System.nanoTime() of the deadline, only valid if hasDeadline is true.
+    private volatile long deadline;
+    private volatile boolean hasDeadline;
+
+    public RequestContext(String correlationId, String traceabilityId, String authorization) {
+        this.correlationId = correlationId;
+        this.traceabilityId = traceabilityId;
+        this.authorization = authorization;
+    }
+
+    /**
+     * Get the context attached to the exchange or create it from the request headers and attach
+     * it if there is none.
+     *
+     * @param exchange HttpServerExchange
+     * @return RequestContext
+     */
+    public static RequestContext get(HttpServerExchange exchange) {
+        RequestContext context = exchange.getAttachment(ATTACHMENT_KEY);
+        if(context == null) {
+            HeaderMap headers = exchange.getRequestHeaders();
+            context = new RequestContext(headers.getFirst(Constants.CORRELATION_ID),
+                    headers.getFirst(Constants.TRACEABILITY_ID), headers.getFirst(Constants.AUTHORIZATION));
+            exchange.putAttachment(ATTACHMENT_KEY, context);
+        }
+        return context;
+    }
+
+    /**
+     * @return the context bound to the current thread or null
+     */
+    public static RequestContext current() {
+        return current.get();
+    }
+
+    /**
+     * Bind the context to the current thread and put ids into MDC.
+     *
+     * @return Scope to be closed to restore the previous context and MDC
+     */
+    public Scope bind() {
+        RequestContext previous = current.get();
+        current.set(this);
+        Scope scope = new Scope(previous);
+        if(correlationId != null) {
+            scope.correlationIdSet = true;
+            scope.previousCorrelationId = MDC.get(MDC_CORRELATION_ID);
+            MDC.put(MDC_CORRELATION_ID, correlationId);
+        }
+        if(traceabilityId != null) {
+            scope.traceabilityIdSet = true;
+            scope.previousTraceabilityId = MDC.get(MDC_TRACEABILITY_ID);
+            MDC.put(MDC_TRACEABILITY_ID, traceabilityId);
+        }
+        return scope;
+    }
+
+    /**
+     * Wrap the task so that it runs with this context bound.
+     *
+     * @param task Runnable
+     * @return Runnable
+     */
+    public Runnable wrap(final Runnable task) {
+        return () -> {
+            try (Scope ignored = bind()) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * Wrap the executor so that the tasks run with this context bound. It is set as the dispatch
+     * executor of the exchange, so that the handlers dispatched with exchange.dispatch() run with
+     * the context even though MDC of the IO thread is cleared by then.
+     *
+     * @param executor Executor
+     * @return Executor
+     */
+    public Executor wrap(final Executor executor) {
+        return task -> executor.execute(wrap(task));
+    }
+
+    /**
+     * Wrap the handler so that it runs with the context of the exchange bound. It is used with
+     * exchange.dispatch(executor, handler) when the executor is given explicitly.
+     *
+     * @param handler HttpHandler
+     * @return HttpHandler
+     */
+    public static HttpHandler wrapHandler(final HttpHandler handler) {
+        return exchange -> {
+            RequestContext context = exchange.getAttachment(ATTACHMENT_KEY);
+            if(context == null) {
+                handler.handleRequest(exchange);
+                return;
+            }
+            try (Scope ignored = context.bind()) {
+                handler.handleRequest(exchange);
+            }
+        };
+    }
+
+    /**
+     * Dispatch the handler to the executor attached to the exchange with EXECUTOR, with the
+     * context of the exchange bound. The dispatch executor of the exchange or the worker is used
+     * if no executor is attached.
+     *
+     * @param exchange HttpServerExchange
+     * @param handler HttpHandler
+     */
+    public static void dispatch(HttpServerExchange exchange, HttpHandler handler) {
+        Executor executor = exchange.getAttachment(EXECUTOR);
+        if(executor != null) {
+            exchange.dispatch(executor, wrapHandler(handler));
+        } else {
+            exchange.dispatch(wrapHandler(handler));
+        }
+    }
+
+    /**
+     * Get the System.nanoTime() the request arrived at, so that the time it has waited in the queue
+     * of the worker pool counts against its deadline.
+     *
+     * @param exchange HttpServerExchange
+     * @param defaultValue returned if the arrival time is not known
+     * @return the request start time if it is recorded, otherwise the stamped ARRIVAL_NANOS
+     */
+    public static long getArrivalNanos(HttpServerExchange exchange, long defaultValue) {
+        long start = exchange.getRequestStartTime();
+        if(start != -1) {
+            return start;
+        }
+        Long arrival = exchange.getAttachment(ARRIVAL_NANOS);
+        return arrival != null ? arrival : defaultValue;
+    }
+
+    /**
+     * Make the dispatch executor of the exchange bind this context. The executor attached with
+     * EXECUTOR is used first, then the dispatch executor and then the executor of the worker.
+     * The dispatch executor only applies to the next dispatch, handlers that resume the chain
+     * later use dispatch(exchange, handler).
+     *
+     * @param exchange HttpServerExchange
+     */
+    public void bindDispatch(HttpServerExchange exchange) {
+        Executor executor = exchange.getAttachment(EXECUTOR);
+        if(executor == null) executor = exchange.getDispatchExecutor();
+        exchange.setDispatchExecutor(wrap(executor != null ? executor : exchange.getConnection().getWorker()));
+    }
+
+    public String getCorrelationId() {
+        return correlationId;
+    }
+
+    public String getTraceabilityId() {
+        return traceabilityId;
+    }
+
+    public String getAuthorization() {
+        return authorization;
+    }
+
+    public boolean hasDeadline() {
+        return hasDeadline;
+    }
+
+    /**
+     * @return deadline in System.nanoTime() or 0 if there is no deadline
+     */
+    public long getDeadlineNanos() {
+        return hasDeadline ? deadline : 0;
+    }
+
+    /**
+     * Set the deadline in System.nanoTime() so that it is not affected by changes of the wall clock.
+     *
+     * @param deadline the value of System.nanoTime() when the time is up
+     */
+    public void setDeadlineNanos(long deadline) {
+        this.deadline = deadline;
+        this.hasDeadline = true;
+    }
+
+    /**
+     * @return deadline in epoch milliseconds or 0 if there is no deadline
+     */
+    public long getDeadline() {
+        return hasDeadline ? System.currentTimeMillis() + getRemaining() : 0;
+    }
+
+    /**
+     * @param deadline deadline in epoch milliseconds, it is converted to System.nanoTime()
+     */
+    public void setDeadline(long deadline) {
+        setDeadlineNanos(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadline - System.currentTimeMillis()));
+    }
+
+    /**
+     * @return milliseconds left before the deadline or Long.MAX_VALUE if there is no deadline
+     */
+    public long getRemaining() {
+        if(!hasDeadline) {
+            return Long.MAX_VALUE;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+    }
+
+    /**
+     * @return true if the deadline has passed
+     */
+    public boolean isExpired() {
+        return getRemaining() <= 0;
+    }
+
+    /**
+     * Restores the previous context of the thread and the previous values of the MDC keys put by
+     * bind when closed.
+     */
+    public static final class Scope implements AutoCloseable {
+        private final RequestContext previous;
+        private boolean correlationIdSet;
+        private String previousCorrelationId;
+        private boolean traceabilityIdSet;
+        private String previousTraceabilityId;
+
+        private Scope(RequestContext previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if(previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+            if(correlationIdSet) restore(MDC_CORRELATION_ID, previousCorrelationId);
+            if(traceabilityIdSet) restore(MDC_TRACEABILITY_ID, previousTraceabilityId);
+        }
+
+        private static void restore(String key, String value) {
+            if(value == null) {
+                MDC.remove(key);
+            } else {
+                MDC.put(key, value);
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@ package com.networknt.info;
 import com.networknt.config.Config;
 import com.networknt.status.Status;
 import com.networknt.utility.ModuleRegistry;
+import com.networknt.utility.StartupReport;
 import com.networknt.utility.Util;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
@@ -59,6 +60,7 @@ public class ServerInfoHandler implements HttpHandler {
             infoMap.put("environment", getEnvironment(exchange));
             infoMap.put("specification", Config.getInstance().getJsonMapConfigNoCache("swagger"));
             infoMap.put("component", ModuleRegistry.getRegistry());
+            infoMap.put("startup", StartupReport.getReport());
             exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json");
             exchange.getResponseSender().send(Config.getInstance().getMapper().writeValueAsString(infoMap));
         } else {
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.limit;
+
+/**
+ * Additive increase and multiplicative decrease. The limit is increased by one if the service is
+ * busy enough to use it and is cut by backoffRatio when a request is dropped or the average
+ * latency goes over latencyThreshold.
+ */
+public class AimdLimit implements LimitAlgorithm {
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThreshold;
+
+    public AimdLimit(int minLimit, int maxLimit, double backoffRatio, long latencyThreshold) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThreshold = latencyThreshold;
+    }
+
+    @Override
+    public int update(int limit, long rtt, int inflight, boolean dropped) {
+        if(dropped || rtt > latencyThreshold) {
+            return Math.max(minLimit, (int)(limit * backoffRatio));
+        }
+        // the limit is only raised when it is actually reached, otherwise it grows without bound.
+        if(inflight * 2 >= limit) {
+            return Math.min(maxLimit, limit + 1);
+        }
+        return limit;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.limit;
+
+import com.networknt.audit.AuditHandler;
+import com.networknt.config.Config;
+import com.networknt.handler.MiddlewareHandler;
+import com.networknt.status.Status;
+import com.networknt.utility.Constants;
+import com.networknt.utility.GaugeRegistry;
+import com.networknt.utility.ModuleRegistry;
+import io.undertow.Handlers;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is a handler that limits the number of concurrent requests to what the service can handle
+ * without queueing. The limit is not fixed but learned from the latency of the completed requests
+ * with the gradient or aimd algorithm in concurrency.json. Requests over the limit are rejected
+ * with 503 right away so that the caller can retry on another instance instead of waiting behind
+ * the worker threads.
+ *
+ * A limit can be configured per endpoint, which is taken from the audit info attached to the
+ * exchange, and the rest of the endpoints share the default limit. So this handler should be
+ * placed after swagger-meta which populates the endpoint in the audit info.
+ *
+ * The limit, in-flight count and rejected count of each limiter are reported by MetricsHandler.
+ */
+public class ConcurrencyLimitHandler implements MiddlewareHandler {
+    static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitHandler.class);
+
+    public static final String CONFIG_NAME = "concurrency";
+    public static final String DEFAULT = "default";
+
+    static final String ENDPOINTS = "endpoints";
+    static final String STATUS_CONCURRENCY_LIMIT_EXCEEDED = "ERR10038";
+
+    public static ConcurrencyLimitConfig config = null;
+    static final Map<String, ConcurrencyLimiter> limiters;
+    static final ConcurrencyLimiter defaultLimiter;
+    static {
+        config = (ConcurrencyLimitConfig)Config.getInstance().getJsonObjectConfig(CONFIG_NAME, ConcurrencyLimitConfig.class);
+        Map<String, ConcurrencyLimiter> map = new HashMap<>();
+        defaultLimiter = createLimiter(config);
+        map.put(DEFAULT, defaultLimiter);
+        if(config.getEndpoints() != null) {
+            Map<String, Object> defaults = Config.getInstance().getMapper().convertValue(config, Map.class);
+            defaults.remove(ENDPOINTS);
+            for(Map.Entry<String, Map<String, Object>> entry : config.getEndpoints().entrySet()) {
+                Map<String, Object> merged = new HashMap<>(defaults);
+                merged.putAll(entry.getValue());
+                map.put(entry.getKey(), createLimiter(Config.getInstance().getMapper().convertValue(merged, ConcurrencyLimitConfig.class)));
+            }
+        }
+        limiters = Collections.unmodifiableMap(map);
+    }
+
+    private volatile HttpHandler next;
+
+    public ConcurrencyLimitHandler() {
+
+    }
+
+    static ConcurrencyLimiter createLimiter(ConcurrencyLimitConfig c) {
+        LimitAlgorithm algorithm;
+        if(ConcurrencyLimitConfig.AIMD.equals(c.getAlgorithm())) {
+            algorithm = new AimdLimit(c.getMinLimit(), c.getMaxLimit(), c.getBackoffRatio(), TimeUnit.MILLISECONDS.toNanos(c.getLatencyThreshold()));
+        } else {
+            algorithm = new GradientLimit(c.getMinLimit(), c.getMaxLimit(), c.getSmoothing(), c.getTolerance(), c.getLongWindow());
+        }
+        return new ConcurrencyLimiter(algorithm, c.getInitialLimit(), c.getWindow(), c.getMinSamples());
+    }
+
+    @Override
+    public void handleRequest(final HttpServerExchange exchange) throws Exception {
+        final ConcurrencyLimiter limiter = getLimiter(exchange);
+        if(!limiter.tryAcquire()) {
+            if(logger.isDebugEnabled()) logger.debug("concurrency limit " + limiter.getLimit() + " is reached, reject request " + exchange.getRequestPath());
+            Status status = new Status(STATUS_CONCURRENCY_LIMIT_EXCEEDED);
+            exchange.setStatusCode(status.getStatusCode());
+            exchange.getResponseSender().send(status.toByteBuffer());
+            return;
+        }
+        final long start = System.nanoTime();
+        exchange.addExchangeCompleteListener((exchange1, nextListener) -> {
+            int statusCode = exchange1.getStatusCode();
+            // 503 and 504 from downstream mean the request has been dropped because of overload.
+            limiter.release(System.nanoTime() - start, statusCode == 503 || statusCode == 504);
+            nextListener.proceed();
+        });
+        next.handleRequest(exchange);
+    }
+
+    static ConcurrencyLimiter getLimiter(final HttpServerExchange exchange) {
+        if(limiters.size() == 1) {
+            return defaultLimiter;
+        }
+        Map<String, Object> auditInfo = exchange.getAttachment(AuditHandler.AUDIT_INFO);
+        if(auditInfo != null) {
+            ConcurrencyLimiter limiter = limiters.get(auditInfo.get(Constants.ENDPOINT));
+            if(limiter != null) return limiter;
+        }
+        return defaultLimiter;
+    }
+
+    /**
+     * @return limiters by endpoint and the default limiter with key default
+     */
+    public static Map<String, ConcurrencyLimiter> getLimiters() {
+        return limiters;
+    }
+
+    @Override
+    public HttpHandler getNext() {
+        return next;
+    }
+
+    @Override
+    public MiddlewareHandler setNext(final HttpHandler next) {
+        Handlers.handlerNotNull(next);
+        this.next = next;
+        return this;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * The limiters are created from concurrency.json when the handler is loaded, so one set of
+     * gauges is registered per endpoint limiter and for the default limiter.
+     */
+    @Override
+    public void register() {
+        ModuleRegistry.registerModule(ConcurrencyLimitHandler.class.getName(), Config.getInstance().getJsonMapConfigNoCache(CONFIG_NAME), null);
+        for(Map.Entry<String, ConcurrencyLimiter> entry : limiters.entrySet()) {
+            Map<String, String> tags = Collections.singletonMap("endpoint", entry.getKey());
+            final ConcurrencyLimiter limiter = entry.getValue();
+            GaugeRegistry.register("concurrency_limit", tags, limiter::getLimit);
+            GaugeRegistry.register("concurrency_inflight", tags, limiter::getInflight);
+            GaugeRegistry.register("concurrency_rejected", tags, limiter::getRejected);
+        }
+    }
+
+}
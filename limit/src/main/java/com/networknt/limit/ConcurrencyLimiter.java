@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrency limit that is adjusted by the LimitAlgorithm from the latency of completed
+ * requests. The in-flight count and the samples are kept in striped counters so that concurrent
+ * requests don't contend on one cache line. The limit is recalculated at most once per window by
+ * the thread that completes a request after the window has ended, and only if the window has
+ * enough samples.
+ *
+ * The check of the in-flight count and the increment are not atomic, so the limit can be exceeded
+ * by the number of requests that are admitted at the same instant. That is acceptable for load
+ * shedding and it keeps the admission free of CAS loops.
+ */
+public class ConcurrencyLimiter {
+    private final LimitAlgorithm algorithm;
+    private final long windowNanos;
+    private final int minSamples;
+
+    private volatile int limit;
+    private final LongAdder inflight = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder rttSum = new LongAdder();
+    private final LongAdder samples = new LongAdder();
+    private final LongAccumulator maxInflight = new LongAccumulator(Math::max, 0);
+    private volatile boolean dropped;
+    private final AtomicLong nextUpdate;
+
+    public ConcurrencyLimiter(LimitAlgorithm algorithm, int initialLimit, long window, int minSamples) {
+        this.algorithm = algorithm;
+        this.limit = initialLimit;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(window);
+        this.minSamples = minSamples;
+        this.nextUpdate = new AtomicLong(System.nanoTime() + windowNanos);
+    }
+
+    /**
+     * Admit a request if the in-flight count is under the limit. release() must be called once
+     * the request is completed if it returns true.
+     *
+     * @return true if the request is admitted
+     */
+    public boolean tryAcquire() {
+        long current = inflight.sum();
+        if(current >= limit) {
+            rejected.increment();
+            return false;
+        }
+        inflight.increment();
+        maxInflight.accumulate(current + 1);
+        return true;
+    }
+
+    /**
+     * Release the request and record its latency.
+     *
+     * @param rtt response time in nanoseconds
+     * @param drop true if the request was dropped or timed out
+     */
+    public void release(long rtt, boolean drop) {
+        inflight.decrement();
+        rttSum.add(rtt);
+        samples.increment();
+        if(drop) dropped = true;
+        long now = System.nanoTime();
+        long next = nextUpdate.get();
+        if(now - next >= 0 && samples.sum() >= minSamples && nextUpdate.compareAndSet(next, now + windowNanos)) {
+            update();
+        }
+    }
+
+    private void update() {
+        long count = samples.sumThenReset();
+        long sum = rttSum.sumThenReset();
+        int max = (int)maxInflight.getThenReset();
+        boolean drop = dropped;
+        dropped = false;
+        if(count == 0) return;
+        limit = algorithm.update(limit, sum / count, max, drop);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public long getInflight() {
+        return inflight.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.limit;
+
+/**
+ * Gradient of the long term average latency over the latency of the current window. When the
+ * latency goes up because requests start to queue, the gradient drops below 1 and the limit is
+ * reduced in proportion. A queue of square root of the limit is allowed so that the limit can grow
+ * while the latency is stable.
+ */
+public class GradientLimit implements LimitAlgorithm {
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double tolerance;
+    private final double longWindowFactor;
+
+    private double longRtt;
+
+    /**
+     * @param minLimit min limit
+     * @param maxLimit max limit
+     * @param smoothing weight of the new limit, between 0 and 1
+     * @param tolerance ratio of latency increase tolerated before the limit is reduced
+     * @param longWindow number of windows in the long term average
+     */
+    public GradientLimit(int minLimit, int maxLimit, double smoothing, double tolerance, int longWindow) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.tolerance = tolerance;
+        this.longWindowFactor = 2.0 / (longWindow + 1);
+    }
+
+    @Override
+    public synchronized int update(int limit, long rtt, int inflight, boolean dropped) {
+        if(rtt <= 0) {
+            return limit;
+        }
+        if(longRtt == 0) {
+            longRtt = rtt;
+        } else {
+            longRtt = longRtt * (1 - longWindowFactor) + rtt * longWindowFactor;
+        }
+        // recover quickly when the latency is back to normal after a spike.
+        if(longRtt > rtt * 2) {
+            longRtt *= 0.95;
+        }
+        // the service is not using the limit, the latency says nothing about the limit.
+        if(!dropped && inflight * 2 < limit) {
+            return limit;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / rtt));
+        if(dropped) {
+            gradient = 0.5;
+        }
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+        // rounded away from the current limit, otherwise small limits never move with the smoothing.
+        int result = newLimit > limit ? (int)Math.ceil(newLimit) : (int)newLimit;
+        return Math.max(minLimit, Math.min(maxLimit, result));
+    }
+
+    synchronized double getLongRtt() {
+        return longRtt;
+    }
+}
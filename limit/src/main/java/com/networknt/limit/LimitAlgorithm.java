@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.limit;
+
+/**
+ * Computes the new concurrency limit from the latency observed in a sample window. It is called
+ * by one thread at a time.
+ */
+public interface LimitAlgorithm {
+    /**
+     * @param limit the current limit
+     * @param rtt average response time of the window in nanoseconds
+     * @param inflight the max number of in-flight requests seen in the window
+     * @param dropped true if any request in the window was dropped or timed out
+     * @return the new limit
+     */
+    int update(int limit, long rtt, int inflight, boolean dropped);
+}
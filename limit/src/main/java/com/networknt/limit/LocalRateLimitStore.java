@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.limit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets in the memory of this instance. Each bucket is one AtomicLong with the time at
+ * which the bucket is full again (generic cell rate algorithm), so a token is taken with a single
+ * CAS and no lock.
+ *
+ * A bucket that has been full for idleTimeout is the same as a new one, so it is removed by a
+ * background sweep. When the number of buckets reaches maxEntries, the keys without a bucket
+ * share one overflow bucket per key prefix until the sweep makes room, so memory stays bounded no
+ * matter how many distinct keys are seen, and new clients never take tokens from new endpoints.
+ */
+public class LocalRateLimitStore implements RateLimitStore {
+    // angle brackets are not allowed in a client id or a path, so it never collides with a key.
+    static final String OVERFLOW = "<overflow>";
+
+    private final ConcurrentMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long idleNanos;
+    private final ScheduledExecutorService scheduler;
+
+    public LocalRateLimitStore(int maxEntries, long idleTimeout) {
+        this.maxEntries = maxEntries;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "light-rate-limit-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, idleTimeout / 2);
+        scheduler.scheduleWithFixedDelay(this::evict, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long acquire(String key, RateLimitConfig.Limit limit) {
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.get(key);
+        if(bucket == null) {
+            if(buckets.size() >= maxEntries) {
+                key = overflowKey(key);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        long interval = limit.getInterval();
+        long tolerance = limit.getTolerance();
+        while(true) {
+            long full = bucket.get();
+            long next = Math.max(full, now) + interval;
+            long wait = next - tolerance - now;
+            if(wait > 0) {
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait));
+            }
+            if(bucket.compareAndSet(full, next)) {
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public void release(String key, RateLimitConfig.Limit limit) {
+        AtomicLong bucket = buckets.get(key);
+        if(bucket == null) {
+            bucket = buckets.get(overflowKey(key));
+        }
+        if(bucket != null) {
+            bucket.addAndGet(-limit.getInterval());
+        }
+    }
+
+    /**
+     * The overflow bucket of the key prefix, e.g. c: for clients and e: for endpoints.
+     */
+    static String overflowKey(String key) {
+        int i = key.indexOf(':');
+        return i < 0 ? OVERFLOW : key.substring(0, i + 1) + OVERFLOW;
+    }
+
+    /**
+     * Remove the buckets that have been full for idleTimeout.
+     */
+    void evict() {
+        long threshold = System.nanoTime() - idleNanos;
+        buckets.values().removeIf(bucket -> bucket.get() - threshold < 0);
+    }
+
+    @Override
+    public int size() {
+        return buckets.size();
+    }
+
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.limit;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Map;
+
+/**
+ * Config of RateLimitHandler. client is the default limit of every client_id and endpoint is the
+ * default limit of every endpoint, and they can be overridden per client_id in clients and per
+ * endpoint in endpoints. A limit with rate 0 is not enforced.
+ *
+ * maxEntries bounds the number of buckets kept in memory and idleTimeout is the milliseconds after
+ * which a bucket that is full again is evicted. They only apply to the buckets local to the
+ * instance, which are used unless a RateLimitStore is configured in service.json.
+ */
+public class RateLimitConfig {
+    boolean enabled;
+    Limit client;
+    Limit endpoint;
+    Map<String, Limit> clients;
+    Map<String, Limit> endpoints;
+    int maxEntries = 1000000;
+    long idleTimeout = 60000;
+
+    @JsonIgnore
+    String description;
+
+    public RateLimitConfig() {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Limit getClient() {
+        return client;
+    }
+
+    public void setClient(Limit client) {
+        this.client = client;
+    }
+
+    public Limit getEndpoint() {
+        return endpoint;
+    }
+
+    public void setEndpoint(Limit endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public Map<String, Limit> getClients() {
+        return clients;
+    }
+
+    public void setClients(Map<String, Limit> clients) {
+        this.clients = clients;
+    }
+
+    public Map<String, Limit> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(Map<String, Limit> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    /**
+     * A token bucket that is refilled with rate tokens per second and holds up to burst tokens.
+     */
+    public static class Limit {
+        double rate;
+        int burst;
+
+        public Limit() {
+        }
+
+        public Limit(double rate, int burst) {
+            this.rate = rate;
+            this.burst = burst;
+        }
+
+        public double getRate() {
+            return rate;
+        }
+
+        public void setRate(double rate) {
+            this.rate = rate;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+
+        /**
+         * @return nanoseconds to refill one token
+         */
+        public long getInterval() {
+            return (long)(1000000000L / rate);
+        }
+
+        /**
+         * @return nanoseconds of requests that can be taken ahead of the refill
+         */
+        public long getTolerance() {
+            return getInterval() * Math.max(1, burst);
+        }
+
+        @JsonIgnore
+        public boolean isEnforced() {
+            return rate > 0;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.limit;
+
+import com.networknt.audit.AuditHandler;
+import com.networknt.config.Config;
+import com.networknt.handler.MiddlewareHandler;
+import com.networknt.service.SingletonServiceFactory;
+import com.networknt.status.Status;
+import com.networknt.utility.Constants;
+import com.networknt.utility.ModuleRegistry;
+import io.undertow.Handlers;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This is a handler that limits the request rate per client_id and per endpoint with token
+ * buckets, so that a noisy client cannot take all the capacity of a shared service. Both are taken
+ * from the audit info attached to the exchange, so this handler should be placed after
+ * swagger-security which populates client_id.
+ *
+ * A request over the limit is rejected with 429 and Retry-After header with the seconds until a
+ * token is available. A token is taken from the client bucket and the endpoint bucket only if
+ * both have one, so a request rejected by one limit doesn't count against the other.
+ *
+ * The buckets are kept in this instance by default. If a RateLimitStore is configured in
+ * service.json, the buckets are kept in it so that they can be shared by all instances.
+ */
+public class RateLimitHandler implements MiddlewareHandler {
+    static final Logger logger = LoggerFactory.getLogger(RateLimitHandler.class);
+
+    public static final String CONFIG_NAME = "ratelimit";
+
+    static final String STATUS_TOO_MANY_REQUESTS = "ERR10039";
+    static final String CLIENT_PREFIX = "c:";
+    static final String ENDPOINT_PREFIX = "e:";
+
+    public static RateLimitConfig config = null;
+    static RateLimitStore store;
+    static Map<String, RateLimitConfig.Limit> clients = Collections.emptyMap();
+    static Map<String, RateLimitConfig.Limit> endpoints = Collections.emptyMap();
+    static final LongAdder rejected = new LongAdder();
+    static {
+        config = (RateLimitConfig)Config.getInstance().getJsonObjectConfig(CONFIG_NAME, RateLimitConfig.class);
+        if(config.getClients() != null) clients = config.getClients();
+        if(config.getEndpoints() != null) endpoints = config.getEndpoints();
+        store = createStore(config);
+    }
+
+    private volatile HttpHandler next;
+
+    public RateLimitHandler() {
+
+    }
+
+    static RateLimitStore createStore(RateLimitConfig c) {
+        RateLimitStore rateLimitStore = (RateLimitStore)SingletonServiceFactory.getBean(RateLimitStore.class);
+        if(rateLimitStore == null) {
+            rateLimitStore = new LocalRateLimitStore(c.getMaxEntries(), c.getIdleTimeout());
+        }
+        return rateLimitStore;
+    }
+
+    @Override
+    public void handleRequest(final HttpServerExchange exchange) throws Exception {
+        Map<String, Object> auditInfo = exchange.getAttachment(AuditHandler.AUDIT_INFO);
+        if(auditInfo != null) {
+            RateLimitConfig.Limit clientLimit = null;
+            String clientId = (String)auditInfo.get(Constants.CLIENT_ID);
+            if(clientId != null) {
+                clientLimit = clients.get(clientId);
+                if(clientLimit == null) clientLimit = config.getClient();
+                if(clientLimit != null && !clientLimit.isEnforced()) clientLimit = null;
+            }
+            RateLimitConfig.Limit endpointLimit = null;
+            String endpoint = (String)auditInfo.get(Constants.ENDPOINT);
+            if(endpoint != null) {
+                endpointLimit = endpoints.get(endpoint);
+                if(endpointLimit == null) endpointLimit = config.getEndpoint();
+                if(endpointLimit != null && !endpointLimit.isEnforced()) endpointLimit = null;
+            }
+            long wait = 0;
+            if(clientLimit != null && endpointLimit != null) {
+                wait = store.acquire(CLIENT_PREFIX + clientId, clientLimit, ENDPOINT_PREFIX + endpoint, endpointLimit);
+            } else if(clientLimit != null) {
+                wait = store.acquire(CLIENT_PREFIX + clientId, clientLimit);
+            } else if(endpointLimit != null) {
+                wait = store.acquire(ENDPOINT_PREFIX + endpoint, endpointLimit);
+            }
+            if(wait > 0) {
+                reject(exchange, wait);
+                return;
+            }
+        }
+        next.handleRequest(exchange);
+    }
+
+    static void reject(final HttpServerExchange exchange, long wait) {
+        rejected.increment();
+        if(logger.isDebugEnabled()) logger.debug("rate limit exceeded, reject request " + exchange.getRequestPath());
+        Status status = new Status(STATUS_TOO_MANY_REQUESTS);
+        exchange.setStatusCode(status.getStatusCode());
+        // Retry-After is in seconds, round up so that the caller doesn't retry too early.
+        exchange.getResponseHeaders().put(Headers.RETRY_AFTER, Long.toString((wait + 999) / 1000));
+        exchange.getResponseSender().send(status.toByteBuffer());
+    }
+
+    /**
+     * @return number of requests rejected since the server is started
+     */
+    public static long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public HttpHandler getNext() {
+        return next;
+    }
+
+    @Override
+    public MiddlewareHandler setNext(final HttpHandler next) {
+        Handlers.handlerNotNull(next);
+        this.next = next;
+        return this;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    @Override
+    public void register() {
+        ModuleRegistry.registerModule(RateLimitHandler.class.getName(), Config.getInstance().getJsonMapConfigNoCache(CONFIG_NAME), null);
+    }
+
+}
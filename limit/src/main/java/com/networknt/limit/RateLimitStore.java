@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.limit;
+
+/**
+ * Keeps the token buckets of RateLimitHandler. LocalRateLimitStore is used by default. An
+ * implementation backed by a shared cache can be configured for this interface in service.json so
+ * that the limits hold across all instances of the service.
+ */
+public interface RateLimitStore {
+    /**
+     * Take one token from the bucket of the key.
+     *
+     * @param key bucket key
+     * @param limit rate and burst of the bucket
+     * @return 0 if the token is taken or the milliseconds until a token is available
+     */
+    long acquire(String key, RateLimitConfig.Limit limit);
+
+    /**
+     * Give back a token taken with acquire, so that a request rejected by another bucket doesn't
+     * use up the limit of this one.
+     *
+     * @param key bucket key
+     * @param limit rate and burst of the bucket
+     */
+    void release(String key, RateLimitConfig.Limit limit);
+
+    /**
+     * Take one token from each of the two buckets, or none of them if either is empty.
+     *
+     * @param key1 key of the first bucket
+     * @param limit1 rate and burst of the first bucket
+     * @param key2 key of the second bucket
+     * @param limit2 rate and burst of the second bucket
+     * @return 0 if both tokens are taken or the milliseconds until a token is available
+     */
+    default long acquire(String key1, RateLimitConfig.Limit limit1, String key2, RateLimitConfig.Limit limit2) {
+        long wait = acquire(key1, limit1);
+        if(wait > 0) {
+            return wait;
+        }
+        wait = acquire(key2, limit2);
+        if(wait > 0) {
+            release(key1, limit1);
+        }
+        return wait;
+    }
+
+    /**
+     * @return number of buckets in the store
+     */
+    default int size() {
+        return 0;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.limit;
+
+import com.networknt.audit.AuditHandler;
+import io.undertow.Handlers;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.RoutingHandler;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.Methods;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrencyLimitHandlerTest {
+    static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitHandlerTest.class);
+
+    static Undertow server = null;
+    static volatile CountDownLatch latch;
+
+    @BeforeClass
+    public static void setUp() {
+        if(server == null) {
+            logger.info("starting server");
+            HttpHandler handler = getTestHandler();
+            ConcurrencyLimitHandler limitHandler = new ConcurrencyLimitHandler();
+            limitHandler.setNext(handler);
+            handler = limitHandler;
+            server = Undertow.builder()
+                    .addHttpListener(8080, "localhost")
+                    .setHandler(handler)
+                    .build();
+            server.start();
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        if(server != null) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+
+            }
+            server.stop();
+            logger.info("The server is stopped.");
+        }
+    }
+
+    static RoutingHandler getTestHandler() {
+        return Handlers.routing()
+                .add(Methods.GET, "/slow", exchange -> exchange.dispatch(ConcurrencyLimitHandlerTest::waitAndSend))
+                .add(Methods.GET, "/fast", exchange -> exchange.getResponseSender().send("OK"));
+    }
+
+    static void waitAndSend(HttpServerExchange exchange) throws Exception {
+        latch.await(5, TimeUnit.SECONDS);
+        exchange.getResponseSender().send("OK");
+    }
+
+    private int get(String path) throws Exception {
+        CloseableHttpClient client = HttpClients.createDefault();
+        CloseableHttpResponse response = client.execute(new HttpGet("http://localhost:8080" + path));
+        IOUtils.toString(response.getEntity().getContent(), "utf8");
+        return response.getStatusLine().getStatusCode();
+    }
+
+    @Test
+    public void testRejectOverLimit() throws Exception {
+        latch = new CountDownLatch(1);
+        ConcurrencyLimiter limiter = ConcurrencyLimitHandler.getLimiters().get(ConcurrencyLimitHandler.DEFAULT);
+        long rejected = limiter.getRejected();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> slow = executor.submit(() -> get("/slow"));
+            long timeout = System.currentTimeMillis() + 5000;
+            while(limiter.getInflight() == 0 && System.currentTimeMillis() < timeout) {
+                Thread.sleep(10);
+            }
+            // the limit of the default limiter is fixed at 1 in the test config.
+            Assert.assertEquals(503, get("/fast"));
+            Assert.assertEquals(rejected + 1, limiter.getRejected());
+            latch.countDown();
+            Assert.assertEquals(200, (int)slow.get(5, TimeUnit.SECONDS));
+        } finally {
+            latch.countDown();
+            executor.shutdown();
+        }
+        Assert.assertEquals(200, get("/fast"));
+    }
+
+    @Test
+    public void testEndpointLimiter() {
+        ConcurrencyLimiter limiter = ConcurrencyLimitHandler.getLimiters().get("/v1/pets@get");
+        Assert.assertNotNull(limiter);
+        Assert.assertEquals(5, limiter.getLimit());
+
+        HttpServerExchange exchange = new HttpServerExchange(null, new HeaderMap(), new HeaderMap(), 10);
+        Assert.assertSame(ConcurrencyLimitHandler.getLimiters().get(ConcurrencyLimitHandler.DEFAULT), ConcurrencyLimitHandler.getLimiter(exchange));
+        Map<String, Object> auditInfo = new HashMap<>();
+        auditInfo.put("endpoint", "/v1/pets@get");
+        exchange.putAttachment(AuditHandler.AUDIT_INFO, auditInfo);
+        Assert.assertSame(limiter, ConcurrencyLimitHandler.getLimiter(exchange));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.limit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrencyLimiterTest {
+    static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testAimdIncreaseWhenBusy() {
+        AimdLimit aimd = new AimdLimit(1, 100, 0.5, 100 * MS);
+        Assert.assertEquals(11, aimd.update(10, 10 * MS, 8, false));
+        // not busy, the limit is not raised.
+        Assert.assertEquals(10, aimd.update(10, 10 * MS, 2, false));
+        Assert.assertEquals(100, aimd.update(100, 10 * MS, 100, false));
+    }
+
+    @Test
+    public void testAimdBackoff() {
+        AimdLimit aimd = new AimdLimit(1, 100, 0.5, 100 * MS);
+        Assert.assertEquals(5, aimd.update(10, 10 * MS, 8, true));
+        Assert.assertEquals(5, aimd.update(10, 200 * MS, 8, false));
+        Assert.assertEquals(1, aimd.update(1, 200 * MS, 8, false));
+    }
+
+    @Test
+    public void testGradientGrowsWithStableLatency() {
+        GradientLimit gradient = new GradientLimit(1, 1000, 0.2, 1.5, 600);
+        int limit = 20;
+        for(int i = 0; i < 50; i++) {
+            limit = gradient.update(limit, 10 * MS, limit, false);
+        }
+        Assert.assertTrue(limit > 20);
+    }
+
+    @Test
+    public void testGradientShrinksWhenLatencyGoesUp() {
+        GradientLimit gradient = new GradientLimit(1, 1000, 0.2, 1.5, 600);
+        int limit = 100;
+        for(int i = 0; i < 20; i++) {
+            limit = gradient.update(limit, 10 * MS, limit, false);
+        }
+        int before = limit;
+        for(int i = 0; i < 20; i++) {
+            limit = gradient.update(limit, 100 * MS, limit, false);
+        }
+        Assert.assertTrue(limit < before);
+    }
+
+    @Test
+    public void testTryAcquire() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter((limit, rtt, inflight, dropped) -> limit, 2, 100, 10);
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertFalse(limiter.tryAcquire());
+        Assert.assertEquals(2, limiter.getInflight());
+        Assert.assertEquals(1, limiter.getRejected());
+        limiter.release(MS, false);
+        Assert.assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testLimitUpdatedAfterWindow() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter((limit, rtt, inflight, dropped) -> dropped ? 1 : limit, 10, 10, 2);
+        for(int i = 0; i < 2; i++) {
+            Assert.assertTrue(limiter.tryAcquire());
+            limiter.release(MS, true);
+        }
+        // the window has not ended yet.
+        Assert.assertEquals(10, limiter.getLimit());
+        Thread.sleep(20);
+        Assert.assertTrue(limiter.tryAcquire());
+        limiter.release(MS, false);
+        Assert.assertEquals(1, limiter.getLimit());
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.limit;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A stand-in of a RateLimitStore shared by all instances of the service. All instances in the JVM
+ * share the same buckets which are updated atomically the same way as a script in a shared cache,
+ * and the time is the wall clock as the instances don't share System.nanoTime().
+ */
+public class InMemoryRateLimitStore implements RateLimitStore {
+    private static final Map<String, Long> buckets = new HashMap<>();
+
+    @Override
+    public long acquire(String key, RateLimitConfig.Limit limit) {
+        long now = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        synchronized (buckets) {
+            long full = buckets.getOrDefault(key, now);
+            long next = Math.max(full, now) + limit.getInterval();
+            long wait = next - limit.getTolerance() - now;
+            if(wait > 0) {
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait));
+            }
+            buckets.put(key, next);
+            return 0;
+        }
+    }
+
+    @Override
+    public void release(String key, RateLimitConfig.Limit limit) {
+        synchronized (buckets) {
+            Long full = buckets.get(key);
+            if(full != null) {
+                buckets.put(key, full - limit.getInterval());
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        synchronized (buckets) {
+            return buckets.size();
+        }
+    }
+
+    static void clear() {
+        synchronized (buckets) {
+            buckets.clear();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.limit;
+
+import com.networknt.audit.AuditHandler;
+import com.networknt.utility.Constants;
+import io.undertow.Handlers;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.RoutingHandler;
+import io.undertow.util.Methods;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class RateLimitHandlerTest {
+    static final Logger logger = LoggerFactory.getLogger(RateLimitHandlerTest.class);
+
+    static Undertow server = null;
+
+    @BeforeClass
+    public static void setUp() {
+        if(server == null) {
+            logger.info("starting server");
+            HttpHandler handler = getTestHandler();
+            RateLimitHandler rateLimitHandler = new RateLimitHandler();
+            rateLimitHandler.setNext(handler);
+            final HttpHandler limitHandler = rateLimitHandler;
+            // the audit info is populated by swagger-meta and swagger-security in a real chain.
+            handler = exchange -> {
+                Map<String, Object> auditInfo = new HashMap<>();
+                auditInfo.put(Constants.CLIENT_ID, exchange.getRequestHeaders().getFirst("client"));
+                auditInfo.put(Constants.ENDPOINT, "/v1/pets@get");
+                exchange.putAttachment(AuditHandler.AUDIT_INFO, auditInfo);
+                limitHandler.handleRequest(exchange);
+            };
+            server = Undertow.builder()
+                    .addHttpListener(8080, "localhost")
+                    .setHandler(handler)
+                    .build();
+            server.start();
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        if(server != null) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+
+            }
+            server.stop();
+            logger.info("The server is stopped.");
+        }
+    }
+
+    static RoutingHandler getTestHandler() {
+        return Handlers.routing()
+                .add(Methods.GET, "/v1/pets", exchange -> exchange.getResponseSender().send("OK"));
+    }
+
+    private CloseableHttpResponse get(String clientId) throws Exception {
+        CloseableHttpClient client = HttpClients.createDefault();
+        HttpGet httpGet = new HttpGet("http://localhost:8080/v1/pets");
+        httpGet.setHeader("client", clientId);
+        return client.execute(httpGet);
+    }
+
+    @Test
+    public void testClientLimit() throws Exception {
+        long rejected = RateLimitHandler.getRejectedCount();
+        // burst is 2 and one token is added every 10 seconds in the test config.
+        Assert.assertEquals(200, get("client1").getStatusLine().getStatusCode());
+        Assert.assertEquals(200, get("client1").getStatusLine().getStatusCode());
+        CloseableHttpResponse response = get("client1");
+        Assert.assertEquals(429, response.getStatusLine().getStatusCode());
+        int retryAfter = Integer.parseInt(response.getFirstHeader("Retry-After").getValue());
+        Assert.assertTrue(retryAfter > 0 && retryAfter <= 10);
+        Assert.assertTrue(IOUtils.toString(response.getEntity().getContent(), "utf8").contains("ERR10039"));
+        Assert.assertEquals(rejected + 1, RateLimitHandler.getRejectedCount());
+        // another client is not affected.
+        Assert.assertEquals(200, get("client2").getStatusLine().getStatusCode());
+    }
+
+    @Test
+    public void testClientOverride() throws Exception {
+        for(int i = 0; i < 5; i++) {
+            Assert.assertEquals(200, get("unlimited").getStatusLine().getStatusCode());
+        }
+    }
+}
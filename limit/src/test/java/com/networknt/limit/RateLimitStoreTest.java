@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.limit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RateLimitStoreTest {
+
+    @Test
+    public void testBurstThenReject() {
+        LocalRateLimitStore store = new LocalRateLimitStore(100, 60000);
+        try {
+            RateLimitConfig.Limit limit = new RateLimitConfig.Limit(1, 3);
+            for(int i = 0; i < 3; i++) {
+                Assert.assertEquals(0, store.acquire("client", limit));
+            }
+            long wait = store.acquire("client", limit);
+            Assert.assertTrue(wait > 0 && wait <= 1000);
+            // other keys have their own bucket.
+            Assert.assertEquals(0, store.acquire("other", limit));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testRefill() throws Exception {
+        LocalRateLimitStore store = new LocalRateLimitStore(100, 60000);
+        try {
+            RateLimitConfig.Limit limit = new RateLimitConfig.Limit(100, 1);
+            Assert.assertEquals(0, store.acquire("client", limit));
+            Assert.assertTrue(store.acquire("client", limit) > 0);
+            Thread.sleep(20);
+            Assert.assertEquals(0, store.acquire("client", limit));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testEvictIdle() throws Exception {
+        LocalRateLimitStore store = new LocalRateLimitStore(100, 10);
+        try {
+            RateLimitConfig.Limit limit = new RateLimitConfig.Limit(1000, 10);
+            for(int i = 0; i < 50; i++) {
+                store.acquire("client" + i, limit);
+            }
+            Thread.sleep(30);
+            store.evict();
+            Assert.assertEquals(0, store.size());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testOverflowWhenFull() {
+        LocalRateLimitStore store = new LocalRateLimitStore(2, 60000);
+        try {
+            RateLimitConfig.Limit limit = new RateLimitConfig.Limit(1, 1);
+            Assert.assertEquals(0, store.acquire("a", limit));
+            Assert.assertEquals(0, store.acquire("b", limit));
+            // new keys share the overflow bucket of their prefix once the store is full.
+            Assert.assertEquals(0, store.acquire("c:c", limit));
+            Assert.assertTrue(store.acquire("c:d", limit) > 0);
+            Assert.assertEquals(0, store.acquire("e:/v1/pets@get", limit));
+            Assert.assertEquals(4, store.size());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testAcquireBothOrNone() {
+        LocalRateLimitStore store = new LocalRateLimitStore(100, 60000);
+        try {
+            RateLimitConfig.Limit client = new RateLimitConfig.Limit(1, 2);
+            RateLimitConfig.Limit endpoint = new RateLimitConfig.Limit(1, 1);
+            Assert.assertEquals(0, store.acquire("c:a", client, "e:x", endpoint));
+            // the endpoint is empty, so the token of the client is given back.
+            Assert.assertTrue(store.acquire("c:a", client, "e:x", endpoint) > 0);
+            Assert.assertTrue(store.acquire("c:a", client, "e:x", endpoint) > 0);
+            Assert.assertEquals(0, store.acquire("c:a", client));
+            // the client is empty, so nothing is taken from the endpoint.
+            Assert.assertTrue(store.acquire("c:a", client, "e:y", endpoint) > 0);
+            Assert.assertEquals(0, store.acquire("e:y", endpoint));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testSharedAcrossInstances() {
+        InMemoryRateLimitStore.clear();
+        RateLimitStore instance1 = new InMemoryRateLimitStore();
+        RateLimitStore instance2 = new InMemoryRateLimitStore();
+        RateLimitConfig.Limit limit = new RateLimitConfig.Limit(1, 2);
+        Assert.assertEquals(0, instance1.acquire("client", limit));
+        Assert.assertEquals(0, instance2.acquire("client", limit));
+        Assert.assertTrue(instance1.acquire("client", limit) > 0);
+        Assert.assertTrue(instance2.acquire("client", limit) > 0);
+    }
+
+    @Test
+    public void testCreateStore() {
+        // configured in service.json of the tests.
+        Assert.assertTrue(RateLimitHandler.createStore(new RateLimitConfig()) instanceof InMemoryRateLimitStore);
+    }
+}
@@ -16,29 +16,24 @@
 
 package com.networknt.mask;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.jayway.jsonpath.*;
 import com.networknt.config.Config;
 import com.networknt.utility.ModuleRegistry;
-import org.apache.commons.lang.StringUtils;
 import org.owasp.encoder.Encode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * A utility to mask sensitive data based on regex pattern before logging
+ *
+ * The rules of each key in mask.json are compiled into a MaskPlan the first time the key is
+ * used, so that patterns are not compiled and the config is not converted on every call.
  */
 public class Mask {
 
-    static Map<String, Pattern> patternCache = new ConcurrentHashMap<>();
+    static Map<String, MaskPlan> planCache = new ConcurrentHashMap<>();
 
     private static final String MASK_CONFIG = "mask";
     public static final String MASK_REPLACEMENT_CHAR = "*";
@@ -54,6 +49,17 @@ public class Mask {
         ModuleRegistry.registerModule(Mask.class.getName(), config, null);
     }
 
+    /**
+     * Get the compiled plan of the key in mask.json. It is compiled the first time and cached.
+     *
+     * @param key String The key in string, regex or json section
+     * @return MaskPlan
+     */
+    public static MaskPlan getPlan(String key) {
+        MaskPlan plan = planCache.get(key);
+        return plan != null ? plan : planCache.computeIfAbsent(key, k -> MaskPlan.compile(k, config));
+    }
+
     /**
      * Mask the input string with a list of patterns indexed by key in string section in mask.json
      * This is usually used to mask header values, query parameters and uri parameters
@@ -63,18 +69,7 @@ public class Mask {
      * @return Masked result
      */
     public static String maskString(String input, String key) {
-        String output = input;
-        Map<String, Object> stringConfig = (Map<String, Object>) config.get(MASK_TYPE_STRING);
-        if (stringConfig != null) {
-            Map<String, Object> keyConfig = (Map<String, Object>) stringConfig.get(key);
-            if (keyConfig != null) {
-                Set<String> patterns = keyConfig.keySet();
-                for (String pattern : patterns) {
-                    output = output.replaceAll(pattern, (String) keyConfig.get(pattern));
-                }
-            }
-        }
-        return output;
+        return getPlan(key).maskString(input);
     }
 
     /**
@@ -87,17 +82,7 @@ public class Mask {
      * @return String Masked result
      */
     public static String maskRegex(String input, String key, String name) {
-        Map<String, Object> regexConfig = (Map<String, Object>) config.get(MASK_TYPE_REGEX);
-        if (regexConfig != null) {
-            Map<String, Object> keyConfig = (Map<String, Object>) regexConfig.get(key);
-            if (keyConfig != null) {
-                String regex = (String) keyConfig.get(name);
-                if (regex != null && regex.length() > 0) {
-                    return replaceWithMask(input, MASK_REPLACEMENT_CHAR.charAt(0), regex);
-                }
-            }
-        }
-        return input;
+        return getPlan(key).maskRegex(input, name);
     }
 
     /**
@@ -107,86 +92,13 @@ public class Mask {
      * @return String Masked result
      */
     public static String maskJson(String input, String key) {
-        DocumentContext ctx = JsonPath.parse(input);
-        Map<String, Object> jsonConfig = (Map<String, Object>) config.get(MASK_TYPE_JSON);
-        if (jsonConfig != null) {
-            Map<String, Object> patternMap = (Map<String, Object>) jsonConfig.get(key);
-            if (patternMap != null) {
-                JsonNode configNode = Config.getInstance().getMapper().valueToTree(patternMap);
-                Iterator<Map.Entry<String, JsonNode>> iterator = configNode.fields();
-                while (iterator.hasNext()) {
-                    Map.Entry<String, JsonNode> entry = iterator.next();
-                    applyMask(entry, ctx);
-                }
-                return ctx.jsonString();
-            } else {
+        MaskPlan plan = getPlan(key);
+        if (!plan.hasJson()) {
+            if (config.get(MASK_TYPE_JSON) != null) {
                 logger.warn("mask.json doesn't contain the key {} ", Encode.forJava(key));
-                return input;
             }
+            return input;
         }
-        return input;
-    }
-
-    private static void applyMask(Map.Entry<String, JsonNode> entry, DocumentContext ctx) {
-        Object value;
-        String jsonPath = entry.getKey();
-        try {
-            value = ctx.read(jsonPath);
-            if (!(value instanceof String || value instanceof Integer || value instanceof List<?>)) {
-                logger.error("The value specified by path {} cannot be masked", jsonPath);
-            } else {
-                if (!(value instanceof List<?>)) {
-                    ctx.set(jsonPath, replaceWithMask(value.toString(), MASK_REPLACEMENT_CHAR.charAt(0), entry.getValue().asText()));
-                } else {
-                    maskList(ctx, jsonPath, entry.getValue().asText());
-                }
-            }
-        } catch (PathNotFoundException e) {
-            logger.warn("JsonPath {} could not be found.", jsonPath);
-        }
-    }
-
-
-    private static String replaceWithMask(String stringToBeMasked, char maskingChar, String regex) {
-        if (stringToBeMasked.length() == 0) {
-            return stringToBeMasked;
-        }
-        String replacementString = "";
-        String padGroup;
-        if (!StringUtils.isEmpty(regex)) {
-            try {
-                Pattern pattern = patternCache.get(regex);
-                if (pattern == null) {
-                    pattern = Pattern.compile(regex);
-                    patternCache.put(regex, pattern);
-                }
-                Matcher matcher = pattern.matcher(stringToBeMasked);
-                if (matcher.matches()) {
-                    String currentGroup;
-                    for (int i = 0; i < matcher.groupCount(); i++) {
-                        currentGroup = matcher.group(i + 1);
-                        padGroup = StringUtils.rightPad("", currentGroup.length(), maskingChar);
-                        stringToBeMasked = StringUtils.replace(stringToBeMasked, currentGroup, padGroup, 1);
-                    }
-                    replacementString = stringToBeMasked;
-                }
-            } catch (Exception e) {
-                replacementString = StringUtils.rightPad("", stringToBeMasked.length(), maskingChar);
-            }
-        } else {
-            replacementString = StringUtils.rightPad("", stringToBeMasked.length(), maskingChar);
-        }
-        return replacementString;
-    }
-
-    private static void maskList(DocumentContext ctx, String jsonPath, String expression) {
-        ctx.configuration().addOptions(Option.AS_PATH_LIST);
-        Configuration conf = Configuration.builder().options(Option.AS_PATH_LIST).build();
-        DocumentContext context = JsonPath.using(conf).parse(ctx.jsonString());
-        List<String> pathList = context.read(jsonPath);
-        for (String path : pathList) {
-            Object value = ctx.read(path);
-            ctx.set(path, replaceWithMask(value.toString(), MASK_REPLACEMENT_CHAR.charAt(0), expression));
-        }
+        return plan.maskJson(input);
     }
 }
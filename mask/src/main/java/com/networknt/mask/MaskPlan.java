@@ -0,0 +1,435 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.mask;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.InvalidJsonException;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import com.jayway.jsonpath.PathNotFoundException;
+import com.networknt.config.Config;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The masking rules of one key in mask.json compiled once and reused for every call. All the
+ * patterns are compiled when the plan is created, and the json paths are compiled to segments
+ * so that a JSON document is masked in one pass over the Jackson tokens, copying the subtrees
+ * that no path can reach without looking into them.
+ *
+ * The json paths supported by the streaming pass are the definite paths with dot or bracket
+ * notation, array indexes and wildcards, for example $.product[*].item[0].name or
+ * $['contact']['phone']. Other paths like deep scan and filters are applied with JsonPath on
+ * the result of the streaming pass.
+ */
+public class MaskPlan {
+    static final Logger logger = LoggerFactory.getLogger(MaskPlan.class);
+
+    static final char MASK_CHAR = Mask.MASK_REPLACEMENT_CHAR.charAt(0);
+    // paths are tracked with the bits of a long while streaming.
+    static final int MAX_STREAMING_PATHS = 64;
+
+    private final String key;
+    private final Pattern[] stringPatterns;
+    private final String[] stringReplacements;
+    private final Map<String, Rule> regexRules;
+    private final JsonRule[] jsonRules;
+    private final Map<String, Rule> jsonPathRules;
+    private final long allJsonRules;
+    private final boolean hasJson;
+
+    private MaskPlan(String key, Map<String, Object> stringConfig, Map<String, Object> regexConfig, Map<String, Object> jsonConfig) {
+        this.key = key;
+        int size = stringConfig == null ? 0 : stringConfig.size();
+        stringPatterns = new Pattern[size];
+        stringReplacements = new String[size];
+        if(stringConfig != null) {
+            int i = 0;
+            for(Map.Entry<String, Object> entry : stringConfig.entrySet()) {
+                stringPatterns[i] = Pattern.compile(entry.getKey());
+                stringReplacements[i++] = (String)entry.getValue();
+            }
+        }
+        if(regexConfig == null) {
+            regexRules = Collections.emptyMap();
+        } else {
+            regexRules = new HashMap<>();
+            for(Map.Entry<String, Object> entry : regexConfig.entrySet()) {
+                String regex = (String)entry.getValue();
+                if(regex != null && regex.length() > 0) {
+                    regexRules.put(entry.getKey(), new Rule(regex));
+                }
+            }
+        }
+        hasJson = jsonConfig != null;
+        List<JsonRule> streaming = new ArrayList<>();
+        Map<String, Rule> fallback = new LinkedHashMap<>();
+        if(jsonConfig != null) {
+            for(Map.Entry<String, Object> entry : jsonConfig.entrySet()) {
+                Rule rule = new Rule(entry.getValue() == null ? null : entry.getValue().toString());
+                Segment[] segments = compilePath(entry.getKey());
+                if(segments != null && streaming.size() < MAX_STREAMING_PATHS) {
+                    streaming.add(new JsonRule(segments, rule));
+                } else {
+                    fallback.put(entry.getKey(), rule);
+                }
+            }
+        }
+        jsonRules = streaming.toArray(new JsonRule[streaming.size()]);
+        jsonPathRules = fallback;
+        allJsonRules = jsonRules.length == MAX_STREAMING_PATHS ? -1L : (1L << jsonRules.length) - 1;
+    }
+
+    /**
+     * Compile the rules of the key in string, regex and json sections of the mask config.
+     *
+     * @param key key in the sections
+     * @param config mask config
+     * @return MaskPlan
+     */
+    @SuppressWarnings("unchecked")
+    public static MaskPlan compile(String key, Map<String, Object> config) {
+        return new MaskPlan(key,
+                getKeyConfig(config, Mask.MASK_TYPE_STRING, key),
+                getKeyConfig(config, Mask.MASK_TYPE_REGEX, key),
+                getKeyConfig(config, Mask.MASK_TYPE_JSON, key));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getKeyConfig(Map<String, Object> config, String type, String key) {
+        Map<String, Object> typeConfig = config == null ? null : (Map<String, Object>)config.get(type);
+        return typeConfig == null ? null : (Map<String, Object>)typeConfig.get(key);
+    }
+
+    /**
+     * Replace all the patterns of the key in string section in order.
+     *
+     * @param input String to be masked
+     * @return masked String
+     */
+    public String maskString(String input) {
+        String output = input;
+        for(int i = 0; i < stringPatterns.length; i++) {
+            output = stringPatterns[i].matcher(output).replaceAll(stringReplacements[i]);
+        }
+        return output;
+    }
+
+    /**
+     * Mask the input with the pattern of the name in regex section.
+     *
+     * @param input String to be masked
+     * @param name name of the pattern
+     * @return masked String or the input if there is no pattern for the name
+     */
+    public String maskRegex(String input, String name) {
+        Rule rule = regexRules.get(name);
+        return rule == null ? input : rule.mask(input);
+    }
+
+    /**
+     * @return true if the key is defined in json section
+     */
+    public boolean hasJson() {
+        return hasJson;
+    }
+
+    /**
+     * Mask the values of the json paths of the key in json section. A string or integer value is
+     * masked with the pattern of the path and so is each element of an array value.
+     *
+     * @param input JSON document
+     * @return masked JSON document
+     */
+    public String maskJson(String input) {
+        String output = input;
+        if(jsonRules.length > 0) {
+            JsonFactory factory = Config.getInstance().getMapper().getFactory();
+            StringWriter writer = new StringWriter(input.length());
+            try (JsonParser parser = factory.createParser(input);
+                 JsonGenerator generator = factory.createGenerator(writer)) {
+                if(parser.nextToken() != null) {
+                    writeValue(parser, generator, allJsonRules, 0);
+                }
+            } catch (IOException e) {
+                throw new InvalidJsonException(e);
+            }
+            output = writer.toString();
+        }
+        if(!jsonPathRules.isEmpty()) {
+            DocumentContext ctx = JsonPath.parse(output);
+            for(Map.Entry<String, Rule> entry : jsonPathRules.entrySet()) {
+                applyJsonPath(ctx, entry.getKey(), entry.getValue());
+            }
+            output = ctx.jsonString();
+        }
+        return output;
+    }
+
+    /**
+     * Write the value the parser is on. The candidates are the rules whose first depth segments
+     * match the path of the value.
+     */
+    private void writeValue(JsonParser parser, JsonGenerator generator, long candidates, int depth) throws IOException {
+        Rule rule = findRule(candidates, depth);
+        JsonToken token = parser.getCurrentToken();
+        if(token == JsonToken.START_OBJECT) {
+            generator.writeStartObject();
+            while(parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                generator.writeFieldName(name);
+                parser.nextToken();
+                long next = matchField(candidates, depth, name);
+                if(next == 0) {
+                    generator.copyCurrentStructure(parser);
+                } else {
+                    writeValue(parser, generator, next, depth + 1);
+                }
+            }
+            generator.writeEndObject();
+        } else if(token == JsonToken.START_ARRAY) {
+            generator.writeStartArray();
+            int index = 0;
+            while(parser.nextToken() != JsonToken.END_ARRAY) {
+                long next = matchIndex(candidates, depth, index++);
+                if(rule != null && isMaskable(parser.getCurrentToken())) {
+                    // the path points to the array, so each element is masked.
+                    generator.writeString(rule.mask(parser.getText()));
+                } else if(next == 0) {
+                    generator.copyCurrentStructure(parser);
+                } else {
+                    writeValue(parser, generator, next, depth + 1);
+                }
+            }
+            generator.writeEndArray();
+        } else if(rule != null && isMaskable(token)) {
+            generator.writeString(rule.mask(parser.getText()));
+        } else {
+            generator.copyCurrentEvent(parser);
+        }
+    }
+
+    private static boolean isMaskable(JsonToken token) {
+        return token == JsonToken.VALUE_STRING || token == JsonToken.VALUE_NUMBER_INT;
+    }
+
+    private Rule findRule(long candidates, int depth) {
+        for(long bits = candidates; bits != 0; bits &= bits - 1) {
+            JsonRule jsonRule = jsonRules[Long.numberOfTrailingZeros(bits)];
+            if(jsonRule.segments.length == depth) {
+                return jsonRule.rule;
+            }
+        }
+        return null;
+    }
+
+    private long matchField(long candidates, int depth, String name) {
+        long next = 0;
+        for(long bits = candidates; bits != 0; bits &= bits - 1) {
+            int i = Long.numberOfTrailingZeros(bits);
+            Segment[] segments = jsonRules[i].segments;
+            if(segments.length > depth && segments[depth].matchField(name)) {
+                next |= 1L << i;
+            }
+        }
+        return next;
+    }
+
+    private long matchIndex(long candidates, int depth, int index) {
+        long next = 0;
+        for(long bits = candidates; bits != 0; bits &= bits - 1) {
+            int i = Long.numberOfTrailingZeros(bits);
+            Segment[] segments = jsonRules[i].segments;
+            if(segments.length > depth && segments[depth].matchIndex(index)) {
+                next |= 1L << i;
+            }
+        }
+        return next;
+    }
+
+    private void applyJsonPath(DocumentContext ctx, String jsonPath, Rule rule) {
+        try {
+            Object value = ctx.read(jsonPath);
+            if(value instanceof List<?>) {
+                Configuration conf = Configuration.builder().options(Option.AS_PATH_LIST).build();
+                List<String> pathList = JsonPath.using(conf).parse((Object)ctx.json()).read(jsonPath);
+                for(String path : pathList) {
+                    Object element = ctx.read(path);
+                    if(element != null) {
+                        ctx.set(path, rule.mask(element.toString()));
+                    }
+                }
+            } else if(value instanceof String || value instanceof Integer) {
+                ctx.set(jsonPath, rule.mask(value.toString()));
+            } else {
+                logger.error("The value specified by path {} cannot be masked", jsonPath);
+            }
+        } catch (PathNotFoundException e) {
+            logger.warn("JsonPath {} could not be found.", jsonPath);
+        }
+    }
+
+    /**
+     * Compile a definite json path into segments.
+     *
+     * @param path json path
+     * @return segments or null if the path is not supported by the streaming pass
+     */
+    static Segment[] compilePath(String path) {
+        if(path == null || !path.startsWith("$")) return null;
+        List<Segment> segments = new ArrayList<>();
+        int i = 1;
+        int length = path.length();
+        while(i < length) {
+            char c = path.charAt(i);
+            if(c == '.') {
+                i++;
+                if(i >= length || path.charAt(i) == '.') return null;
+                if(path.charAt(i) == '*') {
+                    segments.add(Segment.ANY);
+                    i++;
+                } else {
+                    int start = i;
+                    while(i < length && path.charAt(i) != '.' && path.charAt(i) != '[') i++;
+                    segments.add(Segment.field(path.substring(start, i)));
+                }
+            } else if(c == '[') {
+                int end = path.indexOf(']', i);
+                if(end < 0) return null;
+                String content = path.substring(i + 1, end).trim();
+                if(content.equals("*")) {
+                    segments.add(Segment.ANY);
+                } else if(content.length() > 1 && (content.charAt(0) == '\'' || content.charAt(0) == '"')
+                        && content.charAt(content.length() - 1) == content.charAt(0)) {
+                    String name = content.substring(1, content.length() - 1);
+                    if(name.indexOf('\'') >= 0 || name.indexOf('"') >= 0) return null;
+                    segments.add(Segment.field(name));
+                } else if(content.length() > 0 && content.chars().allMatch(Character::isDigit)) {
+                    segments.add(Segment.index(Integer.parseInt(content)));
+                } else {
+                    // filters, slices, unions and negative indexes
+                    return null;
+                }
+                i = end + 1;
+            } else {
+                return null;
+            }
+        }
+        return segments.toArray(new Segment[segments.size()]);
+    }
+
+    @Override
+    public String toString() {
+        return "MaskPlan{key=" + key + "}";
+    }
+
+    static final class Segment {
+        static final Segment ANY = new Segment(null, -1);
+
+        final String name;
+        final int index;
+
+        private Segment(String name, int index) {
+            this.name = name;
+            this.index = index;
+        }
+
+        static Segment field(String name) {
+            return new Segment(name, -1);
+        }
+
+        static Segment index(int index) {
+            return new Segment(null, index);
+        }
+
+        boolean matchField(String field) {
+            return this == ANY || field.equals(name);
+        }
+
+        boolean matchIndex(int i) {
+            return this == ANY || (name == null && index == i);
+        }
+    }
+
+    static final class JsonRule {
+        final Segment[] segments;
+        final Rule rule;
+
+        JsonRule(Segment[] segments, Rule rule) {
+            this.segments = segments;
+            this.rule = rule;
+        }
+    }
+
+    /**
+     * Replace the groups of the pattern with the same length of mask char. The whole value is
+     * masked if the pattern is empty or invalid, and an empty string is returned if the value
+     * doesn't match the pattern.
+     */
+    static final class Rule {
+        final Pattern pattern;
+
+        Rule(String regex) {
+            Pattern p = null;
+            if(!StringUtils.isEmpty(regex)) {
+                try {
+                    p = Pattern.compile(regex);
+                } catch (Exception e) {
+                    logger.error("Invalid mask pattern {}, the whole value will be masked", regex);
+                }
+            }
+            this.pattern = p;
+        }
+
+        String mask(String value) {
+            if(value.length() == 0) {
+                return value;
+            }
+            if(pattern == null) {
+                return StringUtils.rightPad("", value.length(), MASK_CHAR);
+            }
+            Matcher matcher = pattern.matcher(value);
+            if(!matcher.matches()) {
+                return "";
+            }
+            String masked = value;
+            for(int i = 1; i <= matcher.groupCount(); i++) {
+                String group = matcher.group(i);
+                if(group == null) continue;
+                masked = StringUtils.replace(masked, group, StringUtils.rightPad("", group.length(), MASK_CHAR), 1);
+            }
+            return masked;
+        }
+    }
+}
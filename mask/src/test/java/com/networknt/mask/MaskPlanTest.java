@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.networknt.mask;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.List;
+
+public class MaskPlanTest {
+    @Test
+    public void testCompilePath() {
+        MaskPlan.Segment[] segments = MaskPlan.compilePath("$.product[*].item[0]['name']");
+        Assert.assertNotNull(segments);
+        Assert.assertEquals(4, segments.length);
+        Assert.assertTrue(segments[0].matchField("product"));
+        Assert.assertFalse(segments[0].matchIndex(0));
+        Assert.assertTrue(segments[1].matchField("any"));
+        Assert.assertTrue(segments[1].matchIndex(3));
+        Assert.assertTrue(segments[2].matchField("item"));
+        Assert.assertTrue(segments[3].matchField("name"));
+        Assert.assertEquals(0, MaskPlan.compilePath("$").length);
+    }
+
+    @Test
+    public void testCompilePathNotSupported() {
+        Assert.assertNull(MaskPlan.compilePath("$..name"));
+        Assert.assertNull(MaskPlan.compilePath("$.product[?(@.price > 10)]"));
+        Assert.assertNull(MaskPlan.compilePath("$.product[0:2]"));
+        Assert.assertNull(MaskPlan.compilePath("$.product[-1]"));
+        Assert.assertNull(MaskPlan.compilePath("product.name"));
+    }
+
+    @Test
+    public void testMaskJson() {
+        MaskPlan plan = Mask.getPlan("requestBody");
+        for(int size : new int[] {1024, 16 * 1024}) {
+            String input = createPayload(size);
+            String masked = plan.maskJson(input);
+            Assert.assertEquals("*****", JsonPath.parse(masked).read("$.product[0].item[0].name"));
+            Assert.assertEquals("******", JsonPath.parse(masked).read("$.product[10].item[0].name"));
+            Assert.assertEquals(10.5, (Double)JsonPath.parse(masked).read("$.product[10].item[0].price"), 0);
+            // the same document as masking every path with JsonPath.
+            Object expected = JsonPath.parse(maskJsonPath(input, "$.product[*].item[*].name")).json();
+            Assert.assertEquals(expected, JsonPath.parse(masked).json());
+        }
+    }
+
+    /**
+     * Compare the throughput with JsonPath. It only runs with -Dmask.perf=true.
+     */
+    @Test
+    public void testMaskJsonPerf() {
+        Assume.assumeTrue(Boolean.getBoolean("mask.perf"));
+        MaskPlan plan = Mask.getPlan("requestBody");
+        for(int size : new int[] {1024, 16 * 1024, 256 * 1024, 1024 * 1024}) {
+            String input = createPayload(size);
+            int iterations = Math.max(10, 16 * 1024 * 1024 / input.length());
+            // warm up
+            for(int i = 0; i < iterations; i++) {
+                plan.maskJson(input);
+            }
+            long start = System.nanoTime();
+            for(int i = 0; i < iterations; i++) {
+                plan.maskJson(input);
+            }
+            long planTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            for(int i = 0; i < iterations; i++) {
+                maskJsonPath(input, "$.product[*].item[*].name");
+            }
+            long jsonPathTime = System.nanoTime() - start;
+            System.out.println("MaskJson Perf " + input.length() + " bytes: plan " + throughput(input.length(), iterations, planTime)
+                    + " MB/s, jsonpath " + throughput(input.length(), iterations, jsonPathTime) + " MB/s");
+        }
+    }
+
+    private static long throughput(int length, int iterations, long nanos) {
+        return (long)((double)length * iterations / 1024 / 1024 / (nanos / 1e9));
+    }
+
+    /**
+     * The way the list of values used to be masked with JsonPath for comparison.
+     */
+    private static String maskJsonPath(String input, String jsonPath) {
+        DocumentContext ctx = JsonPath.parse(input);
+        Configuration conf = Configuration.builder().options(Option.AS_PATH_LIST).build();
+        List<String> pathList = JsonPath.using(conf).parse(ctx.jsonString()).read(jsonPath);
+        for(String path : pathList) {
+            String value = ctx.read(path).toString();
+            ctx.set(path, value.replaceAll(".", "*"));
+        }
+        return ctx.jsonString();
+    }
+
+    private static String createPayload(int size) {
+        StringBuilder sb = new StringBuilder(size + 256);
+        sb.append("{\"product\":[");
+        int i = 0;
+        while(sb.length() < size) {
+            if(i > 0) sb.append(',');
+            sb.append("{\"id\":").append(i).append(",\"item\":[{\"name\":\"name").append(i)
+                    .append("\",\"price\":").append(i % 100).append(".5,\"tags\":[\"a\",\"b\"]}]}");
+            i++;
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+}
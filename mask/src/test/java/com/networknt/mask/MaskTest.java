@@ -105,8 +105,28 @@ public class MaskTest {
         String input = "{\"name\":\"Steve\",\"list\":[\"secret1\", \"secret2\"],\"password\":\"secret\"}";
         String output = Mask.maskJson(input, "test2");
         System.out.println(output);
-        //TODO mask a list of values doesn't work. Fix it.
-        //Assert.assertEquals(JsonPath.parse(output).read("$.list[1]"), "*******");
-        //Assert.assertEquals(JsonPath.parse(output).read("$.password"), "******");
+        Assert.assertEquals(JsonPath.parse(output).read("$.list[1]"), "*******");
+        Assert.assertEquals(JsonPath.parse(output).read("$.password"), "******");
+        Assert.assertEquals(output, "{\"name\":\"Steve\",\"list\":[\"*******\",\"*******\"],\"password\":\"******\"}");
+    }
+
+    @Test
+    public void testMaskJsonArrayAndBracketPath() {
+        String input = "{\"account\":{\"no\":12345678,\"type\":\"chequing\"},\"items\":[{\"name\":\"a\",\"price\":100},{\"name\":\"b\",\"price\":20}],\"nested\":{\"secret\":\"abc\"}}";
+        String output = Mask.maskJson(input, "test3");
+        System.out.println(output);
+        Assert.assertEquals("****5678", JsonPath.parse(output).read("$.account.no"));
+        Assert.assertEquals("chequing", JsonPath.parse(output).read("$.account.type"));
+        Assert.assertEquals("***", JsonPath.parse(output).read("$.items[0].price"));
+        Assert.assertEquals("**", JsonPath.parse(output).read("$.items[1].price"));
+        Assert.assertEquals("b", JsonPath.parse(output).read("$.items[1].name"));
+        // deep scan is applied with JsonPath after the streaming pass
+        Assert.assertEquals("***", JsonPath.parse(output).read("$.nested.secret"));
+    }
+
+    @Test
+    public void testMaskJsonUnknownKey() {
+        String input = "{\"password\":\"secret\"}";
+        Assert.assertEquals(input, Mask.maskJson(input, "unknown"));
     }
 }
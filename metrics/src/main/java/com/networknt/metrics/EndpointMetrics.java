@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.metrics;
+
+import io.dropwizard.metrics.Counter;
+import io.dropwizard.metrics.MetricName;
+import io.dropwizard.metrics.MetricRegistry;
+import io.dropwizard.metrics.Timer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timer and counters of one endpoint and client id resolved from the registry once and reused
+ * for every request. The counter of a status class is resolved the first time the status class
+ * is seen so that no empty series is reported.
+ */
+class EndpointMetrics {
+    private final MetricRegistry registry;
+    private final Map<String, String> tags;
+
+    private final Timer responseTime;
+    private final Counter request;
+    private volatile Counter success;
+    private volatile Counter authError;
+    private volatile Counter requestError;
+    private volatile Counter serverError;
+
+    EndpointMetrics(MetricRegistry registry, Map<String, String> tags) {
+        this.registry = registry;
+        this.tags = tags;
+        this.responseTime = registry.getOrAdd(new MetricName("response_time", tags), MetricRegistry.MetricBuilder.TIMERS);
+        this.request = counter("request");
+    }
+
+    void record(int statusCode, long time) {
+        responseTime.update(time, TimeUnit.NANOSECONDS);
+        request.inc();
+        Counter counter;
+        if(statusCode >= 200 && statusCode < 400) {
+            counter = success;
+            if(counter == null) success = counter = counter("success");
+        } else if(statusCode == 401 || statusCode == 403) {
+            counter = authError;
+            if(counter == null) authError = counter = counter("auth_error");
+        } else if(statusCode >= 400 && statusCode < 500) {
+            counter = requestError;
+            if(counter == null) requestError = counter = counter("request_error");
+        } else if(statusCode >= 500) {
+            counter = serverError;
+            if(counter == null) serverError = counter = counter("server_error");
+        } else {
+            return;
+        }
+        counter.inc();
+    }
+
+    private Counter counter(String name) {
+        // getOrAdd returns the same counter if two threads race here.
+        return registry.getOrAdd(new MetricName(name, tags), MetricRegistry.MetricBuilder.COUNTERS);
+    }
+}
@@ -31,6 +31,8 @@ public class MetricsConfig {
     String influxdbUser;
     String influxdbPass;
     int reportInMinutes;
+    int maxTagCardinality;
+    boolean enablePrometheus;
 
     @JsonIgnore
     String description;
@@ -70,6 +72,22 @@ public class MetricsConfig {
         this.influxdbPort = influxdbPort;
     }
 
+    public int getMaxTagCardinality() {
+        return maxTagCardinality;
+    }
+
+    public void setMaxTagCardinality(int maxTagCardinality) {
+        this.maxTagCardinality = maxTagCardinality;
+    }
+
+    public boolean isEnablePrometheus() {
+        return enablePrometheus;
+    }
+
+    public void setEnablePrometheus(boolean enablePrometheus) {
+        this.enablePrometheus = enablePrometheus;
+    }
+
     public int getReportInMinutes() {
         return reportInMinutes;
     }
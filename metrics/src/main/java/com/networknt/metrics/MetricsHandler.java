@@ -20,9 +20,11 @@ import com.networknt.audit.AuditHandler;
 import com.networknt.config.Config;
 import com.networknt.handler.MiddlewareHandler;
 import com.networknt.server.Server;
+import com.networknt.utility.GaugeRegistry;
 import com.networknt.utility.ModuleRegistry;
 import com.networknt.utility.Util;
 import io.dropwizard.metrics.Clock;
+import io.dropwizard.metrics.Gauge;
 import io.dropwizard.metrics.MetricFilter;
 import io.dropwizard.metrics.MetricName;
 import io.dropwizard.metrics.MetricRegistry;
@@ -38,7 +40,10 @@ import org.slf4j.LoggerFactory;
 import java.net.InetAddress;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by steve on 03/10/16.
@@ -51,6 +56,10 @@ public class MetricsHandler implements MiddlewareHandler {
 
     static final Logger logger = LoggerFactory.getLogger(MetricsHandler.class);
 
+    static final String UNKNOWN = "unknown";
+    // angle brackets are not allowed in a path, so the overflow bucket never collides with an endpoint.
+    static final String OVERFLOW = "<overflow>";
+
     static {
         config = (MetricsConfig)Config.getInstance().getJsonObjectConfig(CONFIG_NAME, MetricsConfig.class);
         // initialize reporter and start the report scheduler.
@@ -66,15 +75,24 @@ public class MetricsHandler implements MiddlewareHandler {
                     .build(influxDb);
             reporter.start(config.getReportInMinutes(), TimeUnit.MINUTES);
         } catch (Exception e) {
-            // if there are any exception, chances are influxdb is not available. disable this handler.
-            logger.warn("metrics is disabled as it cannot connect to the influxdb");
-            config.setEnabled(false);
+            // if there are any exception, chances are influxdb is not available. disable this handler
+            // unless the metrics can still be scraped by Prometheus.
+            if(config.isEnablePrometheus()) {
+                logger.warn("metrics cannot be pushed to the influxdb and are only available through the PrometheusHandler");
+            } else {
+                logger.warn("metrics is disabled as it cannot connect to the influxdb");
+                config.setEnabled(false);
+            }
         }
     }
 
     private volatile HttpHandler next;
     Map<String, String> commonTags = new HashMap<>();
 
+    // metrics resolved per endpoint and client id so that nothing is looked up or allocated per request.
+    final ConcurrentMap<String, ConcurrentMap<String, EndpointMetrics>> endpointMetrics = new ConcurrentHashMap<>();
+    final AtomicInteger endpointMetricsCount = new AtomicInteger();
+
     public MetricsHandler() {
         commonTags.put("apiName", Server.config.getServiceId());
         InetAddress inetAddress = Util.getInetAddress();
@@ -108,16 +126,9 @@ public class MetricsHandler implements MiddlewareHandler {
         exchange.addExchangeCompleteListener((exchange1, nextListener) -> {
             Map<String, Object> auditInfo = exchange1.getAttachment(AuditHandler.AUDIT_INFO);
             if(auditInfo != null) {
-                Map<String, String> tags = new HashMap<>();
-                tags.put("endpoint", (String)auditInfo.get("endpoint"));
-                tags.put("clientId", (String)auditInfo.get("client_id"));
-
                 long time = Clock.defaultClock().getTick() - startTime;
-                MetricName metricName = new MetricName("response_time");
-                metricName = metricName.tagged(commonTags);
-                metricName = metricName.tagged(tags);
-                registry.getOrAdd(metricName, MetricRegistry.MetricBuilder.TIMERS).update(time, TimeUnit.NANOSECONDS);
-                incCounterForStatusCode(exchange1.getStatusCode(), commonTags, tags);
+                getEndpointMetrics((String)auditInfo.get("endpoint"), (String)auditInfo.get("client_id"))
+                        .record(exchange1.getStatusCode(), time);
             }
             nextListener.proceed();
         });
@@ -133,24 +144,67 @@ public class MetricsHandler implements MiddlewareHandler {
     @Override
     public void register() {
         ModuleRegistry.registerModule(MetricsHandler.class.getName(), Config.getInstance().getJsonMapConfigNoCache(CONFIG_NAME), null);
+        // each module registers its own gauges, they are added with the common tags.
+        GaugeRegistry.addListener(this::registerGauge);
     }
 
-    private void incCounterForStatusCode(int statusCode, Map<String, String> commonTags, Map<String, String> tags) {
-        MetricName metricName = new MetricName("request").tagged(commonTags).tagged(tags);
-        registry.getOrAdd(metricName, MetricRegistry.MetricBuilder.COUNTERS).inc();
-        if(statusCode >= 200 && statusCode < 400) {
-            metricName = new MetricName("success").tagged(commonTags).tagged(tags);
-            registry.getOrAdd(metricName, MetricRegistry.MetricBuilder.COUNTERS).inc();
-        } else if(statusCode == 401 || statusCode == 403) {
-            metricName = new MetricName("auth_error").tagged(commonTags).tagged(tags);
-            registry.getOrAdd(metricName, MetricRegistry.MetricBuilder.COUNTERS).inc();
-        } else if(statusCode >= 400 && statusCode < 500) {
-            metricName = new MetricName("request_error").tagged(commonTags).tagged(tags);
-            registry.getOrAdd(metricName, MetricRegistry.MetricBuilder.COUNTERS).inc();
-        } else if(statusCode >= 500) {
-            metricName = new MetricName("server_error").tagged(commonTags).tagged(tags);
-            registry.getOrAdd(metricName, MetricRegistry.MetricBuilder.COUNTERS).inc();
+    private void registerGauge(GaugeRegistry.Entry gauge) {
+        Map<String, String> tags = new HashMap<>(commonTags);
+        tags.putAll(gauge.getTags());
+        MetricName name = new MetricName(gauge.getName(), tags);
+        if(!registry.getGauges().containsKey(name)) {
+            registry.register(name, (Gauge<Number>) gauge::getValue);
         }
     }
 
+    /**
+     * Get the metrics of the endpoint and client id. Once the number of combinations reaches
+     * maxTagCardinality in metrics.json, new combinations are recorded in a shared overflow
+     * bucket so that a client sending random client ids cannot blow up the registry. A slot is
+     * reserved from the counter before the metrics are created, so concurrent requests never go
+     * over the limit.
+     *
+     * @param endpoint endpoint in audit info
+     * @param clientId client_id in audit info
+     * @return EndpointMetrics
+     */
+    EndpointMetrics getEndpointMetrics(String endpoint, String clientId) {
+        if(endpoint == null) endpoint = UNKNOWN;
+        if(clientId == null) clientId = UNKNOWN;
+        Map<String, EndpointMetrics> clients = endpointMetrics.get(endpoint);
+        if(clients != null) {
+            EndpointMetrics metrics = clients.get(clientId);
+            if(metrics != null) return metrics;
+        }
+        int max = config.getMaxTagCardinality();
+        if(max > 0) {
+            int count;
+            do {
+                count = endpointMetricsCount.get();
+                if(count >= max) {
+                    return endpointMetrics.computeIfAbsent(OVERFLOW, k -> new ConcurrentHashMap<>())
+                            .computeIfAbsent(OVERFLOW, k -> new EndpointMetrics(registry, tags(OVERFLOW, OVERFLOW)));
+                }
+            } while(!endpointMetricsCount.compareAndSet(count, count + 1));
+        } else {
+            endpointMetricsCount.incrementAndGet();
+        }
+        final String e = endpoint;
+        final EndpointMetrics[] created = new EndpointMetrics[1];
+        EndpointMetrics metrics = endpointMetrics.computeIfAbsent(endpoint, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(clientId, k -> created[0] = new EndpointMetrics(registry, tags(e, k)));
+        if(created[0] == null) {
+            // created by another thread in the meantime, give the reserved slot back.
+            endpointMetricsCount.decrementAndGet();
+        }
+        return metrics;
+    }
+
+    private Map<String, String> tags(String endpoint, String clientId) {
+        Map<String, String> tags = new HashMap<>(commonTags);
+        tags.put("endpoint", endpoint);
+        tags.put("clientId", clientId);
+        return tags;
+    }
+
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.metrics;
+
+import io.dropwizard.metrics.Counter;
+import io.dropwizard.metrics.Gauge;
+import io.dropwizard.metrics.Histogram;
+import io.dropwizard.metrics.Meter;
+import io.dropwizard.metrics.MetricName;
+import io.dropwizard.metrics.MetricRegistry;
+import io.dropwizard.metrics.Snapshot;
+import io.dropwizard.metrics.Timer;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * This is a handler that outputs the metrics in the registry in Prometheus text exposition format
+ * so that the metrics can be scraped without a push backend. Tags of the metric name are rendered
+ * as labels and histograms and timers are rendered as summaries with quantiles. Timers are in
+ * seconds as Prometheus convention.
+ *
+ * The output is written to the response stream as it is rendered, so the whole scrape is never
+ * built as one String. Quantiles are read from the windowed snapshot of the reservoir, so they follow
+ * the recent latency instead of the whole process lifetime, and a scrape never resets the data that
+ * the InfluxDB reporter pushes and the other way around.
+ */
+public class PrometheusHandler implements HttpHandler {
+    static final Logger logger = LoggerFactory.getLogger(PrometheusHandler.class);
+
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.75, 0.95, 0.98, 0.99, 0.999};
+    private static final String[] QUANTILE_LABELS = {"0.5", "0.75", "0.95", "0.98", "0.99", "0.999"};
+    private static final double SECONDS_PER_NANO = 1.0 / 1000000000;
+
+    private final MetricRegistry registry;
+
+    public PrometheusHandler() {
+        this(MetricsHandler.registry);
+    }
+
+    public PrometheusHandler(MetricRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void handleRequest(final HttpServerExchange exchange) throws Exception {
+        if(exchange.isInIoThread()) {
+            exchange.dispatch(this);
+            return;
+        }
+        exchange.startBlocking();
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, CONTENT_TYPE);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getOutputStream(), StandardCharsets.UTF_8))) {
+            write(writer);
+        }
+    }
+
+    /**
+     * Render all metrics in the registry. The maps returned by the registry are sorted by name
+     * so that all series of the same metric are adjacent and share one TYPE line.
+     *
+     * @param writer Writer
+     * @throws IOException if the writer fails
+     */
+    public void write(Writer writer) throws IOException {
+        String family = null;
+        for(Map.Entry<MetricName, Gauge> entry : registry.getGauges().entrySet()) {
+            Object value = entry.getValue().getValue();
+            double number;
+            if(value instanceof Number) {
+                number = ((Number)value).doubleValue();
+            } else if(value instanceof Boolean) {
+                number = (Boolean)value ? 1 : 0;
+            } else {
+                continue;
+            }
+            family = writeType(writer, family, entry.getKey(), "gauge");
+            writeSample(writer, entry.getKey(), "", null, null, number);
+        }
+        family = null;
+        // dropwizard counter can go down, so it is a gauge in Prometheus.
+        for(Map.Entry<MetricName, Counter> entry : registry.getCounters().entrySet()) {
+            family = writeType(writer, family, entry.getKey(), "gauge");
+            writeSample(writer, entry.getKey(), "", null, null, entry.getValue().getCount());
+        }
+        family = null;
+        for(Map.Entry<MetricName, Meter> entry : registry.getMeters().entrySet()) {
+            family = writeType(writer, family, entry.getKey(), "counter");
+            writeSample(writer, entry.getKey(), "_total", null, null, entry.getValue().getCount());
+        }
+        family = null;
+        for(Map.Entry<MetricName, Histogram> entry : registry.getHistograms().entrySet()) {
+            family = writeType(writer, family, entry.getKey(), "summary");
+            Histogram histogram = entry.getValue();
+            writeSummary(writer, entry.getKey(), histogram.getWindowedSnapshot(), histogram.getCount(), histogram.getSum(), 1);
+        }
+        family = null;
+        for(Map.Entry<MetricName, Timer> entry : registry.getTimers().entrySet()) {
+            family = writeType(writer, family, entry.getKey(), "summary");
+            Timer timer = entry.getValue();
+            writeSummary(writer, entry.getKey(), timer.getWindowedSnapshot(), timer.getCount(), timer.getSum(), SECONDS_PER_NANO);
+        }
+        writer.flush();
+    }
+
+    private static String writeType(Writer writer, String family, MetricName name, String type) throws IOException {
+        if(name.getKey().equals(family)) {
+            return family;
+        }
+        writer.write("# TYPE ");
+        writeName(writer, name.getKey());
+        writer.write(' ');
+        writer.write(type);
+        writer.write('\n');
+        return name.getKey();
+    }
+
+    private static void writeSummary(Writer writer, MetricName name, Snapshot snapshot, long count, long sum, double factor) throws IOException {
+        for(int i = 0; i < QUANTILES.length; i++) {
+            writeSample(writer, name, "", "quantile", QUANTILE_LABELS[i], snapshot.getValue(QUANTILES[i]) * factor);
+        }
+        writeSample(writer, name, "_sum", null, null, sum * factor);
+        writeSample(writer, name, "_count", null, null, count);
+    }
+
+    private static void writeSample(Writer writer, MetricName name, String suffix, String label, String labelValue, double value) throws IOException {
+        writeName(writer, name.getKey());
+        writer.write(suffix);
+        Map<String, String> tags = name.getTags();
+        if(!tags.isEmpty() || label != null) {
+            writer.write('{');
+            boolean first = true;
+            for(Map.Entry<String, String> tag : tags.entrySet()) {
+                if(tag.getValue() == null) continue;
+                if(!first) writer.write(',');
+                writeLabel(writer, tag.getKey(), tag.getValue());
+                first = false;
+            }
+            if(label != null) {
+                if(!first) writer.write(',');
+                writeLabel(writer, label, labelValue);
+            }
+            writer.write('}');
+        }
+        writer.write(' ');
+        writeValue(writer, value);
+        writer.write('\n');
+    }
+
+    private static void writeLabel(Writer writer, String name, String value) throws IOException {
+        writeName(writer, name);
+        writer.write("=\"");
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if(c == '\\') {
+                writer.write("\\\\");
+            } else if(c == '"') {
+                writer.write("\\\"");
+            } else if(c == '\n') {
+                writer.write("\\n");
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
+    /**
+     * Write the name with the characters not allowed by Prometheus replaced by underscore.
+     */
+    static void writeName(Writer writer, String name) throws IOException {
+        for(int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':' || (c >= '0' && c <= '9' && i > 0)) {
+                writer.write(c);
+            } else {
+                writer.write('_');
+            }
+        }
+    }
+
+    private static void writeValue(Writer writer, double value) throws IOException {
+        if(Double.isNaN(value)) {
+            writer.write("NaN");
+        } else if(Double.isInfinite(value)) {
+            writer.write(value > 0 ? "+Inf" : "-Inf");
+        } else if(value == (long)value) {
+            writer.write(Long.toString((long)value));
+        } else {
+            writer.write(Double.toString(value));
+        }
+    }
+}
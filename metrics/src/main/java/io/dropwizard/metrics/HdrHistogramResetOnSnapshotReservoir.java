@@ -6,20 +6,44 @@ import org.HdrHistogram.Recorder;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A Reservoir that resets its internal state every time a snapshot is taken. This is useful if you're using snapshots
  * as a means of defining the window in which you want to calculate, say, the 99.9th percentile.
+ *
+ * The windowed snapshot covers the last four to five minutes. It is kept in five buckets of a minute
+ * each, and the oldest bucket is dropped when a new one starts, so it is never reset by a snapshot
+ * and doesn't carry the values of the whole process lifetime.
  */
 @ThreadSafe
 public final class HdrHistogramResetOnSnapshotReservoir implements Reservoir {
+    private static final int WINDOW_BUCKETS = 5;
+    private static final long BUCKET_DURATION = TimeUnit.MINUTES.toNanos(1);
+
 
     private final Recorder recorder;
 
+    private final Clock clock;
+
     @GuardedBy("this")
     @Nonnull
     private Histogram intervalHistogram;
 
+    @GuardedBy("this")
+    @Nonnull
+    private final Histogram sinceLastSnapshot;
+
+    @GuardedBy("this")
+    @Nonnull
+    private final Histogram[] window;
+
+    @GuardedBy("this")
+    private int current;
+
+    @GuardedBy("this")
+    private long bucketStart;
+
     /**
      * Create a reservoir with a default recorder. This recorder should be suitable for most usage.
      */
@@ -33,7 +57,18 @@ public final class HdrHistogramResetOnSnapshotReservoir implements Reservoir {
      * @param recorder Recorder to use
      */
     public HdrHistogramResetOnSnapshotReservoir(Recorder recorder) {
+        this(recorder, Clock.defaultClock());
+    }
+
+    /**
+     * Create a reservoir with a user-specified recorder and the clock of the windowed snapshot.
+     *
+     * @param recorder Recorder to use
+     * @param clock Clock to use
+     */
+    public HdrHistogramResetOnSnapshotReservoir(Recorder recorder, Clock clock) {
         this.recorder = recorder;
+        this.clock = clock;
 
         /*
          * Start by flipping the recorder's interval histogram.
@@ -42,6 +77,12 @@ public final class HdrHistogramResetOnSnapshotReservoir implements Reservoir {
          * - intervalHistogram can be nonnull.
          */
         intervalHistogram = recorder.getIntervalHistogram();
+        sinceLastSnapshot = new Histogram(intervalHistogram.getNumberOfSignificantValueDigits());
+        window = new Histogram[WINDOW_BUCKETS];
+        for (int i = 0; i < WINDOW_BUCKETS; i++) {
+            window[i] = new Histogram(intervalHistogram.getNumberOfSignificantValueDigits());
+        }
+        bucketStart = clock.getTick();
     }
 
     @Override
@@ -63,12 +104,61 @@ public final class HdrHistogramResetOnSnapshotReservoir implements Reservoir {
         return new HistogramSnapshot(getDataSinceLastSnapshotAndReset());
     }
 
+    /**
+     * @return the data of the last four to five minutes, without resetting the data of the next snapshot
+     */
+    @Override
+    public Snapshot getWindowedSnapshot() {
+        return new HistogramSnapshot(getWindow());
+    }
+
     /**
      * @return a copy of the accumulated state since the reservoir last had a snapshot
      */
     @Nonnull
     private synchronized Histogram getDataSinceLastSnapshotAndReset() {
+        flip();
+        Histogram copy = sinceLastSnapshot.copy();
+        sinceLastSnapshot.reset();
+        return copy;
+    }
+
+    @Nonnull
+    private synchronized Histogram getWindow() {
+        flip();
+        Histogram copy = new Histogram(intervalHistogram.getNumberOfSignificantValueDigits());
+        for (Histogram bucket : window) {
+            copy.add(bucket);
+        }
+        return copy;
+    }
+
+    /**
+     * Move the values recorded since the last flip into both views, so that a windowed snapshot
+     * never takes values away from the next reset snapshot.
+     */
+    @GuardedBy("this")
+    private void flip() {
         intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
-        return intervalHistogram.copy();
+        sinceLastSnapshot.add(intervalHistogram);
+        rotate();
+        window[current].add(intervalHistogram);
+    }
+
+    /**
+     * Start a new bucket for each bucket duration passed since the current one started, dropping
+     * the oldest bucket of the window each time.
+     */
+    @GuardedBy("this")
+    private void rotate() {
+        long elapsed = (clock.getTick() - bucketStart) / BUCKET_DURATION;
+        if (elapsed <= 0) {
+            return;
+        }
+        for (long i = 0; i < Math.min(elapsed, WINDOW_BUCKETS); i++) {
+            current = (current + 1) % WINDOW_BUCKETS;
+            window[current].reset();
+        }
+        bucketStart += elapsed * BUCKET_DURATION;
     }
 }
@@ -14,6 +14,7 @@ public class Histogram implements Metric, Sampling, Counting {
 
     private final Reservoir reservoir;
     private final LongAdder count;
+    private final LongAdder sum;
 
     /**
      * Creates a new {@link Histogram} with the given reservoir.
@@ -23,6 +24,7 @@ public class Histogram implements Metric, Sampling, Counting {
     public Histogram(Reservoir reservoir) {
         this.reservoir = reservoir;
         this.count = LongAdderFactory.create();
+        this.sum = LongAdderFactory.create();
     }
 
     /**
@@ -41,6 +43,7 @@ public class Histogram implements Metric, Sampling, Counting {
      */
     public void update(long value) {
         count.increment();
+        sum.add(value);
         reservoir.update(value);
     }
 
@@ -54,11 +57,30 @@ public class Histogram implements Metric, Sampling, Counting {
         return count.sum();
     }
 
+    /**
+     * Returns the sum of the values recorded.
+     *
+     * @return the sum of the values recorded
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
     @Override
     public Snapshot getSnapshot() {
         return reservoir.getSnapshot();
     }
 
+    /**
+     * Returns a snapshot of the recent values that does not reset the reservoir.
+     *
+     * @return a snapshot of the values
+     * @see Reservoir#getWindowedSnapshot()
+     */
+    public Snapshot getWindowedSnapshot() {
+        return reservoir.getWindowedSnapshot();
+    }
+
     @Override
     public String toString() {
         final ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -24,4 +24,16 @@ public interface Reservoir {
      * @return a snapshot of the reservoir's values
      */
     Snapshot getSnapshot();
+
+    /**
+     * Returns a snapshot of the values recorded in a recent time window. Unlike
+     * {@link #getSnapshot()}, it never resets the reservoir, so it can be read by one reporter
+     * while another reporter takes snapshots. The default is for the reservoirs that bound their
+     * values by decay or by a window already and don't reset on snapshot.
+     *
+     * @return a snapshot of the reservoir's recent values
+     */
+    default Snapshot getWindowedSnapshot() {
+        return getSnapshot();
+    }
 }
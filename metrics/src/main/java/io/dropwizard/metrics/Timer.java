@@ -164,6 +164,25 @@ public class Timer implements Metered, Sampling {
         return histogram.getSnapshot();
     }
 
+    /**
+     * Returns a snapshot of the recent durations that does not reset the reservoir.
+     *
+     * @return a snapshot of the durations
+     * @see Reservoir#getWindowedSnapshot()
+     */
+    public Snapshot getWindowedSnapshot() {
+        return histogram.getWindowedSnapshot();
+    }
+
+    /**
+     * Returns the sum of the durations recorded in nanoseconds.
+     *
+     * @return the sum of the durations
+     */
+    public long getSum() {
+        return histogram.getSum();
+    }
+
     private void update(long duration) {
         if (duration >= 0) {
             histogram.update(duration);
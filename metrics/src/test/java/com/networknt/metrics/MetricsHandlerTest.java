@@ -28,11 +28,14 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.junit.AfterClass;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.management.ManagementFactory;
+
 /**
  * Created by steve on 01/09/16.
  */
@@ -40,6 +43,7 @@ public class MetricsHandlerTest {
     static final Logger logger = LoggerFactory.getLogger(MetricsHandlerTest.class);
 
     static Undertow server = null;
+    static MetricsHandler metricsHandler = null;
 
     @BeforeClass
     public static void setUp() {
@@ -47,7 +51,7 @@ public class MetricsHandlerTest {
             logger.info("starting server");
             HttpHandler handler = getTestHandler();
 
-            MetricsHandler metricsHandler = new MetricsHandler();
+            metricsHandler = new MetricsHandler();
             metricsHandler.setNext(handler);
             handler = metricsHandler;
 
@@ -97,4 +101,84 @@ public class MetricsHandlerTest {
         }
     }
 
+    @Test
+    public void testEndpointMetricsCached() {
+        EndpointMetrics metrics = metricsHandler.getEndpointMetrics("/v1/cached@get", "client1");
+        Assert.assertSame(metrics, metricsHandler.getEndpointMetrics("/v1/cached@get", "client1"));
+        Assert.assertNotSame(metrics, metricsHandler.getEndpointMetrics("/v1/cached@get", "client2"));
+        Assert.assertNotNull(metricsHandler.getEndpointMetrics(null, null));
+    }
+
+    @Test
+    public void testTagCardinalityOverflow() {
+        MetricsHandler handler = new MetricsHandler();
+        int max = MetricsHandler.config.getMaxTagCardinality();
+        MetricsHandler.config.setMaxTagCardinality(2);
+        try {
+            EndpointMetrics first = handler.getEndpointMetrics("/v1/overflow@get", "client1");
+            EndpointMetrics second = handler.getEndpointMetrics("/v1/overflow@get", "client2");
+            EndpointMetrics third = handler.getEndpointMetrics("/v1/overflow@get", "client3");
+            EndpointMetrics fourth = handler.getEndpointMetrics("/v1/overflow@post", "client4");
+            Assert.assertNotSame(first, second);
+            Assert.assertSame(third, fourth);
+            Assert.assertSame(first, handler.getEndpointMetrics("/v1/overflow@get", "client1"));
+            Assert.assertEquals(2, handler.endpointMetricsCount.get());
+        } finally {
+            MetricsHandler.config.setMaxTagCardinality(max);
+        }
+    }
+
+    @Test
+    public void testTagCardinalityConcurrent() throws Exception {
+        MetricsHandler handler = new MetricsHandler();
+        int max = MetricsHandler.config.getMaxTagCardinality();
+        MetricsHandler.config.setMaxTagCardinality(10);
+        try {
+            Thread[] threads = new Thread[4];
+            for(int i = 0; i < threads.length; i++) {
+                final int t = i;
+                threads[i] = new Thread(() -> {
+                    for(int j = 0; j < 100; j++) {
+                        handler.getEndpointMetrics("/v1/concurrent@get", "client" + (j * threads.length + t));
+                    }
+                });
+                threads[i].start();
+            }
+            for(Thread thread : threads) {
+                thread.join();
+            }
+            Assert.assertEquals(10, handler.endpointMetricsCount.get());
+            Assert.assertEquals(10, handler.endpointMetrics.get("/v1/concurrent@get").size());
+            Assert.assertNotNull(handler.endpointMetrics.get(MetricsHandler.OVERFLOW));
+        } finally {
+            MetricsHandler.config.setMaxTagCardinality(max);
+        }
+    }
+
+    @Test
+    public void testRecordWithoutAllocation() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean.isThreadAllocatedMemorySupported());
+        bean.setThreadAllocatedMemoryEnabled(true);
+
+        String endpoint = "/v1/allocation@get";
+        String clientId = "client1";
+        int[] statusCodes = {200, 401, 404, 500};
+        int iterations = 100000;
+        // warm up so that all counters are resolved and the code is compiled.
+        for(int i = 0; i < iterations; i++) {
+            metricsHandler.getEndpointMetrics(endpoint, clientId).record(statusCodes[i & 3], i);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(threadId);
+        for(int i = 0; i < iterations; i++) {
+            metricsHandler.getEndpointMetrics(endpoint, clientId).record(statusCodes[i & 3], i);
+        }
+        long allocated = bean.getThreadAllocatedBytes(threadId) - before;
+        logger.info("allocated " + allocated + " bytes for " + iterations + " records");
+        // allow a few bytes of noise from the measurement itself, but nothing per request.
+        Assert.assertTrue("allocated " + allocated + " bytes", allocated < iterations);
+    }
+
 }
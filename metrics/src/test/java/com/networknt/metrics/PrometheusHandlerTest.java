@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.metrics;
+
+import io.dropwizard.metrics.Gauge;
+import io.dropwizard.metrics.MetricName;
+import io.dropwizard.metrics.MetricRegistry;
+import io.dropwizard.metrics.Timer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class PrometheusHandlerTest {
+
+    @Test
+    public void testWrite() throws Exception {
+        MetricRegistry registry = new MetricRegistry();
+        Map<String, String> tags = new HashMap<>();
+        tags.put("endpoint", "/v1/pets@get");
+        tags.put("clientId", "a\"b");
+        registry.counter(new MetricName("request", tags)).inc(3);
+        tags.put("clientId", "c");
+        registry.counter(new MetricName("request", tags)).inc();
+        registry.register(new MetricName("worker_active"), (Gauge<Integer>) () -> 5);
+        registry.timer(new MetricName("response_time", tags)).update(2, TimeUnit.SECONDS);
+
+        StringWriter writer = new StringWriter();
+        new PrometheusHandler(registry).write(writer);
+        String s = writer.toString();
+
+        Assert.assertTrue(s.contains("# TYPE worker_active gauge\nworker_active 5\n"));
+        Assert.assertEquals(1, s.split("# TYPE request gauge", -1).length - 1);
+        Assert.assertTrue(s.contains("request{clientId=\"a\\\"b\",endpoint=\"/v1/pets@get\"} 3\n")
+                || s.contains("request{endpoint=\"/v1/pets@get\",clientId=\"a\\\"b\"} 3\n"));
+        Assert.assertTrue(s.contains("# TYPE response_time summary\n"));
+        Assert.assertTrue(s.contains("quantile=\"0.99\"} 2"));
+        Assert.assertTrue(s.contains("response_time_count{"));
+        Assert.assertTrue(s.contains("response_time_sum{"));
+    }
+
+    @Test
+    public void testScrapeDoesNotResetPush() throws Exception {
+        MetricRegistry registry = new MetricRegistry();
+        Timer timer = registry.timer(new MetricName("response_time"));
+        timer.update(2, TimeUnit.SECONDS);
+        timer.update(4, TimeUnit.SECONDS);
+
+        StringWriter writer = new StringWriter();
+        new PrometheusHandler(registry).write(writer);
+        Assert.assertTrue(writer.toString().contains("response_time_sum 6\n"));
+
+        // the snapshot of the push reporter still has the values scraped above.
+        Assert.assertEquals(2, timer.getSnapshot().size());
+        Assert.assertEquals(0, timer.getSnapshot().size());
+
+        // and the push reporter doesn't reset the scrape.
+        writer = new StringWriter();
+        new PrometheusHandler(registry).write(writer);
+        String s = writer.toString();
+        Assert.assertTrue(s.contains("response_time_count 2\n"));
+        Assert.assertTrue(s.contains("response_time{quantile=\"0.5\"} 2"));
+    }
+}
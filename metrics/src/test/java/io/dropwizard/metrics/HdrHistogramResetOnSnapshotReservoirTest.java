@@ -0,0 +1,50 @@
+package io.dropwizard.metrics;
+
+import org.HdrHistogram.Recorder;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HdrHistogramResetOnSnapshotReservoirTest {
+    private final ManualClock clock = new ManualClock();
+    private final HdrHistogramResetOnSnapshotReservoir reservoir =
+            new HdrHistogramResetOnSnapshotReservoir(new Recorder(2), clock);
+
+    @Test
+    public void snapshotResetsButWindowDoesNot() throws Exception {
+        reservoir.update(1);
+        reservoir.update(2);
+
+        assertThat(reservoir.getSnapshot().size())
+                .isEqualTo(2);
+        assertThat(reservoir.getSnapshot().size())
+                .isZero();
+        assertThat(reservoir.getWindowedSnapshot().size())
+                .isEqualTo(2);
+        assertThat(reservoir.getWindowedSnapshot().size())
+                .isEqualTo(2);
+    }
+
+    @Test
+    public void windowDropsOldValues() throws Exception {
+        reservoir.update(100);
+        assertThat(reservoir.getWindowedSnapshot().getMax())
+                .isEqualTo(100);
+
+        clock.addSeconds(150);
+        reservoir.update(10);
+        assertThat(reservoir.getWindowedSnapshot().size())
+                .isEqualTo(2);
+
+        // the bucket of the first value is dropped five minutes after it started.
+        clock.addSeconds(150);
+        assertThat(reservoir.getWindowedSnapshot().size())
+                .isEqualTo(1);
+        assertThat(reservoir.getWindowedSnapshot().getMax())
+                .isEqualTo(10);
+
+        clock.addHours(1);
+        assertThat(reservoir.getWindowedSnapshot().size())
+                .isZero();
+    }
+}
@@ -0,0 +1,476 @@
+package com.networknt.registry;
+
+import com.networknt.utility.Constants;
+import org.apache.commons.lang3.StringUtils;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * An immutable URL that is shared by the registry, the cluster and the load balancers instead of
+ * being copied on each call. The uri, identity and hash code are computed once, and the numeric
+ * parameters are parsed when the url is built.
+ *
+ * The setters of URL throw UnsupportedOperationException, use the Builder to derive a new url.
+ * Equal urls can be interned so that the urls of a service notified again and again by the
+ * registry are the same instances.
+ */
+public final class ImmutableURL implements URL {
+    private static final Map<ImmutableURL, WeakReference<ImmutableURL>> pool = new WeakHashMap<>();
+
+    private final String protocol;
+    private final String host;
+    private final int port;
+    private final String path;
+    private final Map<String, String> parameters;
+    private final Map<String, Integer> numbers;
+
+    private final String uri;
+    private final String identity;
+    private final int hash;
+    private String fullStr;
+
+    private ImmutableURL(Builder builder) {
+        this.protocol = builder.protocol;
+        this.host = builder.host;
+        this.port = builder.port;
+        this.path = builder.path;
+        this.parameters = Collections.unmodifiableMap(new HashMap<>(builder.parameters));
+        Map<String, Integer> numbers = new HashMap<>();
+        for (Map.Entry<String, String> entry : parameters.entrySet()) {
+            Integer number = parseInt(entry.getValue());
+            if (number != null) numbers.put(entry.getKey(), number);
+        }
+        this.numbers = numbers.isEmpty() ? Collections.emptyMap() : numbers;
+        this.uri = protocol + Constants.PROTOCOL_SEPARATOR + host + ":" + port + Constants.PATH_SEPARATOR + path;
+        this.identity = protocol + Constants.PROTOCOL_SEPARATOR + host + ":" + port +
+                "/" + getParameter(URLParamType.group.getName(), URLParamType.group.getValue()) + "/" +
+                path + "/" + getParameter(URLParamType.version.getName(), URLParamType.version.getValue()) +
+                "/" + getParameter(URLParamType.nodeType.getName(), URLParamType.nodeType.getValue());
+        this.hash = hashCode(protocol, host, port, path, parameters);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param url the url to start with
+     * @return a builder with the protocol, host, port, path and parameters of the url
+     */
+    public static Builder builder(URL url) {
+        return new Builder(url);
+    }
+
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Parse the url string to an interned ImmutableURL.
+     *
+     * @param url url string
+     * @return the url
+     */
+    public static ImmutableURL valueOf(String url) {
+        return of(URLImpl.valueOf(url));
+    }
+
+    /**
+     * @param url a URL object
+     * @return the url itself if it is immutable already, or an interned immutable copy
+     */
+    public static ImmutableURL of(URL url) {
+        if (url == null || url instanceof ImmutableURL) {
+            return (ImmutableURL) url;
+        }
+        return intern(new Builder(url).build());
+    }
+
+    /**
+     * Return the pooled instance equal to the url, or add the url to the pool. The pool holds the
+     * urls weakly, so a url that is not used anymore is removed when it is garbage collected.
+     *
+     * @param url the url
+     * @return the pooled instance
+     */
+    public static ImmutableURL intern(ImmutableURL url) {
+        synchronized (pool) {
+            WeakReference<ImmutableURL> ref = pool.get(url);
+            ImmutableURL existing = ref == null ? null : ref.get();
+            if (existing != null) {
+                return existing;
+            }
+            pool.put(url, new WeakReference<>(url));
+            return url;
+        }
+    }
+
+    static int hashCode(String protocol, String host, int port, String path, Map<String, String> parameters) {
+        int result = protocol != null ? protocol.hashCode() : 0;
+        result = 31 * result + (host != null ? host.hashCode() : 0);
+        result = 31 * result + port;
+        result = 31 * result + (path != null ? path.hashCode() : 0);
+        result = 31 * result + (parameters != null ? parameters.hashCode() : 0);
+        return result;
+    }
+
+    private static Integer parseInt(String value) {
+        if (value == null || value.length() == 0 || value.length() > 10) {
+            return null;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && !(i == 0 && c == '-' && value.length() > 1)) {
+                return null;
+            }
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return this url as it cannot be modified
+     */
+    @Override
+    public URL createCopy() {
+        return this;
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public void setProtocol(String protocol) {
+        throw unsupported();
+    }
+
+    @Override
+    public String getHost() {
+        return host;
+    }
+
+    @Override
+    public void setHost(String host) {
+        throw unsupported();
+    }
+
+    @Override
+    public Integer getPort() {
+        return port;
+    }
+
+    @Override
+    public void setPort(int port) {
+        throw unsupported();
+    }
+
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public void setPath(String path) {
+        throw unsupported();
+    }
+
+    @Override
+    public String getVersion() {
+        return getParameter(URLParamType.version.getName(), URLParamType.version.getValue());
+    }
+
+    @Override
+    public String getGroup() {
+        return getParameter(URLParamType.group.getName(), URLParamType.group.getValue());
+    }
+
+    @Override
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    @Override
+    public void setParameters(Map<String, String> parameters) {
+        throw unsupported();
+    }
+
+    @Override
+    public void addParameters(Map<String, String> params) {
+        throw unsupported();
+    }
+
+    @Override
+    public String getParameter(String name) {
+        return parameters.get(name);
+    }
+
+    @Override
+    public String getParameter(String name, String defaultValue) {
+        String value = getParameter(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value;
+    }
+
+    @Override
+    public String getMethodParameter(String methodName, String paramDesc, String name) {
+        String value = getParameter(Constants.METHOD_CONFIG_PREFIX + methodName + "(" + paramDesc + ")." + name);
+        if (value == null || value.length() == 0) {
+            return getParameter(name);
+        }
+        return value;
+    }
+
+    @Override
+    public String getMethodParameter(String methodName, String paramDesc, String name, String defaultValue) {
+        String value = getMethodParameter(methodName, paramDesc, name);
+        if (value == null || value.length() == 0) {
+            return defaultValue;
+        }
+        return value;
+    }
+
+    @Override
+    public Boolean getBooleanParameter(String name, boolean defaultValue) {
+        String value = getParameter(name);
+        if (value == null || value.length() == 0) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    @Override
+    public Boolean getMethodParameter(String methodName, String paramDesc, String name, boolean defaultValue) {
+        String value = getMethodParameter(methodName, paramDesc, name);
+        if (value == null || value.length() == 0) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    @Override
+    public Integer getIntParameter(String name, int defaultValue) {
+        Integer n = numbers.get(name);
+        if (n != null) {
+            return n;
+        }
+        String value = parameters.get(name);
+        if (value == null || value.length() == 0) {
+            return defaultValue;
+        }
+        return Integer.parseInt(value);
+    }
+
+    @Override
+    public Integer getMethodParameter(String methodName, String paramDesc, String name, int defaultValue) {
+        String key = Constants.METHOD_CONFIG_PREFIX + methodName + "(" + paramDesc + ")." + name;
+        String value = getParameter(key);
+        if (value == null || value.length() == 0) {
+            key = name;
+            value = getParameter(name);
+        }
+        if (value == null || value.length() == 0) {
+            return defaultValue;
+        }
+        Integer n = numbers.get(key);
+        return n != null ? n : Integer.parseInt(value);
+    }
+
+    @Override
+    public String getUri() {
+        return uri;
+    }
+
+    /**
+     * Return service identity, if two urls have the same identity, then same service
+     *
+     * @return the identity
+     */
+    @Override
+    public String getIdentity() {
+        return identity;
+    }
+
+    @Override
+    public String toFullStr() {
+        // racy single-check, the result is always the same string.
+        String s = fullStr;
+        if (s == null) {
+            StringBuilder builder = new StringBuilder();
+            builder.append(uri).append("?");
+            for (Map.Entry<String, String> entry : parameters.entrySet()) {
+                builder.append(entry.getKey()).append("=").append(entry.getValue()).append("&");
+            }
+            fullStr = s = builder.toString();
+        }
+        return s;
+    }
+
+    @Override
+    public String toString() {
+        return toSimpleString();
+    }
+
+    @Override
+    public String toSimpleString() {
+        return uri + "?group=" + getGroup();
+    }
+
+    @Override
+    public boolean canServe(URL refUrl) {
+        if (refUrl == null || !path.equals(refUrl.getPath())) {
+            return false;
+        }
+        if (!protocol.equals(refUrl.getProtocol())) {
+            return false;
+        }
+        if (!StringUtils.equals(getParameter(URLParamType.nodeType.getName()), Constants.NODE_TYPE_SERVICE)) {
+            return false;
+        }
+        String version = getParameter(URLParamType.version.getName(), URLParamType.version.getValue());
+        String refVersion = refUrl.getParameter(URLParamType.version.getName(), URLParamType.version.getValue());
+        if (!version.equals(refVersion)) {
+            return false;
+        }
+        String serialize = getParameter(URLParamType.serialize.getName(), URLParamType.serialize.getValue());
+        String refSerialize = refUrl.getParameter(URLParamType.serialize.getName(), URLParamType.serialize.getValue());
+        return serialize.equals(refSerialize);
+    }
+
+    @Override
+    public void addParameter(String name, String value) {
+        throw unsupported();
+    }
+
+    @Override
+    public void addParameterIfAbsent(String name, String value) {
+        throw unsupported();
+    }
+
+    @Override
+    public void removeParameter(String name) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean hasParameter(String key) {
+        return StringUtils.isNotBlank(getParameter(key));
+    }
+
+    @Override
+    public String getServerPortStr() {
+        return URLImpl.buildHostPortStr(host, port);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof URL)) return false;
+        if (o instanceof ImmutableURL && hash != ((ImmutableURL) o).hash) return false;
+
+        URL url = (URL) o;
+        return port == url.getPort()
+                && StringUtils.equals(protocol, url.getProtocol())
+                && StringUtils.equals(host, url.getHost())
+                && StringUtils.equals(path, url.getPath())
+                && parameters.equals(url.getParameters());
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    private UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("ImmutableURL cannot be modified, use ImmutableURL.builder(url) instead");
+    }
+
+    /**
+     * Build an ImmutableURL. The parameter methods follow the same rules as the setters of URLImpl.
+     */
+    public static final class Builder {
+        private String protocol;
+        private String host;
+        private int port;
+        private String path;
+        private final Map<String, String> parameters = new HashMap<>();
+
+        private Builder() {
+        }
+
+        private Builder(URL url) {
+            this.protocol = url.getProtocol();
+            this.host = url.getHost();
+            this.port = url.getPort() == null ? 0 : url.getPort();
+            this.path = url.getPath();
+            if (url.getParameters() != null) {
+                this.parameters.putAll(url.getParameters());
+            }
+        }
+
+        public Builder protocol(String protocol) {
+            this.protocol = protocol;
+            return this;
+        }
+
+        public Builder host(String host) {
+            this.host = host;
+            return this;
+        }
+
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder path(String path) {
+            this.path = path;
+            return this;
+        }
+
+        public Builder parameters(Map<String, String> parameters) {
+            this.parameters.clear();
+            if (parameters != null) {
+                this.parameters.putAll(parameters);
+            }
+            return this;
+        }
+
+        public Builder addParameter(String name, String value) {
+            if (StringUtils.isEmpty(name) || StringUtils.isEmpty(value)) {
+                return this;
+            }
+            parameters.put(name, value);
+            return this;
+        }
+
+        public Builder addParameterIfAbsent(String name, String value) {
+            if (StringUtils.isNotBlank(parameters.get(name))) {
+                return this;
+            }
+            parameters.put(name, value);
+            return this;
+        }
+
+        public Builder removeParameter(String name) {
+            if (name != null) {
+                parameters.remove(name);
+            }
+            return this;
+        }
+
+        public ImmutableURL build() {
+            return new ImmutableURL(this);
+        }
+    }
+}
@@ -92,7 +92,7 @@ public class URLImpl implements URL {
         return new URLImpl(protocol, host, port, path, parameters);
     }
 
-    private static String buildHostPortStr(String host, int defaultPort) {
+    static String buildHostPortStr(String host, int defaultPort) {
         if (defaultPort <= 0) {
             return host;
         }
@@ -389,11 +389,11 @@ public class URLImpl implements URL {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (!(o instanceof URL)) return false;
 
-        URLImpl url = (URLImpl) o;
+        URL url = (URL) o;
 
-        if (port != url.getPort()) return false;
+        if (url.getPort() == null || port != url.getPort()) return false;
         if (protocol != null ? !protocol.equals(url.getProtocol()) : url.getProtocol() != null) return false;
         if (host != null ? !host.equals(url.getHost()) : url.getHost() != null) return false;
         if (path != null ? !path.equals(url.getPath()) : url.getPath() != null) return false;
@@ -403,13 +403,8 @@ public class URLImpl implements URL {
 
     @Override
     public int hashCode() {
-        int result = protocol != null ? protocol.hashCode() : 0;
-        result = 31 * result + (host != null ? host.hashCode() : 0);
-        result = 31 * result + port;
-        result = 31 * result + (path != null ? path.hashCode() : 0);
-        result = 31 * result + (parameters != null ? parameters.hashCode() : 0);
-        result = 31 * result + (numbers != null ? numbers.hashCode() : 0);
-        return result;
+        // same as ImmutableURL so that equal urls of both types have the same hash code.
+        return ImmutableURL.hashCode(protocol, host, port, path, parameters);
     }
 
     private Map<String, Number> getNumbers() {
@@ -104,6 +104,8 @@ public enum URLParamType {
     check("check", "true"), 
     directUrl("directUrl", ""), 
     registrySessionTimeout("registrySessionTimeout", 1 * Constants.MINUTE_MILLS),
+    // local file of the last known services and commands, empty to disable
+    registrySnapshotFile("registrySnapshotFile", ""),
 
     register("register", true), 
     subscribe("subscribe", true), 
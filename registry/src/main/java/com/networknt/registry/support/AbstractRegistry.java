@@ -16,6 +16,7 @@
 
 package com.networknt.registry.support;
 
+import com.networknt.registry.ImmutableURL;
 import com.networknt.utility.Constants;
 import com.networknt.registry.URLParamType;
 import com.networknt.registry.NotifyListener;
@@ -34,7 +35,8 @@ import java.util.concurrent.ConcurrentHashMap;
  * <pre>
  * Abstract registry。
  *
- * Use url createCopy to prevent object modification in multi-thread env
+ * Urls are converted to ImmutableURL once and shared afterwards, so they are not copied to
+ * prevent object modification in multi-thread env.
  *
  * </pre>
  *
@@ -52,7 +54,7 @@ abstract class AbstractRegistry implements Registry {
     protected String registryClassName = this.getClass().getSimpleName();
 
     AbstractRegistry(URL url) {
-        this.registryUrl = url.createCopy();
+        this.registryUrl = ImmutableURL.of(url);
         // register a heartbeat switcher to perceive service state change and change available state
         SwitcherUtil.registerSwitcherListener(Constants.REGISTRY_HEARTBEAT_SWITCHER, new SwitcherListener() {
 
@@ -77,7 +79,7 @@ abstract class AbstractRegistry implements Registry {
         }
         if(logger.isInfoEnabled()) logger.info("[{}] Url ({}) will register to Registry [{}]",
                 registryClassName, url, registryUrl.getIdentity());
-        doRegister(removeUnnecessaryParmas(url.createCopy()));
+        doRegister(removeUnnecessaryParmas(url));
         registeredServiceUrls.add(url);
         // available if heartbeat switcher already open
         if (SwitcherUtil.isOpen(Constants.REGISTRY_HEARTBEAT_SWITCHER)) {
@@ -93,7 +95,7 @@ abstract class AbstractRegistry implements Registry {
         }
         if(logger.isInfoEnabled()) logger.info("[{}] Url ({}) will unregister to Registry [{}]",
                 registryClassName, url, registryUrl.getIdentity());
-        doUnregister(removeUnnecessaryParmas(url.createCopy()));
+        doUnregister(removeUnnecessaryParmas(url));
         registeredServiceUrls.remove(url);
     }
 
@@ -106,7 +108,7 @@ abstract class AbstractRegistry implements Registry {
         }
         if(logger.isInfoEnabled()) logger.info("[{}] Listener ({}) will subscribe to url ({}) in Registry [{}]",
                 registryClassName, listener, url, registryUrl.getIdentity());
-        doSubscribe(url.createCopy(), listener);
+        doSubscribe(ImmutableURL.of(url), listener);
     }
 
     @Override
@@ -117,7 +119,7 @@ abstract class AbstractRegistry implements Registry {
         }
         if(logger.isInfoEnabled()) logger.info("[{}] Listener ({}) will unsubscribe from url ({}) in Registry [{}]",
                 registryClassName, listener, url, registryUrl.getIdentity());
-        doUnsubscribe(url.createCopy(), listener);
+        doUnsubscribe(ImmutableURL.of(url), listener);
     }
 
     @SuppressWarnings("unchecked")
@@ -127,21 +129,21 @@ abstract class AbstractRegistry implements Registry {
             logger.warn("[{}] discover with malformed param, refUrl is null", registryClassName);
             return Collections.EMPTY_LIST;
         }
-        url = url.createCopy();
+        url = ImmutableURL.of(url);
         List<URL> results = new ArrayList<>();
 
         Map<String, List<URL>> categoryUrls = subscribedCategoryResponses.get(url);
         if (categoryUrls != null && categoryUrls.size() > 0) {
             for (List<URL> urls : categoryUrls.values()) {
                 for (URL tempUrl : urls) {
-                    results.add(tempUrl.createCopy());
+                    results.add(ImmutableURL.of(tempUrl));
                 }
             }
         } else {
             List<URL> urlsDiscovered = doDiscover(url);
             if (urlsDiscovered != null) {
                 for (URL u : urlsDiscovered) {
-                    results.add(u.createCopy());
+                    results.add(ImmutableURL.of(u));
                 }
             }
         }
@@ -163,7 +165,7 @@ abstract class AbstractRegistry implements Registry {
         if(logger.isInfoEnabled()) logger.info("[{}] Url ({}) will set to available to Registry [{}]",
                 registryClassName, url, registryUrl.getIdentity());
         if (url != null) {
-            doAvailable(removeUnnecessaryParmas(url.createCopy()));
+            doAvailable(removeUnnecessaryParmas(url));
         } else {
             doAvailable(null);
         }
@@ -174,7 +176,7 @@ abstract class AbstractRegistry implements Registry {
         if(logger.isInfoEnabled()) logger.info("[{}] Url ({}) will set to unavailable to Registry [{}]",
                 registryClassName, url, registryUrl.getIdentity());
         if (url != null) {
-            doUnavailable(removeUnnecessaryParmas(url.createCopy()));
+            doUnavailable(removeUnnecessaryParmas(url));
         } else {
             doUnavailable(null);
         }
@@ -189,7 +191,7 @@ abstract class AbstractRegistry implements Registry {
         List<URL> urls = new ArrayList<>();
         for (List<URL> us : rsUrls.values()) {
             for (URL tempUrl : us) {
-                urls.add(tempUrl.createCopy());
+                urls.add(ImmutableURL.of(tempUrl));
             }
         }
         return urls;
@@ -264,8 +266,11 @@ abstract class AbstractRegistry implements Registry {
      * @param url a URL object
      */
     private URL removeUnnecessaryParmas(URL url) {
-        url.getParameters().remove(URLParamType.codec.getName());
-        return url;
+        ImmutableURL immutableUrl = ImmutableURL.of(url);
+        if (!immutableUrl.getParameters().containsKey(URLParamType.codec.getName())) {
+            return immutableUrl;
+        }
+        return ImmutableURL.intern(immutableUrl.toBuilder().removeParameter(URLParamType.codec.getName()).build());
     }
 
     protected abstract void doRegister(URL url);
@@ -15,7 +15,7 @@
  */
 package com.networknt.registry.support;
 
-import com.networknt.registry.URLImpl;
+import com.networknt.registry.ImmutableURL;
 import com.networknt.status.Status;
 import com.networknt.utility.Constants;
 import com.networknt.exception.FrameworkException;
@@ -45,10 +45,10 @@ public class DirectRegistry extends AbstractRegistry {
                 if(entry.getValue().contains(",")) {
                     String[] directUrlArray = entry.getValue().split(",");
                     for (String directUrl : directUrlArray) {
-                        urls.add(URLImpl.valueOf(directUrl + "/" + entry.getKey()));
+                        urls.add(ImmutableURL.valueOf(directUrl + "/" + entry.getKey()));
                     }
                 } else {
-                    urls.add(URLImpl.valueOf(entry.getValue() + "/" + entry.getKey()));
+                    urls.add(ImmutableURL.valueOf(entry.getValue() + "/" + entry.getKey()));
                 }
             } catch (Exception e) {
                 throw new FrameworkException(new Status(PARSE_DIRECT_URL_ERROR, url.toString()));
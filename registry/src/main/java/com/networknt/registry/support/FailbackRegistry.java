@@ -15,6 +15,7 @@
  */
 package com.networknt.registry.support;
 
+import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -58,8 +59,12 @@ public abstract class FailbackRegistry extends AbstractRegistry {
 
     private static ScheduledExecutorService retryExecutor = Executors.newScheduledThreadPool(1);
 
+    private final RegistrySnapshot snapshot;
+
     public FailbackRegistry(URL url) {
         super(url);
+        String snapshotFile = url.getParameter(URLParamType.registrySnapshotFile.getName(), URLParamType.registrySnapshotFile.getValue());
+        snapshot = snapshotFile.isEmpty() ? null : new RegistrySnapshot(Paths.get(snapshotFile), retryExecutor);
         long retryPeriod = url.getIntParameter(URLParamType.registryRetryPeriod.getName(), URLParamType.registryRetryPeriod.getIntValue());
         retryExecutor.scheduleAtFixedRate(new Runnable() {
             @Override
@@ -112,6 +117,9 @@ public abstract class FailbackRegistry extends AbstractRegistry {
             super.subscribe(url, listener);
         } catch (Exception e) {
             List<URL> cachedUrls = getCachedUrls(url);
+            if ((cachedUrls == null || cachedUrls.size() == 0) && snapshot != null) {
+                cachedUrls = snapshot.getUrls(url);
+            }
             if (cachedUrls != null && cachedUrls.size() > 0) {
                 listener.notify(getUrl(), cachedUrls);
             } else if (isCheckingUrls(getUrl(), url)) {
@@ -142,12 +150,34 @@ public abstract class FailbackRegistry extends AbstractRegistry {
         try {
             return super.discover(url);
         } catch (Exception e) {
-            // If discover fails, return an empty list
+            // If discover fails, return the last known urls or an empty list
             logger.error(String.format("Failed to discover url:%s in registry (%s)", url, getUrl()), e);
-            return Collections.EMPTY_LIST;
+            List<URL> snapshotUrls = snapshot == null ? null : snapshot.getUrls(url);
+            return snapshotUrls != null ? snapshotUrls : Collections.EMPTY_LIST;
         }
     }
 
+    /**
+     * Keep the notified urls in the snapshot as well so that they survive a restart.
+     */
+    @Override
+    protected void notify(URL refUrl, NotifyListener listener, List<URL> urls) {
+        super.notify(refUrl, listener, urls);
+        if (snapshot != null && urls != null) {
+            List<URL> cachedUrls = getCachedUrls(refUrl);
+            if (cachedUrls != null) {
+                snapshot.putUrls(refUrl, cachedUrls);
+            }
+        }
+    }
+
+    /**
+     * @return the snapshot of the last known services and commands, or null if it is disabled
+     */
+    public RegistrySnapshot getSnapshot() {
+        return snapshot;
+    }
+
     private boolean isCheckingUrls(URL... urls) {
         for (URL url : urls) {
             if (!Boolean.parseBoolean(url.getParameter(URLParamType.check.getName(), URLParamType.check.getValue()))) {
@@ -0,0 +1,261 @@
+package com.networknt.registry.support;
+
+import com.networknt.registry.ImmutableURL;
+import com.networknt.registry.URL;
+import com.networknt.utility.GaugeRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The last known urls and commands of the subscribed services, persisted to a local file. The file
+ * is loaded when the registry is created, so that a process that starts while the registry is not
+ * reachable can still discover the services it called before. The urls are served from the
+ * snapshot only if the live registry fails, and the retry of the failback registry replaces them
+ * once the registry is back.
+ *
+ * Each change is written to the file in the background. Changes within WRITE_DELAY milliseconds
+ * are written once, to a temporary file that is then moved over the old one, so a crash never
+ * leaves a partial snapshot behind.
+ *
+ * The file is a compact binary format: magic, version, the time the data was received from the
+ * registry, the urls per service and the commands per service. A length or count that doesn't fit
+ * in the rest of the file means the format is unknown, so a corrupted file is never trusted to
+ * size an allocation.
+ */
+public class RegistrySnapshot {
+    private static final Logger logger = LoggerFactory.getLogger(RegistrySnapshot.class);
+
+    static final int MAGIC = 0x4c525353;
+    static final int VERSION = 1;
+    static final long WRITE_DELAY = 100;
+
+    private static final LongAdder servedCount = new LongAdder();
+    private static volatile long lastUpdated;
+
+    static {
+        GaugeRegistry.register("registry_snapshot_age_ms", RegistrySnapshot::getSnapshotAge);
+        GaugeRegistry.register("registry_snapshot_served", RegistrySnapshot::getServedCount);
+    }
+
+    private final Path file;
+    private final ScheduledExecutorService executor;
+    private final ConcurrentHashMap<String, List<URL>> services = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> commands = new ConcurrentHashMap<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile long updated;
+
+    /**
+     * @param file the snapshot file, it is loaded if it exists
+     * @param executor executes the writes to the file
+     */
+    public RegistrySnapshot(Path file, ScheduledExecutorService executor) {
+        this.file = file;
+        this.executor = executor;
+        load();
+    }
+
+    /**
+     * @return the milliseconds since the most recent snapshot was received from the registry, or -1 if
+     * there is no snapshot.
+     */
+    public static long getSnapshotAge() {
+        long time = lastUpdated;
+        return time == 0 ? -1 : System.currentTimeMillis() - time;
+    }
+
+    /**
+     * @return the number of times urls or commands are served from a snapshot instead of the registry.
+     */
+    public static long getServedCount() {
+        return servedCount.sum();
+    }
+
+    /**
+     * @param url the subscribed url
+     * @return the last known urls of the service, or null if there is none
+     */
+    public List<URL> getUrls(URL url) {
+        List<URL> urls = services.get(url.getIdentity());
+        if (urls != null) {
+            servedCount.increment();
+            if(logger.isWarnEnabled()) logger.warn("serve {} from registry snapshot, age: {}ms", url, getAge());
+        }
+        return urls;
+    }
+
+    /**
+     * @param url the subscribed url
+     * @return the last known command of the service, or null if there is none
+     */
+    public String getCommand(URL url) {
+        String command = commands.get(url.getIdentity());
+        if (command != null) {
+            servedCount.increment();
+            if(logger.isWarnEnabled()) logger.warn("serve command of {} from registry snapshot, age: {}ms", url, getAge());
+        }
+        return command;
+    }
+
+    public void putUrls(URL url, List<URL> urls) {
+        List<URL> immutableUrls = new ArrayList<>(urls.size());
+        for (URL u : urls) {
+            immutableUrls.add(ImmutableURL.of(u));
+        }
+        services.put(url.getIdentity(), Collections.unmodifiableList(immutableUrls));
+        changed();
+    }
+
+    public void putCommand(URL url, String command) {
+        if (command == null || command.equals(commands.put(url.getIdentity(), command))) {
+            return;
+        }
+        changed();
+    }
+
+    long getAge() {
+        return updated == 0 ? -1 : System.currentTimeMillis() - updated;
+    }
+
+    private void changed() {
+        updated = System.currentTimeMillis();
+        lastUpdated = updated;
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.schedule(this::flush, WRITE_DELAY, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+            }
+        }
+    }
+
+    private void flush() {
+        scheduled.set(false);
+        try {
+            save();
+        } catch (IOException e) {
+            logger.error("Failed to write registry snapshot " + file, e);
+        }
+    }
+
+    void save() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(updated);
+            Map<String, List<URL>> servicesCopy = new ConcurrentHashMap<>(services);
+            out.writeInt(servicesCopy.size());
+            for (Map.Entry<String, List<URL>> entry : servicesCopy.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (URL url : entry.getValue()) {
+                    writeString(out, url.toFullStr());
+                }
+            }
+            Map<String, String> commandsCopy = new ConcurrentHashMap<>(commands);
+            out.writeInt(commandsCopy.size());
+            for (Map.Entry<String, String> entry : commandsCopy.entrySet()) {
+                writeString(out, entry.getKey());
+                writeString(out, entry.getValue());
+            }
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            long size = Files.size(file);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new UnknownFormatException();
+            }
+            long time = in.readLong();
+            int serviceCount = readLength(in, size);
+            for (int i = 0; i < serviceCount; i++) {
+                String key = readString(in, size);
+                int urlCount = readLength(in, size);
+                List<URL> urls = new ArrayList<>(urlCount);
+                for (int j = 0; j < urlCount; j++) {
+                    urls.add(ImmutableURL.valueOf(readString(in, size)));
+                }
+                services.put(key, Collections.unmodifiableList(urls));
+            }
+            int commandCount = readLength(in, size);
+            for (int i = 0; i < commandCount; i++) {
+                String key = readString(in, size);
+                commands.put(key, readString(in, size));
+            }
+            updated = time;
+            if (time > lastUpdated) lastUpdated = time;
+            if(logger.isInfoEnabled()) logger.info("Loaded registry snapshot {} with {} services and {} commands in {}ms, age: {}ms",
+                    file, services.size(), commands.size(), System.currentTimeMillis() - start, getAge());
+        } catch (UnknownFormatException e) {
+            services.clear();
+            commands.clear();
+            logger.warn("Ignore registry snapshot {} with unknown format", file);
+        } catch (Exception e) {
+            services.clear();
+            commands.clear();
+            logger.error("Failed to load registry snapshot " + file, e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in, long size) throws IOException {
+        byte[] bytes = new byte[readLength(in, size)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read a length or a count. Each byte or entry takes at least one byte of the file, so a value
+     * beyond the file size can only come from a corrupted file.
+     */
+    private static int readLength(DataInputStream in, long size) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > size) {
+            throw new UnknownFormatException();
+        }
+        return length;
+    }
+
+    private static class UnknownFormatException extends IOException {
+    }
+}
@@ -22,6 +22,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 
+import com.networknt.registry.ImmutableURL;
 import com.networknt.registry.NotifyListener;
 import com.networknt.registry.support.FailbackRegistry;
 import com.networknt.registry.URL;
@@ -41,7 +42,7 @@ public abstract class CommandFailbackRegistry extends FailbackRegistry {
     @Override
     protected void doSubscribe(URL url, final NotifyListener listener) {
         if(logger.isInfoEnabled()) logger.info("CommandFailbackRegistry subscribe. url: " + url.toSimpleString());
-        URL urlCopy = url.createCopy();
+        URL urlCopy = ImmutableURL.of(url);
         CommandServiceManager manager = getCommandServiceManager(urlCopy);
         manager.addNotifyListener(listener);
 
@@ -57,7 +58,7 @@ public abstract class CommandFailbackRegistry extends FailbackRegistry {
     @Override
     protected void doUnsubscribe(URL url, NotifyListener listener) {
         if(logger.isInfoEnabled()) logger.info("CommandFailbackRegistry unsubscribe. url: " + url.toSimpleString());
-        URL urlCopy = url.createCopy();
+        URL urlCopy = ImmutableURL.of(url);
         CommandServiceManager manager = commandManagerMap.get(urlCopy);
 
         manager.removeNotifyListener(listener);
@@ -71,8 +72,16 @@ public abstract class CommandFailbackRegistry extends FailbackRegistry {
         if(logger.isInfoEnabled()) logger.info("CommandFailbackRegistry discover. url: " + url.toSimpleString());
         List<URL> finalResult;
 
-        URL urlCopy = url.createCopy();
-        String commandStr = discoverCommand(urlCopy);
+        URL urlCopy = ImmutableURL.of(url);
+        String commandStr;
+        try {
+            commandStr = discoverCommand(urlCopy);
+            if (getSnapshot() != null) getSnapshot().putCommand(urlCopy, commandStr);
+        } catch (RuntimeException e) {
+            // use the last known command if the registry is not available.
+            commandStr = getSnapshot() == null ? null : getSnapshot().getCommand(urlCopy);
+            if (commandStr == null) throw e;
+        }
         RpcCommand rpcCommand = null;
         if (StringUtils.isNotEmpty(commandStr)) {
             rpcCommand = RpcCommandUtil.stringToCommand(commandStr);
@@ -102,7 +111,7 @@ public abstract class CommandFailbackRegistry extends FailbackRegistry {
 
     public List<URL> commandPreview(URL url, RpcCommand rpcCommand, String previewIP) {
         List<URL> finalResult;
-        URL urlCopy = url.createCopy();
+        URL urlCopy = ImmutableURL.of(url);
 
         if (rpcCommand != null) {
             CommandServiceManager manager = getCommandServiceManager(urlCopy);
@@ -26,14 +26,15 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
-import com.networknt.registry.URLImpl;
 import com.networknt.status.Status;
 import org.apache.commons.lang3.StringUtils;
 
+import com.networknt.registry.ImmutableURL;
 import com.networknt.registry.URLParamType;
 import com.networknt.exception.FrameworkException;
 import com.networknt.registry.NotifyListener;
 import com.networknt.registry.URL;
+import com.networknt.registry.support.RegistrySnapshot;
 import com.networknt.utility.CollectionUtil;
 import com.networknt.utility.ConcurrentHashSet;
 import com.networknt.switcher.SwitcherUtil;
@@ -78,7 +79,7 @@ public class CommandServiceManager implements CommandListener, ServiceListener {
             throw new FrameworkException(new Status(REGISTRY_IS_NULL));
         }
 
-        URL urlCopy = serviceUrl.createCopy();
+        URL urlCopy = ImmutableURL.of(serviceUrl);
         String groupName = urlCopy.getParameter(URLParamType.group.getName(), URLParamType.group.getValue());
         groupServiceCache.put(groupName, urls);
 
@@ -92,6 +93,7 @@ public class CommandServiceManager implements CommandListener, ServiceListener {
             finalResult.addAll(discoverOneGroup(refUrl));
         }
 
+        saveSnapshot(finalResult, null);
         for (NotifyListener notifyListener : notifySet) {
             notifyListener.notify(registry.getUrl(), finalResult);
         }
@@ -108,7 +110,7 @@ public class CommandServiceManager implements CommandListener, ServiceListener {
         }
 
         List<URL> finalResult = new ArrayList<URL>();
-        URL urlCopy = serviceUrl.createCopy();
+        ImmutableURL urlCopy = ImmutableURL.of(serviceUrl);
 
         if (!StringUtils.equals(commandString, commandStringCache)) {
             commandStringCache = commandString;
@@ -134,8 +136,7 @@ public class CommandServiceManager implements CommandListener, ServiceListener {
             for (String gk : groupKeys) {
                 if (!weights.containsKey(gk)) {
                     groupServiceCache.remove(gk);
-                    URL urlTemp = urlCopy.createCopy();
-                    urlTemp.addParameter(URLParamType.group.getName(), gk);
+                    URL urlTemp = urlCopy.toBuilder().addParameter(URLParamType.group.getName(), gk).build();
                     registry.unsubscribeService(urlTemp, this);
                 }
             }
@@ -145,6 +146,7 @@ public class CommandServiceManager implements CommandListener, ServiceListener {
             return;
         }
 
+        saveSnapshot(finalResult, commandString);
         for (NotifyListener notifyListener : notifySet) {
             notifyListener.notify(registry.getUrl(), finalResult);
         }
@@ -292,21 +294,20 @@ public class CommandServiceManager implements CommandListener, ServiceListener {
 
         if (weights.size() > 1) {
             // construct a rule url with all groups and added as first
-            URL ruleUrl = new URLImpl("rule", url.getHost(), url.getPort(), url.getPath());
+            ImmutableURL.Builder ruleUrl = ImmutableURL.builder().protocol("rule").host(url.getHost()).port(url.getPort()).path(url.getPath());
             StringBuilder weightsBuilder = new StringBuilder(64);
             for (Map.Entry<String, Integer> entry : weights.entrySet()) {
                 weightsBuilder.append(entry.getKey()).append(':').append(entry.getValue()).append(',');
             }
             ruleUrl.addParameter(URLParamType.weights.getName(), weightsBuilder.deleteCharAt(weightsBuilder.length() - 1).toString());
-            finalResult.add(ruleUrl);
+            finalResult.add(ruleUrl.build());
         }
 
         for (String key : weights.keySet()) {
             if (groupServiceCache.containsKey(key)) {
                 finalResult.addAll(groupServiceCache.get(key));
             } else {
-                URL urlTemp = url.createCopy();
-                urlTemp.addParameter(URLParamType.group.getName(), key);
+                URL urlTemp = ImmutableURL.builder(url).addParameter(URLParamType.group.getName(), key).build();
                 finalResult.addAll(discoverOneGroup(urlTemp));
                 registry.subscribeService(urlTemp, this);
             }
@@ -314,6 +315,14 @@ public class CommandServiceManager implements CommandListener, ServiceListener {
         return finalResult;
     }
 
+    private void saveSnapshot(List<URL> urls, String commandString) {
+        RegistrySnapshot snapshot = registry.getSnapshot();
+        if (snapshot != null) {
+            snapshot.putUrls(refUrl, urls);
+            snapshot.putCommand(refUrl, commandString);
+        }
+    }
+
     private List<URL> discoverOneGroup(URL urlCopy) {
         if(logger.isInfoEnabled()) logger.info("CommandServiceManager discover one group. url:" + urlCopy.toSimpleString());
         String group = urlCopy.getParameter(URLParamType.group.getName(), URLParamType.group.getValue());
@@ -0,0 +1,80 @@
+package com.networknt.registry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class ImmutableURLTest {
+    @Test
+    public void testValueOf() {
+        URL url = ImmutableURL.valueOf("http://localhost:8080/config?key1=value1&key3=10&nodeType=service&version=1.0");
+        Assert.assertEquals("http", url.getProtocol());
+        Assert.assertEquals("localhost", url.getHost());
+        Assert.assertEquals(8080, (int)url.getPort());
+        Assert.assertEquals("config", url.getPath());
+        Assert.assertEquals("value1", url.getParameter("key1"));
+        Assert.assertEquals(10, (int)url.getIntParameter("key3", 0));
+        Assert.assertEquals(5, (int)url.getIntParameter("key4", 5));
+        Assert.assertEquals("http://localhost:8080/config", url.getUri());
+        Assert.assertEquals("http://localhost:8080/default/config/1.0/service", url.getIdentity());
+        Assert.assertSame(url.getIdentity(), url.getIdentity());
+        Assert.assertSame(url.toFullStr(), url.toFullStr());
+    }
+
+    @Test
+    public void testIntern() {
+        ImmutableURL url1 = ImmutableURL.valueOf("light://127.0.0.1:7001/com.networknt.apia-1.0.0?group=aaa");
+        ImmutableURL url2 = ImmutableURL.valueOf("light://127.0.0.1:7001/com.networknt.apia-1.0.0?group=aaa");
+        Assert.assertSame(url1, url2);
+        Assert.assertSame(url1, ImmutableURL.of(url1));
+        Assert.assertSame(url1, url1.createCopy());
+        Assert.assertNotSame(url1, ImmutableURL.valueOf("light://127.0.0.1:7002/com.networknt.apia-1.0.0?group=aaa"));
+    }
+
+    @Test
+    public void testEqualsURLImpl() {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("group", "aaa");
+        URL mutable = new URLImpl("light", "127.0.0.1", 7001, "com.networknt.apia-1.0.0", parameters);
+        URL immutable = ImmutableURL.of(mutable);
+        Assert.assertEquals(mutable, immutable);
+        Assert.assertEquals(immutable, mutable);
+        Assert.assertEquals(mutable.hashCode(), immutable.hashCode());
+
+        // the mutable url doesn't change the immutable one.
+        mutable.addParameter("group", "bbb");
+        Assert.assertEquals("aaa", immutable.getGroup());
+        Assert.assertNotEquals(mutable, immutable);
+    }
+
+    @Test
+    public void testBuilder() {
+        ImmutableURL url = ImmutableURL.builder()
+                .protocol("light")
+                .host("127.0.0.1")
+                .port(7001)
+                .path("com.networknt.apia-1.0.0")
+                .addParameter("codec", "light")
+                .addParameter("empty", "")
+                .build();
+        Assert.assertFalse(url.hasParameter("empty"));
+
+        ImmutableURL derived = url.toBuilder().removeParameter("codec").addParameterIfAbsent("group", "aaa").build();
+        Assert.assertEquals("light", url.getParameter("codec"));
+        Assert.assertNull(derived.getParameter("codec"));
+        Assert.assertEquals("aaa", derived.getGroup());
+        Assert.assertEquals(url.getUri(), derived.getUri());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSetter() {
+        ImmutableURL.valueOf("http://localhost:8080/config").addParameter("key", "value");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testParameters() {
+        ImmutableURL.valueOf("http://localhost:8080/config").getParameters().put("key", "value");
+    }
+}
@@ -0,0 +1,147 @@
+package com.networknt.registry.support;
+
+import com.networknt.registry.ImmutableURL;
+import com.networknt.registry.NotifyListener;
+import com.networknt.registry.URL;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class RegistrySnapshotTest {
+    static final URL subscribeUrl = ImmutableURL.valueOf("light://localhost/com.networknt.apia-1.0.0");
+    static final List<URL> serviceUrls = Arrays.asList(
+            ImmutableURL.valueOf("http://127.0.0.1:7001/com.networknt.apia-1.0.0"),
+            ImmutableURL.valueOf("http://127.0.0.1:7002/com.networknt.apia-1.0.0?group=aaa&weight=10"));
+
+    ScheduledExecutorService executor;
+    Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        file = Files.createTempDirectory("registry-snapshot").resolve("snapshot.bin");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.getParent());
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        RegistrySnapshot snapshot = new RegistrySnapshot(file, executor);
+        Assert.assertNull(snapshot.getUrls(subscribeUrl));
+        snapshot.putUrls(subscribeUrl, serviceUrls);
+        snapshot.putCommand(subscribeUrl, "{\"index\":1}");
+        snapshot.save();
+
+        RegistrySnapshot loaded = new RegistrySnapshot(file, executor);
+        Assert.assertEquals(serviceUrls, loaded.getUrls(subscribeUrl));
+        Assert.assertEquals(10, (int)loaded.getUrls(subscribeUrl).get(1).getIntParameter("weight", 0));
+        Assert.assertEquals("{\"index\":1}", loaded.getCommand(subscribeUrl));
+        Assert.assertTrue(loaded.getAge() >= 0);
+        Assert.assertTrue(RegistrySnapshot.getSnapshotAge() >= 0);
+    }
+
+    @Test
+    public void testWriteInBackground() throws Exception {
+        RegistrySnapshot snapshot = new RegistrySnapshot(file, executor);
+        snapshot.putUrls(subscribeUrl, serviceUrls);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Files.exists(file) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(serviceUrls, new RegistrySnapshot(file, executor).getUrls(subscribeUrl));
+    }
+
+    @Test
+    public void testIgnoreCorruptedFile() throws Exception {
+        Files.write(file, "not a snapshot".getBytes());
+        RegistrySnapshot snapshot = new RegistrySnapshot(file, executor);
+        Assert.assertNull(snapshot.getUrls(subscribeUrl));
+        Assert.assertEquals(-1, snapshot.getAge());
+    }
+
+    @Test
+    public void testIgnoreOversizedLength() throws Exception {
+        RegistrySnapshot snapshot = new RegistrySnapshot(file, executor);
+        snapshot.putUrls(subscribeUrl, serviceUrls);
+        snapshot.save();
+        // the length of the first service key is corrupted to a size no file can hold.
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(20, Integer.MAX_VALUE);
+        Files.write(file, bytes);
+
+        RegistrySnapshot loaded = new RegistrySnapshot(file, executor);
+        Assert.assertNull(loaded.getUrls(subscribeUrl));
+        Assert.assertEquals(-1, loaded.getAge());
+    }
+
+    @Test
+    public void testServeWhenRegistryIsDown() throws Exception {
+        RegistrySnapshot snapshot = new RegistrySnapshot(file, executor);
+        snapshot.putUrls(subscribeUrl, serviceUrls);
+        snapshot.save();
+
+        URL registryUrl = ImmutableURL.valueOf("light://localhost:8500/?registrySnapshotFile=" + file.toString());
+        FailbackRegistry registry = new UnavailableRegistry(registryUrl);
+        long served = RegistrySnapshot.getServedCount();
+        List<URL> notified = new ArrayList<>();
+        NotifyListener listener = (registryUrl1, urls) -> notified.addAll(urls);
+        registry.subscribe(subscribeUrl, listener);
+        Assert.assertEquals(serviceUrls, notified);
+        Assert.assertEquals(serviceUrls, registry.discover(subscribeUrl));
+        Assert.assertEquals(served + 2, RegistrySnapshot.getServedCount());
+    }
+
+    static class UnavailableRegistry extends FailbackRegistry {
+        UnavailableRegistry(URL url) {
+            super(url);
+        }
+
+        @Override
+        protected void doRegister(URL url) {
+            throw new IllegalStateException("registry is down");
+        }
+
+        @Override
+        protected void doUnregister(URL url) {
+            throw new IllegalStateException("registry is down");
+        }
+
+        @Override
+        protected void doSubscribe(URL url, NotifyListener listener) {
+            throw new IllegalStateException("registry is down");
+        }
+
+        @Override
+        protected void doUnsubscribe(URL url, NotifyListener listener) {
+            throw new IllegalStateException("registry is down");
+        }
+
+        @Override
+        protected List<URL> doDiscover(URL url) {
+            throw new IllegalStateException("registry is down");
+        }
+
+        @Override
+        protected void doAvailable(URL url) {
+        }
+
+        @Override
+        protected void doUnavailable(URL url) {
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.security;
+
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.consumer.InvalidJwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of verified jwt claims keyed by the SHA-256 hash of the token. An entry expires
+ * at the expiration time of the token minus the allowed clock skew, so an expired token is never
+ * served from the cache. The claims are kept as json and each hit returns a new JwtClaims parsed
+ * from it, as the JwtClaims is mutable and must not be shared between requests.
+ *
+ * The cache is split into segments by the hash of the key, and each segment is a LRU map guarded
+ * by its own lock. When a segment is full, the least recently used entry is evicted on insert, so
+ * a new token is always cached and no insert scans the cache.
+ */
+class JwtClaimsCache {
+    private static final int MAX_SEGMENTS = 16;
+    // a segment is not split further if it holds fewer entries than this.
+    private static final int MIN_SEGMENT_SIZE = 64;
+
+    private static final ThreadLocal<MessageDigest> digest = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final Segment[] segments;
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+
+    JwtClaimsCache(int maxSize) {
+        int count = 1;
+        while(count < MAX_SEGMENTS && maxSize / (count * 2) >= MIN_SEGMENT_SIZE) {
+            count *= 2;
+        }
+        segments = new Segment[count];
+        for(int i = 0; i < count; i++) {
+            segments[i] = new Segment(maxSize / count);
+        }
+    }
+
+    static String hash(String jwt) {
+        MessageDigest md = digest.get();
+        md.reset();
+        return Base64.getEncoder().encodeToString(md.digest(jwt.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    JwtClaims get(String key) throws InvalidJwtException {
+        Segment segment = segmentFor(key);
+        long now = System.currentTimeMillis();
+        String json = null;
+        synchronized (segment) {
+            Entry entry = segment.get(key);
+            if(entry != null) {
+                if(entry.expiry > now) {
+                    json = entry.json;
+                } else {
+                    segment.remove(key);
+                }
+            }
+        }
+        if(json == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return JwtClaims.parse(json);
+    }
+
+    void put(String key, JwtClaims claims, long expiry) {
+        if(expiry <= System.currentTimeMillis()) return;
+        Entry entry = new Entry(claims.toJson(), expiry);
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, entry);
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for(Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment segmentFor(String key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    private static class Segment extends LinkedHashMap<String, Entry> {
+        private final int maxSize;
+
+        Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxSize;
+        }
+    }
+
+    private static class Entry {
+        final String json;
+        final long expiry;
+
+        Entry(String json, long expiry) {
+            this.json = json;
+            this.expiry = expiry;
+        }
+    }
+}
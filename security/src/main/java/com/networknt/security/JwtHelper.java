@@ -18,6 +18,7 @@ package com.networknt.security;
 
 import com.networknt.config.Config;
 import com.networknt.exception.ExpiredTokenException;
+import com.networknt.utility.GaugeRegistry;
 import org.jose4j.jws.AlgorithmIdentifiers;
 import org.jose4j.jws.JsonWebSignature;
 import org.jose4j.jwt.JwtClaims;
@@ -42,7 +43,9 @@ import java.security.PrivateKey;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.security.interfaces.RSAPrivateKey;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 
@@ -61,8 +64,21 @@ public class JwtHelper {
     public static final String JWT_CERTIFICATE = "certificate";
     public static final String JwT_CLOCK_SKEW_IN_SECONDS = "clockSkewInSeconds";
     public static final String ENABLE_VERIFY_JWT = "enableVerifyJwt";
+    public static final String JWT_CACHE_SIZE = "cacheSize";
 
     static Map<String, X509Certificate> certMap;
+    // one consumer per kid is built at startup and reused as JwtConsumer is thread safe.
+    static Map<String, JwtConsumer> consumerMap;
+    static JwtConsumer defaultConsumer;
+    static JwtClaimsCache claimsCache;
+    static int secondsOfAllowedClockSkew;
+
+    // first pass consumer that only parses the token to get the kid and expiration time.
+    static final JwtConsumer parseConsumer = new JwtConsumerBuilder()
+            .setSkipAllValidators()
+            .setDisableRequireSignature()
+            .setSkipSignatureVerification()
+            .build();
 
     static Map<String, Object> securityConfig = (Map)Config.getInstance().getJsonMapConfig(SECURITY_CONFIG);
     static Map<String, Object> securityJwtConfig = (Map)securityConfig.get(JWT_CONFIG);
@@ -171,6 +187,34 @@ public class JwtHelper {
             }
             certMap.put(kid, cert);
         }
+        secondsOfAllowedClockSkew = (Integer) securityJwtConfig.get(JwT_CLOCK_SKEW_IN_SECONDS);
+        consumerMap = new HashMap<>();
+        List<X509Certificate> certs = new ArrayList<>();
+        for(Map.Entry<String, X509Certificate> entry: certMap.entrySet()) {
+            if(entry.getValue() != null) {
+                consumerMap.put(entry.getKey(), buildConsumer(entry.getValue()));
+                certs.add(entry.getValue());
+            }
+        }
+        // token without a known kid is verified against all certificates.
+        defaultConsumer = buildConsumer(certs.toArray(new X509Certificate[certs.size()]));
+        Integer cacheSize = (Integer) securityJwtConfig.get(JWT_CACHE_SIZE);
+        if(cacheSize != null && cacheSize > 0) {
+            claimsCache = new JwtClaimsCache(cacheSize);
+        }
+        GaugeRegistry.register("jwt_cache_hit", JwtHelper::getCacheHitCount);
+        GaugeRegistry.register("jwt_cache_miss", JwtHelper::getCacheMissCount);
+    }
+
+    private static JwtConsumer buildConsumer(X509Certificate... certs) {
+        X509VerificationKeyResolver x509VerificationKeyResolver = new X509VerificationKeyResolver(certs);
+        x509VerificationKeyResolver.setTryAllOnNoThumbHeader(true);
+        return new JwtConsumerBuilder()
+                .setRequireExpirationTime()
+                .setAllowedClockSkewInSeconds(secondsOfAllowedClockSkew)
+                .setSkipDefaultAudienceValidation()
+                .setVerificationKeyResolver(x509VerificationKeyResolver)
+                .build();
     }
 
     public static String getJwtFromAuthorization(String authorization) {
@@ -189,22 +233,35 @@ public class JwtHelper {
         return jwt;
     }
 
+    /**
+     * Verify the jwt token and return the claims. Verified claims are cached until the token is
+     * about to expire if cacheSize is set in the jwt section of security.json, so that repeat calls
+     * with the same token skip the signature verification.
+     *
+     * @param jwt the jwt token
+     * @return JwtClaims
+     * @throws InvalidJwtException if the token is invalid
+     * @throws ExpiredTokenException if the token is expired
+     */
     public static JwtClaims verifyJwt(String jwt) throws InvalidJwtException, ExpiredTokenException {
-        JwtClaims claims;
-        JwtConsumer consumer = new JwtConsumerBuilder()
-                .setSkipAllValidators()
-                .setDisableRequireSignature()
-                .setSkipSignatureVerification()
-                .build();
+        String cacheKey = null;
+        if(claimsCache != null) {
+            cacheKey = JwtClaimsCache.hash(jwt);
+            JwtClaims claims = claimsCache.get(cacheKey);
+            if(claims != null) {
+                return claims;
+            }
+        }
 
-        JwtContext jwtContext = consumer.process(jwt);
+        JwtContext jwtContext = parseConsumer.process(jwt);
         JwtClaims jwtClaims = jwtContext.getJwtClaims();
         JsonWebStructure structure = jwtContext.getJoseObjects().get(0);
         String kid = structure.getKeyIdHeaderValue();
 
-        int secondsOfAllowedClockSkew = 30;
+        long expirationTime;
         try {
-            if ((NumericDate.now().getValue() - secondsOfAllowedClockSkew) >= jwtClaims.getExpirationTime().getValue())
+            expirationTime = jwtClaims.getExpirationTime().getValue();
+            if ((NumericDate.now().getValue() - secondsOfAllowedClockSkew) >= expirationTime)
             {
                 logger.info("jwt token is expired!");
                 throw new ExpiredTokenException("Token is expired");
@@ -214,19 +271,29 @@ public class JwtHelper {
             throw new InvalidJwtException("MalformedClaimException", e);
         }
 
-        X509VerificationKeyResolver x509VerificationKeyResolver = new X509VerificationKeyResolver(certMap.get(kid));
-        x509VerificationKeyResolver.setTryAllOnNoThumbHeader(true);
-        consumer = new JwtConsumerBuilder()
-                .setRequireExpirationTime()
-                .setAllowedClockSkewInSeconds(
-                        (Integer) securityJwtConfig.get(JwT_CLOCK_SKEW_IN_SECONDS))
-                .setSkipDefaultAudienceValidation()
-                .setVerificationKeyResolver(x509VerificationKeyResolver)
-                .build();
+        JwtConsumer consumer = kid == null ? null : consumerMap.get(kid);
+        if(consumer == null) {
+            consumer = defaultConsumer;
+        }
+        // Validate the signature and claims of the token that has been parsed in the first pass.
+        consumer.processContext(jwtContext);
+        if(claimsCache != null) {
+            claimsCache.put(cacheKey, jwtClaims, (expirationTime - secondsOfAllowedClockSkew) * 1000);
+        }
+        return jwtClaims;
+    }
 
-        // Validate the JWT and process it to the Claims
-        jwtContext = consumer.process(jwt);
-        claims = jwtContext.getJwtClaims();
-        return claims;
+    /**
+     * @return number of tokens served from the verified claims cache
+     */
+    public static long getCacheHitCount() {
+        return claimsCache == null ? 0 : claimsCache.hits.get();
+    }
+
+    /**
+     * @return number of tokens not found in the verified claims cache
+     */
+    public static long getCacheMissCount() {
+        return claimsCache == null ? 0 : claimsCache.misses.get();
     }
 }
@@ -100,4 +100,47 @@ public class JwtHelperTest {
         System.out.println("jwtClaims = " + claims);
     }
 
+    @Test
+    public void testVerifyJwtFromCache() throws Exception {
+        JwtClaims claims = getTestClaims("steve", "EMPLOYEE", "f7d42348-c647-4efb-a52d-4c5787421e72", Arrays.asList("write:pets", "read:pets"));
+        String jwt = JwtHelper.getJwt(claims);
+        long hits = JwtHelper.getCacheHitCount();
+        JwtClaims first = JwtHelper.verifyJwt(jwt);
+        JwtClaims second = JwtHelper.verifyJwt(jwt);
+        // a hit is a copy of the verified claims, not the instance of another request.
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(first.getClaimsMap(), second.getClaimsMap());
+        Assert.assertEquals(hits + 1, JwtHelper.getCacheHitCount());
+    }
+
+    @Test
+    public void testClaimsCacheExpiry() throws Exception {
+        JwtClaimsCache cache = new JwtClaimsCache(1);
+        JwtClaims claims = new JwtClaims();
+        cache.put("a", claims, System.currentTimeMillis() - 1);
+        Assert.assertNull(cache.get("a"));
+        cache.put("a", claims, System.currentTimeMillis() + 60000);
+        Assert.assertEquals(claims.getClaimsMap(), cache.get("a").getClaimsMap());
+        // full cache evicts the least recently used entry to take the new one.
+        cache.put("b", claims, System.currentTimeMillis() + 60000);
+        Assert.assertEquals(claims.getClaimsMap(), cache.get("b").getClaimsMap());
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testClaimsCacheLru() throws Exception {
+        JwtClaimsCache cache = new JwtClaimsCache(1000);
+        JwtClaims claims = new JwtClaims();
+        long expiry = System.currentTimeMillis() + 60000;
+        cache.put("first", claims, expiry);
+        for(int i = 0; i < 5000; i++) {
+            cache.put("key" + i, claims, expiry);
+            // keep the first entry recently used.
+            Assert.assertEquals(claims.getClaimsMap(), cache.get("first").getClaimsMap());
+        }
+        Assert.assertTrue(cache.size() <= 1000);
+        Assert.assertEquals(claims.getClaimsMap(), cache.get("key4999").getClaimsMap());
+    }
+
 }
@@ -0,0 +1,16 @@
+package com.networknt.server;
+
+import com.networknt.audit.AuditWriter;
+
+/**
+ * Writes out the queued audit records on shutdown. Shutdown hooks are called after the in-flight
+ * requests are drained, so the records of the drained requests are not lost.
+ */
+public class AuditShutdownHookProvider implements ShutdownHookProvider {
+    static final long CLOSE_TIMEOUT = 1000;
+
+    @Override
+    public void onShutdown() {
+        AuditWriter.closeAll(CLOSE_TIMEOUT);
+    }
+}
@@ -24,15 +24,19 @@ import com.networknt.registry.URLImpl;
 import com.networknt.service.SingletonServiceFactory;
 import com.networknt.switcher.SwitcherUtil;
 import com.networknt.utility.Constants;
+import com.networknt.utility.GaugeRegistry;
+import com.networknt.utility.StartupReport;
 import com.networknt.utility.Util;
 import io.undertow.Handlers;
 import io.undertow.Undertow;
 import io.undertow.UndertowOptions;
 import io.undertow.server.HttpHandler;
+import io.undertow.server.handlers.GracefulShutdownHandler;
 import io.undertow.util.Headers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xnio.Options;
+import org.xnio.Sequence;
 
 import javax.net.ssl.*;
 import java.io.IOException;
@@ -44,13 +48,18 @@ import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
 
 
 public class Server {
 
     static final Logger logger = LoggerFactory.getLogger(Server.class);
     static final String CONFIG_NAME = "server";
+    static final String SESSION_TICKET_PROPERTY = "jdk.tls.server.enableSessionTicketExtension";
     public static ServerConfig config = (ServerConfig) Config.getInstance().getJsonObjectConfig(CONFIG_NAME, ServerConfig.class);
 
     public final static TrustManager[] TRUST_ALL_CERTS = new X509TrustManager[] { new DummyTrustManager() };
@@ -62,6 +71,8 @@ public class Server {
     static Registry registry;
 
     static SSLContext sslContext;
+    static WorkerPool workerPool;
+    static GracefulShutdownHandler gracefulShutdownHandler;
 
     public static void main(final String[] args) {
         logger.info("server starts");
@@ -72,59 +83,66 @@ public class Server {
 
     static public void start() {
 
+        StartupOrchestrator startup = new StartupOrchestrator(config.isParallelStartup(), config.getStartupPhaseBudget());
+
         // add shutdown hook here.
         addDaemonShutdownHook();
 
-        // add startup hooks here.
-        final ServiceLoader<StartupHookProvider> startupLoaders = ServiceLoader.load(StartupHookProvider.class);
-        for (final StartupHookProvider provider : startupLoaders) {
-            provider.onStartup();
-        }
+        // config files, keystore and startup hooks are independent of each other.
+        startup.submit("config", () -> {
+            // read all config files in parallel before handlers and hooks load them one by one.
+            Config.getInstance().preload();
+            return null;
+        });
+        final CompletableFuture<SSLContext> sslContextFuture = config.enableHttps ? startup.submit("keystore", Server::createSSLContext) : null;
+
+        // startup hooks may depend on each other, so they run one after another in one phase in
+        // the order they are listed, followed by the service wiring as before.
+        final CompletableFuture<Object> registryFuture = startup.submit("hooks", () -> {
+            final ServiceLoader<StartupHookProvider> startupLoaders = ServiceLoader.load(StartupHookProvider.class);
+            for (final StartupHookProvider provider : startupLoaders) {
+                startup.run("hook:" + provider.getClass().getSimpleName(), provider::onStartup);
+            }
+            // assuming that registry is defined in service.json, otherwise won't start server.
+            return config.enableRegistry ? startup.call("service", () -> SingletonServiceFactory.getBean(Registry.class)) : null;
+        });
+        startup.await();
 
         // application level service registry. only be used without docker container.
         if(config.enableRegistry) {
-            // assuming that registry is defined in service.json, otherwise won't start server.
-            registry = (Registry) SingletonServiceFactory.getBean(Registry.class);
-            if(registry == null) throw new RuntimeException("Could not find registry instance in service map");
-            InetAddress inetAddress = Util.getInetAddress();
-            String ipAddress = inetAddress.getHostAddress();
-            if(config.enableHttp) {
-                serviceHttpUrl = new URLImpl("light", ipAddress, config.getHttpPort(), config.getServiceId());
-                registry.register(serviceHttpUrl);
-                if(logger.isInfoEnabled()) logger.info("register serviceHttpUrl " + serviceHttpUrl);
-            }
-            if(config.enableHttps) {
-                serviceHttpsUrl = new URLImpl("light", ipAddress, config.getHttpsPort(), config.getServiceId());
-                registry.register(serviceHttpsUrl);
-                if(logger.isInfoEnabled()) logger.info("register serviceHttpsUrl " + serviceHttpsUrl);
-            }
+            startup.run("registry", () -> {
+                registry = (Registry) registryFuture.join();
+                if(registry == null) throw new RuntimeException("Could not find registry instance in service map");
+                InetAddress inetAddress = Util.getInetAddress();
+                String ipAddress = inetAddress.getHostAddress();
+                if(config.enableHttp) {
+                    serviceHttpUrl = new URLImpl("light", ipAddress, config.getHttpPort(), config.getServiceId());
+                    registry.register(serviceHttpUrl);
+                    if(logger.isInfoEnabled()) logger.info("register serviceHttpUrl " + serviceHttpUrl);
+                }
+                if(config.enableHttps) {
+                    serviceHttpsUrl = new URLImpl("light", ipAddress, config.getHttpsPort(), config.getServiceId());
+                    registry.register(serviceHttpsUrl);
+                    if(logger.isInfoEnabled()) logger.info("register serviceHttpsUrl " + serviceHttpsUrl);
+                }
+            });
         }
 
-        HttpHandler handler = null;
-
-        // API routing handler or others handler implemented by application developer.
-        final ServiceLoader<HandlerProvider> handlerLoaders = ServiceLoader.load(HandlerProvider.class);
-        for (final HandlerProvider provider : handlerLoaders) {
-            if (provider.getHandler() != null) {
-                handler = provider.getHandler();
-                break;
-            }
-        }
+        HttpHandler handler = startup.call("handler", Server::buildHandler);
         if (handler == null) {
             logger.error("Unable to start the server - no route handler provider available in the classpath");
             return;
         }
 
-        // Middleware Handlers plugged into the handler chain.
-        final ServiceLoader<MiddlewareHandler> middlewareLoaders = ServiceLoader.load(MiddlewareHandler.class);
-        logger.debug("found middlewareLoaders", middlewareLoaders);
-        for (final MiddlewareHandler middlewareHandler : middlewareLoaders) {
-            logger.info("Plugin: " + middlewareHandler.getClass().getName());
-            if(middlewareHandler.isEnabled()) {
-                handler = middlewareHandler.setNext(handler);
-                middlewareHandler.register();
-            }
+        // bounded or virtual worker pool runs the entire handler chain outside of XNIO worker.
+        workerPool = WorkerPool.create(config);
+        if(workerPool != null) {
+            handler = new WorkerDispatchHandler(workerPool, handler);
         }
+        // the gauges report 0 in xnio worker mode.
+        GaugeRegistry.register("worker_queue_depth", () -> workerPool == null ? 0 : workerPool.getQueueDepth());
+        GaugeRegistry.register("worker_active", () -> workerPool == null ? 0 : workerPool.getActiveCount());
+        GaugeRegistry.register("worker_rejected", () -> workerPool == null ? 0L : workerPool.getRejectedCount());
 
         Undertow.Builder builder = Undertow.builder();
 
@@ -132,22 +150,44 @@ public class Server {
             builder.addHttpListener(config.getHttpPort(), config.getIp());
         }
         if(config.enableHttps) {
-            sslContext = createSSLContext();
+            sslContext = sslContextFuture.join();
             builder.addHttpsListener(config.getHttpsPort(), config.getIp(), sslContext);
+            String[] protocols = enabledProtocols(sslContext.getSupportedSSLParameters().getProtocols(), config.getTlsProtocols());
+            if(protocols.length > 0) {
+                builder.setSocketOption(Options.SSL_ENABLED_PROTOCOLS, Sequence.of(protocols));
+            }
+            if(config.getTlsCipherSuites() != null && !config.getTlsCipherSuites().isEmpty()) {
+                builder.setSocketOption(Options.SSL_ENABLED_CIPHER_SUITES, Sequence.of(config.getTlsCipherSuites()));
+            }
+            handler = new TlsSessionHandler(handler);
+        }
+        if(config.isEnableGracefulShutdown()) {
+            // outermost so that requests waiting in the worker pool queue are counted as in-flight.
+            gracefulShutdownHandler = Handlers.gracefulShutdown(handler);
+            handler = gracefulShutdownHandler;
+        }
+        // ALPN on the https listener and h2c upgrade on the http listener.
+        builder.setServerOption(UndertowOptions.ENABLE_HTTP2, config.isEnableHttp2());
+
+        int ioThreads = config.getIoThreads() > 0 ? config.getIoThreads() : Runtime.getRuntime().availableProcessors() * 2; //this seems slightly faster in some configurations
+        int workerThreads = config.getWorkerThreads() > 0 ? config.getWorkerThreads() : WorkerPool.DEFAULT_WORKER_THREADS;
+        if(workerPool != null) {
+            // XNIO worker is only used for internal tasks as requests are dispatched to the worker pool.
+            workerThreads = ioThreads;
         }
 
         server = builder
                 .setBufferSize(1024 * 16)
-                .setIoThreads(Runtime.getRuntime().availableProcessors() * 2) //this seems slightly faster in some configurations
+                .setIoThreads(ioThreads)
                 .setSocketOption(Options.BACKLOG, 10000)
                 .setServerOption(UndertowOptions.ALWAYS_SET_KEEP_ALIVE, false) //don't send a keep-alive header for HTTP/1.1 requests, as it is not required
                 .setServerOption(UndertowOptions.ALWAYS_SET_DATE, true)
                 .setServerOption(UndertowOptions.RECORD_REQUEST_START_TIME, false)
                 .setHandler(Handlers.header(handler,
                         Headers.SERVER_STRING, "Light"))
-                .setWorkerThreads(200)
+                .setWorkerThreads(workerThreads)
                 .build();
-        server.start();
+        startup.run("listener", () -> server.start());
 
         if(logger.isInfoEnabled()) {
             if(config.enableHttp) {
@@ -163,15 +203,65 @@ public class Server {
             SwitcherUtil.setSwitcherValue(Constants.REGISTRY_HEARTBEAT_SWITCHER, true);
             if(logger.isInfoEnabled()) logger.info("Registry heart beat switcher is on");
         }
+        long total = startup.finish();
+        if(logger.isInfoEnabled()) logger.info("Server started in " + total + "ms " + StartupReport.getPhases());
+    }
+
+    /**
+     * Build the handler chain with the route handler and enabled middleware handlers.
+     *
+     * @return the handler chain or null if there is no route handler
+     */
+    static HttpHandler buildHandler() {
+        HttpHandler handler = null;
+
+        // API routing handler or others handler implemented by application developer.
+        final ServiceLoader<HandlerProvider> handlerLoaders = ServiceLoader.load(HandlerProvider.class);
+        for (final HandlerProvider provider : handlerLoaders) {
+            if (provider.getHandler() != null) {
+                handler = provider.getHandler();
+                break;
+            }
+        }
+        if (handler == null) {
+            return null;
+        }
+
+        // Middleware Handlers plugged into the handler chain.
+        final ServiceLoader<MiddlewareHandler> middlewareLoaders = ServiceLoader.load(MiddlewareHandler.class);
+        logger.debug("found middlewareLoaders", middlewareLoaders);
+        for (final MiddlewareHandler middlewareHandler : middlewareLoaders) {
+            logger.info("Plugin: " + middlewareHandler.getClass().getName());
+            if(middlewareHandler.isEnabled()) {
+                handler = middlewareHandler.setNext(handler);
+                middlewareHandler.register();
+            }
+        }
+        return handler;
     }
 
     static public void stop() {
         if (server != null) server.stop();
+        if (workerPool != null) workerPool.shutdown();
+    }
+
+    /**
+     * Return the worker pool if bounded or virtual worker mode is used. It is used by metrics
+     * module to publish queue depth and active worker gauges.
+     *
+     * @return WorkerPool or null in xnio mode
+     */
+    static public WorkerPool getWorkerPool() {
+        return workerPool;
     }
 
     // implement shutdown hook here.
     static public void shutdown() {
 
+        if(config.isEnableGracefulShutdown()) {
+            drain();
+        }
+
         // need to unregister the service
         if(config.enableRegistry && registry != null && config.enableHttp) {
             registry.unregister(serviceHttpUrl);
@@ -182,6 +272,15 @@ public class Server {
             if(logger.isInfoEnabled()) logger.info("unregister serviceHttpsUrl " + serviceHttpsUrl);
         }
 
+        // release the watches and connections of the registry, e.g. the blocking queries to consul.
+        if(registry instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) registry).close();
+            } catch (Exception e) {
+                logger.error("Failed to close registry", e);
+            }
+        }
+
         final ServiceLoader<ShutdownHookProvider> shutdownLoaders = ServiceLoader.load(ShutdownHookProvider.class);
         for (final ShutdownHookProvider provider : shutdownLoaders) {
             provider.onShutdown();
@@ -190,6 +289,43 @@ public class Server {
         logger.info("Cleaning up before server shutdown");
     }
 
+    /**
+     * Graceful shutdown before the service is unregistered and shutdown hooks are called. The
+     * heartbeat switcher is turned off so that the registry marks the service unavailable, and
+     * consumers get the time of shutdownPropagationDelay to refresh their cached service list.
+     * Then new requests are rejected with 503 and in-flight requests are given up to
+     * shutdownDrainTimeout to complete.
+     *
+     * It runs only if enableGracefulShutdown is true in server.json. It is off by default, as the
+     * shutdown then takes up to shutdownPropagationDelay plus shutdownDrainTimeout, which must fit
+     * in the termination grace period of the platform the service runs on.
+     */
+    static void drain() {
+        if(config.enableRegistry && registry != null) {
+            SwitcherUtil.setSwitcherValue(Constants.REGISTRY_HEARTBEAT_SWITCHER, false);
+            if(logger.isInfoEnabled()) logger.info("Registry heart beat switcher is off, wait " + config.getShutdownPropagationDelay() + "ms for consumers");
+            if(config.getShutdownPropagationDelay() > 0) {
+                try {
+                    Thread.sleep(config.getShutdownPropagationDelay());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        if(gracefulShutdownHandler != null) {
+            gracefulShutdownHandler.shutdown();
+            try {
+                if(gracefulShutdownHandler.awaitShutdown(config.getShutdownDrainTimeout())) {
+                    logger.info("All in-flight requests are completed");
+                } else {
+                    logger.warn("In-flight requests are not completed in " + config.getShutdownDrainTimeout() + "ms");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     static protected void addDaemonShutdownHook() {
         Runtime.getRuntime().addShutdownHook(new Thread() {
             @Override
@@ -199,6 +335,31 @@ public class Server {
         });
     }
 
+    /**
+     * Keep the configured TLS protocols that are supported by the JVM in the configured order.
+     * An empty array is returned if none is configured so that the JVM defaults are used.
+     *
+     * @param supported protocols supported by the SSLContext
+     * @param configured tlsProtocols in server.json
+     * @return enabled protocols
+     */
+    static String[] enabledProtocols(String[] supported, List<String> configured) {
+        if(configured == null || configured.isEmpty()) return new String[0];
+        List<String> supportedList = Arrays.asList(supported);
+        List<String> enabled = new ArrayList<>();
+        for(String protocol : configured) {
+            if(supportedList.contains(protocol)) {
+                enabled.add(protocol);
+            } else {
+                logger.warn("TLS protocol " + protocol + " is not supported by the JVM and it is ignored");
+            }
+        }
+        if(enabled.isEmpty()) {
+            throw new RuntimeException("None of the tlsProtocols " + configured + " is supported by the JVM");
+        }
+        return enabled.toArray(new String[enabled.size()]);
+    }
+
     private static KeyStore loadKeyStore() {
         String name = config.getKeystoreName();
         try (InputStream stream = Config.getInstance().getInputStreamFromFile(name)) {
@@ -268,9 +429,18 @@ public class Server {
                 trustManagers = buildTrustManagers(null);
             }
 
+            if(System.getProperty(SESSION_TICKET_PROPERTY) == null) {
+                // the JDK reads it once for the whole process, so it is left to the command line.
+                logger.info("Start the JVM with -D" + SESSION_TICKET_PROPERTY + "=true to enable stateless TLS session resumption on JDK 13 and above");
+            }
             SSLContext sslContext;
-            sslContext = SSLContext.getInstance("TLSv1");
+            sslContext = SSLContext.getInstance("TLS");
             sslContext.init(keyManagers, trustManagers, null);
+            SSLSessionContext sessionContext = sslContext.getServerSessionContext();
+            if(sessionContext != null) {
+                if(config.getSslSessionCacheSize() > 0) sessionContext.setSessionCacheSize(config.getSslSessionCacheSize());
+                if(config.getSslSessionTimeout() > 0) sessionContext.setSessionTimeout(config.getSslSessionTimeout());
+            }
             return sslContext;
         } catch (Exception e) {
             logger.error("Unable to create SSLContext", e);
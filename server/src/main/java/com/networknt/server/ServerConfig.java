@@ -18,6 +18,8 @@ package com.networknt.server;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
+import java.util.List;
+
 public class ServerConfig {
     String ip;
     int httpPort;
@@ -32,6 +34,20 @@ public class ServerConfig {
     String truststorePass;
     boolean enableRegistry;
     String serviceId;
+    int ioThreads;
+    int workerThreads;
+    String workerMode;
+    int workerQueueSize;
+    boolean enableHttp2;
+    List<String> tlsProtocols;
+    List<String> tlsCipherSuites;
+    int sslSessionCacheSize;
+    int sslSessionTimeout;
+    boolean enableGracefulShutdown;
+    int shutdownPropagationDelay;
+    int shutdownDrainTimeout;
+    boolean parallelStartup;
+    int startupPhaseBudget;
 
     @JsonIgnore
     String description;
@@ -143,6 +159,118 @@ public class ServerConfig {
         this.serviceId = serviceId;
     }
 
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    public void setIoThreads(int ioThreads) {
+        this.ioThreads = ioThreads;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public String getWorkerMode() {
+        return workerMode;
+    }
+
+    public void setWorkerMode(String workerMode) {
+        this.workerMode = workerMode;
+    }
+
+    public int getWorkerQueueSize() {
+        return workerQueueSize;
+    }
+
+    public void setWorkerQueueSize(int workerQueueSize) {
+        this.workerQueueSize = workerQueueSize;
+    }
+
+    public boolean isEnableHttp2() {
+        return enableHttp2;
+    }
+
+    public void setEnableHttp2(boolean enableHttp2) {
+        this.enableHttp2 = enableHttp2;
+    }
+
+    public List<String> getTlsProtocols() {
+        return tlsProtocols;
+    }
+
+    public void setTlsProtocols(List<String> tlsProtocols) {
+        this.tlsProtocols = tlsProtocols;
+    }
+
+    public List<String> getTlsCipherSuites() {
+        return tlsCipherSuites;
+    }
+
+    public void setTlsCipherSuites(List<String> tlsCipherSuites) {
+        this.tlsCipherSuites = tlsCipherSuites;
+    }
+
+    public int getSslSessionCacheSize() {
+        return sslSessionCacheSize;
+    }
+
+    public void setSslSessionCacheSize(int sslSessionCacheSize) {
+        this.sslSessionCacheSize = sslSessionCacheSize;
+    }
+
+    public int getSslSessionTimeout() {
+        return sslSessionTimeout;
+    }
+
+    public void setSslSessionTimeout(int sslSessionTimeout) {
+        this.sslSessionTimeout = sslSessionTimeout;
+    }
+
+    public boolean isEnableGracefulShutdown() {
+        return enableGracefulShutdown;
+    }
+
+    public void setEnableGracefulShutdown(boolean enableGracefulShutdown) {
+        this.enableGracefulShutdown = enableGracefulShutdown;
+    }
+
+    public int getShutdownPropagationDelay() {
+        return shutdownPropagationDelay;
+    }
+
+    public void setShutdownPropagationDelay(int shutdownPropagationDelay) {
+        this.shutdownPropagationDelay = shutdownPropagationDelay;
+    }
+
+    public int getShutdownDrainTimeout() {
+        return shutdownDrainTimeout;
+    }
+
+    public void setShutdownDrainTimeout(int shutdownDrainTimeout) {
+        this.shutdownDrainTimeout = shutdownDrainTimeout;
+    }
+
+    public boolean isParallelStartup() {
+        return parallelStartup;
+    }
+
+    public void setParallelStartup(boolean parallelStartup) {
+        this.parallelStartup = parallelStartup;
+    }
+
+    public int getStartupPhaseBudget() {
+        return startupPhaseBudget;
+    }
+
+    public void setStartupPhaseBudget(int startupPhaseBudget) {
+        this.startupPhaseBudget = startupPhaseBudget;
+    }
+
     public String getDescription() {
         return description;
     }
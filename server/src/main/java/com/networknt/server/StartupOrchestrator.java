@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.server;
+
+import com.networknt.utility.StartupReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the phases of the server startup and records the time of each phase in StartupReport.
+ * Phases passed to submit() don't depend on each other and run in parallel on a short lived pool
+ * until await() is called, and phases passed to run() or call() are executed in the caller thread.
+ * A phase that takes longer than the budget is logged as a warning. In sequential mode, submitted
+ * phases run in the caller thread as well. A submitted phase may run steps of its own with run()
+ * or call() so that they are timed separately.
+ */
+class StartupOrchestrator {
+    static final Logger logger = LoggerFactory.getLogger(StartupOrchestrator.class);
+
+    private final long start = System.nanoTime();
+    private final long budget;
+    private final ExecutorService executor;
+    private final List<CompletableFuture<?>> submitted = new ArrayList<>();
+
+    StartupOrchestrator(boolean parallel, long budget) {
+        this.budget = budget;
+        if(parallel) {
+            // phases are few and mostly blocked on IO, so each one gets a thread.
+            AtomicInteger count = new AtomicInteger();
+            executor = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "light-startup-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            executor = null;
+        }
+        StartupReport.clear();
+    }
+
+    /**
+     * Start an independent phase. The returned future is completed when the phase is done and
+     * the failure of the phase is thrown from await().
+     *
+     * @param phase name of the phase
+     * @param task the task of the phase
+     * @param <T> result type
+     * @return CompletableFuture of the result
+     */
+    <T> CompletableFuture<T> submit(String phase, Supplier<T> task) {
+        CompletableFuture<T> future;
+        if(executor == null) {
+            future = new CompletableFuture<>();
+            try {
+                future.complete(call(phase, task));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        } else {
+            future = CompletableFuture.supplyAsync(() -> call(phase, task), executor);
+        }
+        submitted.add(future);
+        return future;
+    }
+
+    /**
+     * Wait for all submitted phases to complete and shutdown the pool.
+     *
+     * @throws RuntimeException the failure of the first failed phase
+     */
+    void await() {
+        try {
+            for(CompletableFuture<?> future : submitted) {
+                future.join();
+            }
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException)cause : new RuntimeException(cause);
+        } finally {
+            submitted.clear();
+            if(executor != null) executor.shutdown();
+        }
+    }
+
+    void run(String phase, Runnable task) {
+        call(phase, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    <T> T call(String phase, Supplier<T> task) {
+        long begin = System.nanoTime();
+        try {
+            return task.get();
+        } finally {
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+            StartupReport.recordPhase(phase, millis);
+            if(budget > 0 && millis > budget) {
+                logger.warn("Startup phase " + phase + " took " + millis + "ms which exceeds the budget of " + budget + "ms");
+            } else if(logger.isDebugEnabled()) {
+                logger.debug("Startup phase " + phase + " took " + millis + "ms");
+            }
+        }
+    }
+
+    /**
+     * Record the total time since the orchestrator is created.
+     *
+     * @return total time in milliseconds
+     */
+    long finish() {
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        StartupReport.recordTotal(millis);
+        return millis;
+    }
+}
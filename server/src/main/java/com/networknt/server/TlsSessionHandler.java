@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.server;
+
+import com.networknt.utility.GaugeRegistry;
+import io.undertow.Handlers;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.SSLSessionInfo;
+import io.undertow.server.ServerConnection;
+import io.undertow.util.AttachmentKey;
+
+import javax.net.ssl.SSLSession;
+import java.net.SocketAddress;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts TLS handshakes on the https listener, and for TLS 1.2 how many of them resumed a cached
+ * session instead of doing a full handshake. A full TLS 1.2 handshake creates a new SSLSession
+ * which is marked with the peer address of the connection. A resumed handshake hands the same
+ * SSLSession to a new connection, which is seen as a peer address that the session has not been
+ * marked with.
+ *
+ * A TLS 1.3 handshake creates a new SSLSession even when it resumes with a pre-shared key, and
+ * the JDK doesn't tell the two apart, so TLS 1.3 handshakes are only counted. The resumption
+ * count and rate cover TLS 1.2 only.
+ *
+ * HTTP/1.1 connections are checked once on the first request. HTTP/2 streams of a connection
+ * share the peer address so that they are not counted again.
+ */
+public class TlsSessionHandler implements HttpHandler {
+    static final String PEERS = "light.tls.peers";
+    static final int MAX_PEERS = 64;
+    static final String TLS13 = "TLSv1.3";
+
+    private static final AttachmentKey<Boolean> CHECKED = AttachmentKey.create(Boolean.class);
+
+    private static final LongAdder handshakes = new LongAdder();
+    private static final LongAdder tls13Handshakes = new LongAdder();
+    private static final LongAdder tls12Resumptions = new LongAdder();
+
+    static {
+        GaugeRegistry.register("tls_handshakes", TlsSessionHandler::getHandshakeCount);
+        GaugeRegistry.register("tls13_handshakes", TlsSessionHandler::getTls13HandshakeCount);
+        // resumption of TLS 1.3 cannot be detected.
+        GaugeRegistry.register("tls12_resumptions", TlsSessionHandler::getTls12ResumptionCount);
+        GaugeRegistry.register("tls12_resumption_rate", TlsSessionHandler::getTls12ResumptionRate);
+    }
+
+    private final HttpHandler next;
+
+    public TlsSessionHandler(final HttpHandler next) {
+        Handlers.handlerNotNull(next);
+        this.next = next;
+    }
+
+    @Override
+    public void handleRequest(final HttpServerExchange exchange) throws Exception {
+        ServerConnection connection = exchange.getConnection();
+        if(connection.getAttachment(CHECKED) == null) {
+            connection.putAttachment(CHECKED, Boolean.TRUE);
+            SSLSessionInfo info = connection.getSslSessionInfo();
+            if(info != null) {
+                record(info.getSSLSession(), connection.getPeerAddress());
+            }
+        }
+        next.handleRequest(exchange);
+    }
+
+    @SuppressWarnings("unchecked")
+    static void record(SSLSession session, SocketAddress peer) {
+        if(session == null || peer == null) return;
+        if(TLS13.equals(session.getProtocol())) {
+            handshakes.increment();
+            tls13Handshakes.increment();
+            return;
+        }
+        Set<SocketAddress> peers = (Set<SocketAddress>)session.getValue(PEERS);
+        if(peers == null) {
+            synchronized (session) {
+                peers = (Set<SocketAddress>)session.getValue(PEERS);
+                if(peers == null) {
+                    peers = ConcurrentHashMap.newKeySet();
+                    peers.add(peer);
+                    session.putValue(PEERS, peers);
+                    handshakes.increment();
+                    return;
+                }
+            }
+        }
+        if(peers.add(peer)) {
+            handshakes.increment();
+            tls12Resumptions.increment();
+            if(peers.size() > MAX_PEERS) {
+                // a long lived session shared by many connections, an old peer may be counted again.
+                peers.clear();
+                peers.add(peer);
+            }
+        }
+    }
+
+    /**
+     * @return the number of TLS handshakes including the resumed ones
+     */
+    public static long getHandshakeCount() {
+        return handshakes.sum();
+    }
+
+    /**
+     * @return the number of TLS 1.3 handshakes, full or resumed
+     */
+    public static long getTls13HandshakeCount() {
+        return tls13Handshakes.sum();
+    }
+
+    /**
+     * @return the number of TLS 1.2 handshakes that resumed a cached session
+     */
+    public static long getTls12ResumptionCount() {
+        return tls12Resumptions.sum();
+    }
+
+    /**
+     * @return resumed TLS 1.2 handshakes divided by all TLS 1.2 handshakes or 0 if there is none yet
+     */
+    public static double getTls12ResumptionRate() {
+        long total = handshakes.sum() - tls13Handshakes.sum();
+        return total <= 0 ? 0 : (double)tls12Resumptions.sum() / total;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.server;
+
+import com.networknt.handler.RequestContext;
+import com.networknt.status.Status;
+import io.undertow.Handlers;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The outermost handler when bounded or virtual worker mode is selected. It moves the exchange
+ * from IO thread to the worker pool and the entire handler chain is executed in the worker
+ * thread. If the pool rejects the task, the request is rejected on the IO thread with 503 so that
+ * the caller can retry on another instance instead of waiting in the queue.
+ *
+ * The pool is attached to the exchange with RequestContext.EXECUTOR. Undertow clears the dispatch
+ * executor once the first dispatch runs, so a handler that goes back to the IO thread for async IO
+ * resumes in the same pool with RequestContext.dispatch(exchange, handler), which dispatches to the
+ * attached executor explicitly.
+ *
+ * The request start time is not recorded by the server, so the time the request is taken on the
+ * IO thread is attached with RequestContext.ARRIVAL_NANOS and the time it waits in the queue of
+ * the pool counts against its deadline.
+ */
+public class WorkerDispatchHandler implements HttpHandler {
+    static final Logger logger = LoggerFactory.getLogger(WorkerDispatchHandler.class);
+
+    static final String STATUS_SERVER_BUSY = "ERR10035";
+
+    private final WorkerPool pool;
+    private final HttpHandler next;
+
+    public WorkerDispatchHandler(final WorkerPool pool, final HttpHandler next) {
+        Handlers.handlerNotNull(next);
+        this.pool = pool;
+        this.next = next;
+    }
+
+    @Override
+    public void handleRequest(final HttpServerExchange exchange) throws Exception {
+        if(!exchange.isInIoThread()) {
+            next.handleRequest(exchange);
+            return;
+        }
+        // a full pool rejects the task and the executor responds with 503, so nothing on the
+        // IO thread takes a lock of the pool.
+        exchange.putAttachment(RequestContext.ARRIVAL_NANOS, System.nanoTime());
+        Executor executor = new PoolExecutor(exchange);
+        exchange.putAttachment(RequestContext.EXECUTOR, executor);
+        exchange.dispatch(executor, next);
+    }
+
+    static void reject(final HttpServerExchange exchange) {
+        if(logger.isDebugEnabled()) logger.debug("worker pool is saturated, reject request " + exchange.getRequestPath());
+        Status status = new Status(STATUS_SERVER_BUSY);
+        exchange.setStatusCode(status.getStatusCode());
+        exchange.getResponseSender().send(status.toByteBuffer());
+    }
+
+    private class PoolExecutor implements Executor {
+        private final HttpServerExchange exchange;
+
+        PoolExecutor(HttpServerExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            try {
+                pool.execute(task);
+            } catch (RejectedExecutionException e) {
+                // called on IO thread after the root handler returns.
+                reject(exchange);
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Worker execution model for the server. The default mode is xnio which keeps the behavior of
+ * Undertow with a fixed number of XNIO worker threads and an unbounded queue. Two other modes can
+ * be selected with workerMode in server.json:
+ *
+ * bounded - a fixed size pool with a bounded queue. When both are full, the request is rejected
+ * with 503 right away on the IO thread instead of waiting in the queue.
+ *
+ * virtual - one virtual thread per request for blocking handlers. It needs JDK 21 or above and
+ * falls back to a cached thread pool on older runtimes.
+ *
+ * The queue depth and active worker count are exposed for the metrics module.
+ */
+public class WorkerPool {
+    static final Logger logger = LoggerFactory.getLogger(WorkerPool.class);
+
+    public static final String MODE_XNIO = "xnio";
+    public static final String MODE_BOUNDED = "bounded";
+    public static final String MODE_VIRTUAL = "virtual";
+
+    static final int DEFAULT_WORKER_THREADS = 200;
+    static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    private final String mode;
+    private final ExecutorService executor;
+    private final ThreadPoolExecutor pool;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    WorkerPool(String mode, ExecutorService executor) {
+        this.mode = mode;
+        this.executor = executor;
+        this.pool = executor instanceof ThreadPoolExecutor ? (ThreadPoolExecutor)executor : null;
+    }
+
+    /**
+     * Create the worker pool based on the server config. Return null for xnio mode as the
+     * requests are handled by XNIO worker directly.
+     *
+     * @param config server config
+     * @return WorkerPool or null
+     */
+    public static WorkerPool create(ServerConfig config) {
+        String mode = config.getWorkerMode();
+        if(mode == null || MODE_XNIO.equalsIgnoreCase(mode)) {
+            return null;
+        }
+        int workerThreads = config.getWorkerThreads() > 0 ? config.getWorkerThreads() : DEFAULT_WORKER_THREADS;
+        if(MODE_BOUNDED.equalsIgnoreCase(mode)) {
+            int queueSize = config.getWorkerQueueSize() >= 0 ? config.getWorkerQueueSize() : DEFAULT_QUEUE_SIZE;
+            BlockingQueue<Runnable> queue = queueSize == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueSize);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                    queue, new WorkerThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+            executor.prestartAllCoreThreads();
+            if(logger.isInfoEnabled()) logger.info("bounded worker pool with " + workerThreads + " threads and queue size " + queueSize);
+            return new WorkerPool(MODE_BOUNDED, executor);
+        }
+        if(MODE_VIRTUAL.equalsIgnoreCase(mode)) {
+            return new WorkerPool(MODE_VIRTUAL, virtualThreadExecutor());
+        }
+        throw new IllegalArgumentException("Unknown workerMode " + mode + " in server config");
+    }
+
+    /**
+     * Virtual thread executor is looked up by reflection so that the framework still runs on
+     * Java 8. If it is not available, a cached thread pool gives the same thread per request model.
+     */
+    static ExecutorService virtualThreadExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            if(logger.isInfoEnabled()) logger.info("virtual thread per request worker executor");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            logger.warn("virtual threads are not supported by this JVM, fallback to cached thread pool");
+            return Executors.newCachedThreadPool(new WorkerThreadFactory());
+        }
+    }
+
+    /**
+     * Submit a task to the pool. The active worker count is tracked here so that it is available
+     * for both thread pool and virtual thread executors.
+     *
+     * @param task the task to run
+     * @throws RejectedExecutionException if the pool and queue are full
+     */
+    public void execute(final Runnable task) {
+        try {
+            executor.execute(() -> {
+                active.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    active.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            onRejected();
+            throw e;
+        }
+    }
+
+    void onRejected() {
+        rejected.incrementAndGet();
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public int getQueueDepth() {
+        return pool == null ? 0 : pool.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "light-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.server;
+
+import io.undertow.Handlers;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class GracefulShutdownTest {
+    static final Logger logger = LoggerFactory.getLogger(GracefulShutdownTest.class);
+
+    static Undertow server = null;
+    static final CountDownLatch started = new CountDownLatch(1);
+
+    @BeforeClass
+    public static void setUp() {
+        if(server == null) {
+            logger.info("starting server");
+            HttpHandler handler = exchange -> exchange.dispatch(() -> {
+                started.countDown();
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.getResponseSender().send("OK");
+            });
+            Server.gracefulShutdownHandler = Handlers.gracefulShutdown(handler);
+            server = Undertow.builder()
+                    .addHttpListener(7081, "localhost")
+                    .setHandler(Server.gracefulShutdownHandler)
+                    .build();
+            server.start();
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        if(server != null) {
+            server.stop();
+            Server.gracefulShutdownHandler = null;
+            logger.info("The server is stopped.");
+        }
+    }
+
+    @Test
+    public void testDrainInFlightRequests() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> inflight = executor.submit(() -> get("http://localhost:7081/inflight").getStatusLine().getStatusCode());
+            Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            long start = System.currentTimeMillis();
+            Server.drain();
+            Assert.assertEquals(200, (int)inflight.get(5, TimeUnit.SECONDS));
+            Assert.assertTrue(System.currentTimeMillis() - start < Server.config.getShutdownDrainTimeout());
+
+            // new requests are rejected once draining starts.
+            Assert.assertEquals(503, get("http://localhost:7081/new").getStatusLine().getStatusCode());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static CloseableHttpResponse get(String url) throws Exception {
+        CloseableHttpClient client = HttpClients.createDefault();
+        return client.execute(new HttpGet(url));
+    }
+}
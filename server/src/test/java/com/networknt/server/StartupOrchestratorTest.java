@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.server;
+
+import com.networknt.utility.StartupReport;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class StartupOrchestratorTest {
+
+    @Test
+    public void testParallelPhases() {
+        StartupOrchestrator startup = new StartupOrchestrator(true, 0);
+        // each phase waits for the other one, so they can only complete in parallel.
+        CountDownLatch latch = new CountDownLatch(2);
+        CompletableFuture<String> first = startup.submit("first", () -> await(latch, "a"));
+        CompletableFuture<String> second = startup.submit("second", () -> await(latch, "b"));
+        startup.await();
+        Assert.assertEquals("a", first.join());
+        Assert.assertEquals("b", second.join());
+
+        startup.run("third", () -> {});
+        Assert.assertTrue(startup.finish() >= 0);
+
+        Map<String, Long> phases = StartupReport.getPhases();
+        Assert.assertEquals(3, phases.size());
+        Assert.assertTrue(phases.containsKey("first"));
+        Assert.assertTrue(phases.containsKey("second"));
+        Assert.assertTrue(phases.containsKey("third"));
+    }
+
+    @Test
+    public void testSequentialPhases() {
+        StartupOrchestrator startup = new StartupOrchestrator(false, 0);
+        Thread caller = Thread.currentThread();
+        CompletableFuture<Thread> thread = startup.submit("sequential", Thread::currentThread);
+        startup.await();
+        Assert.assertSame(caller, thread.join());
+        Assert.assertEquals(1, StartupReport.getPhases().size());
+    }
+
+    @Test
+    public void testSequentialStepsInPhase() {
+        StartupOrchestrator startup = new StartupOrchestrator(true, 0);
+        StringBuilder order = new StringBuilder();
+        startup.submit("hooks", () -> {
+            startup.run("hook:a", () -> order.append('a'));
+            startup.run("hook:b", () -> order.append('b'));
+            return null;
+        });
+        startup.await();
+        Assert.assertEquals("ab", order.toString());
+        Map<String, Long> phases = StartupReport.getPhases();
+        Assert.assertTrue(phases.containsKey("hooks"));
+        Assert.assertTrue(phases.containsKey("hook:a"));
+        Assert.assertTrue(phases.containsKey("hook:b"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFailedPhase() {
+        StartupOrchestrator startup = new StartupOrchestrator(true, 0);
+        startup.submit("ok", () -> null);
+        startup.submit("failed", () -> {
+            throw new IllegalStateException("failed");
+        });
+        startup.await();
+    }
+
+    private static String await(CountDownLatch latch, String value) {
+        latch.countDown();
+        try {
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.net.ssl.SSLSession;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TlsSessionHandlerTest {
+
+    private static SSLSession session() {
+        Map<String, Object> values = new HashMap<>();
+        SSLSession session = Mockito.mock(SSLSession.class);
+        Mockito.when(session.getValue(Mockito.anyString())).thenAnswer(i -> values.get(i.getArguments()[0]));
+        Mockito.doAnswer(i -> values.put((String)i.getArguments()[0], i.getArguments()[1]))
+                .when(session).putValue(Mockito.anyString(), Mockito.any());
+        return session;
+    }
+
+    @Test
+    public void testFullAndResumedHandshakes() {
+        long handshakes = TlsSessionHandler.getHandshakeCount();
+        long resumptions = TlsSessionHandler.getTls12ResumptionCount();
+
+        SSLSession first = session();
+        TlsSessionHandler.record(first, new InetSocketAddress("127.0.0.1", 50001));
+        // HTTP/2 stream of the same connection is not a new handshake.
+        TlsSessionHandler.record(first, new InetSocketAddress("127.0.0.1", 50001));
+        // same session on a new connection is a resumption.
+        TlsSessionHandler.record(first, new InetSocketAddress("127.0.0.1", 50002));
+        TlsSessionHandler.record(session(), new InetSocketAddress("127.0.0.1", 50003));
+
+        Assert.assertEquals(3, TlsSessionHandler.getHandshakeCount() - handshakes);
+        Assert.assertEquals(1, TlsSessionHandler.getTls12ResumptionCount() - resumptions);
+        Assert.assertTrue(TlsSessionHandler.getTls12ResumptionRate() > 0);
+    }
+
+    @Test
+    public void testTls13HandshakesNotResumed() {
+        long handshakes = TlsSessionHandler.getHandshakeCount();
+        long tls13 = TlsSessionHandler.getTls13HandshakeCount();
+        long resumptions = TlsSessionHandler.getTls12ResumptionCount();
+
+        SSLSession session = session();
+        Mockito.when(session.getProtocol()).thenReturn("TLSv1.3");
+        TlsSessionHandler.record(session, new InetSocketAddress("127.0.0.1", 50011));
+        TlsSessionHandler.record(session, new InetSocketAddress("127.0.0.1", 50012));
+
+        Assert.assertEquals(2, TlsSessionHandler.getHandshakeCount() - handshakes);
+        Assert.assertEquals(2, TlsSessionHandler.getTls13HandshakeCount() - tls13);
+        Assert.assertEquals(0, TlsSessionHandler.getTls12ResumptionCount() - resumptions);
+    }
+
+    @Test
+    public void testEnabledProtocols() {
+        String[] supported = {"TLSv1", "TLSv1.1", "TLSv1.2"};
+        Assert.assertArrayEquals(new String[] {"TLSv1.2"}, Server.enabledProtocols(supported, Arrays.asList("TLSv1.3", "TLSv1.2")));
+        Assert.assertEquals(0, Server.enabledProtocols(supported, Collections.emptyList()).length);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testNoSupportedProtocol() {
+        Server.enabledProtocols(new String[] {"TLSv1"}, Collections.singletonList("TLSv1.3"));
+    }
+}
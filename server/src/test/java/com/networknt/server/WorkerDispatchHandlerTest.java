@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.server;
+
+import com.networknt.handler.RequestContext;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class WorkerDispatchHandlerTest {
+    static final Logger logger = LoggerFactory.getLogger(WorkerDispatchHandlerTest.class);
+
+    static Undertow server = null;
+    static WorkerPool pool = null;
+    static final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeClass
+    public static void setUp() {
+        if(server == null) {
+            logger.info("starting server");
+            ServerConfig config = new ServerConfig();
+            config.setWorkerMode(WorkerPool.MODE_BOUNDED);
+            config.setWorkerThreads(1);
+            config.setWorkerQueueSize(0);
+            pool = WorkerPool.create(config);
+
+            HttpHandler handler = exchange -> {
+                Assert.assertFalse(exchange.isInIoThread());
+                release.await(10, TimeUnit.SECONDS);
+                exchange.getResponseSender().send("OK");
+            };
+            server = Undertow.builder()
+                    .addHttpListener(7080, "localhost")
+                    .setHandler(new WorkerDispatchHandler(pool, handler))
+                    .build();
+            server.start();
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        if(server != null) {
+            server.stop();
+            pool.shutdown();
+            logger.info("The server is stopped.");
+        }
+    }
+
+    @Test
+    public void testRejectWhenSaturated() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> first = executor.submit(() -> get("http://localhost:7080/first").getStatusLine().getStatusCode());
+            long deadline = System.currentTimeMillis() + 5000;
+            while(pool.getActiveCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(1, pool.getActiveCount());
+
+            CloseableHttpResponse response = get("http://localhost:7080/second");
+            Assert.assertEquals(503, response.getStatusLine().getStatusCode());
+            String body = IOUtils.toString(response.getEntity().getContent(), "utf8");
+            Assert.assertTrue(body.contains("ERR10035"));
+            Assert.assertEquals(1, pool.getRejectedCount());
+
+            release.countDown();
+            Assert.assertEquals(200, (int)first.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testResumeInWorkerPool() throws Exception {
+        ServerConfig config = new ServerConfig();
+        config.setWorkerMode(WorkerPool.MODE_BOUNDED);
+        config.setWorkerThreads(2);
+        config.setWorkerQueueSize(10);
+        WorkerPool resumePool = WorkerPool.create(config);
+        AtomicReference<String> resumedIn = new AtomicReference<>();
+        HttpHandler resumed = exchange -> {
+            resumedIn.set(Thread.currentThread().getName());
+            exchange.getResponseSender().send("OK");
+        };
+        // go back to the IO thread as an async read does, and resume the chain from there.
+        HttpHandler handler = exchange -> exchange.dispatch(exchange.getIoThread(), (HttpHandler) ex -> {
+            Assert.assertTrue(ex.isInIoThread());
+            RequestContext.dispatch(ex, resumed);
+        });
+        Undertow resumeServer = Undertow.builder()
+                .addHttpListener(7081, "localhost")
+                .setHandler(new WorkerDispatchHandler(resumePool, handler))
+                .build();
+        resumeServer.start();
+        try {
+            Assert.assertEquals(200, get("http://localhost:7081/resume").getStatusLine().getStatusCode());
+            Assert.assertTrue(resumedIn.get(), resumedIn.get().startsWith("light-worker-"));
+        } finally {
+            resumeServer.stop();
+            resumePool.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueueTimeCountsFromArrival() throws Exception {
+        ServerConfig config = new ServerConfig();
+        config.setWorkerMode(WorkerPool.MODE_BOUNDED);
+        config.setWorkerThreads(1);
+        config.setWorkerQueueSize(10);
+        WorkerPool queuePool = WorkerPool.create(config);
+        AtomicLong maxWaited = new AtomicLong();
+        HttpHandler handler = exchange -> {
+            long now = System.nanoTime();
+            long waited = now - RequestContext.getArrivalNanos(exchange, now);
+            maxWaited.accumulateAndGet(TimeUnit.NANOSECONDS.toMillis(waited), Math::max);
+            Thread.sleep(300);
+            exchange.getResponseSender().send("OK");
+        };
+        Undertow queueServer = Undertow.builder()
+                .addHttpListener(7082, "localhost")
+                .setHandler(new WorkerDispatchHandler(queuePool, handler))
+                .build();
+        queueServer.start();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(() -> get("http://localhost:7082/first").getStatusLine().getStatusCode());
+            Future<Integer> second = executor.submit(() -> get("http://localhost:7082/second").getStatusLine().getStatusCode());
+            Assert.assertEquals(200, (int)first.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(200, (int)second.get(5, TimeUnit.SECONDS));
+            // the second request waited in the queue while the only worker served the first one.
+            Assert.assertTrue(maxWaited.get() >= 200);
+        } finally {
+            executor.shutdownNow();
+            queueServer.stop();
+            queuePool.shutdown();
+        }
+    }
+
+    private static CloseableHttpResponse get(String url) throws Exception {
+        CloseableHttpClient client = HttpClients.createDefault();
+        return client.execute(new HttpGet(url));
+    }
+}
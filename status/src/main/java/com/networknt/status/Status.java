@@ -19,6 +19,8 @@ package com.networknt.status;
 import com.networknt.config.Config;
 import com.networknt.utility.ModuleRegistry;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 import static java.lang.String.format;
@@ -30,6 +32,10 @@ import static java.lang.String.format;
  * 1. low latency as server will return the first error without further processing
  * 2. limited attack risks and make the error handling harder to analyzed
  *
+ * The codes are looked up in StatusCatalog which is compiled from status.json once. Use
+ * toByteBuffer() to send the response, it returns the pre-encoded buffer of the code if
+ * there are no arguments.
+ *
  * Created by steve on 23/09/16.
  */
 public class Status {
@@ -41,6 +47,10 @@ public class Status {
     String message;
     String description;
 
+    // the catalog entry as long as the fields are not changed with setters.
+    private StatusCatalog.Entry entry;
+    private Object[] args;
+
     static {
         ModuleRegistry.registerModule(Status.class.getName(), config, null);
     }
@@ -50,11 +60,13 @@ public class Status {
 
     public Status(final String code, final Object... args) {
         this.code = code;
-        Map<String, Object> map = (Map<String, Object>)config.get(code);
-        if(map != null) {
-            this.statusCode = (Integer)map.get("statusCode");
-            this.message = (String)map.get("message");
-            this.description = format((String)map.get("description"), args);
+        StatusCatalog.Entry entry = StatusCatalog.get(code);
+        if(entry != null) {
+            this.statusCode = entry.statusCode;
+            this.message = entry.message;
+            this.description = args.length == 0 && !entry.template ? entry.description : format(entry.description, args);
+            this.entry = entry;
+            this.args = args;
         }
     }
 
@@ -71,6 +83,7 @@ public class Status {
 
     public void setStatusCode(int statusCode) {
         this.statusCode = statusCode;
+        this.entry = null;
     }
 
     public String getCode() {
@@ -79,6 +92,7 @@ public class Status {
 
     public void setCode(String code) {
         this.code = code;
+        this.entry = null;
     }
 
     public String getMessage() {
@@ -87,6 +101,7 @@ public class Status {
 
     public void setMessage(String message) {
         this.message = message;
+        this.entry = null;
     }
 
     public String getDescription() {
@@ -95,15 +110,28 @@ public class Status {
 
     public void setDescription(String description) {
         this.description = description;
+        this.entry = null;
     }
 
     @Override
     public String toString() {
-        return "{\"statusCode\":" + statusCode
-                + ",\"code\":\"" + code
-                + "\",\"message\":\""
-                + message + "\",\"description\":\""
-                + description + "\"}";
+        if(entry != null && args.length == 0) {
+            return entry.json;
+        }
+        return StatusCatalog.toJson(statusCode, code, message, description);
+    }
+
+    /**
+     * Get the JSON response as a buffer that can be passed to the response sender. It is the
+     * shared pre-encoded buffer of the code if the status has no arguments and is not changed.
+     *
+     * @return ByteBuffer of the JSON response
+     */
+    public ByteBuffer toByteBuffer() {
+        if(entry != null) {
+            return args.length == 0 ? entry.getBuffer() : entry.encodeDescription(description);
+        }
+        return ByteBuffer.wrap(toString().getBytes(StandardCharsets.UTF_8));
     }
 
     /*
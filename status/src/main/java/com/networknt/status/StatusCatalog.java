@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.networknt.status;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * The status codes in status.json compiled once into immutable entries. The JSON response of a
+ * code without arguments is encoded when the catalog is loaded, so it can be sent as is for every
+ * request. For a code with arguments, only the description is formatted and escaped, and it is
+ * written between the encoded prefix and suffix.
+ */
+public final class StatusCatalog {
+    private static final Map<String, Entry> entries;
+
+    static {
+        Map<String, Entry> map = new HashMap<>();
+        if(Status.config != null) {
+            for(Map.Entry<String, Object> e : Status.config.entrySet()) {
+                if(e.getValue() instanceof Map) {
+                    Map<String, Object> status = (Map<String, Object>)e.getValue();
+                    Object statusCode = status.get("statusCode");
+                    map.put(e.getKey(), new Entry(statusCode == null ? 0 : ((Number)statusCode).intValue(), e.getKey(),
+                            (String)status.get("message"), (String)status.get("description")));
+                }
+            }
+        }
+        entries = Collections.unmodifiableMap(map);
+    }
+
+    private StatusCatalog() {
+    }
+
+    /**
+     * @param code status code like ERR10001
+     * @return the entry or null if the code is not defined
+     */
+    public static Entry get(String code) {
+        return code == null ? null : entries.get(code);
+    }
+
+    static String toJson(int statusCode, String code, String message, String description) {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("{\"statusCode\":").append(statusCode).append(",\"code\":");
+        appendString(sb, code);
+        sb.append(",\"message\":");
+        appendString(sb, message);
+        sb.append(",\"description\":");
+        appendString(sb, description);
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Append the value as a JSON string with quotes. A null value is written as "null" in quotes
+     * as the response has always been.
+     */
+    static void appendString(StringBuilder sb, String value) {
+        sb.append('"');
+        if(value == null) {
+            sb.append("null");
+        } else {
+            escape(sb, value);
+        }
+        sb.append('"');
+    }
+
+    static void escape(StringBuilder sb, String value) {
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch(c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\b': sb.append("\\b"); break;
+                case '\f': sb.append("\\f"); break;
+                default:
+                    if(c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int)c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+    }
+
+    /**
+     * One status code of the catalog.
+     */
+    public static final class Entry {
+        final int statusCode;
+        final String code;
+        final String message;
+        final String description;
+        final boolean template;
+        final String json;
+        private final ByteBuffer buffer;
+        private final byte[] prefix;
+        private final byte[] suffix;
+
+        Entry(int statusCode, String code, String message, String description) {
+            this.statusCode = statusCode;
+            this.code = code;
+            this.message = message;
+            this.description = description;
+            this.template = description != null && description.indexOf('%') >= 0;
+            this.json = toJson(statusCode, code, message, template ? safeFormat(description) : description);
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            this.buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes);
+            this.buffer.flip();
+            String head = json.substring(0, json.lastIndexOf(",\"description\":\"") + 16);
+            this.prefix = head.getBytes(StandardCharsets.UTF_8);
+            this.suffix = "\"}".getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static String safeFormat(String description) {
+            try {
+                return format(description);
+            } catch (RuntimeException e) {
+                return description;
+            }
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * Get the encoded response. The returned buffer is a read-only view of the shared buffer
+         * with its own position, so it can be passed to the response sender directly.
+         *
+         * @return ByteBuffer of the JSON response
+         */
+        public ByteBuffer getBuffer() {
+            return buffer.asReadOnlyBuffer();
+        }
+
+        /**
+         * Encode the response with the description formatted with the arguments. Only the
+         * description is formatted and escaped, the rest is copied from the encoded prefix.
+         *
+         * @param args arguments of the description
+         * @return ByteBuffer of the JSON response
+         */
+        public ByteBuffer encode(Object... args) {
+            if(args == null || args.length == 0) {
+                return getBuffer();
+            }
+            return encodeDescription(format(description, args));
+        }
+
+        ByteBuffer encodeDescription(String formatted) {
+            StringBuilder sb = new StringBuilder(formatted.length() + 16);
+            escape(sb, formatted);
+            byte[] middle = sb.toString().getBytes(StandardCharsets.UTF_8);
+            ByteBuffer result = ByteBuffer.allocate(prefix.length + middle.length + suffix.length);
+            result.put(prefix).put(middle).put(suffix);
+            result.flip();
+            return result;
+        }
+    }
+}
@@ -22,6 +22,9 @@ import com.networknt.config.Config;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Created by steve on 23/09/16.
  */
@@ -82,4 +85,45 @@ public class StatusTest {
         }
         System.out.println("Jackson Perf " + (System.currentTimeMillis() - start));
     }
+
+    @Test
+    public void testToStringEscape() throws Exception {
+        Status status = new Status("ERR11000", "a\"b", "c\\d\n");
+        Assert.assertEquals("{\"statusCode\":400,\"code\":\"ERR11000\",\"message\":\"VALIDATOR_REQUEST_PARAMETER_QUERY_MISSING\",\"description\":\"Query parameter 'a\\\"b' is required on path 'c\\\\d\\n' but not found in request.\"}", status.toString());
+        Assert.assertNotNull(Config.getInstance().getMapper().readTree(status.toString()));
+    }
+
+    @Test
+    public void testToByteBuffer() {
+        Status status = new Status("ERR10001");
+        Assert.assertEquals(status.toString(), toString(status.toByteBuffer()));
+        // each call gets its own position on the shared buffer.
+        Assert.assertEquals(status.toString(), toString(new Status("ERR10001").toByteBuffer()));
+        status.setDescription("changed");
+        Assert.assertEquals(status.toString(), toString(status.toByteBuffer()));
+        Assert.assertTrue(status.toString().contains("\"description\":\"changed\""));
+    }
+
+    @Test
+    public void testToByteBufferWithArgs() {
+        Status status = new Status("ERR11000", "parameter name", "original url");
+        Assert.assertEquals(status.toString(), toString(status.toByteBuffer()));
+        Assert.assertEquals(status.toString(), toString(StatusCatalog.get("ERR11000").encode("parameter name", "original url")));
+    }
+
+    @Test
+    public void testToByteBufferPerf() {
+        long start = System.currentTimeMillis();
+        ByteBuffer buffer = null;
+        for(int i = 0; i < 1000000; i++) {
+            buffer = new Status("ERR10001").toByteBuffer();
+        }
+        System.out.println("ToByteBuffer Perf " + (System.currentTimeMillis() - start));
+    }
+
+    private static String toString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
 }
@@ -20,6 +20,7 @@ public class Constants {
     // headers
     public static final String CORRELATION_ID = "X-Correlation-Id";
     public static final String TRACEABILITY_ID = "X-Traceability-Id";
+    public static final String REQUEST_TIMEOUT = "X-Request-Timeout";
     public static final String USER_ID = "user_id";
     public static final String CLIENT_ID = "client_id";
     public static final String SCOPE_CLIENT_ID = "scope_client_id";
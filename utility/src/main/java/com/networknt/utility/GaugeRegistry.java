@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.utility;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Gauges that the modules register about themselves, e.g. the hit count of a cache. A module
+ * registers its gauges here instead of depending on the metrics module, and the metrics handler
+ * adds them to its metric registry as a listener, including the gauges that are registered after
+ * the handler is started.
+ *
+ * A gauge is registered once per name and tags, a later registration of the same gauge is ignored.
+ */
+public class GaugeRegistry {
+
+    private static final Map<String, Entry> gauges = new LinkedHashMap<>();
+    private static final List<Consumer<Entry>> listeners = new ArrayList<>();
+
+    public static void register(String name, Supplier<? extends Number> value) {
+        register(name, Collections.emptyMap(), value);
+    }
+
+    /**
+     * @param name name of the gauge
+     * @param tags tags of the gauge in addition to the common tags of the metrics handler
+     * @param value read each time the gauge is reported
+     */
+    public static synchronized void register(String name, Map<String, String> tags, Supplier<? extends Number> value) {
+        Entry entry = new Entry(name, tags, value);
+        if(gauges.putIfAbsent(name + entry.tags, entry) == null) {
+            for(Consumer<Entry> listener : listeners) {
+                listener.accept(entry);
+            }
+        }
+    }
+
+    /**
+     * @param listener called with the gauges registered so far and then with each new one
+     */
+    public static synchronized void addListener(Consumer<Entry> listener) {
+        for(Entry entry : gauges.values()) {
+            listener.accept(entry);
+        }
+        listeners.add(listener);
+    }
+
+    public static synchronized List<Entry> getGauges() {
+        return new ArrayList<>(gauges.values());
+    }
+
+    public static final class Entry {
+        private final String name;
+        private final Map<String, String> tags;
+        private final Supplier<? extends Number> value;
+
+        Entry(String name, Map<String, String> tags, Supplier<? extends Number> value) {
+            this.name = name;
+            this.tags = Collections.unmodifiableMap(new TreeMap<>(tags));
+            this.value = value;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Map<String, String> getTags() {
+            return tags;
+        }
+
+        public Number getValue() {
+            return value.get();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.networknt.utility;
+
+import com.networknt.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * Generator of the ids like correlationId. The strategy is defined in idgenerator.json:
+ *
+ * time: compact time ordered id from timestamp, node id and a per thread counter. It doesn't
+ * share any state between threads, so it doesn't slow down with the number of threads.
+ *
+ * uuid: random UUID encoded the same way as Util.getUUID(). It is backed by the shared
+ * SecureRandom and should be used only if the id must not be guessable.
+ *
+ * Both strategies generate 22 URL safe characters.
+ */
+public abstract class IdGenerator {
+    static final Logger logger = LoggerFactory.getLogger(IdGenerator.class);
+
+    public static final String CONFIG_NAME = "idgenerator";
+    public static final String STRATEGY = "strategy";
+    public static final String NODE_ID = "nodeId";
+    public static final String STRATEGY_TIME = "time";
+    public static final String STRATEGY_UUID = "uuid";
+
+    private static final IdGenerator instance = create(Config.getInstance().getJsonMapConfig(CONFIG_NAME));
+
+    /**
+     * @return the generator of the strategy in idgenerator.json
+     */
+    public static IdGenerator getInstance() {
+        return instance;
+    }
+
+    static IdGenerator create(Map<String, Object> config) {
+        Object strategy = config == null ? null : config.get(STRATEGY);
+        if(STRATEGY_UUID.equals(strategy)) {
+            return new UuidIdGenerator();
+        }
+        if(strategy != null && !STRATEGY_TIME.equals(strategy)) {
+            logger.error("Unknown id generator strategy " + strategy + ", use " + STRATEGY_TIME);
+        }
+        Object nodeId = config == null ? null : config.get(NODE_ID);
+        return nodeId instanceof Number && ((Number)nodeId).intValue() >= 0 ?
+                new TimeIdGenerator(((Number)nodeId).intValue()) : new TimeIdGenerator();
+    }
+
+    /**
+     * @return a new id
+     */
+    public abstract String nextId();
+}
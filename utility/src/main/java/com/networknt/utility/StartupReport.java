@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.utility;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Time spent in each phase of the server startup in milliseconds. It is recorded by the server
+ * during startup and output by the server info handler so that slow phases can be found without
+ * profiling a container restart.
+ */
+public class StartupReport {
+
+    private static final Map<String, Long> phases = new LinkedHashMap<>();
+    private static volatile long total;
+
+    public static synchronized void recordPhase(String phase, long millis) {
+        phases.put(phase, millis);
+    }
+
+    public static void recordTotal(long millis) {
+        total = millis;
+    }
+
+    public static synchronized void clear() {
+        phases.clear();
+        total = 0;
+    }
+
+    /**
+     * @return copy of the phases in the order they are completed
+     */
+    public static synchronized Map<String, Long> getPhases() {
+        return new LinkedHashMap<>(phases);
+    }
+
+    /**
+     * @return time from the beginning of the startup until the server listens, 0 if not started
+     */
+    public static long getTotal() {
+        return total;
+    }
+
+    public static Map<String, Object> getReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("total", total);
+        report.put("phases", getPhases());
+        return report;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.networknt.utility;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.security.SecureRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Time ordered id of 128 bits encoded into 22 URL safe characters. The bits are
+ *
+ * 48 bits timestamp in milliseconds
+ * 24 bits node id
+ * 16 bits thread slot
+ * 40 bits counter of the thread
+ *
+ * Each thread gets its own slot and a counter starting from a random value, so no state is
+ * shared between threads once the thread has generated its first id. The characters are in
+ * ascending ASCII order of their values, so ids sort by time as strings.
+ */
+public class TimeIdGenerator extends IdGenerator {
+    static final char[] ALPHABET = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz".toCharArray();
+    static final int LENGTH = 22;
+
+    private static final long COUNTER_MASK = (1L << 40) - 1;
+    private static final AtomicInteger slots = new AtomicInteger();
+
+    private final long nodeId;
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+    public TimeIdGenerator() {
+        this(defaultNodeId());
+    }
+
+    public TimeIdGenerator(int nodeId) {
+        this.nodeId = nodeId & 0xFFFFFF;
+    }
+
+    /**
+     * Node id derived from the host address and process id with some random bits, so that
+     * instances on the same host or in containers with the same address are unlikely to clash.
+     * Set nodeId in idgenerator.json to make it deterministic.
+     */
+    static int defaultNodeId() {
+        int hash = 0;
+        try {
+            hash = InetAddress.getLocalHost().getHostAddress().hashCode();
+        } catch (Exception e) {
+            logger.warn("Unable to get host address for node id", e);
+        }
+        hash = 31 * hash + ManagementFactory.getRuntimeMXBean().getName().hashCode();
+        return (hash ^ new SecureRandom().nextInt()) & 0xFFFFFF;
+    }
+
+    @Override
+    public String nextId() {
+        State s = state.get();
+        long counter = s.counter++ & COUNTER_MASK;
+        long high = (System.currentTimeMillis() << 16) | (nodeId >>> 8);
+        long low = ((nodeId & 0xFF) << 56) | ((long)s.slot << 40) | counter;
+        return encode(high, low);
+    }
+
+    /**
+     * Encode the 128 bits into 22 characters with 6 bits each, starting from the top 2 bits.
+     */
+    static String encode(long high, long low) {
+        char[] chars = new char[LENGTH];
+        // the last 10 characters are the low 60 bits
+        for(int i = LENGTH - 1; i >= 12; i--) {
+            chars[i] = ALPHABET[(int)(low & 0x3F)];
+            low >>>= 6;
+        }
+        // character 11 has 4 bits of low and 2 bits of high
+        chars[11] = ALPHABET[(int)(low | ((high & 0x3) << 4))];
+        high >>>= 2;
+        for(int i = 10; i >= 0; i--) {
+            chars[i] = ALPHABET[(int)(high & 0x3F)];
+            high >>>= 6;
+        }
+        return new String(chars);
+    }
+
+    long getNodeId() {
+        return nodeId;
+    }
+
+    private static final class State {
+        final int slot = slots.getAndIncrement() & 0xFFFF;
+        long counter = ThreadLocalRandom.current().nextLong() & COUNTER_MASK;
+    }
+}
@@ -0,0 +1,33 @@
+package com.networknt.utility;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class GaugeRegistryTest {
+    @Test
+    public void testListener() {
+        GaugeRegistry.register("test_before", () -> 1);
+        List<GaugeRegistry.Entry> added = new ArrayList<>();
+        GaugeRegistry.addListener(added::add);
+        // the gauges registered before the listener are replayed.
+        Assert.assertTrue(added.stream().anyMatch(e -> e.getName().equals("test_before")));
+
+        int size = added.size();
+        GaugeRegistry.register("test_after", Collections.singletonMap("endpoint", "/v1/pets"), () -> 2L);
+        Assert.assertEquals(size + 1, added.size());
+        GaugeRegistry.Entry entry = added.get(size);
+        Assert.assertEquals("test_after", entry.getName());
+        Assert.assertEquals("/v1/pets", entry.getTags().get("endpoint"));
+        Assert.assertEquals(2L, entry.getValue());
+
+        // registered once per name and tags.
+        GaugeRegistry.register("test_after", Collections.singletonMap("endpoint", "/v1/pets"), () -> 3L);
+        Assert.assertEquals(size + 1, added.size());
+        GaugeRegistry.register("test_after", Collections.singletonMap("endpoint", "/v1/dogs"), () -> 4L);
+        Assert.assertEquals(size + 2, added.size());
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.networknt.utility;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+public class IdGeneratorTest {
+    @Test
+    public void testNextId() {
+        String id = IdGenerator.getInstance().nextId();
+        System.out.println("id = " + id);
+        Assert.assertEquals(22, id.length());
+        Assert.assertTrue(id.matches("[-_0-9A-Za-z]+"));
+    }
+
+    @Test
+    public void testEncode() {
+        Assert.assertEquals("----------------------", TimeIdGenerator.encode(0, 0));
+        Assert.assertEquals("---------------------0", TimeIdGenerator.encode(0, 1));
+        Assert.assertEquals("2zzzzzzzzzzzzzzzzzzzzz", TimeIdGenerator.encode(-1, -1));
+    }
+
+    @Test
+    public void testTimeOrdered() throws Exception {
+        TimeIdGenerator generator = new TimeIdGenerator(1);
+        String id1 = generator.nextId();
+        Thread.sleep(2);
+        String id2 = generator.nextId();
+        Assert.assertTrue(id1.compareTo(id2) < 0);
+        // ids of the same thread in the same millisecond are ordered by the counter
+        List<String> ids = new ArrayList<>();
+        for(int i = 0; i < 1000; i++) {
+            ids.add(generator.nextId());
+        }
+        List<String> sorted = new ArrayList<>(ids);
+        Collections.sort(sorted);
+        Assert.assertEquals(sorted, ids);
+        Assert.assertEquals(ids.size(), new HashSet<>(ids).size());
+    }
+
+    @Test
+    public void testUniqueAcrossThreads() throws Exception {
+        TimeIdGenerator generator = new TimeIdGenerator(1);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        int threads = 16;
+        int count = 10000;
+        CountDownLatch latch = new CountDownLatch(threads);
+        for(int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for(int i = 0; i < count; i++) {
+                    ids.add(generator.nextId());
+                }
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+        Assert.assertEquals(threads * count, ids.size());
+    }
+
+    @Test
+    public void testStrategy() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(IdGenerator.STRATEGY, IdGenerator.STRATEGY_UUID);
+        Assert.assertTrue(IdGenerator.create(config) instanceof UuidIdGenerator);
+        config.put(IdGenerator.STRATEGY, IdGenerator.STRATEGY_TIME);
+        config.put(IdGenerator.NODE_ID, 5);
+        IdGenerator generator = IdGenerator.create(config);
+        Assert.assertTrue(generator instanceof TimeIdGenerator);
+        Assert.assertEquals(5, ((TimeIdGenerator)generator).getNodeId());
+        Assert.assertTrue(IdGenerator.create(null) instanceof TimeIdGenerator);
+    }
+
+    /**
+     * Compare the throughput of the generators. It only runs with -Dutility.perf=true.
+     */
+    @Test
+    public void testNextIdPerf() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("utility.perf"));
+        IdGenerator time = new TimeIdGenerator();
+        IdGenerator uuid = new UuidIdGenerator();
+        for(int threads : new int[] {1, 4, 16, 64}) {
+            System.out.println("NextId Perf " + threads + " threads: time " + throughput(time, threads)
+                    + " ids/ms, uuid " + throughput(uuid, threads) + " ids/ms");
+        }
+    }
+
+    private static long throughput(IdGenerator generator, int threads) throws Exception {
+        int count = 200000 / threads;
+        LongAdder total = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for(int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for(int i = 0; i < count; i++) {
+                        generator.nextId();
+                    }
+                    total.add(count);
+                } catch (InterruptedException ignored) {
+                }
+                done.countDown();
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long millis = Math.max(1, (System.nanoTime() - begin) / 1000000);
+        return total.sum() / millis;
+    }
+}
@@ -24,7 +24,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 
-import com.networknt.registry.URLImpl;
+import com.networknt.registry.ImmutableURL;
 import com.networknt.status.Status;
 import com.networknt.zookeeper.client.ZooKeeperClient;
 import org.I0Itec.zkclient.IZkChildListener;
@@ -303,7 +303,7 @@ public class ZooKeeperRegistry extends CommandFailbackRegistry {
                 String nodePath = parentPath + Constants.PATH_SEPARATOR + node;
                 String data = client.readData(nodePath, true);
                 try {
-                    URL url = URLImpl.valueOf(data);
+                    URL url = ImmutableURL.valueOf(data);
                     urls.add(url);
                 } catch (Exception e) {
                     if(logger.isInfoEnabled()) logger.warn(String.format("Found malformed urls from ZooKeeperRegistry, path=%s", nodePath), e);